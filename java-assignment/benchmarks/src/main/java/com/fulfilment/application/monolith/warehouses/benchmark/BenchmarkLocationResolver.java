@@ -0,0 +1,21 @@
+package com.fulfilment.application.monolith.warehouses.benchmark;
+
+import com.fulfilment.application.monolith.warehouses.domain.models.Location;
+import com.fulfilment.application.monolith.warehouses.domain.ports.LocationResolver;
+import java.util.HashMap;
+import java.util.Map;
+
+/** A fixed set of locations held in a map, mirroring the location catalog lookup. */
+final class BenchmarkLocationResolver implements LocationResolver {
+
+  private final Map<String, Location> locations = new HashMap<>();
+
+  void add(Location location) {
+    locations.put(location.identification, location);
+  }
+
+  @Override
+  public Location resolveByIdentifier(String identifier) {
+    return identifier == null ? null : locations.get(identifier);
+  }
+}
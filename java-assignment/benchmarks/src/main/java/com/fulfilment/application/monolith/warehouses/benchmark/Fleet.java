@@ -0,0 +1,81 @@
+package com.fulfilment.application.monolith.warehouses.benchmark;
+
+import com.fulfilment.application.monolith.warehouses.adapters.memory.InMemoryWarehouseStore;
+import com.fulfilment.application.monolith.warehouses.domain.models.Location;
+import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import com.fulfilment.application.monolith.warehouses.domain.ports.LocationAdmissionGuard;
+import com.fulfilment.application.monolith.warehouses.domain.usecases.ArchiveWarehouseUseCase;
+import com.fulfilment.application.monolith.warehouses.domain.usecases.CreateWarehouseUseCase;
+import com.fulfilment.application.monolith.warehouses.domain.usecases.ReplaceWarehouseUseCase;
+import java.time.LocalDateTime;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A fleet of active warehouses spread evenly over locations, each location filled to all but one
+ * of its warehouse slots so that a create can always be admitted.
+ */
+@State(Scope.Benchmark)
+public class Fleet {
+
+  static final int WAREHOUSES_PER_LOCATION = 100;
+  static final int CAPACITY = 10;
+  static final int STOCK = 5;
+  // createAndArchive and replace archive on every call; the history must not grow with the run
+  static final int HISTORY_LIMIT = 16;
+
+  @Param({"10", "10000", "1000000"})
+  public int fleetSize;
+
+  InMemoryWarehouseStore store;
+  CreateWarehouseUseCase createUseCase;
+  ReplaceWarehouseUseCase replaceUseCase;
+  ArchiveWarehouseUseCase archiveUseCase;
+
+  // precomputed so the benchmarks do not measure string building
+  String[] locations;
+  String[] businessUnitCodes;
+  String[] warehouseLocations;
+
+  @Setup
+  public void setUp() {
+    int locationCount = (fleetSize + WAREHOUSES_PER_LOCATION - 1) / WAREHOUSES_PER_LOCATION;
+    var resolver = new BenchmarkLocationResolver();
+    locations = new String[locationCount];
+    for (int i = 0; i < locationCount; i++) {
+      locations[i] = "BENCH-" + i;
+      resolver.add(
+          new Location(
+              locations[i], WAREHOUSES_PER_LOCATION + 1, (WAREHOUSES_PER_LOCATION + 1) * CAPACITY));
+    }
+
+    store = new InMemoryWarehouseStore(HISTORY_LIMIT);
+    businessUnitCodes = new String[fleetSize];
+    warehouseLocations = new String[fleetSize];
+    var createdAt = LocalDateTime.now();
+    for (int i = 0; i < fleetSize; i++) {
+      businessUnitCodes[i] = "MWH.BENCH." + i;
+      warehouseLocations[i] = locations[i / WAREHOUSES_PER_LOCATION];
+      var warehouse = warehouse(businessUnitCodes[i], warehouseLocations[i]);
+      warehouse.createdAt = createdAt;
+      store.create(warehouse);
+    }
+
+    // admission is serialized by the database in production; there is nothing to lock here
+    LocationAdmissionGuard guard = location -> {};
+    createUseCase = new CreateWarehouseUseCase(store, resolver, guard);
+    replaceUseCase = new ReplaceWarehouseUseCase(store, resolver, guard);
+    archiveUseCase = new ArchiveWarehouseUseCase(store);
+  }
+
+  static Warehouse warehouse(String businessUnitCode, String location) {
+    var warehouse = new Warehouse();
+    warehouse.businessUnitCode = businessUnitCode;
+    warehouse.location = location;
+    warehouse.capacity = CAPACITY;
+    warehouse.stock = STOCK;
+    return warehouse;
+  }
+}
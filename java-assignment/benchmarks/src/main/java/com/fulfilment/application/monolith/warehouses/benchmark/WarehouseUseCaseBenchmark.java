@@ -0,0 +1,67 @@
+package com.fulfilment.application.monolith.warehouses.benchmark;
+
+import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the warehouse use cases against a {@link Fleet}. Every benchmark leaves the
+ * active fleet as it found it, so the fleet size stays fixed for the whole run. The archives
+ * {@code createAndArchive} and {@code replace} make on every call do land in the store's history,
+ * which the fleet caps at {@link Fleet#HISTORY_LIMIT} units per business unit code so the heap
+ * does not grow with the run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class WarehouseUseCaseBenchmark {
+
+  private static final String NEW_BUSINESS_UNIT_CODE = "MWH.BENCH.NEW";
+
+  private int next;
+
+  // create is admitted into the spare slot of a location, then archived to free it again
+  @Benchmark
+  public Warehouse createAndArchive(Fleet fleet) {
+    var warehouse =
+        Fleet.warehouse(NEW_BUSINESS_UNIT_CODE, fleet.locations[next++ % fleet.locations.length]);
+    fleet.createUseCase.create(warehouse);
+    fleet.archiveUseCase.archive(warehouse);
+    return warehouse;
+  }
+
+  // replacement archives the current unit and creates its successor in the same location
+  @Benchmark
+  public Warehouse replace(Fleet fleet) {
+    int index = next++ % fleet.fleetSize;
+    var warehouse =
+        Fleet.warehouse(fleet.businessUnitCodes[index], fleet.warehouseLocations[index]);
+    fleet.replaceUseCase.replace(warehouse);
+    return warehouse;
+  }
+
+  // the rejection path: the business unit code is already taken by an active warehouse
+  @Benchmark
+  public Object createDuplicate(Fleet fleet) {
+    int index = next++ % fleet.fleetSize;
+    var warehouse =
+        Fleet.warehouse(fleet.businessUnitCodes[index], fleet.warehouseLocations[index]);
+    try {
+      fleet.createUseCase.create(warehouse);
+      throw new IllegalStateException("duplicate business unit code was admitted");
+    } catch (IllegalArgumentException e) {
+      return e;
+    }
+  }
+}
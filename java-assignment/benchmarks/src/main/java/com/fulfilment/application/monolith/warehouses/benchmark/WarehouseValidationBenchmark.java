@@ -0,0 +1,51 @@
+package com.fulfilment.application.monolith.warehouses.benchmark;
+
+import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import com.fulfilment.application.monolith.warehouses.domain.usecases.WarehouseValidation;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Throughput of the field validation that runs before every create and replace. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WarehouseValidationBenchmark {
+
+  private Warehouse valid;
+  private Warehouse stockAboveCapacity;
+
+  @Setup
+  public void setUp() {
+    valid = Fleet.warehouse("MWH.BENCH.VALID", "BENCH-0");
+    stockAboveCapacity = Fleet.warehouse("MWH.BENCH.INVALID", "BENCH-0");
+    stockAboveCapacity.stock = stockAboveCapacity.capacity + 1;
+  }
+
+  @Benchmark
+  public Warehouse validateForCreateOrReplace() {
+    WarehouseValidation.validateForCreateOrReplace(valid);
+    return valid;
+  }
+
+  @Benchmark
+  public Object validateForCreateOrReplace_rejected() {
+    try {
+      WarehouseValidation.validateForCreateOrReplace(stockAboveCapacity);
+      throw new IllegalStateException("invalid warehouse was accepted");
+    } catch (IllegalArgumentException e) {
+      return e;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package com.fulfilment.application.monolith.common;
+
+import io.quarkus.runtime.configuration.MemorySize;
+import io.quarkus.vertx.http.runtime.filters.Filters;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Holds request bodies to {@code http.body-limit} on every route except {@code POST
+ * /product/import}, which streams whole supplier catalogs. Quarkus has one global body limit, so
+ * {@code quarkus.http.limits.max-body-size} is set to what the import may take and this filter
+ * keeps the other routes at the usual limit.
+ *
+ * <p>A body whose Content-Length exceeds the limit is answered with 413 before it is read. A
+ * chunked body, whose size is unknown until it is read, is read here while its bytes are counted,
+ * and answered with 413 once it passes the limit. The other routes take JSON, which is buffered
+ * whole anyway, so a body within the limit is handed on as if a body handler had read it.
+ */
+@ApplicationScoped
+public class HttpBodyLimit {
+
+  private static final Logger LOGGER = Logger.getLogger(HttpBodyLimit.class.getName());
+
+  static final String IMPORT_PATH = "/product/import";
+
+  @ConfigProperty(name = "http.body-limit", defaultValue = "10M")
+  MemorySize limit;
+
+  void register(@Observes Filters filters) {
+    filters.register(this::check, 100);
+  }
+
+  void check(RoutingContext context) {
+    HttpServerRequest request = context.request();
+    if (HttpMethod.POST.equals(request.method()) && IMPORT_PATH.equals(request.path())) {
+      context.next();
+      return;
+    }
+    String contentLength = request.getHeader("Content-Length");
+    int status = rejection(contentLength, limit.asLongValue());
+    if (status != 0) {
+      reject(
+          context,
+          status,
+          status == 413
+              ? "Request body exceeds " + limit.asLongValue() + " bytes."
+              : "Content-Length is not a number.");
+    } else if (unsized(contentLength, request.getHeader("Transfer-Encoding"))) {
+      readCounted(context);
+    } else {
+      context.next();
+    }
+  }
+
+  // 0 when the declared length may be read, otherwise the status to answer with
+  static int rejection(String contentLength, long limit) {
+    if (contentLength == null) {
+      return 0;
+    }
+    try {
+      return Long.parseLong(contentLength.trim()) > limit ? 413 : 0;
+    } catch (NumberFormatException e) {
+      return 400;
+    }
+  }
+
+  // a body without a Content-Length whose size is only known once it is read
+  static boolean unsized(String contentLength, String transferEncoding) {
+    return contentLength == null
+        && transferEncoding != null
+        && !"identity".equalsIgnoreCase(transferEncoding.trim());
+  }
+
+  private void readCounted(RoutingContext context) {
+    HttpServerRequest request = context.request();
+    long max = limit.asLongValue();
+    Buffer body = Buffer.buffer();
+    request.handler(
+        chunk -> {
+          if (context.response().ended()) {
+            return;
+          }
+          if (body.length() + (long) chunk.length() > max) {
+            reject(context, 413, "Request body exceeds " + max + " bytes.");
+            return;
+          }
+          body.appendBuffer(chunk);
+        });
+    request.exceptionHandler(context::fail);
+    request.endHandler(
+        ended -> {
+          if (!context.response().ended()) {
+            context.setBody(body);
+            context.next();
+          }
+        });
+    request.resume();
+  }
+
+  private static void reject(RoutingContext context, int status, String error) {
+    HttpServerRequest request = context.request();
+    LOGGER.debugf("%s %s rejected with %d", request.method(), request.path(), status);
+    // the rest of the body is not read, so the connection cannot be reused
+    context
+        .response()
+        .setStatusCode(status)
+        .putHeader("Connection", "close")
+        .putHeader("Content-Type", "application/json")
+        .end(
+            "{\"exceptionType\":\"HttpBodyLimit\",\"code\":"
+                + status
+                + ",\"error\":\""
+                + error
+                + "\"}");
+  }
+}
@@ -0,0 +1,47 @@
+package com.fulfilment.application.monolith.common;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.jboss.logging.Logger;
+
+/**
+ * Reports how many entries each Hibernate second-level cache region holds, as the gauge
+ * {@code hibernate.cache.region.entries}. Hibernate's own metrics already count the hits, misses
+ * and puts of every region; the entry count is what they are missing to size a region against its
+ * configured {@code memory.object-count}.
+ */
+@ApplicationScoped
+public class SecondLevelCacheMetrics {
+
+  private static final Logger LOGGER = Logger.getLogger(SecondLevelCacheMetrics.class.getName());
+
+  @Inject SessionFactory sessionFactory;
+  @Inject MeterRegistry meterRegistry;
+
+  void onStart(@Observes StartupEvent event) {
+    Statistics statistics = sessionFactory.getStatistics();
+    String[] regions = statistics.getSecondLevelCacheRegionNames();
+    for (String region : regions) {
+      Gauge.builder("hibernate.cache.region.entries", statistics, s -> entries(s, region))
+          .tag("region", region)
+          .register(meterRegistry);
+    }
+    LOGGER.debugf("registered entry gauges for %d second-level cache regions", regions.length);
+  }
+
+  // NaN when statistics are off or the cache provider cannot count its entries
+  static double entries(Statistics statistics, String region) {
+    CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+    if (regionStatistics == null || regionStatistics.getElementCountInMemory() < 0) {
+      return Double.NaN;
+    }
+    return regionStatistics.getElementCountInMemory();
+  }
+}
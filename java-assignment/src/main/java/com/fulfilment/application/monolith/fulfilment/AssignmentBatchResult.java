@@ -0,0 +1,10 @@
+package com.fulfilment.application.monolith.fulfilment;
+
+import java.util.List;
+
+public record AssignmentBatchResult(
+    List<FulfilmentAssignment> assigned, List<Rejection> rejected) {
+
+  // index is the position of the assignment in the submitted batch
+  public record Rejection(int index, String reason) {}
+}
@@ -0,0 +1,3 @@
+package com.fulfilment.application.monolith.fulfilment;
+
+public record AssignmentRequest(Long productId, Long storeId, String warehouseCode) {}
@@ -0,0 +1,33 @@
+package com.fulfilment.application.monolith.fulfilment;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/** A warehouse fulfilling a product for a store. */
+@Entity
+@Table(
+    name = "fulfilment_assignment",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"productId", "storeId", "warehouseCode"}))
+public class FulfilmentAssignment extends PanacheEntity {
+
+  @Column(nullable = false)
+  public Long productId;
+
+  @Column(nullable = false)
+  public Long storeId;
+
+  // business unit code, which survives the warehouse being replaced
+  @Column(nullable = false)
+  public String warehouseCode;
+
+  public FulfilmentAssignment() {}
+
+  public FulfilmentAssignment(Long productId, Long storeId, String warehouseCode) {
+    this.productId = productId;
+    this.storeId = storeId;
+    this.warehouseCode = warehouseCode;
+  }
+}
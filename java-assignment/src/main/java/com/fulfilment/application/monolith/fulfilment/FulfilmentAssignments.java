@@ -0,0 +1,333 @@
+package com.fulfilment.application.monolith.fulfilment;
+
+import com.fulfilment.application.monolith.products.Product;
+import com.fulfilment.application.monolith.products.ProductChange;
+import com.fulfilment.application.monolith.stores.Store;
+import com.fulfilment.application.monolith.stores.StoreTransactionEvent;
+import com.fulfilment.application.monolith.warehouses.domain.ports.WarehouseStore;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import org.jboss.logging.Logger;
+
+/**
+ * Assigns warehouses to fulfil products for stores, within the rules of {@link FulfilmentIndex}.
+ *
+ * <p>A batch write-locks the products, stores and warehouses it refers to, one {@code in} query
+ * each, so batches on any replica that touch the same store or warehouse run one at a time. It
+ * then reads the assignments of those stores and warehouses and checks every row against counts
+ * built from them, which is authoritative. The instance-wide index is reloaded from the same rows
+ * first and checked before them, as the pre-check; it also counts rows of batches still in flight
+ * on this instance. A batch costs the same handful of queries whatever its size.
+ *
+ * <p>Deleting a product or a store, or archiving a warehouse, removes its assignments in the same
+ * transaction.
+ */
+@ApplicationScoped
+public class FulfilmentAssignments {
+
+  private static final Logger LOGGER = Logger.getLogger(FulfilmentAssignments.class.getName());
+
+  static final int BATCH_SIZE = 50;
+  // keeps in lists well below the bind parameter limits of the databases we run on
+  private static final int LOOKUP_CHUNK = 1000;
+
+  private final FulfilmentIndex index = new FulfilmentIndex();
+
+  @Inject EntityManager entityManager;
+  @Inject TransactionSynchronizationRegistry transactionRegistry;
+  @Inject WarehouseStore warehouseStore;
+
+  @Transactional
+  void onStart(@Observes StartupEvent event) {
+    entityManager
+        .createQuery(
+            "select a.productId, a.storeId, a.warehouseCode from FulfilmentAssignment a",
+            Object[].class)
+        .getResultStream()
+        .forEach(row -> index.add(toKey(row)));
+    LOGGER.debugf("fulfilment index loaded with %d assignments", index.size());
+  }
+
+  // observed inside the deleting transaction, so the assignments go with the product or store
+  void onProductChange(@Observes ProductChange change) {
+    if (change.type() == ProductChange.Type.DELETED) {
+      removeWhere("a.productId", change.id());
+    }
+  }
+
+  void onStoreChange(@Observes StoreTransactionEvent event) {
+    if (event.type == StoreTransactionEvent.Type.DELETED) {
+      removeWhere("a.storeId", event.store.id);
+    }
+  }
+
+  /** Removes the assignments of an archived warehouse, in the archiving transaction. */
+  @Transactional(Transactional.TxType.MANDATORY)
+  public void unassignWarehouse(String warehouseCode) {
+    removeWhere("a.warehouseCode", warehouseCode);
+  }
+
+  /**
+   * Assigns each request that refers to an existing product, store and active warehouse and that
+   * keeps within the fulfilment rules. When {@code atomic}, one rejected request rejects the batch
+   * with an {@link IllegalArgumentException}.
+   */
+  @Transactional
+  public AssignmentBatchResult assign(List<AssignmentRequest> requests, boolean atomic) {
+    // the same lock order everywhere, so overlapping batches cannot deadlock
+    Set<Long> products =
+        lockIds(Product.class, p -> p.id, values(requests, AssignmentRequest::productId));
+    Set<Long> stores =
+        lockIds(Store.class, s -> s.id, values(requests, AssignmentRequest::storeId));
+    Set<String> warehouses = new HashSet<>();
+    for (List<String> chunk : chunks(values(requests, AssignmentRequest::warehouseCode))) {
+      warehouses.addAll(warehouseStore.lockActiveBusinessUnitCodes(chunk));
+    }
+
+    // with the stores and warehouses locked, nobody else can change their assignments
+    Set<FulfilmentIndex.Key> current = assignmentsOf(stores, warehouses);
+    var counted = new FulfilmentIndex();
+    current.forEach(counted::add);
+    index.reload(stores, warehouses, current);
+
+    List<FulfilmentIndex.Key> added = new ArrayList<>();
+    undoUnlessCommitted(added);
+
+    List<FulfilmentAssignment> assigned = new ArrayList<>();
+    List<AssignmentBatchResult.Rejection> rejected = new ArrayList<>();
+    for (int i = 0; i < requests.size(); i++) {
+      AssignmentRequest request = requests.get(i);
+      String reason = checkReferences(request, products, stores, warehouses);
+      if (reason == null) {
+        var key =
+            new FulfilmentIndex.Key(
+                request.productId(), request.storeId(), request.warehouseCode());
+        reason = index.tryAdd(key);
+        if (reason == null) {
+          reason = counted.tryAdd(key);
+          if (reason == null) {
+            added.add(key);
+            assigned.add(
+                new FulfilmentAssignment(
+                    request.productId(), request.storeId(), request.warehouseCode()));
+          } else {
+            index.remove(key);
+          }
+        }
+      }
+      if (reason != null) {
+        if (atomic) {
+          throw new IllegalArgumentException("Assignment " + i + ": " + reason);
+        }
+        rejected.add(new AssignmentBatchResult.Rejection(i, reason));
+      }
+    }
+
+    persistAll(assigned);
+    LOGGER.debugf("assign assigned=%d rejected=%d", assigned.size(), rejected.size());
+    return new AssignmentBatchResult(assigned, rejected);
+  }
+
+  public List<FulfilmentAssignment> find(Long productId, Long storeId, String warehouseCode) {
+    StringBuilder query = new StringBuilder("from FulfilmentAssignment a where 1 = 1");
+    if (productId != null) {
+      query.append(" and a.productId = :productId");
+    }
+    if (storeId != null) {
+      query.append(" and a.storeId = :storeId");
+    }
+    if (warehouseCode != null) {
+      query.append(" and a.warehouseCode = :warehouseCode");
+    }
+    var typed =
+        entityManager.createQuery(
+            query.append(" order by a.id").toString(), FulfilmentAssignment.class);
+    if (productId != null) {
+      typed.setParameter("productId", productId);
+    }
+    if (storeId != null) {
+      typed.setParameter("storeId", storeId);
+    }
+    if (warehouseCode != null) {
+      typed.setParameter("warehouseCode", warehouseCode);
+    }
+    return typed.getResultList();
+  }
+
+  /** Removes the assignment; its slots are freed once the transaction commits. */
+  @Transactional
+  public boolean unassign(Long id) {
+    FulfilmentAssignment assignment = entityManager.find(FulfilmentAssignment.class, id);
+    if (assignment == null) {
+      return false;
+    }
+    entityManager.remove(assignment);
+    removeOnCommit(
+        List.of(
+            new FulfilmentIndex.Key(
+                assignment.productId, assignment.storeId, assignment.warehouseCode)));
+    return true;
+  }
+
+  // null when the request refers to things that exist
+  private static String checkReferences(
+      AssignmentRequest request, Set<Long> products, Set<Long> stores, Set<String> warehouses) {
+    if (request == null
+        || request.productId() == null
+        || request.storeId() == null
+        || request.warehouseCode() == null) {
+      return "Product, store and warehouse are required.";
+    }
+    if (!products.contains(request.productId())) {
+      return "Product " + request.productId() + " does not exist.";
+    }
+    if (!stores.contains(request.storeId())) {
+      return "Store " + request.storeId() + " does not exist.";
+    }
+    if (!warehouses.contains(request.warehouseCode())) {
+      return "Warehouse " + request.warehouseCode() + " does not exist or is archived.";
+    }
+    return null;
+  }
+
+  private void removeWhere(String column, Object value) {
+    List<FulfilmentIndex.Key> removed =
+        entityManager
+            .createQuery(
+                "select a.productId, a.storeId, a.warehouseCode from FulfilmentAssignment a"
+                    + " where " + column + " = :value",
+                Object[].class)
+            .setParameter("value", value)
+            .getResultStream()
+            .map(FulfilmentAssignments::toKey)
+            .toList();
+    if (removed.isEmpty()) {
+      return;
+    }
+    entityManager
+        .createQuery("delete from FulfilmentAssignment a where " + column + " = :value")
+        .setParameter("value", value)
+        .executeUpdate();
+    removeOnCommit(removed);
+    LOGGER.debugf("removed %d assignments where %s=%s", removed.size(), column, value);
+  }
+
+  private void removeOnCommit(List<FulfilmentIndex.Key> removed) {
+    transactionRegistry.registerInterposedSynchronization(
+        new Synchronization() {
+          @Override
+          public void beforeCompletion() {}
+
+          @Override
+          public void afterCompletion(int status) {
+            if (status == Status.STATUS_COMMITTED) {
+              removed.forEach(index::remove);
+            }
+          }
+        });
+  }
+
+  private void undoUnlessCommitted(List<FulfilmentIndex.Key> added) {
+    transactionRegistry.registerInterposedSynchronization(
+        new Synchronization() {
+          @Override
+          public void beforeCompletion() {}
+
+          @Override
+          public void afterCompletion(int status) {
+            if (status != Status.STATUS_COMMITTED) {
+              added.forEach(index::remove);
+            }
+          }
+        });
+  }
+
+  private void persistAll(List<FulfilmentAssignment> assignments) {
+    for (int i = 0; i < assignments.size(); i++) {
+      entityManager.persist(assignments.get(i));
+      if ((i + 1) % BATCH_SIZE == 0) {
+        entityManager.flush();
+        entityManager.clear();
+      }
+    }
+    entityManager.flush();
+  }
+
+  // the ids that exist, each row write-locked until the transaction ends
+  private <T> Set<Long> lockIds(Class<T> type, Function<T, Long> id, Set<Long> ids) {
+    Set<Long> found = new HashSet<>();
+    for (List<Long> chunk : chunks(ids)) {
+      entityManager
+          .createQuery(
+              "select e from " + type.getSimpleName() + " e where e.id in :ids order by e.id",
+              type)
+          .setParameter("ids", chunk)
+          .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+          .getResultStream()
+          .forEach(entity -> found.add(id.apply(entity)));
+    }
+    return found;
+  }
+
+  private Set<FulfilmentIndex.Key> assignmentsOf(Set<Long> stores, Set<String> warehouses) {
+    Set<FulfilmentIndex.Key> found = new HashSet<>();
+    for (List<Long> chunk : chunks(stores)) {
+      readKeys("a.storeId in :values", chunk, found);
+    }
+    for (List<String> chunk : chunks(warehouses)) {
+      readKeys("a.warehouseCode in :values", chunk, found);
+    }
+    return found;
+  }
+
+  private void readKeys(String condition, List<?> values, Set<FulfilmentIndex.Key> into) {
+    entityManager
+        .createQuery(
+            "select a.productId, a.storeId, a.warehouseCode from FulfilmentAssignment a where "
+                + condition,
+            Object[].class)
+        .setParameter("values", values)
+        .getResultStream()
+        .forEach(row -> into.add(toKey(row)));
+  }
+
+  private static FulfilmentIndex.Key toKey(Object[] row) {
+    return new FulfilmentIndex.Key((Long) row[0], (Long) row[1], (String) row[2]);
+  }
+
+  private static <T> Set<T> values(
+      List<AssignmentRequest> requests, Function<AssignmentRequest, T> value) {
+    Set<T> values = new HashSet<>();
+    for (AssignmentRequest request : requests) {
+      T v = request == null ? null : value.apply(request);
+      if (v != null) {
+        values.add(v);
+      }
+    }
+    return values;
+  }
+
+  // sorted, so chunked lock queries still lock in one global order
+  private static <T extends Comparable<T>> List<List<T>> chunks(Set<T> values) {
+    List<T> all = new ArrayList<>(new TreeSet<>(values));
+    List<List<T>> chunks = new ArrayList<>();
+    for (int from = 0; from < all.size(); from += LOOKUP_CHUNK) {
+      chunks.add(all.subList(from, Math.min(from + LOOKUP_CHUNK, all.size())));
+    }
+    return chunks;
+  }
+}
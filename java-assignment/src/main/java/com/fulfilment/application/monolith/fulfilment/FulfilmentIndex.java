@@ -0,0 +1,161 @@
+package com.fulfilment.application.monolith.fulfilment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Counts of the assignments in force, kept so that each fulfilment rule is one map lookup:
+ *
+ * <ul>
+ *   <li>a product is fulfilled by at most {@value #MAX_WAREHOUSES_PER_PRODUCT_IN_STORE} warehouses
+ *       per store,
+ *   <li>a store is fulfilled by at most {@value #MAX_WAREHOUSES_PER_STORE} warehouses,
+ *   <li>a warehouse fulfils at most {@value #MAX_PRODUCTS_PER_WAREHOUSE} products.
+ * </ul>
+ *
+ * <p>Per store and per warehouse the index counts how many assignments go through each warehouse
+ * and product, so removing one assignment only frees a slot once its last assignment is gone. The
+ * same counts, with the stores per warehouse, find the assignments of a store or warehouse without
+ * walking the others.
+ */
+final class FulfilmentIndex {
+
+  static final int MAX_WAREHOUSES_PER_PRODUCT_IN_STORE = 2;
+  static final int MAX_WAREHOUSES_PER_STORE = 3;
+  static final int MAX_PRODUCTS_PER_WAREHOUSE = 5;
+
+  record Key(Long productId, Long storeId, String warehouseCode) {}
+
+  private record ProductInStore(Long productId, Long storeId) {}
+
+  private final Set<Key> assigned = new HashSet<>();
+  private final Map<ProductInStore, Integer> warehousesPerProductInStore = new HashMap<>();
+  private final Map<Long, Map<String, Integer>> warehousesPerStore = new HashMap<>();
+  private final Map<String, Map<Long, Integer>> productsPerWarehouse = new HashMap<>();
+  private final Map<String, Map<Long, Integer>> storesPerWarehouse = new HashMap<>();
+
+  /** Adds the assignment if no rule forbids it; otherwise returns why not. */
+  synchronized String tryAdd(Key key) {
+    if (assigned.contains(key)) {
+      return "Product "
+          + key.productId()
+          + " is already fulfilled by warehouse "
+          + key.warehouseCode()
+          + " for store "
+          + key.storeId()
+          + ".";
+    }
+    var productInStore = new ProductInStore(key.productId(), key.storeId());
+    if (warehousesPerProductInStore.getOrDefault(productInStore, 0)
+        >= MAX_WAREHOUSES_PER_PRODUCT_IN_STORE) {
+      return "Product "
+          + key.productId()
+          + " is already fulfilled by "
+          + MAX_WAREHOUSES_PER_PRODUCT_IN_STORE
+          + " warehouses for store "
+          + key.storeId()
+          + ".";
+    }
+    Map<String, Integer> storeWarehouses = warehousesPerStore.getOrDefault(key.storeId(), Map.of());
+    if (!storeWarehouses.containsKey(key.warehouseCode())
+        && storeWarehouses.size() >= MAX_WAREHOUSES_PER_STORE) {
+      return "Store "
+          + key.storeId()
+          + " is already fulfilled by "
+          + MAX_WAREHOUSES_PER_STORE
+          + " warehouses.";
+    }
+    Map<Long, Integer> warehouseProducts =
+        productsPerWarehouse.getOrDefault(key.warehouseCode(), Map.of());
+    if (!warehouseProducts.containsKey(key.productId())
+        && warehouseProducts.size() >= MAX_PRODUCTS_PER_WAREHOUSE) {
+      return "Warehouse "
+          + key.warehouseCode()
+          + " already fulfils "
+          + MAX_PRODUCTS_PER_WAREHOUSE
+          + " products.";
+    }
+    add(key);
+    return null;
+  }
+
+  // for assignments already in force, which passed the rules when they were made
+  synchronized void add(Key key) {
+    if (!assigned.add(key)) {
+      return;
+    }
+    warehousesPerProductInStore.merge(
+        new ProductInStore(key.productId(), key.storeId()), 1, Integer::sum);
+    warehousesPerStore
+        .computeIfAbsent(key.storeId(), s -> new HashMap<>())
+        .merge(key.warehouseCode(), 1, Integer::sum);
+    productsPerWarehouse
+        .computeIfAbsent(key.warehouseCode(), w -> new HashMap<>())
+        .merge(key.productId(), 1, Integer::sum);
+    storesPerWarehouse
+        .computeIfAbsent(key.warehouseCode(), w -> new HashMap<>())
+        .merge(key.storeId(), 1, Integer::sum);
+  }
+
+  synchronized void remove(Key key) {
+    if (!assigned.remove(key)) {
+      return;
+    }
+    warehousesPerProductInStore.computeIfPresent(
+        new ProductInStore(key.productId(), key.storeId()), (k, n) -> n == 1 ? null : n - 1);
+    decrement(warehousesPerStore, key.storeId(), key.warehouseCode());
+    decrement(productsPerWarehouse, key.warehouseCode(), key.productId());
+    decrement(storesPerWarehouse, key.warehouseCode(), key.storeId());
+  }
+
+  /**
+   * Makes the assignments of {@code stores} and {@code warehouses} exactly {@code current}, which
+   * were read from the database; other assignments are left alone.
+   */
+  synchronized void reload(Set<Long> stores, Set<String> warehouses, Set<Key> current) {
+    var stale = new ArrayList<Key>();
+    for (Long storeId : stores) {
+      for (String warehouseCode : warehousesPerStore.getOrDefault(storeId, Map.of()).keySet()) {
+        collectStale(Set.of(storeId), warehouseCode, current, stale);
+      }
+    }
+    for (String warehouseCode : warehouses) {
+      Set<Long> storeIds = storesPerWarehouse.getOrDefault(warehouseCode, Map.of()).keySet();
+      collectStale(storeIds, warehouseCode, current, stale);
+    }
+    stale.forEach(this::remove);
+    current.forEach(this::add);
+  }
+
+  synchronized int size() {
+    return assigned.size();
+  }
+
+  // the assignments of the warehouse to these stores that are no longer current
+  private void collectStale(
+      Set<Long> storeIds, String warehouseCode, Set<Key> current, List<Key> stale) {
+    for (Long productId : productsPerWarehouse.getOrDefault(warehouseCode, Map.of()).keySet()) {
+      for (Long storeId : storeIds) {
+        Key key = new Key(productId, storeId, warehouseCode);
+        if (assigned.contains(key) && !current.contains(key)) {
+          stale.add(key);
+        }
+      }
+    }
+  }
+
+  private static <K, V> void decrement(Map<K, Map<V, Integer>> counts, K outer, V inner) {
+    Map<V, Integer> values = counts.get(outer);
+    if (values == null) {
+      return;
+    }
+    values.computeIfPresent(inner, (k, n) -> n == 1 ? null : n - 1);
+    if (values.isEmpty()) {
+      counts.remove(outer);
+    }
+  }
+}
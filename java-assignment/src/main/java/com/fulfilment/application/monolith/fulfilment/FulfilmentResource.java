@@ -0,0 +1,74 @@
+package com.fulfilment.application.monolith.fulfilment;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import java.util.List;
+import org.jboss.logging.Logger;
+
+/**
+ * Which warehouses fulfil which products for which stores; see {@link FulfilmentIndex} for
+ * the rules an assignment has to keep within.
+ */
+@Path("fulfilment/assignments")
+@ApplicationScoped
+@Produces("application/json")
+@Consumes("application/json")
+public class FulfilmentResource {
+
+  @Inject FulfilmentAssignments fulfilmentAssignments;
+
+  private static final Logger LOGGER = Logger.getLogger(FulfilmentResource.class.getName());
+
+  static final int MAX_BATCH_SIZE = 10_000;
+
+  @GET
+  public List<FulfilmentAssignment> find(
+      @QueryParam("productId") Long productId,
+      @QueryParam("storeId") Long storeId,
+      @QueryParam("warehouseCode") String warehouseCode) {
+    return fulfilmentAssignments.find(productId, storeId, warehouseCode);
+  }
+
+  @POST
+  public AssignmentBatchResult assign(
+      List<AssignmentRequest> requests,
+      @QueryParam("atomic") @DefaultValue("true") boolean atomic) {
+    if (requests == null || requests.isEmpty()) {
+      throw new WebApplicationException("A batch must contain at least one assignment", 400);
+    }
+    if (requests.size() > MAX_BATCH_SIZE) {
+      throw new WebApplicationException(
+          "A batch can contain at most " + MAX_BATCH_SIZE + " assignments", 400);
+    }
+    try {
+      AssignmentBatchResult result = fulfilmentAssignments.assign(requests, atomic);
+      LOGGER.debugf(
+          "assign requested=%d assigned=%d rejected=%d atomic=%s",
+          requests.size(), result.assigned().size(), result.rejected().size(), atomic);
+      return result;
+    } catch (IllegalArgumentException e) {
+      throw new WebApplicationException(e.getMessage(), 400);
+    }
+  }
+
+  @DELETE
+  @Path("{id}")
+  public Response unassign(Long id) {
+    if (!fulfilmentAssignments.unassign(id)) {
+      throw new WebApplicationException(
+          "Fulfilment assignment with id of " + id + " does not exist.", 404);
+    }
+    LOGGER.debugf("unassigned fulfilment assignment id=%d", id);
+    return Response.status(204).build();
+  }
+}
@@ -0,0 +1,59 @@
+package com.fulfilment.application.monolith.location;
+
+import com.fulfilment.application.monolith.warehouses.domain.models.Location;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parses a location catalog in the {@code identification,maxNumberOfWarehouses,maxCapacity}
+ * line format. Blank lines and lines starting with {@code #} are ignored.
+ */
+final class LocationCatalogParser {
+
+  private LocationCatalogParser() {}
+
+  static Map<String, Location> parse(BufferedReader reader) throws IOException {
+    Map<String, Location> locations = new HashMap<>();
+    String line;
+    int lineNumber = 0;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      String trimmed = line.trim();
+      if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+        continue;
+      }
+
+      String[] columns = trimmed.split(",");
+      if (columns.length != 3) {
+        throw new IllegalArgumentException(
+            "Invalid location catalog entry at line " + lineNumber + ": " + line);
+      }
+
+      Location location;
+      try {
+        location =
+            new Location(
+                columns[0].trim(),
+                Integer.parseInt(columns[1].trim()),
+                Integer.parseInt(columns[2].trim()));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(
+            "Invalid location catalog limits at line " + lineNumber + ": " + line);
+      }
+
+      if (location.identification.isEmpty()
+          || location.maxNumberOfWarehouses < 0
+          || location.maxCapacity < 0) {
+        throw new IllegalArgumentException(
+            "Invalid location catalog entry at line " + lineNumber + ": " + line);
+      }
+      if (locations.putIfAbsent(location.identification, location) != null) {
+        throw new IllegalArgumentException(
+            "Duplicate location " + location.identification + " at line " + lineNumber);
+      }
+    }
+    return Map.copyOf(locations);
+  }
+}
@@ -2,31 +2,98 @@ package com.fulfilment.application.monolith.location;
 
 import com.fulfilment.application.monolith.warehouses.domain.models.Location;
 import com.fulfilment.application.monolith.warehouses.domain.ports.LocationResolver;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
 
+/**
+ * Resolves locations from an immutable, hash-indexed catalog snapshot. A reload parses the catalog
+ * aside and swaps the snapshot atomically, so lookups never lock and never see a partial catalog.
+ */
 @ApplicationScoped
 public class LocationGateway implements LocationResolver {
+  private static final Logger LOGGER = Logger.getLogger(LocationGateway.class.getName());
 
-  private static final List<Location> locations = new ArrayList<>();
-
-  static {
-    locations.add(new Location("ZWOLLE-001", 1, 40));
-    locations.add(new Location("ZWOLLE-002", 2, 50));
-    locations.add(new Location("AMSTERDAM-001", 5, 100));
-    locations.add(new Location("AMSTERDAM-002", 3, 75));
-    locations.add(new Location("TILBURG-001", 1, 40));
-    locations.add(new Location("HELMOND-001", 1, 45));
-    locations.add(new Location("EINDHOVEN-001", 2, 70));
-    locations.add(new Location("VETSBY-001", 1, 90));
+  static final String DEFAULT_CATALOG_RESOURCE = "locations.csv";
+
+  @ConfigProperty(name = "location.catalog.path")
+  Optional<String> catalogPath = Optional.empty();
+
+  private final AtomicReference<Map<String, Location>> snapshot =
+      new AtomicReference<>(Map.of());
+
+  // not in a constructor: the container also constructs its client proxy, which would parse the
+  // catalog for nothing
+  @PostConstruct
+  void init() {
+    reload();
   }
 
   @Override
   public Location resolveByIdentifier(String identifier) {
-    return locations.stream()
-        .filter(location -> location.identification.equals(identifier))
-        .findFirst()
-        .orElse(null);
+    if (identifier == null) {
+      return null;
+    }
+    return snapshot.get().get(identifier);
+  }
+
+  /**
+   * Reloads the catalog from {@code location.catalog.path}, or from the bundled default catalog
+   * when no path is configured. On failure the current snapshot is kept.
+   *
+   * @return the number of locations in the new snapshot
+   */
+  public synchronized int reload() {
+    Map<String, Location> next =
+        catalogPath.isPresent() ? loadCatalog(Path.of(catalogPath.get())) : loadDefaultCatalog();
+    snapshot.set(next);
+    LOGGER.infof("location catalog reloaded with %d locations", next.size());
+    return next.size();
+  }
+
+  synchronized int reload(Path path) {
+    Map<String, Location> next = loadCatalog(path);
+    snapshot.set(next);
+    LOGGER.infof("location catalog reloaded from %s with %d locations", path, next.size());
+    return next.size();
+  }
+
+  public int size() {
+    return snapshot.get().size();
+  }
+
+  private static Map<String, Location> loadCatalog(Path path) {
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      return LocationCatalogParser.parse(reader);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to read location catalog " + path, e);
+    }
+  }
+
+  private static Map<String, Location> loadDefaultCatalog() {
+    InputStream stream =
+        LocationGateway.class.getClassLoader().getResourceAsStream(DEFAULT_CATALOG_RESOURCE);
+    if (stream == null) {
+      throw new IllegalStateException(
+          "Default location catalog " + DEFAULT_CATALOG_RESOURCE + " not found");
+    }
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+      return LocationCatalogParser.parse(reader);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to read default location catalog", e);
+    }
   }
 }
@@ -0,0 +1,43 @@
+package com.fulfilment.application.monolith.location;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import org.jboss.logging.Logger;
+
+@Path("location")
+@ApplicationScoped
+@Produces("application/json")
+public class LocationResource {
+
+  @Inject LocationGateway locationGateway;
+
+  private static final Logger LOGGER = Logger.getLogger(LocationResource.class.getName());
+
+  /**
+   * Reloads the location catalog. A malformed catalog is answered with 400 and a missing or
+   * unreadable one with 503; either way the previous catalog stays in use.
+   */
+  @POST
+  @Path("reload")
+  public Response reload() {
+    LOGGER.debug("location catalog reload requested");
+    try {
+      int size = locationGateway.reload();
+      return Response.ok(Map.of("locations", size)).build();
+    } catch (IllegalArgumentException e) {
+      throw new WebApplicationException(e.getMessage(), 400);
+    } catch (UncheckedIOException e) {
+      // the message names the file, which is only for the log
+      LOGGER.warnf("location catalog reload failed: %s: %s", e.getMessage(), e.getCause());
+      throw new WebApplicationException(
+          "The location catalog could not be read; the previous catalog stays in use.", 503);
+    }
+  }
+}
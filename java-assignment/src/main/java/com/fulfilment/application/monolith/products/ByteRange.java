@@ -0,0 +1,47 @@
+package com.fulfilment.application.monolith.products;
+
+/** A single byte range of an HTTP Range header, resolved against the length of the content. */
+record ByteRange(long offset, long length) {
+
+  static final ByteRange UNSATISFIABLE = new ByteRange(-1, 0);
+
+  /**
+   * Resolves {@code bytes=first-last}, {@code bytes=first-} or {@code bytes=-suffix}. Returns null
+   * for a header to ignore, as the whole content is then served: no header, another unit, a
+   * malformed spec or several ranges. Returns {@link #UNSATISFIABLE} for a well-formed range that
+   * lies past the end of the content.
+   */
+  static ByteRange parse(String header, long size) {
+    if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+      return null;
+    }
+    String spec = header.substring("bytes=".length()).trim();
+    int dash = spec.indexOf('-');
+    if (dash < 0) {
+      return null;
+    }
+    try {
+      String first = spec.substring(0, dash).trim();
+      String last = spec.substring(dash + 1).trim();
+      if (first.isEmpty()) {
+        long suffix = Long.parseLong(last);
+        if (suffix <= 0 || size == 0) {
+          return suffix < 0 ? null : UNSATISFIABLE;
+        }
+        long length = Math.min(suffix, size);
+        return new ByteRange(size - length, length);
+      }
+      long offset = Long.parseLong(first);
+      long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+      if (offset < 0 || end < offset) {
+        return null;
+      }
+      if (offset >= size) {
+        return UNSATISFIABLE;
+      }
+      return new ByteRange(offset, Math.min(end, size - 1) - offset + 1);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+}
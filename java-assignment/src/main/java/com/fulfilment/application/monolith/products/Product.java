@@ -1,5 +1,6 @@
 package com.fulfilment.application.monolith.products;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -24,6 +25,13 @@ public class Product {
 
   public int stock;
 
+  // units of stock claimed by the instances taking reservations; see ProductReservations. Only
+  // written by explicit updates under the row lock, so saving a product read from the cache
+  // cannot undo a claim
+  @JsonIgnore
+  @Column(updatable = false)
+  public int claimed;
+
   public Product() {}
 
   public Product(String name) {
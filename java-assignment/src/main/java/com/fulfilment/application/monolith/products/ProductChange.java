@@ -0,0 +1,29 @@
+package com.fulfilment.application.monolith.products;
+
+import java.math.BigDecimal;
+
+/**
+ * A product write, fired inside the writing transaction. Observers that keep derived state should
+ * observe it {@code during = AFTER_SUCCESS}, so a rolled back write never reaches them.
+ */
+public record ProductChange(
+    Type type, Long id, String name, String description, BigDecimal price, int stock) {
+
+  public enum Type {
+    SAVED,
+    DELETED
+  }
+
+  static ProductChange saved(Product product) {
+    return of(Type.SAVED, product);
+  }
+
+  static ProductChange deleted(Product product) {
+    return of(Type.DELETED, product);
+  }
+
+  private static ProductChange of(Type type, Product product) {
+    return new ProductChange(
+        type, product.id, product.name, product.description, product.price, product.stock);
+  }
+}
@@ -0,0 +1,34 @@
+package com.fulfilment.application.monolith.products;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Marks a product as written, by the transaction that wrote it, so every replica's search index
+ * picks the write up, not only the one that committed it. Ids are assigned on insert, so they grow
+ * with time across replicas. Rows are kept for {@code product.search.retention}.
+ */
+@Entity
+@Table(name = "product_change", indexes = @Index(columnList = "recordedAt"))
+public class ProductChangeRecord {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  public Long id;
+
+  public Long productId;
+
+  public LocalDateTime recordedAt;
+
+  public ProductChangeRecord() {}
+
+  ProductChangeRecord(Long productId) {
+    this.productId = productId;
+    this.recordedAt = LocalDateTime.now();
+  }
+}
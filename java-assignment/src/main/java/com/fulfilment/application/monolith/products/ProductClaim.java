@@ -0,0 +1,34 @@
+package com.fulfilment.application.monolith.products;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+// units of a product's stock claimed by one instance, so they can be reclaimed if it dies
+@Entity
+@Table(
+    name = "product_claim",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"instance", "productId"}))
+public class ProductClaim {
+
+  @Id @GeneratedValue public Long id;
+
+  @Column(length = 36, nullable = false)
+  public String instance;
+
+  @Column(nullable = false)
+  public Long productId;
+
+  public int units;
+
+  public ProductClaim() {}
+
+  ProductClaim(String instance, Long productId, int units) {
+    this.instance = instance;
+    this.productId = productId;
+    this.units = units;
+  }
+}
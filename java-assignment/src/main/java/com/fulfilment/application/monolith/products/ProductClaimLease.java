@@ -0,0 +1,26 @@
+package com.fulfilment.application.monolith.products;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+
+// an instance's hold on its product claims; once it runs out another instance reclaims them
+@Entity
+@Table(name = "product_claim_lease")
+public class ProductClaimLease {
+
+  @Id
+  @Column(length = 36)
+  public String instance;
+
+  public Instant expiresAt;
+
+  public ProductClaimLease() {}
+
+  ProductClaimLease(String instance, Instant expiresAt) {
+    this.instance = instance;
+    this.expiresAt = expiresAt;
+  }
+}
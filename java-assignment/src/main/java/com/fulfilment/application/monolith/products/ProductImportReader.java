@@ -0,0 +1,260 @@
+package com.fulfilment.application.monolith.products;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads an import body one product at a time, so only the current line is ever held.
+ *
+ * <p>CSV needs a header line naming its columns, among {@code name}, {@code description},
+ * {@code price} and {@code stock}, in any order; fields may be quoted with {@code "}, with {@code
+ * ""} for a quote inside a quoted field, but a record cannot span lines. NDJSON has one product
+ * object per line, with the same fields. Blank lines are skipped in both. A line longer than
+ * {@link #MAX_LINE} characters is skipped as an error without being held, so a body without line
+ * breaks cannot fill the heap.
+ */
+final class ProductImportReader {
+
+  enum Format {
+    CSV,
+    NDJSON
+  }
+
+  // one line of the body: a product, or why the line could not be read as one
+  record Row(long line, Product product, String error) {}
+
+  private static final List<String> COLUMNS = List.of("name", "description", "price", "stock");
+
+  // far more than the columns of a product can hold
+  static final int MAX_LINE = 8192;
+
+  private final BufferedReader reader;
+  private final Format format;
+  private final ObjectMapper objectMapper;
+  private Map<String, Integer> columns;
+  private long line;
+  // the body is read through this rather than readLine, which holds a line of any length
+  private final char[] buffer = new char[8192];
+  private int position;
+  private int end;
+  private final StringBuilder text = new StringBuilder();
+  private boolean overlong;
+
+  ProductImportReader(BufferedReader reader, Format format, ObjectMapper objectMapper) {
+    this.reader = reader;
+    this.format = format;
+    this.objectMapper = objectMapper;
+  }
+
+  /** The next row, or null at the end of the body. */
+  Row next() throws IOException {
+    String text;
+    do {
+      text = readLine();
+      if (text == null) {
+        return null;
+      }
+      line++;
+    } while (!overlong && text.isBlank());
+
+    if (overlong) {
+      if (columns == null && format == Format.CSV) {
+        throw new IllegalArgumentException(
+            "CSV header is longer than " + MAX_LINE + " characters.");
+      }
+      return new Row(line, null, "Line is longer than " + MAX_LINE + " characters.");
+    }
+
+    if (format == Format.NDJSON) {
+      return fromJson(text);
+    }
+    if (columns == null) {
+      columns = header(text);
+      return next();
+    }
+    return fromCsv(text);
+  }
+
+  // the next line without its terminator, or null at the end of the body; the characters past
+  // MAX_LINE are skipped and flagged as overlong
+  private String readLine() throws IOException {
+    text.setLength(0);
+    overlong = false;
+    boolean any = false;
+    while (true) {
+      if (position == end) {
+        end = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        if (end == -1) {
+          end = 0;
+          return any ? text.toString() : null;
+        }
+      }
+      any = true;
+      char c = buffer[position++];
+      if (c == '\n') {
+        return text.toString();
+      }
+      if (c == '\r') {
+        if (position == end) {
+          end = reader.read(buffer, 0, buffer.length);
+          position = 0;
+          if (end == -1) {
+            end = 0;
+            return text.toString();
+          }
+        }
+        if (buffer[position] == '\n') {
+          position++;
+        }
+        return text.toString();
+      }
+      if (text.length() < MAX_LINE) {
+        text.append(c);
+      } else {
+        overlong = true;
+      }
+    }
+  }
+
+  private Row fromJson(String text) {
+    JsonNode node;
+    try {
+      node = objectMapper.readTree(text);
+    } catch (JsonProcessingException e) {
+      return new Row(line, null, "Line is not a JSON object.");
+    }
+    if (node == null || !node.isObject()) {
+      return new Row(line, null, "Line is not a JSON object.");
+    }
+    if (node.hasNonNull("id")) {
+      return new Row(line, null, "Id was invalidly set on product.");
+    }
+    Product product = new Product();
+    product.name = text(node, "name");
+    product.description = text(node, "description");
+    JsonNode price = node.get("price");
+    JsonNode stock = node.get("stock");
+    if (price != null && !price.isNull()) {
+      if (!price.isNumber()) {
+        return new Row(line, null, "Price is not a number.");
+      }
+      product.price = price.decimalValue();
+    }
+    if (stock != null && !stock.isNull()) {
+      if (!stock.canConvertToInt() || !stock.isIntegralNumber()) {
+        return new Row(line, null, "Stock is not a whole number.");
+      }
+      product.stock = stock.intValue();
+    }
+    return new Row(line, product, null);
+  }
+
+  private Row fromCsv(String text) {
+    List<String> fields = split(text);
+    if (fields == null) {
+      return new Row(line, null, "Line has an unterminated quoted field.");
+    }
+    if (fields.size() != columns.size()) {
+      return new Row(
+          line, null, "Line has " + fields.size() + " fields, the header " + columns.size() + ".");
+    }
+    Product product = new Product();
+    product.name = field(fields, "name");
+    product.description = field(fields, "description");
+    try {
+      String price = field(fields, "price");
+      if (price != null) {
+        product.price = new BigDecimal(price);
+      }
+    } catch (NumberFormatException e) {
+      return new Row(line, null, "Price is not a number.");
+    }
+    try {
+      String stock = field(fields, "stock");
+      if (stock != null) {
+        product.stock = Integer.parseInt(stock);
+      }
+    } catch (NumberFormatException e) {
+      return new Row(line, null, "Stock is not a whole number.");
+    }
+    return new Row(line, product, null);
+  }
+
+  private Map<String, Integer> header(String text) {
+    List<String> names = split(text);
+    if (names == null) {
+      throw new IllegalArgumentException("CSV header has an unterminated quoted field.");
+    }
+    Map<String, Integer> positions = new HashMap<>();
+    for (int i = 0; i < names.size(); i++) {
+      String name = names.get(i).trim().toLowerCase(Locale.ROOT);
+      if (!COLUMNS.contains(name)) {
+        throw new IllegalArgumentException("CSV header has an unknown column " + name + ".");
+      }
+      if (positions.put(name, i) != null) {
+        throw new IllegalArgumentException("CSV header names column " + name + " twice.");
+      }
+    }
+    if (!positions.containsKey("name")) {
+      throw new IllegalArgumentException("CSV header has no name column.");
+    }
+    return positions;
+  }
+
+  // empty fields read as null
+  private String field(List<String> fields, String column) {
+    Integer position = columns.get(column);
+    if (position == null) {
+      return null;
+    }
+    String value = fields.get(position).trim();
+    return value.isEmpty() ? null : value;
+  }
+
+  private static String text(JsonNode node, String field) {
+    JsonNode value = node.get(field);
+    return value == null || value.isNull() ? null : value.asText();
+  }
+
+  // splits one CSV record; null when a quoted field is not closed on the line
+  static List<String> split(String text) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    if (quoted) {
+      return null;
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+}
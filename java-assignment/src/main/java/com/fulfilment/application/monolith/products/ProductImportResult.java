@@ -0,0 +1,13 @@
+package com.fulfilment.application.monolith.products;
+
+import java.util.List;
+
+/**
+ * Outcome of a product import. Every rejected line is counted, but only the first {@link
+ * ProductImporter#MAX_REPORTED_REJECTIONS} are described, so the result stays small however bad
+ * the body is.
+ */
+public record ProductImportResult(long imported, long rejected, List<Rejection> rejections) {
+
+  public record Rejection(long line, String name, String reason) {}
+}
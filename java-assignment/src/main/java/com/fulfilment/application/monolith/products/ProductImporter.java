@@ -0,0 +1,108 @@
+package com.fulfilment.application.monolith.products;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.jboss.logging.Logger;
+
+/**
+ * Imports a product catalog from a streamed body. Lines are parsed and validated one at a time and
+ * the valid products are written in chunks of {@link #CHUNK_SIZE}, each in its own transaction and
+ * sent as JDBC batches, so memory holds one chunk at a time. The only thing that grows with the
+ * catalog is the set of taken names, read once before the first line.
+ *
+ * <p>Invalid lines are rejected and the import goes on. A chunk that fails to write, for example
+ * because a name was taken by a concurrent create, ends the import; the chunks before it stay.
+ */
+@ApplicationScoped
+public class ProductImporter {
+
+  private static final Logger LOGGER = Logger.getLogger(ProductImporter.class.getName());
+
+  static final int CHUNK_SIZE = 1000;
+  static final int MAX_REPORTED_REJECTIONS = 100;
+
+  // Product.name and Product.price column definitions
+  private static final int MAX_NAME_LENGTH = 40;
+  private static final int PRICE_PRECISION = 10;
+  private static final int PRICE_SCALE = 2;
+
+  @Inject ProductRepository productRepository;
+  @Inject Event<ProductChange> productChange;
+  @Inject ObjectMapper objectMapper;
+
+  public ProductImportResult importProducts(BufferedReader body, ProductImportReader.Format format)
+      throws IOException {
+    Set<String> names = productRepository.findAllNames();
+    var reader = new ProductImportReader(body, format, objectMapper);
+    List<Product> chunk = new ArrayList<>(CHUNK_SIZE);
+    List<ProductImportResult.Rejection> rejections = new ArrayList<>();
+    long imported = 0;
+    long rejected = 0;
+
+    ProductImportReader.Row row;
+    while ((row = reader.next()) != null) {
+      String reason = row.error() != null ? row.error() : validate(row.product(), names);
+      if (reason != null) {
+        rejected++;
+        if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+          String name = row.product() == null ? null : row.product().name;
+          rejections.add(new ProductImportResult.Rejection(row.line(), name, reason));
+        }
+        continue;
+      }
+      names.add(row.product().name);
+      chunk.add(row.product());
+      if (chunk.size() == CHUNK_SIZE) {
+        imported += writeChunk(chunk);
+        chunk.clear();
+      }
+    }
+    if (!chunk.isEmpty()) {
+      imported += writeChunk(chunk);
+    }
+    LOGGER.debugf("import completed with %d products imported, %d rejected", imported, rejected);
+    return new ProductImportResult(imported, rejected, rejections);
+  }
+
+  @Transactional(Transactional.TxType.REQUIRES_NEW)
+  int writeChunk(List<Product> products) {
+    productRepository.createAll(products);
+    for (Product product : products) {
+      productChange.fire(ProductChange.saved(product));
+    }
+    return products.size();
+  }
+
+  // null when the product can be imported
+  static String validate(Product product, Set<String> names) {
+    if (product.name == null || product.name.isBlank()) {
+      return "Product Name was not set.";
+    }
+    if (product.name.length() > MAX_NAME_LENGTH) {
+      return "Product Name is longer than " + MAX_NAME_LENGTH + " characters.";
+    }
+    if (names.contains(product.name)) {
+      return "Product Name is already taken.";
+    }
+    if (product.stock < 0) {
+      return "Stock is negative.";
+    }
+    BigDecimal price = product.price == null ? null : product.price.stripTrailingZeros();
+    if (price != null
+        && (price.signum() < 0
+            || price.scale() > PRICE_SCALE
+            || price.precision() - price.scale() > PRICE_PRECISION - PRICE_SCALE)) {
+      return "Price is negative or does not fit " + PRICE_PRECISION + "," + PRICE_SCALE + ".";
+    }
+    return null;
+  }
+}
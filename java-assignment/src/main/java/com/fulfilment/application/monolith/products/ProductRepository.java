@@ -2,6 +2,136 @@ package com.fulfilment.application.monolith.products;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.jboss.logging.Logger;
 
 @ApplicationScoped
-public class ProductRepository implements PanacheRepository<Product> {}
+public class ProductRepository implements PanacheRepository<Product> {
+
+  private static final Logger LOGGER = Logger.getLogger(ProductRepository.class.getName());
+
+  // matches quarkus.hibernate-orm.jdbc.statement-batch-size
+  static final int BATCH_SIZE = 50;
+
+  @Transactional
+  public void createAll(List<Product> products) {
+    var entityManager = getEntityManager();
+    for (int i = 0; i < products.size(); i++) {
+      entityManager.persist(products.get(i));
+      if ((i + 1) % BATCH_SIZE == 0) {
+        // send the pending inserts as one JDBC batch and keep the persistence context small
+        entityManager.flush();
+        entityManager.clear();
+      }
+    }
+    entityManager.flush();
+    entityManager.clear();
+    LOGGER.debugf("createAll completed for %d products", products.size());
+  }
+
+  // streamed, so no product entity is loaded to collect the names
+  @Transactional
+  public Set<String> findAllNames() {
+    Set<String> names = new HashSet<>();
+    getEntityManager()
+        .createQuery("select p.name from Product p where p.name is not null", String.class)
+        .getResultStream()
+        .forEach(names::add);
+    return names;
+  }
+
+  /**
+   * Values the stock of every product in three aggregate queries, so no product row leaves the
+   * database except the {@code top} most valuable. {@code bandBounds} must be ascending; they cut
+   * the prices into one more band than there are bounds.
+   */
+  public ProductValuation valuation(List<BigDecimal> bandBounds, int top) {
+    var entityManager = getEntityManager();
+    Object[] totals =
+        entityManager
+            .createQuery(
+                "select count(p), coalesce(sum(p.stock), 0),"
+                    + " coalesce(sum(case when p.price is null then 1 else 0 end), 0),"
+                    + " coalesce(sum(p.price * p.stock), 0)"
+                    + " from Product p",
+                Object[].class)
+            .getSingleResult();
+
+    // the bounds are configuration, not input, so they are inlined to group by the same expression
+    String band = "0";
+    if (!bandBounds.isEmpty()) {
+      StringBuilder cases = new StringBuilder("case");
+      for (int i = 0; i < bandBounds.size(); i++) {
+        cases.append(" when p.price < ").append(bandBounds.get(i).toPlainString());
+        cases.append(" then ").append(i);
+      }
+      band = cases.append(" else ").append(bandBounds.size()).append(" end").toString();
+    }
+    List<Object[]> rows =
+        entityManager
+            .createQuery(
+                "select "
+                    + band
+                    + ", count(p), coalesce(sum(p.stock), 0), coalesce(sum(p.price * p.stock), 0)"
+                    + " from Product p where p.price is not null group by "
+                    + band,
+                Object[].class)
+            .getResultList();
+    List<ProductValuation.Band> bands = new ArrayList<>();
+    for (int i = 0; i <= bandBounds.size(); i++) {
+      BigDecimal from = i == 0 ? null : bandBounds.get(i - 1);
+      BigDecimal to = i == bandBounds.size() ? null : bandBounds.get(i);
+      bands.add(new ProductValuation.Band(from, to, 0, 0, BigDecimal.ZERO));
+    }
+    for (Object[] row : rows) {
+      int index = ((Number) row[0]).intValue();
+      ProductValuation.Band empty = bands.get(index);
+      bands.set(
+          index,
+          new ProductValuation.Band(
+              empty.from(),
+              empty.to(),
+              ((Number) row[1]).longValue(),
+              ((Number) row[2]).longValue(),
+              decimal(row[3])));
+    }
+
+    List<ProductValuation.Item> items =
+        entityManager
+            .createQuery(
+                "select p.id, p.name, p.price, p.stock, p.price * p.stock from Product p"
+                    + " where p.price is not null order by p.price * p.stock desc, p.id",
+                Object[].class)
+            .setMaxResults(top)
+            .getResultList()
+            .stream()
+            .map(
+                row ->
+                    new ProductValuation.Item(
+                        (Long) row[0],
+                        (String) row[1],
+                        (BigDecimal) row[2],
+                        ((Number) row[3]).intValue(),
+                        decimal(row[4])))
+            .toList();
+
+    return new ProductValuation(
+        ((Number) totals[0]).longValue(),
+        ((Number) totals[2]).longValue(),
+        ((Number) totals[1]).longValue(),
+        decimal(totals[3]),
+        bands,
+        items);
+  }
+
+  private static BigDecimal decimal(Object value) {
+    return value instanceof BigDecimal decimal
+        ? decimal
+        : new BigDecimal(((Number) value).toString());
+  }
+}
@@ -0,0 +1,93 @@
+package com.fulfilment.application.monolith.products;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.jboss.logging.Logger;
+
+/**
+ * Reserve, commit and release product stock for order flows; see {@link ProductReservations}. A
+ * reservation that is neither committed nor released in time expires and its stock is given back.
+ * It is held by the instance that made it, so its commit and release must reach the same one.
+ */
+@Path("product/reservations")
+@ApplicationScoped
+@Produces("application/json")
+@Consumes("application/json")
+public class ProductReservationResource {
+
+  @Inject ProductReservations productReservations;
+
+  private static final Logger LOGGER =
+      Logger.getLogger(ProductReservationResource.class.getName());
+
+  public record Availability(Long productId, long available) {}
+
+  @POST
+  public Response reserve(ReservationRequest request) {
+    if (request == null || request.productId() == null) {
+      throw new WebApplicationException("Product id was not set on request.", 422);
+    }
+    if (request.quantity() < 1) {
+      throw new WebApplicationException("Quantity must be at least 1.", 422);
+    }
+    Reservation reservation;
+    try {
+      reservation = productReservations.reserve(request.productId(), request.quantity());
+    } catch (IllegalStateException e) {
+      throw new WebApplicationException(e.getMessage(), 409);
+    }
+    if (reservation == null) {
+      throw new WebApplicationException(
+          "Product with id of " + request.productId() + " does not exist.", 404);
+    }
+    LOGGER.debugf(
+        "reserved %d of product id=%d as %s",
+        request.quantity(), request.productId(), reservation.id());
+    return Response.ok(reservation).status(201).build();
+  }
+
+  @POST
+  @Path("{reservationId}/commit")
+  public Reservation commit(String reservationId) {
+    Reservation reservation = productReservations.commit(reservationId);
+    if (reservation == null) {
+      throw notHeld(reservationId);
+    }
+    LOGGER.debugf("committed reservation %s", reservationId);
+    return reservation;
+  }
+
+  @DELETE
+  @Path("{reservationId}")
+  public Response release(String reservationId) {
+    if (productReservations.release(reservationId) == null) {
+      throw notHeld(reservationId);
+    }
+    LOGGER.debugf("released reservation %s", reservationId);
+    return Response.status(204).build();
+  }
+
+  @GET
+  @Path("availability/{productId}")
+  public Availability availability(Long productId) {
+    Long available = productReservations.available(productId);
+    if (available == null) {
+      throw new WebApplicationException(
+          "Product with id of " + productId + " does not exist.", 404);
+    }
+    return new Availability(productId, available);
+  }
+
+  private static WebApplicationException notHeld(String reservationId) {
+    return new WebApplicationException(
+        "Reservation " + reservationId + " does not exist or has expired.", 404);
+  }
+}
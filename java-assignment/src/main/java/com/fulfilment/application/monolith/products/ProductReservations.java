@@ -0,0 +1,521 @@
+package com.fulfilment.application.monolith.products;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Reserves, commits and releases product stock in memory, so concurrent orders for one product do
+ * not queue on its database row.
+ *
+ * <p>Every instance reserves only from units it has claimed from the product row: a claim raises
+ * {@link Product#claimed} under the row lock, and only while the stock no instance has claimed
+ * covers it. So instances never hand out the same units, however many of them there are. A claim
+ * takes a block of {@code claim-size} units at once, or what is left when that is less, so most
+ * reservations are served from the block without touching the row.
+ *
+ * <p>Each product touched gets a {@link StripedStock} of its free claimed units. A reservation
+ * takes from it and is held for the configured TTL; committing makes it a pending decrement,
+ * releasing or expiring gives it back. On a schedule, all products in one transaction, pending
+ * decrements are written to the product table and the free units are given back to the row, so
+ * other instances can claim them. On shutdown held reservations are given back as well.
+ *
+ * <p>Reservations live in the instance that made them and are lost on a restart, so committing
+ * or releasing one must reach that instance: the service routes each client to one pod (see
+ * k8s/deployment.yaml), and a reservation the instance does not hold is answered with 404.
+ *
+ * <p>Every instance records what it claimed in {@link ProductClaim} and holds a {@link
+ * ProductClaimLease} it renews every {@code lease-interval}. When an instance dies without
+ * shutting down, its committed decrements since the last write are lost, and once its lease has
+ * run out for {@code lease-duration} another instance gives its claimed units back to the rows.
+ * If an instance's own lease runs out, because the database was out of reach that long, it drops
+ * its free units; reservations it still holds may then oversell. A product update sets the stock;
+ * units already claimed stay with the instances that claimed them until the next write.
+ */
+@ApplicationScoped
+public class ProductReservations {
+
+  private static final Logger LOGGER = Logger.getLogger(ProductReservations.class.getName());
+
+  @Inject ProductRepository productRepository;
+  @Inject Event<ProductChange> productChange;
+
+  @ConfigProperty(name = "product.reservations.ttl", defaultValue = "10m")
+  Duration ttl;
+
+  @ConfigProperty(name = "product.reservations.stripes", defaultValue = "8")
+  int stripes;
+
+  @ConfigProperty(name = "product.reservations.claim-size", defaultValue = "50")
+  int claimSize;
+
+  @ConfigProperty(name = "product.reservations.lease-duration", defaultValue = "30s")
+  Duration leaseDuration;
+
+  Clock clock = Clock.systemUTC();
+
+  // names this instance on its claims and lease
+  final String instance = UUID.randomUUID().toString();
+  // whether a lease was taken, so one found missing later was reclaimed
+  private volatile boolean leased;
+
+  private final Map<Long, ProductStock> stocks = new ConcurrentHashMap<>();
+  private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+  // the same reservations by expiry, so a sweep only looks at the expired ones
+  private final ConcurrentSkipListSet<Reservation> byExpiry =
+      new ConcurrentSkipListSet<>(
+          Comparator.comparing(Reservation::expiresAt).thenComparing(Reservation::id));
+
+  /**
+   * Reserves {@code quantity} units. Returns null when the product does not exist, and throws
+   * {@link IllegalStateException} when its available stock does not cover the quantity.
+   */
+  public Reservation reserve(Long productId, int quantity) {
+    if (quantity < 1) {
+      throw new IllegalArgumentException("Reserved quantity must be at least 1.");
+    }
+    ProductStock stock = stock(productId);
+    if (stock == null) {
+      return null;
+    }
+    if (!stock.available.take(quantity) && !claimAndTake(productId, stock, quantity)) {
+      throw new IllegalStateException(
+          "Product with id of " + productId + " has less than " + quantity + " in stock.");
+    }
+    var reservation =
+        new Reservation(
+            UUID.randomUUID().toString(), productId, quantity, clock.instant().plus(ttl));
+    reservations.put(reservation.id(), reservation);
+    byExpiry.add(reservation);
+    return reservation;
+  }
+
+  /** Turns a reservation into a decrement of the product's stock; null when it is not held. */
+  public Reservation commit(String reservationId) {
+    Reservation reservation = claim(reservationId);
+    if (reservation == null) {
+      return null;
+    }
+    ProductStock stock = stocks.get(reservation.productId());
+    if (stock != null) {
+      stock.pending.addAndGet(reservation.quantity());
+    }
+    return reservation;
+  }
+
+  /** Gives the reserved units back; null when the reservation is not held. */
+  public Reservation release(String reservationId) {
+    Reservation reservation = claim(reservationId);
+    if (reservation != null) {
+      giveBack(reservation);
+    }
+    return reservation;
+  }
+
+  // what this instance could reserve: its free units and those no instance has claimed; null
+  // when the product does not exist
+  public Long available(Long productId) {
+    Long unclaimed = unclaimed(productId);
+    if (unclaimed == null) {
+      return null;
+    }
+    ProductStock stock = stocks.get(productId);
+    return stock == null ? unclaimed : unclaimed + stock.available.available();
+  }
+
+  @Scheduled(
+      every = "${product.reservations.sweep-interval:1s}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void expire() {
+    Instant now = clock.instant();
+    int expired = 0;
+    Reservation first;
+    while ((first = firstOrNull()) != null && first.expiresAt().isBefore(now)) {
+      // commit or release may get there first; only the one that removes it gives it back
+      if (reservations.remove(first.id(), first)) {
+        giveBack(first);
+        expired++;
+      }
+      byExpiry.remove(first);
+    }
+    if (expired > 0) {
+      LOGGER.debugf("expired %d product reservations", expired);
+    }
+  }
+
+  @Scheduled(
+      every = "${product.reservations.flush-interval:1s}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  synchronized void flush() {
+    Map<Long, Settlement> settlements = new HashMap<>();
+    stocks.forEach(
+        (productId, stock) -> {
+          long committed = stock.pending.getAndSet(0);
+          long free = stock.available.available();
+          // a reservation may take some first; then they go back on the next flush
+          long returned = free > 0 && stock.available.take(free) ? free : 0;
+          if (committed != 0 || returned != 0) {
+            settlements.put(productId, new Settlement(committed, returned));
+          }
+        });
+    if (settlements.isEmpty()) {
+      return;
+    }
+    try {
+      settle(settlements);
+      LOGGER.debugf("settled stock claims of %d products", settlements.size());
+    } catch (RuntimeException e) {
+      // keep them for the next flush
+      settlements.forEach(
+          (productId, settlement) -> {
+            ProductStock stock = stocks.get(productId);
+            if (stock != null) {
+              stock.pending.addAndGet(settlement.committed());
+              stock.available.add(settlement.returned());
+            }
+          });
+      LOGGER.warnf("settling stock claims failed, retrying: %s", e.getMessage());
+    }
+  }
+
+  /**
+   * Writes the committed units off the stock and gives the returned ones back to the row, locked
+   * in id order so a concurrent claim or flush elsewhere can neither interleave nor deadlock with
+   * it; the stock updates go out as JDBC batches when the transaction flushes. No more is taken
+   * off the claimed units than this instance still holds, in case its claims were reclaimed.
+   */
+  @Transactional(Transactional.TxType.REQUIRES_NEW)
+  void settle(Map<Long, Settlement> settlements) {
+    List<Long> ids = List.copyOf(settlements.keySet());
+    List<Product> products =
+        productRepository
+            .find("id in ?1 order by id", ids)
+            .withLock(LockModeType.PESSIMISTIC_WRITE)
+            .list();
+    Map<Long, ProductClaim> held = new HashMap<>();
+    entityManager()
+        .createQuery(
+            "from ProductClaim c where c.instance = ?1 and c.productId in ?2", ProductClaim.class)
+        .setParameter(1, instance)
+        .setParameter(2, ids)
+        .getResultStream()
+        .forEach(claim -> held.put(claim.productId, claim));
+    for (Product product : products) {
+      Settlement settlement = settlements.get(product.id);
+      ProductClaim claim = held.get(product.id);
+      int released = settlement.applyTo(product, claim == null ? 0 : claim.units);
+      if (released != 0) {
+        claim.units -= released;
+        writeClaimed(product);
+      }
+      if (settlement.committed() != 0) {
+        productChange.fire(ProductChange.saved(product));
+      }
+    }
+  }
+
+  /**
+   * Claims up to {@code wanted} units of the stock no instance has claimed yet, but only if at
+   * least {@code minimum} are left; returns the units claimed, 0 when there are too few.
+   */
+  @Transactional(Transactional.TxType.REQUIRES_NEW)
+  int claim(Long productId, int minimum, int wanted) {
+    // the claim commits together with a live lease, so it is never left unreclaimable
+    if (renewLease()) {
+      dropFreeUnits();
+    }
+    Product product =
+        productRepository
+            .find("id", productId)
+            .withLock(LockModeType.PESSIMISTIC_WRITE)
+            .firstResult();
+    int claimed = product == null ? 0 : claimFrom(product, minimum, wanted);
+    if (claimed == 0) {
+      return 0;
+    }
+    writeClaimed(product);
+    int recorded =
+        entityManager()
+            .createQuery(
+                "update ProductClaim c set c.units = c.units + ?1"
+                    + " where c.instance = ?2 and c.productId = ?3")
+            .setParameter(1, claimed)
+            .setParameter(2, instance)
+            .setParameter(3, productId)
+            .executeUpdate();
+    if (recorded == 0) {
+      entityManager().persist(new ProductClaim(instance, productId, claimed));
+    }
+    return claimed;
+  }
+
+  @Scheduled(
+      every = "${product.reservations.lease-interval:10s}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void keepLease() {
+    try {
+      if (renew()) {
+        dropFreeUnits();
+      }
+      reclaim();
+    } catch (RuntimeException e) {
+      LOGGER.warnf("renewing the product claim lease failed, retrying: %s", e.getMessage());
+    }
+  }
+
+  @Transactional(Transactional.TxType.REQUIRES_NEW)
+  boolean renew() {
+    return renewLease();
+  }
+
+  /**
+   * Gives the units claimed by instances whose lease has run out back to the product rows. The
+   * expired leases are locked first, so two instances never reclaim the same units; returns the
+   * number of instances reclaimed.
+   */
+  @Transactional(Transactional.TxType.REQUIRES_NEW)
+  int reclaim() {
+    List<String> expired =
+        entityManager()
+            .createQuery(
+                "from ProductClaimLease l where l.expiresAt < ?1 order by l.instance",
+                ProductClaimLease.class)
+            .setParameter(1, clock.instant())
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+            .getResultStream()
+            .map(lease -> lease.instance)
+            .toList();
+    if (expired.isEmpty()) {
+      return 0;
+    }
+    Map<Long, Integer> units = new HashMap<>();
+    entityManager()
+        .createQuery("from ProductClaim c where c.instance in ?1", ProductClaim.class)
+        .setParameter(1, expired)
+        .getResultStream()
+        .forEach(claim -> units.merge(claim.productId, claim.units, Integer::sum));
+    if (!units.isEmpty()) {
+      List<Product> products =
+          productRepository
+              .find("id in ?1 order by id", List.copyOf(units.keySet()))
+              .withLock(LockModeType.PESSIMISTIC_WRITE)
+              .list();
+      for (Product product : products) {
+        product.claimed = Math.max(0, product.claimed - units.get(product.id));
+        writeClaimed(product);
+      }
+    }
+    entityManager()
+        .createQuery("delete from ProductClaim c where c.instance in ?1")
+        .setParameter(1, expired)
+        .executeUpdate();
+    entityManager()
+        .createQuery("delete from ProductClaimLease l where l.instance in ?1")
+        .setParameter(1, expired)
+        .executeUpdate();
+    LOGGER.warnf(
+        "reclaimed the stock claims of %d instances on %d products", expired.size(), units.size());
+    return expired.size();
+  }
+
+  // after a clean stop nothing stays claimed, unless a flush failed; then the lease runs out
+  @Transactional(Transactional.TxType.REQUIRES_NEW)
+  void retire() {
+    entityManager()
+        .createQuery("delete from ProductClaim c where c.instance = ?1 and c.units = 0")
+        .setParameter(1, instance)
+        .executeUpdate();
+    Long left =
+        entityManager()
+            .createQuery("select count(c) from ProductClaim c where c.instance = ?1", Long.class)
+            .setParameter(1, instance)
+            .getSingleResult();
+    if (left == 0) {
+      entityManager()
+          .createQuery("delete from ProductClaimLease l where l.instance = ?1")
+          .setParameter(1, instance)
+          .executeUpdate();
+    }
+  }
+
+  // read from the database, not the entity cache, which does not see the other instances' claims
+  @Transactional
+  Long unclaimed(Long productId) {
+    List<Integer> unclaimed =
+        productRepository
+            .getEntityManager()
+            .createQuery("select p.stock - p.claimed from Product p where p.id = ?1", Integer.class)
+            .setParameter(1, productId)
+            .getResultList();
+    return unclaimed.isEmpty() ? null : (long) Math.max(0, unclaimed.get(0));
+  }
+
+  void onStop(@Observes ShutdownEvent event) {
+    // reservations do not survive a restart; their units go back to the row with the free ones
+    for (Reservation reservation : List.copyOf(reservations.values())) {
+      if (reservations.remove(reservation.id(), reservation)) {
+        giveBack(reservation);
+      }
+      byExpiry.remove(reservation);
+    }
+    flush();
+    try {
+      retire();
+    } catch (RuntimeException e) {
+      LOGGER.warnf("retiring the product claim lease failed: %s", e.getMessage());
+    }
+  }
+
+  void onProductChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductChange change) {
+    if (change.id() != null && change.type() == ProductChange.Type.DELETED) {
+      stocks.remove(change.id());
+    }
+  }
+
+  int held() {
+    return reservations.size();
+  }
+
+  private ProductStock stock(Long productId) {
+    ProductStock stock = stocks.get(productId);
+    if (stock != null) {
+      return stock;
+    }
+    Product product = productRepository.findById(productId);
+    if (product == null) {
+      return null;
+    }
+    // another reservation may have loaded it meanwhile; theirs wins
+    return stocks.computeIfAbsent(productId, id -> new ProductStock(stripes));
+  }
+
+  // one claim at a time per product, so a burst of misses does not claim a block each
+  private boolean claimAndTake(Long productId, ProductStock stock, int quantity) {
+    synchronized (stock) {
+      if (stock.available.take(quantity)) {
+        return true;
+      }
+      // the free units count towards the quantity; only the rest is claimed
+      long free = stock.available.available();
+      if (free <= 0 || free >= quantity || !stock.available.take(free)) {
+        free = 0;
+      }
+      int needed = quantity - (int) free;
+      int claimed = claim(productId, needed, Math.max(needed, claimSize));
+      if (claimed == 0) {
+        stock.available.add(free);
+        return false;
+      }
+      stock.available.add(claimed - needed);
+      return true;
+    }
+  }
+
+  static int claimFrom(Product product, int minimum, int wanted) {
+    int unclaimed = product.stock - product.claimed;
+    if (unclaimed < minimum) {
+      return 0;
+    }
+    int claimed = Math.min(unclaimed, wanted);
+    product.claimed += claimed;
+    return claimed;
+  }
+
+  // what one flush writes for a product: units sold, and free claimed units given back
+  record Settlement(long committed, long returned) {
+
+    // returns the claimed units released, no more than the instance holds
+    int applyTo(Product product, int held) {
+      int released = (int) Math.min(held, committed + returned);
+      product.stock = Math.toIntExact(product.stock - committed);
+      product.claimed = Math.max(0, product.claimed - released);
+      return released;
+    }
+  }
+
+  // true when the lease had been taken before and was reclaimed since
+  private boolean renewLease() {
+    Instant expiresAt = clock.instant().plus(leaseDuration);
+    int renewed =
+        entityManager()
+            .createQuery("update ProductClaimLease l set l.expiresAt = ?1 where l.instance = ?2")
+            .setParameter(1, expiresAt)
+            .setParameter(2, instance)
+            .executeUpdate();
+    if (renewed == 0) {
+      entityManager().persist(new ProductClaimLease(instance, expiresAt));
+    }
+    boolean lost = renewed == 0 && leased;
+    leased = true;
+    return lost;
+  }
+
+  // the units behind them were reclaimed; other instances may claim them now
+  private void dropFreeUnits() {
+    LOGGER.error("product claim lease was reclaimed, dropping the free claimed units");
+    stocks.values().forEach(stock -> stock.available.take(stock.available.available()));
+  }
+
+  // claimed is not updatable through the entity, see Product#claimed
+  private void writeClaimed(Product product) {
+    entityManager()
+        .createQuery("update Product p set p.claimed = ?1 where p.id = ?2")
+        .setParameter(1, product.claimed)
+        .setParameter(2, product.id)
+        .executeUpdate();
+  }
+
+  private EntityManager entityManager() {
+    return productRepository.getEntityManager();
+  }
+
+  private Reservation claim(String reservationId) {
+    Reservation reservation = reservationId == null ? null : reservations.remove(reservationId);
+    if (reservation != null) {
+      byExpiry.remove(reservation);
+    }
+    return reservation;
+  }
+
+  private void giveBack(Reservation reservation) {
+    ProductStock stock = stocks.get(reservation.productId());
+    if (stock != null) {
+      stock.available.add(reservation.quantity());
+    }
+  }
+
+  private Reservation firstOrNull() {
+    return byExpiry.isEmpty() ? null : byExpiry.first();
+  }
+
+  private static final class ProductStock {
+    // claimed units that are not reserved
+    final StripedStock available;
+    // committed units not written to the product table yet
+    final AtomicLong pending = new AtomicLong();
+
+    ProductStock(int stripes) {
+      this.available = new StripedStock(stripes, 0);
+    }
+  }
+}
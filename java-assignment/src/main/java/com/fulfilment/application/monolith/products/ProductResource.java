@@ -2,19 +2,35 @@ package com.fulfilment.application.monolith.products;
 
 import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
+import org.jboss.resteasy.reactive.PathPart;
 
 @Path("product")
 @ApplicationScoped
@@ -23,16 +39,131 @@ import org.jboss.logging.Logger;
 public class ProductResource {
 
   @Inject ProductRepository productRepository;
+  @Inject ProductSearchIndex productSearchIndex;
+  @Inject Event<ProductChange> productChange;
+  @Inject ProductImporter productImporter;
+  @Inject ProductSnapshots productSnapshots;
+
+  @ConfigProperty(name = "product.valuation.price-bands", defaultValue = "10,50,100,500,1000")
+  List<BigDecimal> priceBands;
 
   private static final Logger LOGGER = Logger.getLogger(ProductResource.class.getName());
 
+  static final String CSV = "text/csv";
+  static final String NDJSON = "application/x-ndjson";
+  static final String OCTET_STREAM = "application/octet-stream";
+
+  static final int DEFAULT_VALUATION_TOP = 10;
+  static final int MAX_VALUATION_TOP = 100;
+
+  static final int DEFAULT_SEARCH_LIMIT = 20;
+  static final int MAX_SEARCH_LIMIT = 100;
+
   @GET
   public List<Product> get() {
-    var products = productRepository.listAll(Sort.by("name"));
+    // not query-cached: only the instance that writes a product evicts the cached listing, so
+    // another replica would keep serving it without that product's changes
+    List<Product> products = productRepository.findAll(Sort.by("name")).list();
     LOGGER.debugf("get returned %d products", products.size());
     return products;
   }
 
+  /**
+   * Finds the products whose name or description has a word starting with each word of {@code q},
+   * in id order. The matching ids come from {@link ProductSearchIndex}; only the matches are
+   * loaded, from the second-level cache where they are in it.
+   */
+  @GET
+  @Path("search")
+  public List<Product> search(@QueryParam("q") String q, @QueryParam("limit") Integer limit) {
+    if (q == null || q.isBlank()) {
+      throw new WebApplicationException("Search query q was not set on request.", 400);
+    }
+    int pageSize = limit == null ? DEFAULT_SEARCH_LIMIT : limit;
+    if (pageSize < 1 || pageSize > MAX_SEARCH_LIMIT) {
+      throw new WebApplicationException(
+          "Search limit must be between 1 and " + MAX_SEARCH_LIMIT + ".", 400);
+    }
+    List<Product> products = new ArrayList<>();
+    for (Long id : productSearchIndex.search(q, pageSize)) {
+      Product product = productRepository.findById(id);
+      // deleted since the index was last told
+      if (product != null) {
+        products.add(product);
+      }
+    }
+    LOGGER.debugf("search for q=%s returned %d products", q, products.size());
+    return products;
+  }
+
+  /**
+   * Values the stock of the whole catalog at its prices: totals, one band per range of
+   * {@code product.valuation.price-bands} and the {@code top} most valuable products. It is
+   * aggregated by the database, so the catalog is never loaded here.
+   */
+  @GET
+  @Path("valuation")
+  public ProductValuation valuation(@QueryParam("top") Integer top) {
+    int size = top == null ? DEFAULT_VALUATION_TOP : top;
+    if (size < 0 || size > MAX_VALUATION_TOP) {
+      throw new WebApplicationException(
+          "Valuation top must be between 0 and " + MAX_VALUATION_TOP + ".", 400);
+    }
+    ProductValuation valuation =
+        productRepository.valuation(priceBands.stream().distinct().sorted().toList(), size);
+    LOGGER.debugf("valuation covered %d products", valuation.products());
+    return valuation;
+  }
+
+  /**
+   * Serves the latest catalog snapshot, see {@link ProductSnapshotFormat}, straight from its file:
+   * Vert.x sends it with sendfile, so a download costs neither heap nor serialization. A single
+   * byte range can be requested to resume a download; If-Range keeps a resume from mixing two
+   * snapshots. The ETag comes from the file's bytes, so every replica gives the same catalog the
+   * same tag; the preconditions are checked against it alone, as the write time is per replica.
+   */
+  @GET
+  @Path("snapshot")
+  @Produces(OCTET_STREAM)
+  public Response snapshot(
+      @HeaderParam("Range") String range,
+      @HeaderParam("If-Range") String ifRange,
+      @Context Request request) {
+    ProductSnapshot snapshot = productSnapshots.current();
+    if (snapshot == null) {
+      throw new WebApplicationException("No catalog snapshot has been written yet.", 404);
+    }
+    EntityTag tag = new EntityTag(snapshot.tag());
+    Date writtenAt = new Date(snapshot.writtenAt());
+    Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+    if (notModified != null) {
+      return notModified.build();
+    }
+
+    boolean sameSnapshot = ifRange == null || ifRange.equals(tag.toString());
+    ByteRange bytes = sameSnapshot ? ByteRange.parse(range, snapshot.size()) : null;
+    Response.ResponseBuilder response;
+    if (bytes == ByteRange.UNSATISFIABLE) {
+      response = Response.status(416).header("Content-Range", "bytes */" + snapshot.size());
+    } else if (bytes != null) {
+      long last = bytes.offset() + bytes.length() - 1;
+      response =
+          Response.status(206)
+              .entity(new PathPart(snapshot.file(), bytes.offset(), bytes.length()))
+              .header(
+                  "Content-Range",
+                  "bytes " + bytes.offset() + "-" + last + "/" + snapshot.size());
+    } else {
+      response = Response.ok(new PathPart(snapshot.file(), 0, snapshot.size()));
+    }
+    LOGGER.debugf("snapshot %s requested with range %s", snapshot.tag(), range);
+    return response
+        .header("Accept-Ranges", "bytes")
+        .tag(tag)
+        .lastModified(writtenAt)
+        .build();
+  }
+
   @GET
   @Path("{id}")
   public Product getSingle(Long id) {
@@ -54,10 +185,32 @@ public class ProductResource {
     }
 
     productRepository.persist(product);
+    productChange.fire(ProductChange.saved(product));
     LOGGER.debugf("create completed with id=%d", product.id);
     return Response.ok(product).status(201).build();
   }
 
+  /**
+   * Imports a catalog sent as CSV with a header line or as newline-delimited JSON. The body is read
+   * as it arrives rather than buffered, see {@link ProductImporter}.
+   */
+  @POST
+  @Path("import")
+  @Consumes({CSV, NDJSON})
+  public ProductImportResult importProducts(
+      @HeaderParam("Content-Type") String contentType, InputStream body) throws IOException {
+    var format =
+        contentType != null && contentType.startsWith(NDJSON)
+            ? ProductImportReader.Format.NDJSON
+            : ProductImportReader.Format.CSV;
+    LOGGER.debugf("import requested as %s", format);
+    try (var reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+      return productImporter.importProducts(reader, format);
+    } catch (IllegalArgumentException e) {
+      throw new WebApplicationException(e.getMessage(), 400);
+    }
+  }
+
   @PUT
   @Path("{id}")
   @Transactional
@@ -79,6 +232,7 @@ public class ProductResource {
     entity.stock = product.stock;
 
     productRepository.persist(entity);
+    productChange.fire(ProductChange.saved(entity));
     LOGGER.debugf("update completed for id=%d", id);
 
     return entity;
@@ -94,6 +248,7 @@ public class ProductResource {
       throw new WebApplicationException("Product with id of " + id + " does not exist.", 404);
     }
     productRepository.delete(entity);
+    productChange.fire(ProductChange.deleted(entity));
     LOGGER.debugf("delete completed for id=%d", id);
     return Response.status(204).build();
   }
@@ -0,0 +1,409 @@
+package com.fulfilment.application.monolith.products;
+
+import io.quarkus.panache.common.Sort;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * In-memory inverted index over the words of product names and descriptions, so a search never
+ * scans the product table.
+ *
+ * <p>Words are lower-cased and stripped of accents. Every word of a query has to match, as a
+ * prefix, some word of the product: "kal" finds "KALLAX", and "white shelf" only finds products
+ * with both. Matches come back in id order. The index is built from the database at startup and
+ * then follows the {@link ProductChange}s that commit on this instance.
+ *
+ * <p>Every product write also adds a {@link ProductChangeRecord} in the writing transaction, and
+ * every replica polls them, re-reading the products written since its last poll, so a search also
+ * finds what the other replicas wrote. A row can commit after rows with higher ids, so the ids a
+ * poll skips over are asked for again for up to {@code product.search.commit-window}.
+ */
+@ApplicationScoped
+public class ProductSearchIndex {
+
+  private static final Logger LOGGER = Logger.getLogger(ProductSearchIndex.class.getName());
+
+  static final int PAGE_SIZE = 1000;
+
+  private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+  // how many skipped ids are waited for at once; beyond that a skipped id is given up right away
+  static final int MAX_GAPS = 1000;
+
+  @Inject ProductRepository productRepository;
+
+  @ConfigProperty(name = "product.search.commit-window", defaultValue = "10s")
+  Duration commitWindow;
+
+  @ConfigProperty(name = "product.search.retention", defaultValue = "1h")
+  Duration retention;
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  // sorted, so the words with a given prefix are one sub-map
+  private final TreeMap<String, Postings> postings = new TreeMap<>();
+  // the words each product is indexed under, to take it out again
+  private final Map<Long, String[]> words = new HashMap<>();
+
+  // guarded by pollLock: the highest change id applied, and the ids skipped over by when they were
+  private final Object pollLock = new Object();
+  private long lastSeen;
+  private final Map<Long, Long> gaps = new LinkedHashMap<>();
+
+  @Transactional
+  void onStart(@Observes StartupEvent event) {
+    synchronized (pollLock) {
+      // taken first, so the writes that commit while the index is built are applied again
+      Long latest =
+          productRepository
+              .getEntityManager()
+              .createQuery("select max(c.id) from ProductChangeRecord c", Long.class)
+              .getSingleResult();
+      lastSeen = latest == null ? 0 : latest;
+    }
+    long after = -1L;
+    while (true) {
+      List<ProductText> page =
+          productRepository
+              .find("id > ?1", Sort.by("id"), after)
+              .page(0, PAGE_SIZE)
+              .project(ProductText.class)
+              .list();
+      for (ProductText product : page) {
+        index(product.id(), product.name(), product.description());
+      }
+      if (page.size() < PAGE_SIZE) {
+        break;
+      }
+      after = page.get(page.size() - 1).id();
+    }
+    LOGGER.debugf("product search index built with %d products", size());
+  }
+
+  // in the writing transaction, so the other replicas only see the write once it commits
+  void recordChange(@Observes ProductChange change) {
+    if (change.id() != null) {
+      productRepository.getEntityManager().persist(new ProductChangeRecord(change.id()));
+    }
+  }
+
+  @Scheduled(
+      every = "${product.search.poll-interval:1s}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void poll() {
+    synchronized (pollLock) {
+      try {
+        long now = System.nanoTime();
+        gaps.values().removeIf(since -> now - since > commitWindow.toNanos());
+        Set<Long> written = new LinkedHashSet<>();
+        for (Object[] row : changedAfter(lastSeen, List.copyOf(gaps.keySet()))) {
+          long id = (Long) row[0];
+          if (id > lastSeen) {
+            // the ids in between may still commit
+            for (long gap = Math.max(lastSeen + 1, id - MAX_GAPS);
+                gap < id && gaps.size() < MAX_GAPS;
+                gap++) {
+              gaps.put(gap, now);
+            }
+            lastSeen = id;
+          } else if (gaps.remove(id) == null) {
+            continue;
+          }
+          written.add((Long) row[1]);
+        }
+        if (!written.isEmpty()) {
+          refresh(written);
+          LOGGER.debugf("product search index refreshed %d products", written.size());
+        }
+      } catch (RuntimeException e) {
+        LOGGER.warnf(
+            "polling product changes failed, retrying on the next poll: %s", e.getMessage());
+      }
+    }
+  }
+
+  // change id and product id of the changes past after, and of the missing ones that committed
+  @Transactional
+  List<Object[]> changedAfter(long after, List<Long> missing) {
+    String where = missing.isEmpty() ? "c.id > :after" : "(c.id > :after or c.id in :missing)";
+    var query =
+        productRepository
+            .getEntityManager()
+            .createQuery(
+                "select c.id, c.productId from ProductChangeRecord c where "
+                    + where
+                    + " order by c.id",
+                Object[].class)
+            .setParameter("after", after)
+            .setMaxResults(PAGE_SIZE);
+    if (!missing.isEmpty()) {
+      query.setParameter("missing", missing);
+    }
+    return query.getResultList();
+  }
+
+  // re-reads the written products; one that is gone was deleted
+  @Transactional
+  void refresh(Collection<Long> productIds) {
+    Map<Long, ProductText> current = new HashMap<>();
+    productRepository
+        .find("id in ?1", List.copyOf(productIds))
+        .project(ProductText.class)
+        .stream()
+        .forEach(product -> current.put(product.id(), product));
+    for (Long productId : productIds) {
+      ProductText product = current.get(productId);
+      if (product == null) {
+        remove(productId);
+      } else {
+        index(product.id(), product.name(), product.description());
+      }
+    }
+  }
+
+  @Scheduled(
+      every = "${product.search.prune-interval:5m}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  @Transactional
+  void prune() {
+    int pruned =
+        productRepository
+            .getEntityManager()
+            .createQuery("delete from ProductChangeRecord c where c.recordedAt < :before")
+            .setParameter("before", LocalDateTime.now().minus(retention))
+            .executeUpdate();
+    if (pruned > 0) {
+      LOGGER.debugf("pruned %d product changes", pruned);
+    }
+  }
+
+  void onProductChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductChange change) {
+    if (change.id() == null) {
+      return;
+    }
+    if (change.type() == ProductChange.Type.DELETED) {
+      remove(change.id());
+    } else {
+      index(change.id(), change.name(), change.description());
+    }
+  }
+
+  void index(Long productId, String name, String description) {
+    Set<String> productWords = new LinkedHashSet<>(tokenize(name));
+    productWords.addAll(tokenize(description));
+    lock.writeLock().lock();
+    try {
+      removeLocked(productId);
+      for (String word : productWords) {
+        postings.computeIfAbsent(word, w -> new Postings()).add(productId);
+      }
+      words.put(productId, productWords.toArray(String[]::new));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  void remove(Long productId) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(productId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Ids of at most {@code limit} products matching every word of {@code query}, in id order. */
+  public List<Long> search(String query, int limit) {
+    List<String> queryWords = List.copyOf(new LinkedHashSet<>(tokenize(query)));
+    if (queryWords.isEmpty() || limit < 1) {
+      return List.of();
+    }
+    lock.readLock().lock();
+    try {
+      // walk the postings of the most selective query word; check the others per product
+      List<Postings> driver = null;
+      long driverCost = Long.MAX_VALUE;
+      for (String word : queryWords) {
+        Collection<Postings> matching = withPrefix(word);
+        long cost = 0;
+        for (Postings p : matching) {
+          cost += p.size;
+        }
+        if (cost == 0) {
+          return List.of();
+        }
+        if (cost < driverCost) {
+          driver = new ArrayList<>(matching);
+          driverCost = cost;
+        }
+      }
+
+      List<Long> matches = new ArrayList<>(Math.min(limit, 64));
+      PriorityQueue<Cursor> cursors = new PriorityQueue<>(driver.size());
+      for (Postings p : driver) {
+        cursors.add(new Cursor(p));
+      }
+      long previous = Long.MIN_VALUE;
+      while (!cursors.isEmpty() && matches.size() < limit) {
+        Cursor cursor = cursors.poll();
+        long productId = cursor.current();
+        if (cursor.advance()) {
+          cursors.add(cursor);
+        }
+        if (productId == previous) {
+          continue;
+        }
+        previous = productId;
+        if (matchesAll(words.get(productId), queryWords)) {
+          matches.add(productId);
+        }
+      }
+      return matches;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  int size() {
+    lock.readLock().lock();
+    try {
+      return words.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // lower-cased words with accents stripped, so an accented name is found by its plain spelling
+  static List<String> tokenize(String text) {
+    if (text == null || text.isBlank()) {
+      return List.of();
+    }
+    String folded =
+        MARKS
+            .matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+            .replaceAll("")
+            .toLowerCase(Locale.ROOT);
+    List<String> tokens = new ArrayList<>();
+    for (String token : SEPARATORS.split(folded)) {
+      if (!token.isEmpty()) {
+        tokens.add(token);
+      }
+    }
+    return tokens;
+  }
+
+  private Collection<Postings> withPrefix(String prefix) {
+    return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+  }
+
+  private static boolean matchesAll(String[] productWords, List<String> queryWords) {
+    if (productWords == null) {
+      return false;
+    }
+    for (String queryWord : queryWords) {
+      boolean found = false;
+      for (String word : productWords) {
+        if (word.startsWith(queryWord)) {
+          found = true;
+          break;
+        }
+      }
+      if (!found) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void removeLocked(Long productId) {
+    String[] previous = words.remove(productId);
+    if (previous == null) {
+      return;
+    }
+    for (String word : previous) {
+      Postings p = postings.get(word);
+      if (p != null && p.remove(productId) && p.size == 0) {
+        postings.remove(word);
+      }
+    }
+  }
+
+  // sorted product ids; ids mostly grow, so adding is usually an append
+  private static final class Postings {
+    long[] ids = new long[2];
+    int size;
+
+    void add(long productId) {
+      int at =
+          size == 0 || ids[size - 1] < productId
+              ? -size - 1
+              : Arrays.binarySearch(ids, 0, size, productId);
+      if (at >= 0) {
+        return;
+      }
+      at = -at - 1;
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      System.arraycopy(ids, at, ids, at + 1, size - at);
+      ids[at] = productId;
+      size++;
+    }
+
+    boolean remove(long productId) {
+      int at = Arrays.binarySearch(ids, 0, size, productId);
+      if (at < 0) {
+        return false;
+      }
+      System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+      size--;
+      return true;
+    }
+  }
+
+  private static final class Cursor implements Comparable<Cursor> {
+    private final Postings postings;
+    private int position;
+
+    Cursor(Postings postings) {
+      this.postings = postings;
+    }
+
+    long current() {
+      return postings.ids[position];
+    }
+
+    boolean advance() {
+      return ++position < postings.size;
+    }
+
+    @Override
+    public int compareTo(Cursor other) {
+      return Long.compare(current(), other.current());
+    }
+  }
+}
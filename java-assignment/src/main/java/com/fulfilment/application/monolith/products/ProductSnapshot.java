@@ -0,0 +1,16 @@
+package com.fulfilment.application.monolith.products;
+
+import java.nio.file.Path;
+
+/** A catalog snapshot file that has been completely written and verified. */
+public record ProductSnapshot(Path file, long size, long writtenAt, long products, int checksum) {
+
+  // from the bytes of the file alone, so the replicas give the same catalog the same tag
+  public String tag() {
+    return Long.toHexString(size)
+        + "-"
+        + Long.toHexString(products)
+        + "-"
+        + Integer.toHexString(checksum);
+  }
+}
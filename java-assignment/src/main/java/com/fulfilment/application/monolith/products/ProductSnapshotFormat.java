@@ -0,0 +1,214 @@
+package com.fulfilment.application.monolith.products;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Binary layout of a catalog snapshot, version 2. Numbers are big-endian.
+ *
+ * <pre>
+ * header  [int magic "PSNP"][int version]
+ * record  [int length of the rest][long id][string name][string description][long price][int stock]
+ * trailer [int -1][long number of records][int CRC32C of every byte before it]
+ * </pre>
+ *
+ * A string is its UTF-8 length, -1 for null, followed by its bytes. A price is in cents, {@link
+ * Long#MIN_VALUE} for none. Readers skip what follows the known fields of a record, so later
+ * versions can append fields.
+ *
+ * <p>Nothing but the catalog goes into the file, so every replica writes the same bytes for the
+ * same catalog; version 1 also had the time of writing in its header.
+ */
+final class ProductSnapshotFormat {
+
+  static final int MAGIC = 0x50534E50;
+  static final int VERSION = 2;
+  static final int END = -1;
+  static final long NO_PRICE = Long.MIN_VALUE;
+
+  private static final int BUFFER_BYTES = 1 << 20;
+  // far above any product row; a larger length means the file is corrupt
+  private static final int MAX_RECORD_BYTES = 1 << 20;
+  private static final int PRICE_SCALE = 2;
+
+  private ProductSnapshotFormat() {}
+
+  /** Writes one snapshot file; {@link #finish} makes it complete and durable. */
+  static final class Writer implements Closeable {
+    private final Path file;
+    private final long writtenAt;
+    private final FileChannel channel;
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private long products;
+
+    Writer(Path file, long writtenAt) throws IOException {
+      this.file = file;
+      this.writtenAt = writtenAt;
+      this.channel =
+          FileChannel.open(
+              file,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING);
+      buffer.putInt(MAGIC).putInt(VERSION);
+    }
+
+    void write(ProductSnapshotRow row) throws IOException {
+      byte[] name = utf8(row.name());
+      byte[] description = utf8(row.description());
+      int length = 8 + 4 + length(name) + 4 + length(description) + 8 + 4;
+      reserve(4 + length);
+      buffer.putInt(length).putLong(row.id());
+      putString(name);
+      putString(description);
+      buffer
+          .putLong(
+              row.price() == null
+                  ? NO_PRICE
+                  : row.price().setScale(PRICE_SCALE).unscaledValue().longValueExact())
+          .putInt(row.stock());
+      products++;
+    }
+
+    ProductSnapshot finish() throws IOException {
+      reserve(12);
+      buffer.putInt(END).putLong(products);
+      drain();
+      ByteBuffer checksum = ByteBuffer.allocate(4).putInt((int) crc.getValue()).flip();
+      while (checksum.hasRemaining()) {
+        channel.write(checksum);
+      }
+      channel.force(true);
+      return new ProductSnapshot(
+          file, channel.size(), writtenAt, products, (int) crc.getValue());
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+
+    private void reserve(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        drain();
+        if (buffer.capacity() < bytes) {
+          buffer = ByteBuffer.allocate(bytes);
+        }
+      }
+    }
+
+    private void drain() throws IOException {
+      buffer.flip();
+      crc.update(buffer.duplicate());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    private void putString(byte[] bytes) {
+      if (bytes == null) {
+        buffer.putInt(-1);
+      } else {
+        buffer.putInt(bytes.length).put(bytes);
+      }
+    }
+  }
+
+  /**
+   * Reads a snapshot file front to back, handing every record to {@code rows}, and checks its
+   * checksum. Throws {@link IOException} for a file that is truncated, corrupt or of another
+   * version; as the checksum comes last, rows read before that may already have been handed over.
+   * {@code writtenAt} is not in the file; it is passed on to the snapshot returned.
+   */
+  static ProductSnapshot read(Path file, long writtenAt, Consumer<ProductSnapshotRow> rows)
+      throws IOException {
+    var crc = new CRC32C();
+    try (InputStream stream = Files.newInputStream(file);
+        var checked = new CheckedInputStream(new BufferedInputStream(stream, 1 << 16), crc);
+        var in = new DataInputStream(checked)) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException(file + " is not a catalog snapshot");
+      }
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException(file + " is a catalog snapshot of unknown version " + version);
+      }
+      long products = 0;
+      int length;
+      while ((length = in.readInt()) != END) {
+        if (length < 0 || length > MAX_RECORD_BYTES) {
+          throw new IOException(file + " has a record of impossible length " + length);
+        }
+        byte[] record = in.readNBytes(length);
+        if (record.length < length) {
+          throw new EOFException(file + " ends inside a record");
+        }
+        ProductSnapshotRow row;
+        try {
+          row = decode(ByteBuffer.wrap(record));
+        } catch (RuntimeException e) {
+          throw new IOException(file + " has a malformed record", e);
+        }
+        rows.accept(row);
+        products++;
+      }
+      if (in.readLong() != products) {
+        throw new IOException(file + " has a record count that does not match its records");
+      }
+      int expected = (int) crc.getValue();
+      int checksum = in.readInt();
+      if (checksum != expected) {
+        throw new IOException(file + " fails its checksum");
+      }
+      return new ProductSnapshot(file, Files.size(file), writtenAt, products, checksum);
+    }
+  }
+
+  private static ProductSnapshotRow decode(ByteBuffer record) {
+    long id = record.getLong();
+    String name = getString(record);
+    String description = getString(record);
+    long price = record.getLong();
+    int stock = record.getInt();
+    return new ProductSnapshotRow(
+        id,
+        name,
+        description,
+        price == NO_PRICE ? null : BigDecimal.valueOf(price, PRICE_SCALE),
+        stock);
+  }
+
+  private static String getString(ByteBuffer record) {
+    int length = record.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    record.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static byte[] utf8(String value) {
+    return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int length(byte[] bytes) {
+    return bytes == null ? 0 : bytes.length;
+  }
+}
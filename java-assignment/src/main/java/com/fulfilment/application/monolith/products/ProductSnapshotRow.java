@@ -0,0 +1,7 @@
+package com.fulfilment.application.monolith.products;
+
+import java.math.BigDecimal;
+
+// one product as written to a catalog snapshot; never attached to the persistence context
+public record ProductSnapshotRow(
+    Long id, String name, String description, BigDecimal price, int stock) {}
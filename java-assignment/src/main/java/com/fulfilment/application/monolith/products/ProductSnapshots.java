@@ -0,0 +1,196 @@
+package com.fulfilment.application.monolith.products;
+
+import io.quarkus.panache.common.Sort;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Writes the product catalog to a binary snapshot file, see {@link ProductSnapshotFormat}, on a
+ * schedule and at startup when there is none yet. The startup snapshot is written in the
+ * background, so a large catalog does not hold up readiness; until it is done there is none to
+ * serve.
+ *
+ * <p>Every snapshot is a new file, {@code catalog-<written at>.snapshot}, written under a temporary
+ * name and renamed once complete, so a file that is being served never changes. The previous
+ * snapshot is kept for downloads still reading it; older ones are deleted.
+ */
+@ApplicationScoped
+public class ProductSnapshots {
+
+  private static final Logger LOGGER = Logger.getLogger(ProductSnapshots.class.getName());
+
+  static final int PAGE_SIZE = 1000;
+  private static final String PREFIX = "catalog-";
+  private static final String SUFFIX = ".snapshot";
+
+  @Inject ProductRepository productRepository;
+
+  @ConfigProperty(name = "product.snapshot.directory")
+  Optional<String> snapshotDirectory;
+
+  Clock clock = Clock.systemUTC();
+
+  private volatile ProductSnapshot current;
+
+  private final ExecutorService executor =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "product-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  void onStart(@Observes StartupEvent event) {
+    for (Path file : snapshots(directory())) {
+      try {
+        current = ProductSnapshotFormat.read(file, writtenAt(file), row -> {});
+        LOGGER.infof("Catalog snapshot %s with %d products", file, current.products());
+        return;
+      } catch (IOException e) {
+        LOGGER.warnf("Skipping catalog snapshot %s: %s", file, e.getMessage());
+      }
+    }
+    executor.execute(
+        () -> {
+          try {
+            write();
+          } catch (RuntimeException e) {
+            LOGGER.warnf("Writing the startup catalog snapshot failed: %s", e.getMessage());
+          }
+        });
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Scheduled(
+      cron = "${product.snapshot.cron:0 0 2 * * ?}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void writeOnSchedule() {
+    write();
+  }
+
+  // null until the first snapshot is written
+  public ProductSnapshot current() {
+    return current;
+  }
+
+  public synchronized ProductSnapshot write() {
+    Path directory = directory();
+    long writtenAt = Math.max(clock.millis(), current == null ? 0 : current.writtenAt() + 1);
+    Path target = directory.resolve(PREFIX + writtenAt + SUFFIX);
+    ProductSnapshot snapshot;
+    Path temporary = null;
+    try {
+      temporary = Files.createTempFile(directory, PREFIX, ".tmp");
+      try (var writer = new ProductSnapshotFormat.Writer(temporary, writtenAt)) {
+        long after = -1L;
+        List<ProductSnapshotRow> page;
+        do {
+          page = page(after);
+          for (ProductSnapshotRow row : page) {
+            writer.write(row);
+          }
+          if (!page.isEmpty()) {
+            after = page.get(page.size() - 1).id();
+          }
+        } while (page.size() == PAGE_SIZE);
+        snapshot = writer.finish();
+      }
+      Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      deleteQuietly(temporary);
+      throw new UncheckedIOException("Cannot write a catalog snapshot to " + directory, e);
+    }
+    ProductSnapshot previous = current;
+    current =
+        new ProductSnapshot(
+            target, snapshot.size(), writtenAt, snapshot.products(), snapshot.checksum());
+    for (Path file : snapshots(directory)) {
+      if (!file.equals(target) && (previous == null || !file.equals(previous.file()))) {
+        deleteQuietly(file);
+      }
+    }
+    LOGGER.debugf("catalog snapshot %s written with %d products", target, current.products());
+    return current;
+  }
+
+  // one transaction per page, so a large catalog is not read in one
+  @Transactional
+  List<ProductSnapshotRow> page(long after) {
+    return productRepository
+        .find("id > ?1", Sort.by("id"), after)
+        .page(0, PAGE_SIZE)
+        .project(ProductSnapshotRow.class)
+        .list();
+  }
+
+  private Path directory() {
+    Path directory =
+        Path.of(
+            snapshotDirectory.orElse(
+                Path.of(System.getProperty("java.io.tmpdir"), "product-snapshots").toString()));
+    try {
+      return Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException(
+          "Cannot create the catalog snapshot directory " + directory, e);
+    }
+  }
+
+  // newest first
+  private static List<Path> snapshots(Path directory) {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(
+              f -> {
+                String name = f.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+              })
+          .sorted((a, b) -> Long.compare(writtenAt(b), writtenAt(a)))
+          .toList();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static long writtenAt(Path file) {
+    String name = file.getFileName().toString();
+    try {
+      return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    } catch (NumberFormatException e) {
+      return -1L;
+    }
+  }
+
+  private static void deleteQuietly(Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      LOGGER.warnf("Cannot delete %s: %s", file, e.getMessage());
+    }
+  }
+}
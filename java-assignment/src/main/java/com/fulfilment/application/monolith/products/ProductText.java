@@ -0,0 +1,5 @@
+package com.fulfilment.application.monolith.products;
+
+// read-only projection of the searchable fields of a product; never attached to the persistence
+// context
+public record ProductText(Long id, String name, String description) {}
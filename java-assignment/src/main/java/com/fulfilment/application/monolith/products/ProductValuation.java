@@ -0,0 +1,23 @@
+package com.fulfilment.application.monolith.products;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Stock valuation of the catalog: stock times price, in total, per price band and for the most
+ * valuable products. Products without a price count towards {@code products} and {@code units}
+ * only.
+ */
+public record ProductValuation(
+    long products,
+    long unpriced,
+    long units,
+    BigDecimal totalValue,
+    List<Band> bands,
+    List<Item> top) {
+
+  // products priced from {@code from} (inclusive) up to {@code to}; a null bound is open
+  public record Band(BigDecimal from, BigDecimal to, long products, long units, BigDecimal value) {}
+
+  public record Item(Long id, String name, BigDecimal price, int stock, BigDecimal value) {}
+}
@@ -0,0 +1,6 @@
+package com.fulfilment.application.monolith.products;
+
+import java.time.Instant;
+
+// stock of one product held for an order until it is committed, released or expires
+public record Reservation(String id, Long productId, int quantity, Instant expiresAt) {}
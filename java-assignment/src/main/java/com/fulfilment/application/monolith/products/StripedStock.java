@@ -0,0 +1,126 @@
+package com.fulfilment.application.monolith.products;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The available stock of one product, spread over a few independently updated stripes, so that
+ * concurrent reservations of a hot product rarely compete for the same compare-and-set.
+ *
+ * <p>A take is first tried against single stripes. Only when none holds enough on its own are all
+ * stripes gathered into one under a lock, which keeps a take from failing while the stock as a
+ * whole still covers it. Withdrawing more than is available, as when a product update lowers its
+ * stock below what is reserved, leaves a deficit; while there is one every take goes through the
+ * lock, so units returned to a stripe pay it off before they can be taken again.
+ */
+final class StripedStock {
+
+  // stripes sit a cache line apart
+  private static final int SPACING = 8;
+
+  private final AtomicLongArray cells;
+  private final int stripes;
+  private final ReentrantLock gather = new ReentrantLock();
+  // only written under the lock, and before the stripes are gathered
+  private final AtomicLong deficit = new AtomicLong();
+
+  StripedStock(int stripes, long initial) {
+    if (stripes < 1) {
+      throw new IllegalArgumentException("stripes must be at least 1");
+    }
+    this.stripes = stripes;
+    this.cells = new AtomicLongArray(stripes * SPACING);
+    if (initial < 0) {
+      deficit.set(-initial);
+      return;
+    }
+    // spread the initial stock so the first takes do not all land on one stripe
+    long share = initial / stripes;
+    for (int i = 0; i < stripes; i++) {
+      cells.set(i * SPACING, share);
+    }
+    cells.addAndGet(0, initial - share * stripes);
+  }
+
+  /** Takes {@code quantity} units if the stock covers them; false leaves the stock as it was. */
+  boolean take(long quantity) {
+    int start = ThreadLocalRandom.current().nextInt(stripes);
+    if (deficit.get() == 0 && takeFromOneStripe(start, quantity)) {
+      return true;
+    }
+    gather.lock();
+    try {
+      long total = gatherLocked();
+      boolean covered = total >= quantity;
+      settleLocked(covered ? total - quantity : total, start);
+      return covered;
+    } finally {
+      gather.unlock();
+    }
+  }
+
+  /** Returns {@code quantity} units, or withdraws them when it is negative. */
+  void add(long quantity) {
+    int start = ThreadLocalRandom.current().nextInt(stripes);
+    if (quantity >= 0) {
+      cells.addAndGet(start * SPACING, quantity);
+      return;
+    }
+    gather.lock();
+    try {
+      // published before the stripes are emptied, so a take that gets in between backs out
+      deficit.addAndGet(-quantity);
+      settleLocked(gatherLocked(), start);
+    } finally {
+      gather.unlock();
+    }
+  }
+
+  // a moment's sum; stripes may move while it is read
+  long available() {
+    long total = -deficit.get();
+    for (int i = 0; i < stripes; i++) {
+      total += cells.get(i * SPACING);
+    }
+    return total;
+  }
+
+  private boolean takeFromOneStripe(int start, long quantity) {
+    for (int i = 0; i < stripes; i++) {
+      int cell = ((start + i) % stripes) * SPACING;
+      long current = cells.get(cell);
+      while (current >= quantity) {
+        if (cells.compareAndSet(cell, current, current - quantity)) {
+          if (deficit.get() == 0) {
+            return true;
+          }
+          // a withdrawal came first; put the units back and take the locked path
+          cells.addAndGet(cell, quantity);
+          return false;
+        }
+        current = cells.get(cell);
+      }
+    }
+    return false;
+  }
+
+  // empties every stripe; the stock less the deficit
+  private long gatherLocked() {
+    long total = -deficit.get();
+    for (int i = 0; i < stripes; i++) {
+      total += cells.getAndSet(i * SPACING, 0);
+    }
+    return total;
+  }
+
+  private void settleLocked(long total, int stripe) {
+    if (total >= 0) {
+      deficit.set(0);
+      cells.addAndGet(stripe * SPACING, total);
+    } else {
+      deficit.set(-total);
+    }
+  }
+}
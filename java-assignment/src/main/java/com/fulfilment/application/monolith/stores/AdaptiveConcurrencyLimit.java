@@ -0,0 +1,148 @@
+package com.fulfilment.application.monolith.stores;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to the latency of the calls it admits (AIMD), inside a fixed
+ * bulkhead.
+ *
+ * <p>A call that completes within the latency target while the limit is in use grows the limit by
+ * {@code 1/limit}, about one per limit's worth of calls. A slow or failed call cuts it by the
+ * backoff factor. The limit never leaves {@code [minLimit, maxLimit]}; {@code maxLimit} is the
+ * bulkhead. A caller that finds the limit reached waits at most {@code maxWait}, and only {@code
+ * maxWaiting} callers may wait at once; everyone else is rejected straight away, so callers do not
+ * pile up behind a slow legacy system.
+ */
+final class AdaptiveConcurrencyLimit {
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final long latencyTargetNanos;
+  private final double backoff;
+  private final int maxWaiting;
+  private final long maxWaitNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition available = lock.newCondition();
+  private final LongAdder rejected = new LongAdder();
+  // guarded by lock
+  private double limit;
+  private int inFlight;
+  private int waiting;
+
+  AdaptiveConcurrencyLimit(
+      int initialLimit,
+      int minLimit,
+      int maxLimit,
+      long latencyTargetNanos,
+      double backoff,
+      int maxWaiting,
+      long maxWaitNanos) {
+    if (minLimit < 1 || maxLimit < minLimit) {
+      throw new IllegalArgumentException("limits must satisfy 1 <= min <= max");
+    }
+    if (backoff <= 0 || backoff >= 1) {
+      throw new IllegalArgumentException("backoff must be between 0 and 1");
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.latencyTargetNanos = latencyTargetNanos;
+    this.backoff = backoff;
+    this.maxWaiting = maxWaiting;
+    this.maxWaitNanos = maxWaitNanos;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+  }
+
+  /**
+   * Admits one call, waiting for room if allowed to.
+   *
+   * @throws RejectedExecutionException when there is no room and waiting is not possible
+   */
+  void acquire() {
+    lock.lock();
+    try {
+      if (inFlight < (int) limit) {
+        inFlight++;
+        return;
+      }
+      if (waiting >= maxWaiting) {
+        throw reject();
+      }
+      waiting++;
+      try {
+        long remaining = maxWaitNanos;
+        while (inFlight >= (int) limit) {
+          if (remaining <= 0) {
+            throw reject();
+          }
+          remaining = available.awaitNanos(remaining);
+        }
+        inFlight++;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw reject();
+      } finally {
+        waiting--;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // completes an admitted call and adapts the limit to how it went
+  void release(long latencyNanos, boolean succeeded) {
+    lock.lock();
+    try {
+      boolean saturated = inFlight >= limit / 2;
+      inFlight--;
+      if (!succeeded || latencyNanos > latencyTargetNanos) {
+        limit = Math.max(minLimit, limit * backoff);
+      } else if (saturated) {
+        // only grow while the limit is actually in use, or it drifts up unchecked
+        limit = Math.min(maxLimit, limit + 1 / limit);
+      }
+      available.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private RejectedExecutionException reject() {
+    rejected.increment();
+    return new RejectedExecutionException("Legacy system concurrency limit reached");
+  }
+
+  int limit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int inFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int waiting() {
+    lock.lock();
+    try {
+      return waiting;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  long rejected() {
+    return rejected.sum();
+  }
+}
@@ -0,0 +1,137 @@
+package com.fulfilment.application.monolith.stores;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker over a sliding window of the last {@code window} call outcomes.
+ *
+ * <p>Once at least {@code minCalls} outcomes are recorded and the share of failures reaches {@code
+ * failureRatio}, the circuit opens and calls are rejected without being attempted. After {@code
+ * openNanos} it lets a single trial call through: success closes the circuit with a clean window,
+ * failure opens it again.
+ *
+ * <p>Every state change starts a new generation, and {@link #acquire} hands out the current one as
+ * the call's permit. An outcome counts only for the generation its call started in: while half
+ * open only the trial's outcome decides, and calls that started before the circuit opened or
+ * closed again do not count against the fresh window.
+ */
+final class CircuitBreaker {
+
+  enum State {
+    CLOSED,
+    HALF_OPEN,
+    OPEN
+  }
+
+  private final int minCalls;
+  private final double failureRatio;
+  private final long openNanos;
+  private final LongSupplier nanoClock;
+
+  // guarded by this
+  private final boolean[] failed;
+  private int next;
+  private int recorded;
+  private int failures;
+  private State state = State.CLOSED;
+  private long openedAt;
+  private boolean trialInFlight;
+  private long generation;
+  private long opened;
+
+  CircuitBreaker(
+      int window, int minCalls, double failureRatio, long openNanos, LongSupplier nanoClock) {
+    if (window < 1 || minCalls < 1 || minCalls > window) {
+      throw new IllegalArgumentException("window and min calls must satisfy 1 <= min <= window");
+    }
+    this.failed = new boolean[window];
+    this.minCalls = minCalls;
+    this.failureRatio = failureRatio;
+    this.openNanos = openNanos;
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Lets a call through, or rejects it while the circuit is open.
+   *
+   * @return the permit to pass to {@link #record} or {@link #cancel}
+   * @throws RejectedExecutionException when the circuit is open or its trial call is running
+   */
+  synchronized long acquire() {
+    if (state == State.OPEN) {
+      if (nanoClock.getAsLong() - openedAt < openNanos) {
+        throw new RejectedExecutionException("Legacy system circuit is open");
+      }
+      transition(State.HALF_OPEN);
+    }
+    if (state == State.HALF_OPEN) {
+      if (trialInFlight) {
+        throw new RejectedExecutionException("Legacy system circuit is open");
+      }
+      trialInFlight = true;
+    }
+    return generation;
+  }
+
+  // a call that was let through but never attempted
+  synchronized void cancel(long permit) {
+    if (state == State.HALF_OPEN && permit == generation) {
+      trialInFlight = false;
+    }
+  }
+
+  synchronized void record(long permit, boolean succeeded) {
+    if (permit != generation) {
+      // started before the last state change
+      return;
+    }
+    if (state == State.HALF_OPEN) {
+      if (succeeded) {
+        transition(State.CLOSED);
+        next = 0;
+        recorded = 0;
+        failures = 0;
+      } else {
+        open();
+      }
+      return;
+    }
+
+    if (recorded == failed.length) {
+      if (failed[next]) {
+        failures--;
+      }
+    } else {
+      recorded++;
+    }
+    failed[next] = !succeeded;
+    if (!succeeded) {
+      failures++;
+    }
+    next = (next + 1) % failed.length;
+    if (recorded >= minCalls && failures >= failureRatio * recorded) {
+      open();
+    }
+  }
+
+  private void open() {
+    transition(State.OPEN);
+    openedAt = nanoClock.getAsLong();
+    opened++;
+  }
+
+  private void transition(State to) {
+    state = to;
+    trialInFlight = false;
+    generation++;
+  }
+
+  synchronized State state() {
+    return state;
+  }
+
+  synchronized long opened() {
+    return opened;
+  }
+}
@@ -0,0 +1,310 @@
+package com.fulfilment.application.monolith.stores;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of length-prefixed, checksummed records spread over numbered segment files.
+ *
+ * <p>A record is {@code [int length][int crc32][payload]}. Segments are named {@code
+ * segment-<n>.log} and a new one is started when the current one would grow past the segment
+ * size; a journal reopened after a restart starts a fresh segment rather than appending to a
+ * possibly torn tail.
+ *
+ * <p>{@link #append} returns once the record is on disk. Fsyncs are shared: while one writer is
+ * forcing the segment, others keep appending and then wait, and the next force covers all of them.
+ * Under load a single fsync makes many records durable.
+ *
+ * <p>{@link #startSegment} closes off everything appended so far, so a snapshot of what it adds up
+ * to can stand in for the segments before it; {@link #replay} then reads only the tail, and
+ * {@link #deleteSegmentsBefore} drops the segments the snapshot covers.
+ */
+public final class LegacyStoreJournal implements Closeable {
+
+  static final int HEADER_BYTES = 8;
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private final Path directory;
+  private final long segmentSize;
+
+  private final ReentrantLock appendLock = new ReentrantLock();
+  // guarded by appendLock
+  private FileChannel segment;
+  private long segmentIndex;
+  private long appendedSequence;
+
+  private final Object syncMonitor = new Object();
+  // guarded by syncMonitor
+  private boolean syncing;
+  private long durableSequence;
+  private long syncs;
+
+  public LegacyStoreJournal(Path directory, long segmentSize) throws IOException {
+    if (segmentSize <= HEADER_BYTES) {
+      throw new IllegalArgumentException("segment size must exceed " + HEADER_BYTES + " bytes");
+    }
+    this.directory = Files.createDirectories(directory);
+    this.segmentSize = segmentSize;
+    List<Path> existing = segments(directory);
+    this.segmentIndex = existing.isEmpty() ? 0 : indexOf(existing.get(existing.size() - 1)) + 1;
+    this.segment = open(segmentIndex);
+  }
+
+  /**
+   * Appends one record and waits until it is durable.
+   *
+   * @return the record's sequence number within this journal instance
+   */
+  public long append(byte[] payload) {
+    int recordBytes = HEADER_BYTES + payload.length;
+    if (recordBytes > segmentSize) {
+      throw new IllegalArgumentException("record of " + recordBytes + " bytes exceeds segment");
+    }
+
+    var crc = new CRC32();
+    crc.update(payload);
+    ByteBuffer record = ByteBuffer.allocate(recordBytes);
+    record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+
+    long sequence;
+    appendLock.lock();
+    try {
+      if (segment.position() + recordBytes > segmentSize && segment.position() > 0) {
+        rotate();
+      }
+      while (record.hasRemaining()) {
+        segment.write(record);
+      }
+      sequence = ++appendedSequence;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      appendLock.unlock();
+    }
+
+    awaitDurable(sequence);
+    return sequence;
+  }
+
+  private void awaitDurable(long sequence) {
+    while (true) {
+      synchronized (syncMonitor) {
+        while (syncing && durableSequence < sequence) {
+          try {
+            syncMonitor.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted waiting for the journal fsync", e);
+          }
+        }
+        if (durableSequence >= sequence) {
+          return;
+        }
+        syncing = true;
+      }
+
+      // this thread forces the segment for everything appended so far
+      long target;
+      FileChannel channel;
+      appendLock.lock();
+      try {
+        target = appendedSequence;
+        channel = segment;
+      } finally {
+        appendLock.unlock();
+      }
+
+      boolean forced = false;
+      try {
+        channel.force(false);
+        forced = true;
+      } catch (ClosedChannelException e) {
+        // rotated meanwhile; rotation forced the old segment before closing it
+        forced = true;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        synchronized (syncMonitor) {
+          syncing = false;
+          if (forced) {
+            durableSequence = Math.max(durableSequence, target);
+            syncs++;
+          }
+          syncMonitor.notifyAll();
+        }
+      }
+    }
+  }
+
+  // called with appendLock held
+  private void rotate() throws IOException {
+    segment.force(false);
+    segment.close();
+    synchronized (syncMonitor) {
+      durableSequence = Math.max(durableSequence, appendedSequence);
+      syncMonitor.notifyAll();
+    }
+    segment = open(++segmentIndex);
+  }
+
+  private FileChannel open(long index) throws IOException {
+    return FileChannel.open(
+        directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX)),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+  }
+
+  /**
+   * Closes the current segment, unless it is still empty, and starts the next one.
+   *
+   * @return the index of the segment now appended to; every earlier record is in a lower one
+   */
+  public long startSegment() {
+    appendLock.lock();
+    try {
+      if (segment.position() > 0) {
+        rotate();
+      }
+      return segmentIndex;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /**
+   * Deletes the segments below {@code index}, never the one appended to.
+   *
+   * @return the number of segments deleted
+   */
+  public int deleteSegmentsBefore(long index) throws IOException {
+    int deleted = 0;
+    for (Path path : segments(directory)) {
+      long candidate = indexOf(path);
+      if (candidate >= index || candidate >= currentSegment()) {
+        break;
+      }
+      if (Files.deleteIfExists(path)) {
+        deleted++;
+      }
+    }
+    return deleted;
+  }
+
+  private long currentSegment() {
+    appendLock.lock();
+    try {
+      return segmentIndex;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  long syncs() {
+    synchronized (syncMonitor) {
+      return syncs;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    appendLock.lock();
+    try {
+      if (segment.isOpen()) {
+        segment.force(false);
+        segment.close();
+      }
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /**
+   * Reads every intact record of the journal in {@code directory}, oldest first. Reading a segment
+   * stops at the first truncated or corrupt record, which can only be a tail torn by a crash.
+   */
+  public static List<byte[]> readAll(Path directory) throws IOException {
+    List<byte[]> records = new ArrayList<>();
+    replay(directory, 0, records::add);
+    return records;
+  }
+
+  /**
+   * Passes the intact records of the segments from {@code fromSegment} on to {@code consumer},
+   * oldest first, as they are read, so no more than one record is held at a time. Reading a
+   * segment stops where {@link #readAll} would.
+   *
+   * @return the number of records passed on
+   */
+  public static long replay(Path directory, long fromSegment, Consumer<byte[]> consumer)
+      throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return 0;
+    }
+    long replayed = 0;
+    for (Path path : segments(directory)) {
+      if (indexOf(path) < fromSegment) {
+        continue;
+      }
+      long remaining = Files.size(path);
+      try (var in =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+        while (remaining >= HEADER_BYTES) {
+          int length = in.readInt();
+          int checksum = in.readInt();
+          remaining -= HEADER_BYTES;
+          if (length < 0 || length > remaining) {
+            break;
+          }
+          byte[] payload = in.readNBytes(length);
+          remaining -= length;
+          var crc = new CRC32();
+          crc.update(payload);
+          if ((int) crc.getValue() != checksum) {
+            break;
+          }
+          consumer.accept(payload);
+          replayed++;
+        }
+      }
+    }
+    return replayed;
+  }
+
+  private static List<Path> segments(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(
+              path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+              })
+          .sorted()
+          .toList();
+    }
+  }
+
+  private static long indexOf(Path segment) {
+    String name = segment.getFileName().toString();
+    return Long.parseLong(
+        name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+}
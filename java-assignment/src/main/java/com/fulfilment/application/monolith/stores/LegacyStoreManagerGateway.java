@@ -1,51 +1,281 @@
 package com.fulfilment.application.monolith.stores;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.configuration.MemorySize;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
-import java.nio.file.Files;
+import jakarta.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
 
+/**
+ * Sends store changes to the legacy store manager, emulated here by an append-only journal.
+ *
+ * <p>Calls pass a circuit breaker and an {@link AdaptiveConcurrencyLimit} first, so when the
+ * legacy system browns out its callers are turned away with a {@link RejectedExecutionException}
+ * instead of queueing up behind it. The outbox and the async queue retry or report those
+ * rejections like any other failed delivery. Limiter and circuit state are published as {@code
+ * legacy.gateway.*} metrics.
+ *
+ * <p>What the legacy system holds is kept as a {@link StoreMerkleTree}. It is snapshotted every
+ * {@code store.legacy-journal.checkpoint-interval} and on shutdown, so a restart loads the latest
+ * snapshot and replays only the journal segments written after it. Segments older than the
+ * snapshots kept are deleted, so the journal on disk stays about the size of the writes between
+ * two checkpoints.
+ */
 @ApplicationScoped
 public class LegacyStoreManagerGateway {
 
-  public void createStoreOnLegacySystem(Store store) {
-    // just to emulate as this would send this to a legacy system, let's write a temp file with the
-    writeToFile(store);
+  private static final Logger LOGGER = Logger.getLogger(LegacyStoreManagerGateway.class.getName());
+
+  @ConfigProperty(name = "store.legacy-journal.directory")
+  Optional<String> journalDirectory;
+
+  @ConfigProperty(name = "store.legacy-journal.segment-size", defaultValue = "64M")
+  MemorySize segmentSize;
+
+  @ConfigProperty(name = "store.legacy-journal.checkpoint-interval", defaultValue = "10m")
+  Duration checkpointInterval;
+
+  @ConfigProperty(name = "store.legacy-gateway.limit.initial", defaultValue = "8")
+  int initialLimit;
+
+  @ConfigProperty(name = "store.legacy-gateway.limit.min", defaultValue = "1")
+  int minLimit;
+
+  @ConfigProperty(name = "store.legacy-gateway.limit.max", defaultValue = "32")
+  int maxLimit;
+
+  @ConfigProperty(name = "store.legacy-gateway.limit.latency-target", defaultValue = "200ms")
+  Duration latencyTarget;
+
+  @ConfigProperty(name = "store.legacy-gateway.limit.backoff", defaultValue = "0.9")
+  double backoff;
+
+  @ConfigProperty(name = "store.legacy-gateway.bulkhead.max-waiting", defaultValue = "16")
+  int maxWaiting;
+
+  @ConfigProperty(name = "store.legacy-gateway.bulkhead.max-wait", defaultValue = "500ms")
+  Duration maxWait;
+
+  @ConfigProperty(name = "store.legacy-gateway.circuit.window", defaultValue = "20")
+  int circuitWindow;
+
+  @ConfigProperty(name = "store.legacy-gateway.circuit.min-calls", defaultValue = "10")
+  int circuitMinCalls;
+
+  @ConfigProperty(name = "store.legacy-gateway.circuit.failure-ratio", defaultValue = "0.5")
+  double circuitFailureRatio;
+
+  @ConfigProperty(name = "store.legacy-gateway.circuit.open-duration", defaultValue = "5s")
+  Duration circuitOpenDuration;
+
+  @ConfigProperty(name = "store.reconciliation.bucket-width", defaultValue = "1024")
+  long bucketWidth;
+
+  @Inject MeterRegistry meterRegistry;
+
+  private Path directory;
+  private LegacyStoreJournal journal;
+  private StoreMerkleTree journaled;
+  // writes hold it shared; a checkpoint holds it alone to cut the journal where the tree stands
+  private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+  private AdaptiveConcurrencyLimit concurrencyLimit;
+  private CircuitBreaker circuitBreaker;
+  private Timer latency;
+
+  @PostConstruct
+  void init() {
+    directory =
+        Path.of(
+            journalDirectory.orElse(
+                Path.of(System.getProperty("java.io.tmpdir"), "legacy-store-journal").toString()));
+    try {
+      journaled = replay(directory);
+      journal = new LegacyStoreJournal(directory, segmentSize.asLongValue());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open the legacy store journal in " + directory, e);
+    }
+    LOGGER.infof("Legacy store journal at %s", directory);
+
+    concurrencyLimit =
+        new AdaptiveConcurrencyLimit(
+            initialLimit,
+            minLimit,
+            maxLimit,
+            latencyTarget.toNanos(),
+            backoff,
+            maxWaiting,
+            maxWait.toNanos());
+    circuitBreaker =
+        new CircuitBreaker(
+            circuitWindow,
+            circuitMinCalls,
+            circuitFailureRatio,
+            circuitOpenDuration.toNanos(),
+            System::nanoTime);
+    registerMetrics();
   }
 
-  public void updateStoreOnLegacySystem(Store store) {
-    // just to emulate as this would send this to a legacy system, let's write a temp file with the
-    writeToFile(store);
+  // what the legacy system holds: the latest snapshot, then the journal after it, record by record
+  private StoreMerkleTree replay(Path directory) throws IOException {
+    var tree = new StoreMerkleTree(bucketWidth);
+    LegacyStoreSnapshot.Loaded snapshot = LegacyStoreSnapshot.readLatest(directory);
+    long fromSegment = 0;
+    if (snapshot != null) {
+      snapshot.hashes().forEach(tree::put);
+      fromSegment = snapshot.segment();
+    }
+    long replayed =
+        LegacyStoreJournal.replay(
+            directory, fromSegment, payload -> record(tree, LegacyStoreRecord.decode(payload)));
+    LOGGER.debugf(
+        "loaded %d stores from the legacy store journal: snapshot of segment %d and %d records",
+        tree.size(),
+        fromSegment,
+        replayed);
+    return tree;
   }
 
-  private void writeToFile(Store store) {
+  /**
+   * Snapshots the tree as of a fresh journal segment. Writes wait only while the segment is cut
+   * and the tree copied; the snapshot itself is written after that.
+   */
+  @Scheduled(
+      every = "${store.legacy-journal.checkpoint-interval:10m}",
+      delayed = "${store.legacy-journal.checkpoint-interval:10m}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  synchronized void checkpoint() {
+    long segment;
+    Map<Long, Long> hashes;
+    checkpointLock.writeLock().lock();
     try {
-      // Step 1: Create a temporary file
-      Path tempFile;
+      segment = journal.startSegment();
+      hashes = journaled.hashes();
+    } finally {
+      checkpointLock.writeLock().unlock();
+    }
+    try {
+      LegacyStoreSnapshot.write(directory, segment, hashes);
+      int deleted = journal.deleteSegmentsBefore(LegacyStoreSnapshot.prune(directory));
+      LOGGER.debugf(
+          "legacy store snapshot of %d stores at segment %d, %d segments deleted",
+          hashes.size(),
+          segment,
+          deleted);
+    } catch (IOException | UncheckedIOException e) {
+      LOGGER.warnf("Writing the legacy store snapshot failed: %s", e.getMessage());
+    }
+  }
+
+  private static void record(StoreMerkleTree tree, LegacyStoreRecord record) {
+    if (record.storeId() == null) {
+      return;
+    }
+    if (record.type() == StoreTransactionEvent.Type.DELETED) {
+      tree.remove(record.storeId());
+    } else {
+      tree.put(
+          record.storeId(),
+          StoreMerkleTree.contentHash(
+              record.storeId(), record.name(), record.quantityProductsInStock()));
+    }
+  }
+
+  // Merkle tree of the stores as the legacy system holds them, kept current with every write
+  StoreMerkleTree journaled() {
+    return journaled;
+  }
 
-      tempFile = Files.createTempFile(store.name, ".txt");
+  private void registerMetrics() {
+    Gauge.builder("legacy.gateway.limit", concurrencyLimit, AdaptiveConcurrencyLimit::limit)
+        .register(meterRegistry);
+    Gauge.builder("legacy.gateway.in-flight", concurrencyLimit, AdaptiveConcurrencyLimit::inFlight)
+        .register(meterRegistry);
+    Gauge.builder("legacy.gateway.waiting", concurrencyLimit, AdaptiveConcurrencyLimit::waiting)
+        .register(meterRegistry);
+    FunctionCounter.builder(
+            "legacy.gateway.rejected", concurrencyLimit, AdaptiveConcurrencyLimit::rejected)
+        .register(meterRegistry);
+    // 0 closed, 1 half-open, 2 open
+    Gauge.builder("legacy.gateway.circuit.state", circuitBreaker, c -> c.state().ordinal())
+        .register(meterRegistry);
+    FunctionCounter.builder("legacy.gateway.circuit.opened", circuitBreaker, CircuitBreaker::opened)
+        .register(meterRegistry);
+    latency = Timer.builder("legacy.gateway.latency").register(meterRegistry);
+  }
 
-      System.out.println("Temporary file created at: " + tempFile.toString());
+  public void createStoreOnLegacySystem(Store store) {
+    // emulates the legacy system by journaling the change
+    call(LegacyStoreRecord.of(StoreTransactionEvent.Type.CREATED, store));
+  }
 
-      // Step 2: Write data to the temporary file
-      String content =
-          "Store created. [ name ="
-              + store.name
-              + " ] [ items on stock ="
-              + store.quantityProductsInStock
-              + "]";
-      Files.write(tempFile, content.getBytes());
-      System.out.println("Data written to temporary file.");
+  public void updateStoreOnLegacySystem(Store store) {
+    // emulates the legacy system by journaling the change
+    call(LegacyStoreRecord.of(StoreTransactionEvent.Type.UPDATED, store));
+  }
 
-      // Step 3: Optionally, read the data back to verify
-      String readContent = new String(Files.readAllBytes(tempFile));
-      System.out.println("Data read from temporary file: " + readContent);
+  private void call(LegacyStoreRecord record) {
+    long permit = circuitBreaker.acquire();
+    try {
+      concurrencyLimit.acquire();
+    } catch (RejectedExecutionException e) {
+      circuitBreaker.cancel(permit);
+      throw e;
+    }
+    long started = System.nanoTime();
+    boolean succeeded = false;
+    try {
+      write(record);
+      succeeded = true;
+    } finally {
+      long elapsed = System.nanoTime() - started;
+      concurrencyLimit.release(elapsed, succeeded);
+      circuitBreaker.record(permit, succeeded);
+      latency.record(elapsed, TimeUnit.NANOSECONDS);
+    }
+  }
 
-      // Step 4: Delete the temporary file when done
-      Files.delete(tempFile);
-      System.out.println("Temporary file deleted.");
+  private void write(LegacyStoreRecord record) {
+    long sequence;
+    checkpointLock.readLock().lock();
+    try {
+      sequence = journal.append(record.encode());
+      record(journaled, record);
+    } finally {
+      checkpointLock.readLock().unlock();
+    }
+    LOGGER.debugf(
+        "legacy journal %s storeId=%s name=%s stock=%d sequence=%d",
+        record.type(),
+        record.storeId(),
+        record.name(),
+        record.quantityProductsInStock(),
+        sequence);
+  }
 
-    } catch (Exception e) {
-      e.printStackTrace();
+  @PreDestroy
+  void close() {
+    // so the next start has next to nothing to replay
+    checkpoint();
+    try {
+      journal.close();
+    } catch (IOException e) {
+      LOGGER.warnf("Closing the legacy store journal failed: %s", e.getMessage());
     }
   }
 }
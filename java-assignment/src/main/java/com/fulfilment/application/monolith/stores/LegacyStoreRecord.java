@@ -0,0 +1,40 @@
+package com.fulfilment.application.monolith.stores;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// one store change as written to the legacy journal
+public record LegacyStoreRecord(
+    StoreTransactionEvent.Type type, Long storeId, String name, int quantityProductsInStock) {
+
+  public static LegacyStoreRecord of(StoreTransactionEvent.Type type, Store store) {
+    return new LegacyStoreRecord(type, store.id, store.name, store.quantityProductsInStock);
+  }
+
+  // [byte type][long storeId, -1 if unset][int quantity][short name length, -1 if null][name]
+  public byte[] encode() {
+    byte[] nameBytes = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 4 + 2 + nameBytes.length);
+    buffer.put((byte) type.ordinal());
+    buffer.putLong(storeId == null ? -1L : storeId);
+    buffer.putInt(quantityProductsInStock);
+    buffer.putShort(name == null ? -1 : (short) nameBytes.length);
+    buffer.put(nameBytes);
+    return buffer.array();
+  }
+
+  public static LegacyStoreRecord decode(byte[] payload) {
+    ByteBuffer buffer = ByteBuffer.wrap(payload);
+    var type = StoreTransactionEvent.Type.values()[buffer.get()];
+    long storeId = buffer.getLong();
+    int quantity = buffer.getInt();
+    short nameLength = buffer.getShort();
+    String name = null;
+    if (nameLength >= 0) {
+      byte[] nameBytes = new byte[nameLength];
+      buffer.get(nameBytes);
+      name = new String(nameBytes, StandardCharsets.UTF_8);
+    }
+    return new LegacyStoreRecord(type, storeId < 0 ? null : storeId, name, quantity);
+  }
+}
@@ -0,0 +1,151 @@
+package com.fulfilment.application.monolith.stores;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The content hashes the legacy system holds, as of the start of one journal segment, so a
+ * restart replays only the segments from there on.
+ *
+ * <p>A snapshot is {@code snapshot-<segment>.bin} next to the segments: {@code [int magic][long
+ * segment][int count]}, {@code count} times {@code [long storeId][long contentHash]}, then the
+ * CRC32 of everything before it as a long. It is written to a temporary file, forced and moved
+ * into place, so a crash leaves either the old snapshot or the new one.
+ *
+ * <p>The newest {@link #KEPT} snapshots are kept, so a damaged newest one still has an older one,
+ * and the journal segments it starts from, to fall back on.
+ */
+final class LegacyStoreSnapshot {
+
+  static final int KEPT = 2;
+  private static final int MAGIC = 0x4c534e31;
+  private static final String PREFIX = "snapshot-";
+  private static final String SUFFIX = ".bin";
+
+  private LegacyStoreSnapshot() {}
+
+  // what a snapshot holds: the hashes as of the start of segment
+  record Loaded(long segment, Map<Long, Long> hashes) {}
+
+  static Path write(Path directory, long segment, Map<Long, Long> hashes) throws IOException {
+    Path target = directory.resolve(String.format("%s%020d%s", PREFIX, segment, SUFFIX));
+    Path temporary = directory.resolve(target.getFileName() + ".tmp");
+    var crc = new CRC32();
+    try (var file =
+            new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16));
+        var out = new DataOutputStream(new CheckedOutputStream(file, crc))) {
+      out.writeInt(MAGIC);
+      out.writeLong(segment);
+      out.writeInt(hashes.size());
+      for (Map.Entry<Long, Long> entry : hashes.entrySet()) {
+        out.writeLong(entry.getKey());
+        out.writeLong(entry.getValue());
+      }
+      out.flush();
+      // the checksum covers what came before it, not itself
+      file.writeLong(crc.getValue());
+    }
+    try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+    return Files.move(
+        temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /** The newest intact snapshot in {@code directory}, or null when there is none. */
+  static Loaded readLatest(Path directory) throws IOException {
+    List<Path> snapshots = snapshots(directory);
+    for (int i = snapshots.size() - 1; i >= 0; i--) {
+      Loaded loaded = read(snapshots.get(i));
+      if (loaded != null) {
+        return loaded;
+      }
+    }
+    return null;
+  }
+
+  // oldest first
+  static List<Path> snapshots(Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(
+              path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+              })
+          .sorted()
+          .toList();
+    }
+  }
+
+  /**
+   * Deletes all but the newest {@link #KEPT} snapshots.
+   *
+   * @return the segment the oldest kept snapshot starts from; the segments below it are covered
+   */
+  static long prune(Path directory) throws IOException {
+    List<Path> snapshots = snapshots(directory);
+    if (snapshots.isEmpty()) {
+      return 0;
+    }
+    int firstKept = Math.max(0, snapshots.size() - KEPT);
+    for (Path path : snapshots.subList(0, firstKept)) {
+      Files.deleteIfExists(path);
+    }
+    return segmentOf(snapshots.get(firstKept));
+  }
+
+  private static long segmentOf(Path snapshot) {
+    String name = snapshot.getFileName().toString();
+    return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+  }
+
+  // null when the file is not an intact snapshot
+  private static Loaded read(Path path) throws IOException {
+    var crc = new CRC32();
+    try (var in =
+        new DataInputStream(
+            new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16), crc))) {
+      if (in.readInt() != MAGIC) {
+        return null;
+      }
+      long segment = in.readLong();
+      int count = in.readInt();
+      if (count < 0) {
+        return null;
+      }
+      Map<Long, Long> hashes = new HashMap<>();
+      for (int i = 0; i < count; i++) {
+        hashes.put(in.readLong(), in.readLong());
+      }
+      long expected = crc.getValue();
+      if (in.readLong() != expected) {
+        return null;
+      }
+      return new Loaded(segment, hashes);
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+}
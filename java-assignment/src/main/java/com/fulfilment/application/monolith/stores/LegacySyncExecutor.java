@@ -0,0 +1,392 @@
+package com.fulfilment.application.monolith.stores;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Sends store changes to the legacy system from a bounded queue drained by dedicated workers, so
+ * request threads never wait on the legacy call.
+ *
+ * <p>Events are striped over the workers by store id, which keeps the changes of one store in
+ * order. Each stripe queues at most {@code capacity / workers} events; what happens when a stripe
+ * is full depends on the {@link Backpressure} policy. For {@code BLOCK} and {@code REJECT} the
+ * request reserves its slot with {@link #reserve} before the transaction commits, so a rejected
+ * change is rolled back and answered with 503 rather than silently lost. Reserving never waits:
+ * under {@code BLOCK} the request waits for room with {@link #acquire} before its transaction
+ * starts, so it holds neither a connection nor a row lock while it waits.
+ *
+ * <p>A change to a store whose previous change is still queued replaces the snapshot of that
+ * change instead of taking a slot of its own, so a burst of updates costs one legacy call. A
+ * queued create stays a create. {@code DROP_OLDEST} drops only updates: a dropped create would
+ * leave the legacy system without the store, so when only creates are queued the change is queued
+ * past the bound.
+ *
+ * <p>Workers are virtual threads when the JDK has them and platform daemon threads otherwise.
+ */
+@ApplicationScoped
+public class LegacySyncExecutor {
+
+  private static final Logger LOGGER = Logger.getLogger(LegacySyncExecutor.class.getName());
+
+  public enum Backpressure {
+    // wait up to block-timeout for room before the transaction, then reject
+    BLOCK,
+    // make room by discarding the oldest queued update of the stripe
+    DROP_OLDEST,
+    // fail the request with 503 straight away
+    REJECT
+  }
+
+  @Inject LegacyStoreManagerGateway legacyStoreManagerGateway;
+
+  @ConfigProperty(name = "store.legacy-sync.async.capacity", defaultValue = "1000")
+  int capacity;
+
+  @ConfigProperty(name = "store.legacy-sync.async.workers", defaultValue = "2")
+  int workers;
+
+  @ConfigProperty(name = "store.legacy-sync.async.backpressure", defaultValue = "reject")
+  Backpressure backpressure;
+
+  @ConfigProperty(name = "store.legacy-sync.async.block-timeout", defaultValue = "2s")
+  Duration blockTimeout;
+
+  private final Set<StoreTransactionEvent> reserved = ConcurrentHashMap.newKeySet();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private volatile Stripe[] stripes;
+
+  /**
+   * Waits under {@code BLOCK} for a queue slot for a change to the store, before the transaction
+   * that makes the change starts. The slot is handed to {@link #reserve}, and has to be released
+   * when the transaction ends without reserving it.
+   *
+   * @return the slot, or null when the policy does not wait or the store has no id yet
+   * @throws RejectedExecutionException when no slot frees up within the block timeout
+   */
+  public Slot acquire(Long storeId) {
+    if (backpressure != Backpressure.BLOCK || storeId == null) {
+      return null;
+    }
+    Stripe stripe = stripeFor(storeId);
+    boolean acquired;
+    try {
+      acquired = stripe.permits.tryAcquire(blockTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      acquired = false;
+    }
+    if (!acquired) {
+      throw new RejectedExecutionException("Legacy synchronization queue is full");
+    }
+    return new Slot(stripe);
+  }
+
+  /**
+   * Holds a queue slot for the event until it is submitted or cancelled. Called before commit.
+   *
+   * @throws RejectedExecutionException when the stripe is full and the policy does not make room
+   */
+  public void reserve(StoreTransactionEvent event) {
+    reserve(event, null);
+  }
+
+  /**
+   * Like {@link #reserve(StoreTransactionEvent)}, taking over {@code slot} when it is for the
+   * event's stripe. Otherwise the slot is released and the stripe must have room now.
+   */
+  public void reserve(StoreTransactionEvent event, Slot slot) {
+    if (backpressure == Backpressure.DROP_OLDEST) {
+      if (slot != null) {
+        slot.release();
+      }
+      return;
+    }
+    Stripe stripe = stripeFor(event);
+    if (slot != null) {
+      if (slot.stripe == stripe && slot.held.compareAndSet(true, false)) {
+        reserved.add(event);
+        return;
+      }
+      slot.release();
+    }
+    // in the transaction, so it must not wait
+    if (!stripe.permits.tryAcquire()) {
+      throw new RejectedExecutionException("Legacy synchronization queue is full");
+    }
+    reserved.add(event);
+  }
+
+  // queues a committed change; it uses the slot reserved for it, if any
+  public void submit(StoreTransactionEvent event) {
+    Stripe stripe = stripeFor(event);
+    var task = new Task(event.type, snapshot(event.store));
+    if (stripe.merge(task)) {
+      if (reserved.remove(event)) {
+        stripe.permits.release();
+      }
+      coalesced.incrementAndGet();
+      return;
+    }
+    if (!reserved.remove(event)) {
+      if (backpressure == Backpressure.DROP_OLDEST) {
+        while (!stripe.permits.tryAcquire()) {
+          Task oldest = stripe.oldestUpdate();
+          if (oldest == null) {
+            // only creates are queued, and none of them may go
+            task.bounded = false;
+            break;
+          }
+          if (stripe.queue.removeFirstOccurrence(oldest)) {
+            stripe.take(oldest);
+            stripe.release(oldest);
+            dropped.incrementAndGet();
+            LOGGER.warnf(
+                "legacy sync queue full, dropped %s for storeId=%s", oldest.type, oldest.store.id);
+          }
+        }
+      } else if (!stripe.permits.tryAcquire()) {
+        // not reserved before commit, so there is nobody left to reject
+        dropped.incrementAndGet();
+        LOGGER.warnf(
+            "legacy sync queue full, dropped %s for storeId=%s", event.type, event.store.id);
+        return;
+      }
+    }
+    if (task.store.id != null) {
+      stripe.latest.put(task.store.id, task);
+    }
+    stripe.queue.addLast(task);
+  }
+
+  // gives back the slot of a change whose transaction did not commit
+  public void cancel(StoreTransactionEvent event) {
+    if (reserved.remove(event)) {
+      stripeFor(event).permits.release();
+    }
+  }
+
+  long dropped() {
+    return dropped.get();
+  }
+
+  long coalesced() {
+    return coalesced.get();
+  }
+
+  int queued() {
+    int queued = 0;
+    for (Stripe stripe : started()) {
+      queued += stripe.queue.size();
+    }
+    return queued;
+  }
+
+  private Stripe stripeFor(StoreTransactionEvent event) {
+    return stripeFor(event.store == null ? null : event.store.id);
+  }
+
+  private Stripe stripeFor(Long storeId) {
+    Stripe[] current = started();
+    long key = storeId == null ? 0 : storeId;
+    return current[(int) Math.floorMod(key, (long) current.length)];
+  }
+
+  private Stripe[] started() {
+    Stripe[] current = stripes;
+    if (current == null) {
+      synchronized (this) {
+        current = stripes;
+        if (current == null) {
+          current = start();
+          stripes = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  private Stripe[] start() {
+    int count = Math.max(1, workers);
+    int perStripe = Math.max(1, capacity / count);
+    ThreadFactory threadFactory = workerThreadFactory();
+    Stripe[] started = new Stripe[count];
+    for (int i = 0; i < count; i++) {
+      Stripe stripe = new Stripe(perStripe);
+      stripe.worker = threadFactory.newThread(() -> drain(stripe));
+      stripe.worker.start();
+      started[i] = stripe;
+    }
+    LOGGER.infof(
+        "legacy sync executor started with %d workers, %d slots each, backpressure %s",
+        count,
+        perStripe,
+        backpressure);
+    return started;
+  }
+
+  private void drain(Stripe stripe) {
+    while (!Thread.currentThread().isInterrupted()) {
+      Task task;
+      try {
+        task = stripe.queue.takeFirst();
+      } catch (InterruptedException e) {
+        return;
+      }
+      // the slot bounds what is queued, not what is in flight
+      stripe.take(task);
+      stripe.release(task);
+      try {
+        switch (task.type) {
+          case CREATED:
+            legacyStoreManagerGateway.createStoreOnLegacySystem(task.store);
+            break;
+          case UPDATED:
+            legacyStoreManagerGateway.updateStoreOnLegacySystem(task.store);
+            break;
+        }
+      } catch (RuntimeException e) {
+        LOGGER.warnf(
+            "legacy sync failed for %s storeId=%s: %s", task.type, task.store.id, e.getMessage());
+      }
+    }
+  }
+
+  private static Store snapshot(Store store) {
+    var copy = new Store(store.name);
+    copy.id = store.id;
+    copy.quantityProductsInStock = store.quantityProductsInStock;
+    return copy;
+  }
+
+  // Thread.ofVirtual() from JDK 21; looked up reflectively so the code still runs on 17
+  static ThreadFactory workerThreadFactory() {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+      builder =
+          builderType
+              .getMethod("name", String.class, long.class)
+              .invoke(builder, "legacy-sync-", 0L);
+      return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      AtomicLong counter = new AtomicLong();
+      return runnable -> {
+        Thread thread = new Thread(runnable, "legacy-sync-" + counter.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+      };
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    Stripe[] current = stripes;
+    if (current == null) {
+      return;
+    }
+    for (Stripe stripe : current) {
+      stripe.worker.interrupt();
+    }
+    LOGGER.debugf("legacy sync executor stopped with %d changes queued", queued());
+  }
+
+  /** A queue slot taken by {@link #acquire} before the transaction. */
+  public static final class Slot {
+    private final Stripe stripe;
+    private final AtomicBoolean held = new AtomicBoolean(true);
+
+    private Slot(Stripe stripe) {
+      this.stripe = stripe;
+    }
+
+    // gives the slot back unless a reserved change took it over; safe to call more than once
+    public void release() {
+      if (held.compareAndSet(true, false)) {
+        stripe.permits.release();
+      }
+    }
+  }
+
+  private static final class Task {
+    final StoreTransactionEvent.Type type;
+    // replaced by later updates until a worker takes the task; guarded by the task
+    Store store;
+    boolean taken;
+    // false for a create queued past the bound, which holds no slot
+    boolean bounded = true;
+
+    Task(StoreTransactionEvent.Type type, Store store) {
+      this.type = type;
+      this.store = store;
+    }
+  }
+
+  private static final class Stripe {
+    final LinkedBlockingDeque<Task> queue = new LinkedBlockingDeque<>();
+    // the last task queued for each store, while it is still queued
+    final ConcurrentHashMap<Long, Task> latest = new ConcurrentHashMap<>();
+    final Semaphore permits;
+    Thread worker;
+
+    Stripe(int capacity) {
+      this.permits = new Semaphore(capacity);
+    }
+
+    // folds an update into the queued change of the same store, if there is one
+    boolean merge(Task task) {
+      if (task.type != StoreTransactionEvent.Type.UPDATED || task.store.id == null) {
+        return false;
+      }
+      Task queued = latest.get(task.store.id);
+      if (queued == null) {
+        return false;
+      }
+      synchronized (queued) {
+        if (queued.taken) {
+          return false;
+        }
+        queued.store = task.store;
+        return true;
+      }
+    }
+
+    Task oldestUpdate() {
+      for (Task task : queue) {
+        if (task.type == StoreTransactionEvent.Type.UPDATED) {
+          return task;
+        }
+      }
+      return null;
+    }
+
+    void release(Task task) {
+      if (task.bounded) {
+        permits.release();
+      }
+    }
+
+    // called once a task has left the queue; later updates must queue behind it
+    void take(Task task) {
+      synchronized (task) {
+        task.taken = true;
+      }
+      if (task.store.id != null) {
+        latest.remove(task.store.id, task);
+      }
+    }
+  }
+}
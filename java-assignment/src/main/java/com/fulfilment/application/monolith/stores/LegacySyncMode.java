@@ -0,0 +1,11 @@
+package com.fulfilment.application.monolith.stores;
+
+// how store changes reach the legacy system; set with store.legacy-sync.mode
+public enum LegacySyncMode {
+  // recorded in the store_outbox table with the change and delivered in the background
+  OUTBOX,
+  // queued after commit and delivered by LegacySyncExecutor workers
+  ASYNC,
+  // delivered after commit on the request thread
+  DIRECT
+}
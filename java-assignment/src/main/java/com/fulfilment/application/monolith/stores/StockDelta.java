@@ -0,0 +1,4 @@
+package com.fulfilment.application.monolith.stores;
+
+// body of POST /store/{id}/stock: the amount to add to the stock, negative to take some out
+public record StockDelta(Integer delta) {}
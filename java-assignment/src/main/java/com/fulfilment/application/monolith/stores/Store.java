@@ -4,6 +4,7 @@ import io.quarkus.hibernate.orm.panache.PanacheEntity;
 import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Version;
 
 @Entity
 @Cacheable
@@ -14,6 +15,9 @@ public class Store extends PanacheEntity {
 
   public int quantityProductsInStock;
 
+  // checked on every update, so concurrent writers of one store cannot overwrite each other
+  @Version public long version;
+
   public Store() {}
 
   public Store(String name) {
@@ -0,0 +1,16 @@
+package com.fulfilment.application.monolith.stores;
+
+/**
+ * A committed store change as published on the change stream. {@code sequence} is the change's id
+ * in the store_change table, the same on every replica; {@code token} is what a consumer hands back
+ * to resume after this change. {@code version} is the store's optimistic lock version, so a
+ * consumer can tell an older change of the same store from a newer one.
+ */
+public record StoreChange(
+    long sequence,
+    String token,
+    StoreTransactionEvent.Type type,
+    Long storeId,
+    String name,
+    int quantityProductsInStock,
+    long version) {}
@@ -0,0 +1,62 @@
+package com.fulfilment.application.monolith.stores;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides how the pending outbox events of one store reach the legacy system.
+ *
+ * <p>Consecutive UPDATED events carry nothing the last of them does not, so a run of them is
+ * delivered once, as its latest snapshot, and the rest are dropped. A CREATED event is never
+ * merged, so it still reaches the legacy system before the updates that follow it.
+ *
+ * <p>A run at the end of the queue may still be growing. It is held back until no update has
+ * arrived for the debounce window, but never longer than the maximum delay after its first update,
+ * so a store that is updated constantly is still synchronized regularly.
+ */
+final class StoreChangeCoalescer {
+
+  private StoreChangeCoalescer() {}
+
+  // one delivery, plus the older events it makes redundant
+  record Step(StoreOutboxEvent deliver, List<StoreOutboxEvent> superseded) {}
+
+  // the deliveries to make in order; heldUntil is set when a trailing run was held back
+  record Plan(List<Step> steps, LocalDateTime heldUntil) {}
+
+  static Plan plan(
+      List<StoreOutboxEvent> events, LocalDateTime now, Duration debounce, Duration maxDelay) {
+    List<Step> steps = new ArrayList<>();
+    int i = 0;
+    while (i < events.size()) {
+      StoreOutboxEvent first = events.get(i);
+      if (first.type != StoreTransactionEvent.Type.UPDATED) {
+        steps.add(new Step(first, List.of()));
+        i++;
+        continue;
+      }
+
+      int last = i;
+      while (last + 1 < events.size()
+          && events.get(last + 1).type == StoreTransactionEvent.Type.UPDATED) {
+        last++;
+      }
+      StoreOutboxEvent latest = events.get(last);
+      if (last == events.size() - 1) {
+        LocalDateTime dueAt = min(latest.createdAt.plus(debounce), first.createdAt.plus(maxDelay));
+        if (dueAt.isAfter(now)) {
+          return new Plan(steps, dueAt);
+        }
+      }
+      steps.add(new Step(latest, List.copyOf(events.subList(i, last))));
+      i = last + 1;
+    }
+    return new Plan(steps, null);
+  }
+
+  private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+    return a.isBefore(b) ? a : b;
+  }
+}
@@ -0,0 +1,394 @@
+package com.fulfilment.application.monolith.stores;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Committed store changes of every replica, in the order this instance picked them up, with the
+ * most recent {@code store.changes.history-size} kept for consumers that reconnect.
+ *
+ * <p>Each store write adds a {@link StoreChangeRecord} in the writing transaction, and every
+ * replica polls them, so a consumer sees the changes made on the other replicas too. A poll reads
+ * only the rows past the highest id it has passed on. A row can commit after rows with higher ids,
+ * so the ids a poll skips over are asked for again on the following polls, for up to {@code
+ * store.changes.commit-window} by this instance's clock; a write whose commit takes longer than
+ * that, like one rolled back, is never passed on. A commit on this instance polls right away, the
+ * others are picked up within the poll interval. On its first poll an instance loads the latest
+ * rows as its history, so it can resume the tokens handed out by the other replicas and by the
+ * instances before a restart.
+ *
+ * <p>The resume token of a change is its row id. Resuming replays the kept changes with a higher
+ * id; one committed late with a lower id may then be passed on twice or, within the commit window
+ * around the reconnect, not at all. A token that cannot be resumed, because it is malformed or
+ * older than the kept history, gets a reset instead: the consumer reloads the stores and carries
+ * on from the live changes.
+ *
+ * <p>Changes are queued per subscriber and delivered off the polling thread, so a slow consumer
+ * holds up no one else. One that falls {@code store.changes.subscriber-buffer} changes behind is
+ * sent a reset and dropped.
+ */
+@ApplicationScoped
+public class StoreChangeFeed {
+
+  private static final Logger LOGGER = Logger.getLogger(StoreChangeFeed.class.getName());
+
+  // how many skipped ids are waited for at once; beyond that a skipped id is given up right away
+  static final int MAX_GAPS = 1000;
+
+  public interface Subscriber {
+    void onChange(StoreChange change);
+
+    // the changes since the consumer's token are gone; it has to reload the stores
+    void onReset(String reason);
+
+    // the consumer fell too far behind and gets no more changes; it has to reconnect
+    default void onDropped(String reason) {
+      onReset(reason);
+    }
+  }
+
+  @Inject EntityManager entityManager;
+
+  @ConfigProperty(name = "store.changes.history-size", defaultValue = "10000")
+  int historySize;
+
+  @ConfigProperty(name = "store.changes.subscriber-buffer", defaultValue = "1000")
+  int subscriberBuffer;
+
+  @ConfigProperty(name = "store.changes.commit-window", defaultValue = "10s")
+  Duration commitWindow;
+
+  @ConfigProperty(name = "store.changes.retention", defaultValue = "1h")
+  Duration retention;
+
+  private final ExecutorService executor =
+      Executors.newCachedThreadPool(
+          runnable -> {
+            Thread thread = new Thread(runnable, "store-change-feed");
+            thread.setDaemon(true);
+            return thread;
+          });
+  // where subscribers are called; replaced by tests that deliver on the calling thread
+  Executor delivery = executor;
+
+  private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+  // guarded by this
+  private final ArrayDeque<StoreChange> history = new ArrayDeque<>();
+  // guarded by this: every change with a higher id this instance picked up is in the history
+  private long keptAfter = Long.MAX_VALUE;
+
+  // guarded by pollLock: the highest id passed on, and the ids skipped over by when they were
+  private final Object pollLock = new Object();
+  private boolean loaded;
+  private long lastSeen;
+  private final Map<Long, Long> gaps = new LinkedHashMap<>();
+  private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+  // in the writing transaction, so the change is only seen once it commits
+  void onStoreChange(@Observes StoreTransactionEvent event) {
+    if (event != null && event.store != null && event.type != null) {
+      entityManager.persist(StoreChangeRecord.of(event));
+    }
+  }
+
+  // wake-ups that arrive while a poll is queued are folded into it
+  public void wakeUp() {
+    if (wakeUpPending.compareAndSet(false, true)) {
+      executor.execute(this::poll);
+    }
+  }
+
+  @Scheduled(
+      every = "${store.changes.poll-interval:500ms}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void poll() {
+    wakeUpPending.set(false);
+    synchronized (pollLock) {
+      try {
+        if (!loaded) {
+          load(latest(historySize));
+          loaded = true;
+        }
+        long now = System.nanoTime();
+        int expired = gaps.size();
+        gaps.values().removeIf(since -> now - since > commitWindow.toNanos());
+        expired -= gaps.size();
+        if (expired > 0) {
+          LOGGER.debugf("gave up waiting for %d store change ids", expired);
+        }
+        for (StoreChangeRecord row : recordedAfter(lastSeen, List.copyOf(gaps.keySet()))) {
+          if (row.id > lastSeen) {
+            // the ids in between may still commit, unless nothing was seen before
+            if (lastSeen > 0) {
+              awaitBetween(lastSeen, row.id, now);
+            }
+            lastSeen = row.id;
+          } else if (gaps.remove(row.id) == null) {
+            continue;
+          }
+          publish(row);
+        }
+      } catch (RuntimeException e) {
+        LOGGER.warnf("polling store changes failed, retrying on the next poll: %s", e.getMessage());
+      }
+    }
+  }
+
+  @Transactional
+  List<StoreChangeRecord> recordedAfter(long after, List<Long> missing) {
+    if (missing.isEmpty()) {
+      return entityManager
+          .createQuery(
+              "from StoreChangeRecord r where r.id > :after order by r.id", StoreChangeRecord.class)
+          .setParameter("after", after)
+          .setMaxResults(historySize)
+          .getResultList();
+    }
+    return entityManager
+        .createQuery(
+            "from StoreChangeRecord r where r.id > :after or r.id in :missing order by r.id",
+            StoreChangeRecord.class)
+        .setParameter("after", after)
+        .setParameter("missing", missing)
+        .setMaxResults(historySize)
+        .getResultList();
+  }
+
+  // the most recent rows, oldest first
+  @Transactional
+  List<StoreChangeRecord> latest(int rows) {
+    List<StoreChangeRecord> latest =
+        new ArrayList<>(
+            entityManager
+                .createQuery("from StoreChangeRecord r order by r.id desc", StoreChangeRecord.class)
+                .setMaxResults(rows)
+                .getResultList());
+    Collections.reverse(latest);
+    return latest;
+  }
+
+  // fills the history without passing the rows on; guarded by pollLock
+  void load(List<StoreChangeRecord> rows) {
+    if (rows.isEmpty()) {
+      return;
+    }
+    long now = System.nanoTime();
+    for (int i = 1; i < rows.size(); i++) {
+      awaitBetween(rows.get(i - 1).id, rows.get(i).id, now);
+    }
+    lastSeen = rows.get(rows.size() - 1).id;
+    synchronized (this) {
+      keptAfter = rows.get(0).id - 1;
+      rows.forEach(row -> keep(change(row)));
+    }
+    LOGGER.debugf("loaded %d store changes up to id %d", rows.size(), lastSeen);
+  }
+
+  @Scheduled(
+      every = "${store.changes.prune-interval:5m}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  @Transactional
+  void prune() {
+    int pruned =
+        entityManager
+            .createQuery("delete from StoreChangeRecord r where r.recordedAt < :before")
+            .setParameter("before", LocalDateTime.now().minus(retention))
+            .executeUpdate();
+    if (pruned > 0) {
+      LOGGER.debugf("pruned %d store changes", pruned);
+    }
+  }
+
+  void publish(StoreChangeRecord row) {
+    StoreChange change = change(row);
+    synchronized (this) {
+      if (keptAfter == Long.MAX_VALUE) {
+        // nothing was loaded; the changes before this one are not known
+        keptAfter = row.id - 1;
+      }
+      keep(change);
+      // under the lock so every subscriber queues the changes in sequence order
+      for (Subscription subscription : subscriptions) {
+        subscription.offer(change);
+      }
+    }
+    subscriptions.forEach(Subscription::schedule);
+  }
+
+  /**
+   * Replays the changes after {@code token}, or sends a reset when they cannot be replayed, and
+   * then passes on every new change. A null token starts from the live changes.
+   */
+  public void subscribe(String token, Subscriber subscriber) {
+    var subscription = new Subscription(subscriber);
+    synchronized (this) {
+      if (token != null) {
+        String problem = replay(token, subscription);
+        if (problem != null) {
+          LOGGER.debugf("change stream reset for token %s: %s", token, problem);
+          subscription.reset = problem;
+        }
+      }
+      subscriptions.add(subscription);
+    }
+    subscription.schedule();
+  }
+
+  public void unsubscribe(Subscriber subscriber) {
+    subscriptions.removeIf(subscription -> subscription.subscriber == subscriber);
+  }
+
+  int subscribers() {
+    return subscriptions.size();
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  // guarded by pollLock
+  private void awaitBetween(long seen, long next, long now) {
+    for (long id = Math.max(seen + 1, next - MAX_GAPS); id < next && gaps.size() < MAX_GAPS; id++) {
+      gaps.put(id, now);
+    }
+  }
+
+  private static StoreChange change(StoreChangeRecord row) {
+    return new StoreChange(
+        row.id,
+        Long.toString(row.id),
+        row.type,
+        row.storeId,
+        row.name,
+        row.quantityProductsInStock,
+        row.version);
+  }
+
+  // guarded by this
+  private void keep(StoreChange change) {
+    history.addLast(change);
+    if (history.size() > historySize) {
+      keptAfter = Math.max(keptAfter, history.removeFirst().sequence());
+    }
+  }
+
+  // returns why the token cannot be resumed, or null once the missed changes are queued
+  private String replay(String token, Subscription subscription) {
+    long after;
+    try {
+      after = Long.parseLong(token.trim());
+    } catch (NumberFormatException e) {
+      return "resume token is malformed";
+    }
+    if (after < 0) {
+      return "resume token is malformed";
+    }
+    if (after < keptAfter) {
+      return "changes after the resume token are no longer kept";
+    }
+    List<StoreChange> missed = new ArrayList<>();
+    for (StoreChange change : history) {
+      if (change.sequence() > after) {
+        missed.add(change);
+      }
+    }
+    // the replay may exceed the buffer; only live changes count against it
+    missed.forEach(subscription.queue::add);
+    subscription.queued.addAndGet(missed.size());
+    return null;
+  }
+
+  // one subscriber's queue; at most one delivery runs for it at a time
+  private final class Subscription {
+    final Subscriber subscriber;
+    final ConcurrentLinkedQueue<StoreChange> queue = new ConcurrentLinkedQueue<>();
+    final AtomicInteger queued = new AtomicInteger();
+    final AtomicBoolean delivering = new AtomicBoolean();
+    volatile String reset;
+    volatile boolean overflowed;
+
+    Subscription(Subscriber subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    void offer(StoreChange change) {
+      if (overflowed) {
+        return;
+      }
+      if (queued.get() >= subscriberBuffer) {
+        overflowed = true;
+        return;
+      }
+      queue.add(change);
+      queued.incrementAndGet();
+    }
+
+    void schedule() {
+      if (delivering.compareAndSet(false, true)) {
+        try {
+          delivery.execute(this::deliver);
+        } catch (RuntimeException e) {
+          delivering.set(false);
+          LOGGER.warnf("store change delivery could not be scheduled: %s", e.getMessage());
+        }
+      }
+    }
+
+    private void deliver() {
+      try {
+        if (reset != null) {
+          subscriber.onReset(reset);
+          reset = null;
+        }
+        StoreChange change;
+        while (!overflowed && (change = queue.poll()) != null) {
+          queued.decrementAndGet();
+          subscriber.onChange(change);
+        }
+        if (overflowed) {
+          // only the delivery that removes it tells the subscriber
+          if (subscriptions.remove(this)) {
+            queue.clear();
+            LOGGER.debugf("change stream subscriber fell %d changes behind", subscriberBuffer);
+            subscriber.onDropped(
+                "consumer fell more than " + subscriberBuffer + " changes behind");
+          }
+          return;
+        }
+      } catch (RuntimeException e) {
+        subscriptions.remove(this);
+        LOGGER.debugf("change stream subscriber failed and was dropped: %s", e.getMessage());
+        return;
+      } finally {
+        delivering.set(false);
+      }
+      // a change may have been queued after the loop found the queue empty
+      if (!queue.isEmpty() || overflowed) {
+        schedule();
+      }
+    }
+  }
+}
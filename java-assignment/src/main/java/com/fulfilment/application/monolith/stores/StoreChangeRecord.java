@@ -0,0 +1,49 @@
+package com.fulfilment.application.monolith.stores;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * A store change as written by the transaction that made it, so the change feed of every replica
+ * sees it, not only the one that committed it. Rows are kept for {@code store.changes.retention}.
+ */
+@Entity
+@Table(name = "store_change", indexes = @Index(columnList = "recordedAt"))
+public class StoreChangeRecord {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  public Long id;
+
+  public StoreTransactionEvent.Type type;
+
+  public Long storeId;
+
+  @Column(length = 40)
+  public String name;
+
+  public int quantityProductsInStock;
+
+  public long version;
+
+  public LocalDateTime recordedAt;
+
+  public StoreChangeRecord() {}
+
+  public static StoreChangeRecord of(StoreTransactionEvent event) {
+    var record = new StoreChangeRecord();
+    record.type = event.type;
+    record.storeId = event.store.id;
+    record.name = event.store.name;
+    record.quantityProductsInStock = event.store.quantityProductsInStock;
+    record.version = event.store.version;
+    record.recordedAt = LocalDateTime.now();
+    return record;
+  }
+}
@@ -0,0 +1,87 @@
+package com.fulfilment.application.monolith.stores;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.jboss.logging.Logger;
+
+/**
+ * Server-sent events for every committed store change, so consumers follow the changes instead of
+ * polling and diffing the full store list. Each event is named after the change type, carries the
+ * change as JSON and has its resume token as the event id.
+ *
+ * <p>A consumer resumes with {@code ?after=<token>}, or through the Last-Event-ID header that
+ * EventSource clients send on reconnect. When the changes since the token are gone it gets a
+ * {@code reset} event first, and should reload {@code GET /store} before applying what follows.
+ * A consumer that falls too far behind gets a {@code reset} event and the stream is closed.
+ */
+@Path("store/changes")
+@ApplicationScoped
+public class StoreChangeStreamResource {
+
+  private static final Logger LOGGER = Logger.getLogger(StoreChangeStreamResource.class.getName());
+
+  @Inject StoreChangeFeed storeChangeFeed;
+
+  @GET
+  @Produces(MediaType.SERVER_SENT_EVENTS)
+  public void changes(
+      @QueryParam("after") String after,
+      @HeaderParam("Last-Event-ID") String lastEventId,
+      @Context SseEventSink sink,
+      @Context Sse sse) {
+    String token = lastEventId != null ? lastEventId : after;
+    storeChangeFeed.subscribe(token, new SinkSubscriber(sink, sse));
+    LOGGER.debugf("change stream opened after token %s", token);
+  }
+
+  private final class SinkSubscriber implements StoreChangeFeed.Subscriber {
+    private final SseEventSink sink;
+    private final Sse sse;
+
+    SinkSubscriber(SseEventSink sink, Sse sse) {
+      this.sink = sink;
+      this.sse = sse;
+    }
+
+    @Override
+    public void onChange(StoreChange change) {
+      if (sink.isClosed()) {
+        storeChangeFeed.unsubscribe(this);
+        return;
+      }
+      sink.send(
+              sse.newEventBuilder()
+                  .id(change.token())
+                  .name(change.type().name())
+                  .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                  .data(StoreChange.class, change)
+                  .build())
+          .exceptionally(
+              failure -> {
+                storeChangeFeed.unsubscribe(this);
+                return null;
+              });
+    }
+
+    @Override
+    public void onReset(String reason) {
+      sink.send(sse.newEventBuilder().name("reset").data(String.class, reason).build());
+    }
+
+    // the client reconnects with its last token and gets a reset there
+    @Override
+    public void onDropped(String reason) {
+      sink.send(sse.newEventBuilder().name("reset").data(String.class, reason).build())
+          .whenComplete((ignored, failure) -> sink.close());
+    }
+  }
+}
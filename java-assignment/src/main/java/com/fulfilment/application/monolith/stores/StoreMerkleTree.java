@@ -0,0 +1,200 @@
+package com.fulfilment.application.monolith.stores;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Merkle tree over store content hashes, bucketed by id range, used to find where two copies of
+ * the stores differ without comparing every store.
+ *
+ * <p>A leaf is the bucket of ids {@code [b * bucketWidth, (b + 1) * bucketWidth)}; its digest is
+ * the sum of the mixed content hashes of its stores, so a store is added, changed or removed in
+ * constant time. Every level above groups 16 nodes of the level below. {@link #diff} walks both
+ * trees from the top and only descends into nodes whose digests differ.
+ */
+final class StoreMerkleTree {
+
+  private static final int FANOUT_BITS = 4;
+  // bucket indexes are non-negative longs, so 16 levels of 4 bits reach a handful of roots
+  private static final int LEVELS = 16;
+
+  private final long bucketWidth;
+  // guarded by this
+  private final TreeMap<Long, Bucket> buckets = new TreeMap<>();
+
+  StoreMerkleTree(long bucketWidth) {
+    if (bucketWidth < 1) {
+      throw new IllegalArgumentException("bucket width must be at least 1");
+    }
+    this.bucketWidth = bucketWidth;
+  }
+
+  long bucketOf(long storeId) {
+    return Math.floorDiv(Math.max(storeId, 0L), bucketWidth);
+  }
+
+  long firstId(long bucket) {
+    return bucket * bucketWidth;
+  }
+
+  long bucketWidth() {
+    return bucketWidth;
+  }
+
+  synchronized void put(long storeId, long contentHash) {
+    buckets.computeIfAbsent(bucketOf(storeId), b -> new Bucket()).put(storeId, contentHash);
+  }
+
+  synchronized void remove(long storeId) {
+    long bucket = bucketOf(storeId);
+    Bucket current = buckets.get(bucket);
+    if (current != null && current.remove(storeId) && current.hashes.isEmpty()) {
+      buckets.remove(bucket);
+    }
+  }
+
+  // replaces what the tree holds for one bucket, e.g. with the bucket as just read back
+  synchronized void replaceBucket(long bucket, Map<Long, Long> storeHashes) {
+    if (storeHashes.isEmpty()) {
+      buckets.remove(bucket);
+      return;
+    }
+    Bucket replacement = new Bucket();
+    storeHashes.forEach(replacement::put);
+    buckets.put(bucket, replacement);
+  }
+
+  // store id to content hash for the stores of one bucket
+  synchronized Map<Long, Long> bucket(long bucket) {
+    Bucket current = buckets.get(bucket);
+    return current == null ? Map.of() : new HashMap<>(current.hashes);
+  }
+
+  // store id to content hash for every store, e.g. to snapshot the tree
+  synchronized Map<Long, Long> hashes() {
+    Map<Long, Long> hashes = new HashMap<>();
+    for (Bucket bucket : buckets.values()) {
+      hashes.putAll(bucket.hashes);
+    }
+    return hashes;
+  }
+
+  synchronized int size() {
+    int size = 0;
+    for (Bucket bucket : buckets.values()) {
+      size += bucket.hashes.size();
+    }
+    return size;
+  }
+
+  // level 0 is the buckets; each level above folds FANOUT_BITS of the key into its parent
+  synchronized List<TreeMap<Long, Long>> levels() {
+    List<TreeMap<Long, Long>> levels = new ArrayList<>(LEVELS);
+    TreeMap<Long, Long> level = new TreeMap<>();
+    buckets.forEach((key, bucket) -> level.put(key, bucket.digest));
+    levels.add(level);
+    for (int i = 1; i < LEVELS; i++) {
+      TreeMap<Long, Long> parents = new TreeMap<>();
+      for (Map.Entry<Long, Long> node : levels.get(i - 1).entrySet()) {
+        long key = node.getKey();
+        parents.merge(key >>> FANOUT_BITS, mix(key, node.getValue()), Long::sum);
+      }
+      levels.add(parents);
+    }
+    return levels;
+  }
+
+  record Divergence(List<Long> buckets, int nodesCompared) {}
+
+  // buckets whose content differs between the two trees; both must use the same bucket width
+  static Divergence diff(StoreMerkleTree ours, StoreMerkleTree theirs) {
+    if (ours.bucketWidth != theirs.bucketWidth) {
+      throw new IllegalArgumentException("trees with different bucket widths cannot be compared");
+    }
+    List<TreeMap<Long, Long>> left = ours.levels();
+    List<TreeMap<Long, Long>> right = theirs.levels();
+    int compared = 0;
+    TreeSet<Long> candidates = new TreeSet<>(left.get(LEVELS - 1).keySet());
+    candidates.addAll(right.get(LEVELS - 1).keySet());
+    for (int level = LEVELS - 1; level >= 0; level--) {
+      TreeSet<Long> differing = new TreeSet<>();
+      for (Long key : candidates) {
+        compared++;
+        if (!left.get(level).getOrDefault(key, 0L).equals(right.get(level).getOrDefault(key, 0L))) {
+          differing.add(key);
+        }
+      }
+      if (level == 0) {
+        return new Divergence(List.copyOf(differing), compared);
+      }
+      candidates = new TreeSet<>();
+      for (Long key : differing) {
+        long first = key << FANOUT_BITS;
+        long end = first + (1L << FANOUT_BITS);
+        candidates.addAll(left.get(level - 1).subMap(first, end).keySet());
+        candidates.addAll(right.get(level - 1).subMap(first, end).keySet());
+      }
+    }
+    throw new IllegalStateException("unreachable");
+  }
+
+  // FNV-1a over the fields the legacy system keeps, finished with a 64-bit mix
+  static long contentHash(Long storeId, String name, int quantityProductsInStock) {
+    long hash = 0xcbf29ce484222325L;
+    hash = fnv(hash, storeId == null ? -1L : storeId);
+    hash = fnv(hash, quantityProductsInStock);
+    if (name == null) {
+      hash = fnv(hash, -1L);
+    } else {
+      for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+        hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+      }
+    }
+    return mix(hash);
+  }
+
+  private static long fnv(long hash, long value) {
+    for (int i = 0; i < 8; i++) {
+      hash = (hash ^ ((value >>> (8 * i)) & 0xff)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  private static long mix(long key, long value) {
+    return mix(key * 0x9e3779b97f4a7c15L + value);
+  }
+
+  // SplitMix64 finalizer
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  private static final class Bucket {
+    final Map<Long, Long> hashes = new HashMap<>();
+    long digest;
+
+    void put(long storeId, long contentHash) {
+      Long previous = hashes.put(storeId, contentHash);
+      if (previous != null) {
+        digest -= mix(storeId, previous);
+      }
+      digest += mix(storeId, contentHash);
+    }
+
+    boolean remove(long storeId) {
+      Long previous = hashes.remove(storeId);
+      if (previous == null) {
+        return false;
+      }
+      digest -= mix(storeId, previous);
+      return true;
+    }
+  }
+}
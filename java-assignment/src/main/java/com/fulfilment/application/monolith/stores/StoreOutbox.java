@@ -0,0 +1,344 @@
+package com.fulfilment.application.monolith.stores;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+@ApplicationScoped
+public class StoreOutbox {
+
+  private static final Logger LOGGER = Logger.getLogger(StoreOutbox.class.getName());
+
+  @Inject EntityManager entityManager;
+  @Inject LegacyStoreManagerGateway legacyStoreManagerGateway;
+  @Inject MeterRegistry meterRegistry;
+
+  @ConfigProperty(name = "store.legacy-sync.mode", defaultValue = "outbox")
+  LegacySyncMode mode;
+
+  @ConfigProperty(name = "store.outbox.batch-size", defaultValue = "100")
+  int batchSize;
+
+  @ConfigProperty(name = "store.outbox.max-attempts", defaultValue = "10")
+  int maxAttempts;
+
+  @ConfigProperty(name = "store.outbox.retry-backoff", defaultValue = "1s")
+  Duration retryBackoff;
+
+  @ConfigProperty(name = "store.outbox.lease-duration", defaultValue = "30s")
+  Duration leaseDuration;
+
+  @ConfigProperty(name = "store.legacy-sync.coalesce.debounce", defaultValue = "100ms")
+  Duration debounce;
+
+  @ConfigProperty(name = "store.legacy-sync.coalesce.max-delay", defaultValue = "1s")
+  Duration maxDelay;
+
+  private Counter parked;
+  // names this replica on the lease
+  private final String instance = UUID.randomUUID().toString();
+
+  @PostConstruct
+  void registerMetrics() {
+    parked = meterRegistry.counter("store.outbox.parked");
+  }
+
+  public boolean enabled() {
+    return mode == LegacySyncMode.OUTBOX;
+  }
+
+  // records the change in the caller's transaction; it is delivered only if that commits
+  @Transactional(Transactional.TxType.MANDATORY)
+  public void append(StoreTransactionEvent event) {
+    entityManager.persist(StoreOutboxEvent.of(event));
+    LOGGER.debugf("outbox append storeId=%d type=%s", event.store.id, event.type);
+  }
+
+  /**
+   * Delivers the pending events of up to one batch of stores to the legacy system and removes
+   * them. Stores are taken in the order of their oldest pending event, starting after the store
+   * whose oldest event was {@code afterHead}, so a drain that passes each batch's {@link
+   * Dispatch#next()} to the following call visits every store once, whether or not the stores in
+   * front of it made progress.
+   *
+   * <p>Runs of updates to the same store are coalesced by {@link StoreChangeCoalescer}, so only
+   * the latest snapshot of a run is sent and a run that is still growing is held back. When a
+   * delivery fails, every event of the run it was sent for has its attempt count raised, later
+   * events for the same store wait behind them, and the store is skipped until its retry backoff
+   * has passed. After {@code max-attempts} failures the whole run is parked: it stays in the
+   * table, out of the queue, so the store's later events can go. A call the gateway rejects
+   * because its limit is reached or its circuit is open was never attempted; the store is held
+   * back for the backoff without an attempt being counted.
+   *
+   * <p>The batch is read and its outcomes written in two short transactions; the legacy calls in
+   * between run outside any transaction. Only the replica holding the lease drains, so events
+   * leave in id order. Delivery is at least once: if the outcomes are not written, the batch is
+   * sent again.
+   */
+  public Dispatch dispatchBatch(long afterHead) {
+    if (!acquireLease()) {
+      LOGGER.debug("outbox is drained by another replica");
+      return new Dispatch(false, afterHead, null);
+    }
+    LocalDateTime now = LocalDateTime.now();
+    Batch batch = pending(afterHead, now);
+    if (batch.heads() == 0) {
+      return new Dispatch(false, afterHead, null);
+    }
+
+    LocalDateTime heldUntil = batch.heldUntil();
+    var outcomes = new Outcomes();
+    int delivered = 0;
+    int stores = 0;
+    boolean leased = true;
+    for (List<StoreChangeCoalescer.Step> steps : batch.steps()) {
+      // renewed per store, so a slow legacy system cannot outlast the lease mid-batch
+      if (stores > 0 && !(leased = acquireLease())) {
+        LOGGER.warn("outbox lease taken over by another replica, stopping the batch");
+        break;
+      }
+      stores++;
+      for (StoreChangeCoalescer.Step step : steps) {
+        try {
+          deliver(step.deliver());
+        } catch (RejectedExecutionException e) {
+          LocalDateTime retryAt = now.plus(retryBackoff);
+          outcomes.held.add(new Held(ids(step), retryAt));
+          heldUntil = earliest(heldUntil, retryAt);
+          LOGGER.debugf(
+              "outbox delivery for storeId=%d not attempted, retrying at %s: %s",
+              step.deliver().storeId,
+              retryAt,
+              e.getMessage());
+          break;
+        } catch (RuntimeException e) {
+          Failure failure = failure(step, e, now);
+          outcomes.failed.add(failure);
+          if (failure.notBefore() != null) {
+            heldUntil = earliest(heldUntil, failure.notBefore());
+          }
+          break;
+        }
+        outcomes.done.addAll(ids(step));
+        delivered++;
+      }
+    }
+    record(outcomes);
+    LOGGER.debugf(
+        "outbox delivered %d and coalesced %d events for %d of %d stores",
+        delivered,
+        outcomes.done.size() - delivered,
+        stores,
+        batch.heads());
+    // a full page of stores means there may be more behind it
+    return new Dispatch(leased && batch.heads() == batchSize, batch.next(), heldUntil);
+  }
+
+  /**
+   * next is the cursor for the following batch of the same drain; heldUntil is when the earliest
+   * update held back or delivery backed off by this batch becomes due, or null.
+   */
+  record Dispatch(boolean more, long next, LocalDateTime heldUntil) {}
+
+  // the deliveries planned for the stores that are due, in store order
+  record Batch(
+      int heads, long next, List<List<StoreChangeCoalescer.Step>> steps, LocalDateTime heldUntil) {}
+
+  // a run whose delivery failed; its events share the attempt count and backoff
+  record Failure(
+      List<Long> ids,
+      int attempts,
+      String error,
+      LocalDateTime notBefore,
+      LocalDateTime parkedAt) {}
+
+  // a run whose delivery the gateway rejected without attempting it
+  record Held(List<Long> ids, LocalDateTime notBefore) {}
+
+  static final class Outcomes {
+    final List<Long> done = new ArrayList<>();
+    final List<Failure> failed = new ArrayList<>();
+    final List<Held> held = new ArrayList<>();
+  }
+
+  @Transactional
+  Batch pending(long afterHead, LocalDateTime now) {
+    List<Object[]> heads =
+        entityManager
+            .createQuery(
+                "select e.storeId, e.id, e.notBefore from StoreOutboxEvent e"
+                    + " where e.id > :after and e.id in (select min(h.id) from StoreOutboxEvent h"
+                    + " where h.parkedAt is null group by h.storeId)"
+                    + " order by e.id",
+                Object[].class)
+            .setParameter("after", afterHead)
+            .setMaxResults(batchSize)
+            .getResultList();
+    if (heads.isEmpty()) {
+      return new Batch(0, afterHead, List.of(), null);
+    }
+
+    LocalDateTime heldUntil = null;
+    List<Long> due = new ArrayList<>(heads.size());
+    for (Object[] head : heads) {
+      LocalDateTime notBefore = (LocalDateTime) head[2];
+      if (notBefore != null && notBefore.isAfter(now)) {
+        heldUntil = earliest(heldUntil, notBefore);
+      } else {
+        due.add((Long) head[0]);
+      }
+    }
+    long next = (Long) heads.get(heads.size() - 1)[1];
+
+    Map<Long, List<StoreOutboxEvent>> byStore = new LinkedHashMap<>();
+    due.forEach(storeId -> byStore.put(storeId, new ArrayList<>()));
+    if (!due.isEmpty()) {
+      entityManager
+          .createQuery(
+              "from StoreOutboxEvent e where e.storeId in :stores and e.parkedAt is null"
+                  + " order by e.id",
+              StoreOutboxEvent.class)
+          .setParameter("stores", due)
+          .getResultStream()
+          .forEach(event -> byStore.get(event.storeId).add(event));
+    }
+
+    List<List<StoreChangeCoalescer.Step>> steps = new ArrayList<>(byStore.size());
+    for (List<StoreOutboxEvent> events : byStore.values()) {
+      var plan = StoreChangeCoalescer.plan(events, now, debounce, maxDelay);
+      if (plan.heldUntil() != null) {
+        heldUntil = earliest(heldUntil, plan.heldUntil());
+      }
+      steps.add(plan.steps());
+    }
+    // the events are only read from here on
+    entityManager.clear();
+    return new Batch(heads.size(), next, steps, heldUntil);
+  }
+
+  @Transactional
+  void record(Outcomes outcomes) {
+    if (!outcomes.done.isEmpty()) {
+      entityManager
+          .createQuery("delete from StoreOutboxEvent e where e.id in :ids")
+          .setParameter("ids", outcomes.done)
+          .executeUpdate();
+    }
+    for (Failure failure : outcomes.failed) {
+      entityManager
+          .createQuery(
+              "update StoreOutboxEvent e set e.attempts = :attempts, e.lastError = :error,"
+                  + " e.notBefore = :notBefore, e.parkedAt = :parkedAt where e.id in :ids")
+          .setParameter("attempts", failure.attempts())
+          .setParameter("error", failure.error())
+          .setParameter("notBefore", failure.notBefore())
+          .setParameter("parkedAt", failure.parkedAt())
+          .setParameter("ids", failure.ids())
+          .executeUpdate();
+    }
+    for (Held held : outcomes.held) {
+      entityManager
+          .createQuery("update StoreOutboxEvent e set e.notBefore = :notBefore where e.id in :ids")
+          .setParameter("notBefore", held.notBefore())
+          .setParameter("ids", held.ids())
+          .executeUpdate();
+    }
+  }
+
+  // the run's events fail together, so whichever of them heads the store carries the backoff
+  private Failure failure(StoreChangeCoalescer.Step step, RuntimeException e, LocalDateTime now) {
+    StoreOutboxEvent event = step.deliver();
+    int attempts = event.attempts;
+    for (StoreOutboxEvent superseded : step.superseded()) {
+      attempts = Math.max(attempts, superseded.attempts);
+    }
+    attempts++;
+    List<Long> ids = ids(step);
+    if (attempts >= maxAttempts) {
+      parked.increment(ids.size());
+      LOGGER.errorf(
+          "outbox parked event %d and %d superseded, storeId=%d type=%s after %d attempts: %s",
+          event.id,
+          step.superseded().size(),
+          event.storeId,
+          event.type,
+          attempts,
+          e.getMessage());
+      return new Failure(ids, attempts, e.getMessage(), null, now);
+    }
+    // doubles with every attempt; the shift is capped so it cannot overflow
+    LocalDateTime notBefore =
+        now.plus(retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 16)));
+    LOGGER.warnf(
+        "outbox delivery failed for event %d storeId=%d attempts=%d, retrying at %s: %s",
+        event.id,
+        event.storeId,
+        attempts,
+        notBefore,
+        e.getMessage());
+    return new Failure(ids, attempts, e.getMessage(), notBefore, null);
+  }
+
+  private static List<Long> ids(StoreChangeCoalescer.Step step) {
+    List<Long> ids = new ArrayList<>(step.superseded().size() + 1);
+    step.superseded().forEach(event -> ids.add(event.id));
+    ids.add(step.deliver().id);
+    return ids;
+  }
+
+  private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+    return a == null || b.isBefore(a) ? b : a;
+  }
+
+  private void deliver(StoreOutboxEvent event) {
+    switch (event.type) {
+      case CREATED:
+        legacyStoreManagerGateway.createStoreOnLegacySystem(event.toStore());
+        break;
+      case UPDATED:
+        legacyStoreManagerGateway.updateStoreOnLegacySystem(event.toStore());
+        break;
+    }
+  }
+
+  /**
+   * Takes or renews the lease on draining, held for {@code store.outbox.lease-duration} from now.
+   * Only one replica drains at a time, so events leave in id order; a replica that stops renewing
+   * hands over once its lease has run out.
+   */
+  @Transactional(Transactional.TxType.REQUIRES_NEW)
+  boolean acquireLease() {
+    LocalDateTime now = LocalDateTime.now();
+    StoreOutboxLease lease =
+        entityManager.find(
+            StoreOutboxLease.class, StoreOutboxLease.ID, LockModeType.PESSIMISTIC_WRITE);
+    if (lease == null) {
+      // first run; a replica racing on the insert fails here and retries on its next run
+      lease = new StoreOutboxLease(StoreOutboxLease.ID);
+      entityManager.persist(lease);
+    } else if (!instance.equals(lease.holder)
+        && lease.expiresAt != null
+        && lease.expiresAt.isAfter(now)) {
+      return false;
+    }
+    lease.holder = instance;
+    lease.expiresAt = now.plus(leaseDuration);
+    entityManager.flush();
+    return true;
+  }
+}
@@ -0,0 +1,86 @@
+package com.fulfilment.application.monolith.stores;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jboss.logging.Logger;
+
+/**
+ * Drains the store outbox on a background thread. A committed store change wakes it up right
+ * away; the scheduled poll picks up retries and anything left behind by a restart.
+ */
+@ApplicationScoped
+public class StoreOutboxDispatcher {
+
+  private static final Logger LOGGER = Logger.getLogger(StoreOutboxDispatcher.class.getName());
+
+  @Inject StoreOutbox storeOutbox;
+
+  private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+  private final ScheduledExecutorService executor =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "store-outbox-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  // wake-ups that arrive while a drain is queued are folded into it
+  public void wakeUp() {
+    if (wakeUpPending.compareAndSet(false, true)) {
+      executor.execute(this::drain);
+    }
+  }
+
+  void onStart(@Observes StartupEvent event) {
+    if (storeOutbox.enabled()) {
+      wakeUp();
+    }
+  }
+
+  @Scheduled(
+      every = "${store.outbox.poll-interval:5s}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void poll() {
+    if (storeOutbox.enabled()) {
+      wakeUp();
+    }
+  }
+
+  void drain() {
+    wakeUpPending.set(false);
+    try {
+      StoreOutbox.Dispatch dispatch = storeOutbox.dispatchBatch(0L);
+      LocalDateTime heldUntil = dispatch.heldUntil();
+      while (dispatch.more()) {
+        LOGGER.debug("outbox drain continuing with the next batch");
+        dispatch = storeOutbox.dispatchBatch(dispatch.next());
+        if (dispatch.heldUntil() != null
+            && (heldUntil == null || dispatch.heldUntil().isBefore(heldUntil))) {
+          heldUntil = dispatch.heldUntil();
+        }
+      }
+      if (heldUntil != null) {
+        // come back when the held or backed off updates are due rather than on the next poll
+        long delay = Duration.between(LocalDateTime.now(), heldUntil).toMillis();
+        executor.schedule(this::wakeUp, Math.max(delay, 1), TimeUnit.MILLISECONDS);
+      }
+    } catch (RuntimeException e) {
+      LOGGER.warnf("outbox drain failed, retrying on the next poll: %s", e.getMessage());
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+}
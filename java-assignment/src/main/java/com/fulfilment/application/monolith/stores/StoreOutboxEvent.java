@@ -0,0 +1,67 @@
+package com.fulfilment.application.monolith.stores;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * A store change waiting to be sent to the legacy system, with the store as it was when the
+ * change committed.
+ *
+ * <p>The id is an identity column so it is assigned by the database at insert. Store updates lock
+ * the store row first, so for one store the ids follow commit order on every replica.
+ */
+@Entity
+@Table(name = "store_outbox")
+public class StoreOutboxEvent {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  public Long id;
+
+  public Long storeId;
+
+  public StoreTransactionEvent.Type type;
+
+  @Column(length = 40)
+  public String storeName;
+
+  public int quantityProductsInStock;
+
+  public LocalDateTime createdAt;
+
+  // failed deliveries so far; later events for the same store wait behind this one
+  public int attempts;
+
+  public String lastError;
+
+  // set after a failed delivery; the store is not retried before then
+  public LocalDateTime notBefore;
+
+  // set when the event was given up on after too many attempts; it is kept for inspection
+  public LocalDateTime parkedAt;
+
+  public StoreOutboxEvent() {}
+
+  public static StoreOutboxEvent of(StoreTransactionEvent event) {
+    var outboxEvent = new StoreOutboxEvent();
+    outboxEvent.storeId = event.store.id;
+    outboxEvent.type = event.type;
+    outboxEvent.storeName = event.store.name;
+    outboxEvent.quantityProductsInStock = event.store.quantityProductsInStock;
+    outboxEvent.createdAt = LocalDateTime.now();
+    return outboxEvent;
+  }
+
+  // a detached copy of the store as it was recorded
+  public Store toStore() {
+    var store = new Store(storeName);
+    store.id = storeId;
+    store.quantityProductsInStock = quantityProductsInStock;
+    return store;
+  }
+}
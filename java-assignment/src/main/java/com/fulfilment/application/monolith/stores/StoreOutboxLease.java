@@ -0,0 +1,28 @@
+package com.fulfilment.application.monolith.stores;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+// single row naming the replica that drains the outbox, until expiresAt unless it renews
+@Entity
+@Table(name = "store_outbox_lease")
+public class StoreOutboxLease {
+
+  static final long ID = 1L;
+
+  @Id public Long id;
+
+  @Column(length = 36)
+  public String holder;
+
+  public LocalDateTime expiresAt;
+
+  public StoreOutboxLease() {}
+
+  StoreOutboxLease(Long id) {
+    this.id = id;
+  }
+}
@@ -0,0 +1,189 @@
+package com.fulfilment.application.monolith.stores;
+
+import io.quarkus.panache.common.Sort;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Brings the legacy system back in line with our stores, for example after an outage, without
+ * replaying every store.
+ *
+ * <p>Both sides are kept as a {@link StoreMerkleTree}: ours follows every committed store change,
+ * the legacy one every journal write. A run compares the trees, reads back from the database only
+ * the id ranges whose digests differ, and re-sends only the stores in them that the legacy system
+ * has wrong or lacks. Reading a range back also repairs our tree for changes this instance did not
+ * see. Stores the legacy system has but we no longer do are only counted: it cannot delete.
+ */
+@ApplicationScoped
+public class StoreReconciler {
+
+  private static final Logger LOGGER = Logger.getLogger(StoreReconciler.class.getName());
+
+  static final int PAGE_SIZE = 1000;
+  // a store that keeps changing is left to its own deliveries after this many sends
+  static final int MAX_RESENDS = 3;
+
+  @Inject LegacyStoreManagerGateway legacyStoreManagerGateway;
+
+  @ConfigProperty(name = "store.reconciliation.bucket-width", defaultValue = "1024")
+  long bucketWidth;
+
+  // built from the database on the first run
+  private volatile StoreMerkleTree ours;
+
+  public record Result(
+      int nodesCompared, int divergentBuckets, int storesResent, int storesOnlyOnLegacy) {}
+
+  void onStoreChange(
+      @Observes(during = TransactionPhase.AFTER_SUCCESS) StoreTransactionEvent event) {
+    StoreMerkleTree tree = ours;
+    if (tree == null || event == null || event.store == null || event.store.id == null) {
+      return;
+    }
+    if (event.type == StoreTransactionEvent.Type.DELETED) {
+      tree.remove(event.store.id);
+    } else {
+      tree.put(event.store.id, hash(event.store));
+    }
+  }
+
+  @Scheduled(
+      every = "${store.reconciliation.interval:15m}",
+      delayed = "${store.reconciliation.interval:15m}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void reconcileOnSchedule() {
+    Result result = reconcile();
+    if (result.storesResent() > 0) {
+      LOGGER.infof("reconciliation re-sent %d stores to the legacy system", result.storesResent());
+    }
+  }
+
+  public synchronized Result reconcile() {
+    StoreMerkleTree legacy = legacyStoreManagerGateway.journaled();
+    if (legacy == null) {
+      LOGGER.debug("reconciliation skipped, the legacy tree is not available");
+      return new Result(0, 0, 0, 0);
+    }
+    if (ours == null) {
+      ours = build();
+    }
+
+    var divergence = StoreMerkleTree.diff(ours, legacy);
+    int resent = 0;
+    int onlyOnLegacy = 0;
+    try {
+      for (long bucket : divergence.buckets()) {
+        Map<Long, Long> theirs = legacy.bucket(bucket);
+        Map<Long, Long> current = readBucket(bucket);
+        for (Map.Entry<Long, Long> store : current.entrySet()) {
+          if (!store.getValue().equals(theirs.get(store.getKey()))) {
+            resent += resend(store.getKey());
+          }
+        }
+        for (Long storeId : theirs.keySet()) {
+          if (!current.containsKey(storeId)) {
+            onlyOnLegacy++;
+          }
+        }
+      }
+    } catch (RejectedExecutionException e) {
+      // the legacy system is shedding load; the next run picks up whatever is left
+      LOGGER.debugf("reconciliation stopped early: %s", e.getMessage());
+    }
+    LOGGER.debugf(
+        "reconciliation compared %d nodes, %d buckets differed, re-sent %d stores",
+        divergence.nodesCompared(),
+        divergence.buckets().size(),
+        resent);
+    return new Result(
+        divergence.nodesCompared(), divergence.buckets().size(), resent, onlyOnLegacy);
+  }
+
+  // reads one id range back from the database and makes it our tree's view of that range
+  @Transactional
+  Map<Long, Long> readBucket(long bucket) {
+    long first = ours.firstId(bucket);
+    List<StoreView> stores =
+        Store.find("id >= ?1 and id < ?2", Sort.by("id"), first, first + ours.bucketWidth())
+            .project(StoreView.class)
+            .list();
+    Map<Long, Long> hashes = new HashMap<>();
+    for (StoreView store : stores) {
+      hashes.put(
+          store.id(),
+          StoreMerkleTree.contentHash(store.id(), store.name(), store.quantityProductsInStock()));
+    }
+    ours.replaceBucket(bucket, hashes);
+    return hashes;
+  }
+
+  /**
+   * Sends the store as it is now. The row is not held across the legacy call, which may wait in
+   * the bulkhead; instead the store is read again afterwards, and if it changed meanwhile its own
+   * delivery may have been overtaken by this one, so the newer state is sent as well.
+   */
+  int resend(Long storeId) {
+    Store sent = null;
+    for (int attempt = 0; attempt < MAX_RESENDS; attempt++) {
+      Store store = current(storeId);
+      if (store == null || (sent != null && store.version == sent.version)) {
+        break;
+      }
+      // the tree only tells an update from a create by whether the legacy side knows the id
+      if (legacyStoreManagerGateway
+          .journaled()
+          .bucket(ours.bucketOf(storeId))
+          .containsKey(storeId)) {
+        legacyStoreManagerGateway.updateStoreOnLegacySystem(store);
+      } else {
+        legacyStoreManagerGateway.createStoreOnLegacySystem(store);
+      }
+      sent = store;
+    }
+    return sent == null ? 0 : 1;
+  }
+
+  // from the database rather than the entity cache; detached once the transaction ends
+  @Transactional(Transactional.TxType.REQUIRES_NEW)
+  Store current(Long storeId) {
+    return Store.<Store>find("id", storeId).firstResult();
+  }
+
+  private StoreMerkleTree build() {
+    var tree = new StoreMerkleTree(bucketWidth);
+    long after = -1L;
+    while (true) {
+      List<StoreView> page =
+          Store.find("id > ?1", Sort.by("id"), after)
+              .project(StoreView.class)
+              .page(0, PAGE_SIZE)
+              .list();
+      for (StoreView store : page) {
+        tree.put(
+            store.id(),
+            StoreMerkleTree.contentHash(
+                store.id(), store.name(), store.quantityProductsInStock()));
+      }
+      if (page.size() < PAGE_SIZE) {
+        break;
+      }
+      after = page.get(page.size() - 1).id();
+    }
+    LOGGER.debugf("reconciliation tree built with %d stores", tree.size());
+    return tree;
+  }
+
+  private static long hash(Store store) {
+    return StoreMerkleTree.contentHash(store.id, store.name, store.quantityProductsInStock);
+  }
+}
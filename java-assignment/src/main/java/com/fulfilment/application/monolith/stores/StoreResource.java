@@ -1,9 +1,11 @@
 package com.fulfilment.application.monolith.stores;
 
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
 import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
@@ -13,9 +15,16 @@ import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 @Path("store")
@@ -26,12 +35,50 @@ public class StoreResource {
 
   @Inject LegacyStoreManagerGateway legacyStoreManagerGateway;
   @Inject Event<StoreTransactionEvent> storeTransactionEvent;
+  @Inject StoreOutbox storeOutbox;
+  @Inject LegacySyncExecutor legacySyncExecutor;
+  @Inject StoreVersionStamp storeVersionStamp;
+  @Inject StoreReconciler storeReconciler;
+
+  @ConfigProperty(name = "store.legacy-sync.mode", defaultValue = "outbox")
+  LegacySyncMode legacySyncMode;
 
   private static final Logger LOGGER = Logger.getLogger(StoreResource.class.getName());
 
+  static final int DEFAULT_PAGE_SIZE = 500;
+  static final int MAX_PAGE_SIZE = 1000;
+
+  /**
+   * Lists stores ordered by name, one page at a time: {@code after} is the name of the last store
+   * of the previous page. The response carries the store table version as its ETag, and a request
+   * whose If-None-Match still matches it is answered with 304 after one aggregate query.
+   */
   @GET
-  public List<Store> get() {
-    return Store.listAll(Sort.by("name"));
+  public Response get(
+      @QueryParam("after") String after,
+      @QueryParam("limit") Integer limit,
+      @Context Request request) {
+    int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+    if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+      throw new WebApplicationException("limit must be between 1 and " + MAX_PAGE_SIZE, 400);
+    }
+
+    // read the stamp before the rows, so a change committed in between only makes it stale
+    EntityTag tag = new EntityTag(storeVersionStamp.current());
+    Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+    if (notModified != null) {
+      return notModified.build();
+    }
+
+    PanacheQuery<Store> query =
+        after == null
+            ? Store.findAll(Sort.by("name"))
+            : Store.find("name > ?1", Sort.by("name"), after);
+    // not query-cached: a page per cursor would only evict the entries worth keeping, and the
+    // ETag already spares unchanged listings the query
+    List<StoreView> stores = query.project(StoreView.class).page(0, pageSize).list();
+    LOGGER.debugf("get after=%s returned %d stores", after, stores.size());
+    return Response.ok(stores).tag(tag).build();
   }
 
   @GET
@@ -53,15 +100,20 @@ public class StoreResource {
 
     store.persist();
 
-    storeTransactionEvent.fire(new StoreTransactionEvent(store, StoreTransactionEvent.Type.CREATED));
+    // a new store has no id, and so no slot, until it is persisted
+    publish(new StoreTransactionEvent(store, StoreTransactionEvent.Type.CREATED), null);
 
     return Response.ok(store).status(201).build();
   }
 
   @PUT
   @Path("{id}")
-  @Transactional
   public Store update(Long id, Store updatedStore) {
+    return withSyncSlot(id, slot -> update(id, updatedStore, slot));
+  }
+
+  @Transactional
+  Store update(Long id, Store updatedStore, LegacySyncExecutor.Slot slot) {
     if (updatedStore.name == null) {
       throw new WebApplicationException("Store Name was not set on request.", 422);
     }
@@ -74,16 +126,21 @@ public class StoreResource {
 
     entity.name = updatedStore.name;
     entity.quantityProductsInStock = updatedStore.quantityProductsInStock;
+    flushVersioned(id);
 
-    storeTransactionEvent.fire(new StoreTransactionEvent(entity, StoreTransactionEvent.Type.UPDATED));
+    publish(new StoreTransactionEvent(entity, StoreTransactionEvent.Type.UPDATED), slot);
 
     return entity;
   }
 
   @PATCH
   @Path("{id}")
-  @Transactional
   public Store patch(Long id, Store updatedStore) {
+    return withSyncSlot(id, slot -> patch(id, updatedStore, slot));
+  }
+
+  @Transactional
+  Store patch(Long id, Store updatedStore, LegacySyncExecutor.Slot slot) {
     if (updatedStore.name == null) {
       throw new WebApplicationException("Store Name was not set on request.", 422);
     }
@@ -101,12 +158,130 @@ public class StoreResource {
     if (entity.quantityProductsInStock != 0) {
       entity.quantityProductsInStock = updatedStore.quantityProductsInStock;
     }
+    flushVersioned(id);
 
-    storeTransactionEvent.fire(new StoreTransactionEvent(entity, StoreTransactionEvent.Type.UPDATED));
+    publish(new StoreTransactionEvent(entity, StoreTransactionEvent.Type.UPDATED), slot);
 
     return entity;
   }
 
+  /**
+   * Runs a reconciliation with the legacy system now instead of waiting for the next scheduled
+   * one, and reports what it compared and re-sent.
+   */
+  @POST
+  @Path("reconciliation")
+  public StoreReconciler.Result reconcile() {
+    return storeReconciler.reconcile();
+  }
+
+  /**
+   * Adds {@code delta} to the stock of a store in one conditional UPDATE, so concurrent
+   * adjustments neither lose each other nor wait on a lock held across a read. An adjustment that
+   * would take the stock below zero, or past the largest int, is rejected with 409.
+   */
+  @POST
+  @Path("{id}/stock")
+  public Store adjustStock(Long id, StockDelta stockDelta) {
+    return withSyncSlot(id, slot -> adjustStock(id, stockDelta, slot));
+  }
+
+  @Transactional
+  Store adjustStock(Long id, StockDelta stockDelta, LegacySyncExecutor.Slot slot) {
+    if (stockDelta == null || stockDelta.delta() == null) {
+      throw new WebApplicationException("Stock delta was not set on request.", 422);
+    }
+    int delta = stockDelta.delta();
+    if (delta == 0) {
+      throw new WebApplicationException("Stock delta of 0 would not change the stock.", 422);
+    }
+    // its negation does not fit in an int
+    if (delta == Integer.MIN_VALUE) {
+      throw new WebApplicationException("Stock delta " + delta + " is out of range.", 422);
+    }
+
+    // the bound keeps the arithmetic in the statement from overflowing
+    int adjusted =
+        delta >= 0
+            ? Store.update(
+                "quantityProductsInStock = quantityProductsInStock + ?1, version = version + 1"
+                    + " where id = ?2 and quantityProductsInStock <= ?3",
+                delta,
+                id,
+                Integer.MAX_VALUE - delta)
+            : Store.update(
+                "quantityProductsInStock = quantityProductsInStock + ?1, version = version + 1"
+                    + " where id = ?2 and quantityProductsInStock >= ?3",
+                delta,
+                id,
+                -delta);
+    // the statement holds the row lock now, so this reads the adjusted row
+    Store entity = Store.findById(id);
+    if (entity == null) {
+      throw new WebApplicationException("Store with id of " + id + " does not exist.", 404);
+    }
+    if (adjusted == 0) {
+      throw new WebApplicationException(
+          "Stock of store "
+              + id
+              + " is "
+              + entity.quantityProductsInStock
+              + " and cannot be adjusted by "
+              + delta
+              + ".",
+          409);
+    }
+
+    publish(new StoreTransactionEvent(entity, StoreTransactionEvent.Type.UPDATED), slot);
+
+    LOGGER.debugf("adjustStock id=%d delta=%d stock=%d", id, delta, entity.quantityProductsInStock);
+    return entity;
+  }
+
+  // writes the change now; the version check takes the row lock before the change reaches the
+  // outbox, so changes to one store still commit, and are delivered, one at a time
+  private void flushVersioned(Long id) {
+    try {
+      Store.flush();
+    } catch (OptimisticLockException e) {
+      throw new WebApplicationException(
+          "Store with id of " + id + " was changed concurrently, retry the request.", 409);
+    }
+  }
+
+  // under BLOCK backpressure, waits for room in the legacy sync queue before the transaction starts
+  private <T> T withSyncSlot(Long id, Function<LegacySyncExecutor.Slot, T> change) {
+    LegacySyncExecutor.Slot slot = null;
+    if (legacySyncMode == LegacySyncMode.ASYNC) {
+      try {
+        slot = legacySyncExecutor.acquire(id);
+      } catch (RejectedExecutionException e) {
+        throw new WebApplicationException(e.getMessage(), 503);
+      }
+    }
+    try {
+      return change.apply(slot);
+    } finally {
+      if (slot != null) {
+        slot.release();
+      }
+    }
+  }
+
+  private void publish(StoreTransactionEvent event, LegacySyncExecutor.Slot slot) {
+    if (legacySyncMode == LegacySyncMode.OUTBOX) {
+      storeOutbox.append(event);
+    } else if (legacySyncMode == LegacySyncMode.ASYNC) {
+      try {
+        // rolls the change back when the legacy sync queue has no room for it
+        legacySyncExecutor.reserve(event, slot);
+      } catch (RejectedExecutionException e) {
+        throw new WebApplicationException(e.getMessage(), 503);
+      }
+    }
+    storeTransactionEvent.fire(event);
+  }
+
   @DELETE
   @Path("{id}")
   @Transactional
@@ -116,6 +291,8 @@ public class StoreResource {
       throw new WebApplicationException("Store with id of " + id + " does not exist.", 404);
     }
     entity.delete();
+    storeTransactionEvent.fire(
+        new StoreTransactionEvent(entity, StoreTransactionEvent.Type.DELETED));
     return Response.status(204).build();
   }
 }
@@ -4,7 +4,9 @@ public class StoreTransactionEvent {
 
   public enum Type {
     CREATED,
-    UPDATED
+    UPDATED,
+    // appended last: the legacy journal stores the ordinal
+    DELETED
   }
 
   public final Store store;
@@ -4,6 +4,7 @@ import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.event.Observes;
 import jakarta.enterprise.event.TransactionPhase;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 @ApplicationScoped
@@ -12,6 +13,12 @@ public class StoreTransactionObserver {
   private static final Logger LOGGER = Logger.getLogger(StoreTransactionObserver.class.getName());
 
   @Inject LegacyStoreManagerGateway legacyStoreManagerGateway;
+  @Inject StoreOutboxDispatcher storeOutboxDispatcher;
+  @Inject LegacySyncExecutor legacySyncExecutor;
+  @Inject StoreChangeFeed storeChangeFeed;
+
+  @ConfigProperty(name = "store.legacy-sync.mode", defaultValue = "outbox")
+  LegacySyncMode legacySyncMode;
 
   public void afterStoreTransaction(
       @Observes(during = TransactionPhase.AFTER_SUCCESS) StoreTransactionEvent event) {
@@ -20,6 +27,23 @@ public class StoreTransactionObserver {
       return;
     }
 
+    // the change is already recorded; have this instance's feed pick it up right away
+    storeChangeFeed.wakeUp();
+    if (event.type == StoreTransactionEvent.Type.DELETED) {
+      // deletions are streamed to consumers, the legacy system has never been told about them
+      return;
+    }
+
+    if (legacySyncMode == LegacySyncMode.OUTBOX) {
+      // the change is already in the outbox; have it delivered off the request thread
+      storeOutboxDispatcher.wakeUp();
+      return;
+    }
+    if (legacySyncMode == LegacySyncMode.ASYNC) {
+      legacySyncExecutor.submit(event);
+      return;
+    }
+
     switch (event.type) {
       case CREATED:
         legacyStoreManagerGateway.createStoreOnLegacySystem(event.store);
@@ -29,4 +53,11 @@ public class StoreTransactionObserver {
         break;
     }
   }
+
+  public void afterStoreTransactionFailure(
+      @Observes(during = TransactionPhase.AFTER_FAILURE) StoreTransactionEvent event) {
+    if (event != null && legacySyncMode == LegacySyncMode.ASYNC) {
+      legacySyncExecutor.cancel(event);
+    }
+  }
 }
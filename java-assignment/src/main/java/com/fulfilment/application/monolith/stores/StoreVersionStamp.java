@@ -0,0 +1,32 @@
+package com.fulfilment.application.monolith.stores;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Version stamp of the store table, used as the ETag of store listings. It is derived from the
+ * store rows themselves: the number of stores, the sum of their versions and the sum of their ids.
+ * An update raises one version, a create or delete changes the count, and ids are never reused, so
+ * every committed change moves the stamp; only a mix of creates and deletes whose ids and versions
+ * happen to add up to the same sums could leave it in place.
+ *
+ * <p>Writers take no lock beyond their own store row, so store writes do not queue on the stamp.
+ * The price is one aggregate over the store table per listing, which is small.
+ */
+@ApplicationScoped
+public class StoreVersionStamp {
+
+  @Inject EntityManager entityManager;
+
+  public String current() {
+    Object[] row =
+        (Object[])
+            entityManager
+                .createQuery(
+                    "select count(s), coalesce(sum(s.version), 0), coalesce(sum(s.id), 0)"
+                        + " from Store s")
+                .getSingleResult();
+    return row[0] + "-" + row[1] + "-" + row[2];
+  }
+}
@@ -0,0 +1,4 @@
+package com.fulfilment.application.monolith.stores;
+
+// read-only projection of a store for listings; never attached to the persistence context
+public record StoreView(Long id, String name, int quantityProductsInStock) {}
@@ -0,0 +1,258 @@
+package com.fulfilment.application.monolith.warehouses.adapters.database;
+
+import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Bounded LRU cache of active warehouses keyed by business unit code, with expire-after-write.
+ *
+ * <p>Only positive lookups are cached: an absent code always goes to the database, so a unit
+ * created on another replica is never hidden. Entries are copies, callers may mutate what they
+ * get. Writes invalidate their codes immediately and again when the transaction completes; until
+ * then the writing transaction bypasses the cache for those codes so it never caches its own
+ * uncommitted state. Another replica's archive or replace is only seen once the entry expires.
+ */
+@ApplicationScoped
+public class ActiveWarehouseCache {
+  private static final Logger LOGGER = Logger.getLogger(ActiveWarehouseCache.class.getName());
+
+  private static final Object PENDING_WRITES_KEY = new Object();
+
+  private final int maxSize;
+  private final long ttlNanos;
+  private final LongSupplier nanoClock;
+  private final TransactionSynchronizationRegistry transactionRegistry;
+
+  private final Map<String, Entry> entries;
+  private final AtomicLong generation = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  @Inject
+  public ActiveWarehouseCache(
+      @ConfigProperty(name = "warehouse.cache.max-size", defaultValue = "10000") int maxSize,
+      @ConfigProperty(name = "warehouse.cache.ttl", defaultValue = "10s") Duration ttl,
+      TransactionSynchronizationRegistry transactionRegistry,
+      MeterRegistry meterRegistry) {
+    this(maxSize, ttl, System::nanoTime, transactionRegistry);
+    FunctionCounter.builder("warehouse.cache.hits", hits, LongAdder::doubleValue)
+        .register(meterRegistry);
+    FunctionCounter.builder("warehouse.cache.misses", misses, LongAdder::doubleValue)
+        .register(meterRegistry);
+    FunctionCounter.builder("warehouse.cache.evictions", evictions, LongAdder::doubleValue)
+        .register(meterRegistry);
+    Gauge.builder("warehouse.cache.size", this, ActiveWarehouseCache::size).register(meterRegistry);
+  }
+
+  ActiveWarehouseCache(
+      int maxSize,
+      Duration ttl,
+      LongSupplier nanoClock,
+      TransactionSynchronizationRegistry transactionRegistry) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("warehouse.cache.max-size must be greater than 0");
+    }
+    this.maxSize = maxSize;
+    this.ttlNanos = ttl.toNanos();
+    this.nanoClock = nanoClock;
+    this.transactionRegistry = transactionRegistry;
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > ActiveWarehouseCache.this.maxSize) {
+              evictions.increment();
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  /** Returns a copy of the cached warehouse, or null on a miss. */
+  public Warehouse get(String businessUnitCode) {
+    if (hasPendingWrite(businessUnitCode)) {
+      misses.increment();
+      return null;
+    }
+
+    synchronized (entries) {
+      Entry entry = entries.get(businessUnitCode);
+      if (entry == null) {
+        misses.increment();
+        return null;
+      }
+      if (nanoClock.getAsLong() - entry.expiresAt >= 0) {
+        entries.remove(businessUnitCode);
+        evictions.increment();
+        misses.increment();
+        return null;
+      }
+      hits.increment();
+      return copy(entry.warehouse);
+    }
+  }
+
+  /** Invalidation generation to read before loading a value that will be passed to put. */
+  public long generation() {
+    return generation.get();
+  }
+
+  /**
+   * Caches an active warehouse loaded from the database, unless an invalidation happened since
+   * {@code loadedAtGeneration}, in which case the loaded value may already be stale.
+   */
+  public void put(Warehouse warehouse, long loadedAtGeneration) {
+    if (warehouse == null
+        || warehouse.businessUnitCode == null
+        || warehouse.archivedAt != null
+        || hasPendingWrite(warehouse.businessUnitCode)) {
+      return;
+    }
+
+    synchronized (entries) {
+      if (generation.get() != loadedAtGeneration) {
+        return;
+      }
+      entries.put(
+          warehouse.businessUnitCode,
+          new Entry(copy(warehouse), nanoClock.getAsLong() + ttlNanos));
+    }
+  }
+
+  public void invalidate(String businessUnitCode) {
+    if (businessUnitCode == null) {
+      return;
+    }
+    recordPendingWrite(businessUnitCode);
+    evict(businessUnitCode);
+  }
+
+  public void invalidateAll() {
+    recordPendingWrite(null);
+    synchronized (entries) {
+      generation.incrementAndGet();
+      entries.clear();
+    }
+    LOGGER.debug("warehouse cache cleared");
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  private void evict(String businessUnitCode) {
+    synchronized (entries) {
+      generation.incrementAndGet();
+      entries.remove(businessUnitCode);
+    }
+  }
+
+  private boolean hasPendingWrite(String businessUnitCode) {
+    PendingWrites pending = pendingWrites(false);
+    return pending != null && (pending.all || pending.codes.contains(businessUnitCode));
+  }
+
+  private void recordPendingWrite(String businessUnitCode) {
+    PendingWrites pending = pendingWrites(true);
+    if (pending == null) {
+      return;
+    }
+    if (businessUnitCode == null) {
+      pending.all = true;
+    } else {
+      pending.codes.add(businessUnitCode);
+    }
+  }
+
+  private PendingWrites pendingWrites(boolean create) {
+    if (transactionRegistry == null
+        || transactionRegistry.getTransactionStatus() == Status.STATUS_NO_TRANSACTION) {
+      return null;
+    }
+
+    PendingWrites pending = (PendingWrites) transactionRegistry.getResource(PENDING_WRITES_KEY);
+    if (pending == null && create) {
+      PendingWrites created = new PendingWrites();
+      transactionRegistry.putResource(PENDING_WRITES_KEY, created);
+      transactionRegistry.registerInterposedSynchronization(
+          new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+              if (created.all) {
+                synchronized (entries) {
+                  generation.incrementAndGet();
+                  entries.clear();
+                }
+              } else {
+                created.codes.forEach(ActiveWarehouseCache.this::evict);
+              }
+            }
+          });
+      pending = created;
+    }
+    return pending;
+  }
+
+  static Warehouse copy(Warehouse source) {
+    var warehouse = new Warehouse();
+    warehouse.id = source.id;
+    warehouse.businessUnitCode = source.businessUnitCode;
+    warehouse.location = source.location;
+    warehouse.capacity = source.capacity;
+    warehouse.stock = source.stock;
+    warehouse.createdAt = source.createdAt;
+    warehouse.archivedAt = source.archivedAt;
+    return warehouse;
+  }
+
+  private static final class Entry {
+    final Warehouse warehouse;
+    final long expiresAt;
+
+    Entry(Warehouse warehouse, long expiresAt) {
+      this.warehouse = warehouse;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  private static final class PendingWrites {
+    final Set<String> codes = new HashSet<>();
+    boolean all;
+  }
+}
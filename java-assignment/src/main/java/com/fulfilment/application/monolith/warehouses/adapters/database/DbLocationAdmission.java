@@ -0,0 +1,22 @@
+package com.fulfilment.application.monolith.warehouses.adapters.database;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/** One row per location, locked FOR UPDATE to serialize admission checks across replicas. */
+@Entity
+@Table(name = "location_admission")
+public class DbLocationAdmission {
+
+  @Id
+  @Column(length = 64)
+  public String location;
+
+  public DbLocationAdmission() {}
+
+  public DbLocationAdmission(String location) {
+    this.location = location;
+  }
+}
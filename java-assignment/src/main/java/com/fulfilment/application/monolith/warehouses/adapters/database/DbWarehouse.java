@@ -5,11 +5,17 @@ import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "warehouse")
+@Table(
+    name = "warehouse",
+    indexes = {
+      @Index(name = "idx_warehouse_location_archived", columnList = "location, archivedAt"),
+      @Index(name = "idx_warehouse_bu_archived", columnList = "businessUnitCode, archivedAt")
+    })
 @Cacheable
 public class DbWarehouse {
 
@@ -0,0 +1,61 @@
+package com.fulfilment.application.monolith.warehouses.adapters.database;
+
+import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * An archived warehouse unit. Rows are moved here from {@code warehouse} when a unit is archived,
+ * keeping their original id, so the active table only ever holds the current fleet.
+ */
+@Entity
+@Table(
+    name = "warehouse_history",
+    indexes = {
+      @Index(name = "idx_warehouse_history_bu_archived", columnList = "businessUnitCode, archivedAt")
+    })
+public class DbWarehouseHistory {
+
+  @Id public Long id;
+
+  public String businessUnitCode;
+
+  public String location;
+
+  public Integer capacity;
+
+  public Integer stock;
+
+  public LocalDateTime createdAt;
+
+  public LocalDateTime archivedAt;
+
+  public DbWarehouseHistory() {}
+
+  public Warehouse toWarehouse() {
+    var warehouse = new Warehouse();
+    warehouse.id = this.id;
+    warehouse.businessUnitCode = this.businessUnitCode;
+    warehouse.location = this.location;
+    warehouse.capacity = this.capacity;
+    warehouse.stock = this.stock;
+    warehouse.createdAt = this.createdAt;
+    warehouse.archivedAt = this.archivedAt;
+    return warehouse;
+  }
+
+  public static DbWarehouseHistory archived(DbWarehouse active, LocalDateTime archivedAt) {
+    var history = new DbWarehouseHistory();
+    history.id = active.id;
+    history.businessUnitCode = active.businessUnitCode;
+    history.location = active.location;
+    history.capacity = active.capacity;
+    history.stock = active.stock;
+    history.createdAt = active.createdAt;
+    history.archivedAt = archivedAt;
+    return history;
+  }
+}
@@ -0,0 +1,116 @@
+package com.fulfilment.application.monolith.warehouses.adapters.database;
+
+import com.fulfilment.application.monolith.warehouses.domain.ports.LocationAdmissionGuard;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceException;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.transaction.Transactional;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import org.jboss.logging.Logger;
+
+/**
+ * Per-location admission control. Callers for the same location are first queued on an in-process
+ * stripe, so they do not each hold a pooled connection while waiting, and then take a row lock on
+ * {@code location_admission}, which serializes replicas sharing the database. Both are held until
+ * the surrounding transaction completes. Different locations only contend when they hash to the
+ * same stripe, and never on the database row.
+ */
+@ApplicationScoped
+public class LocationAdmissionRepository implements LocationAdmissionGuard {
+  private static final Logger LOGGER =
+      Logger.getLogger(LocationAdmissionRepository.class.getName());
+
+  static final int STRIPES = 64;
+  private static final Object HELD_STRIPES_KEY = new Object();
+
+  private final LocationStripes stripes = new LocationStripes(STRIPES);
+
+  @Inject EntityManager entityManager;
+  @Inject TransactionSynchronizationRegistry transactionRegistry;
+  @Inject LocationAdmissionRows rows;
+
+  @Override
+  @Transactional(Transactional.TxType.MANDATORY)
+  public void acquire(String location) {
+    if (location == null) {
+      throw new IllegalArgumentException("Location is required");
+    }
+
+    acquireStripe(stripes.indexFor(location));
+    lockRow(location);
+  }
+
+  /**
+   * Acquires every location for the transaction. Stripes are taken by index and rows by location
+   * name, each in ascending order and all stripes before any row, so two transactions whose
+   * locations overlap, or merely share stripes, always wait in the same direction.
+   */
+  @Override
+  @Transactional(Transactional.TxType.MANDATORY)
+  public void acquireAll(Collection<String> locations) {
+    Set<String> names = new TreeSet<>();
+    for (String location : locations) {
+      if (location == null) {
+        throw new IllegalArgumentException("Location is required");
+      }
+      names.add(location);
+    }
+
+    Set<Integer> indexes = new TreeSet<>();
+    for (String location : names) {
+      indexes.add(stripes.indexFor(location));
+    }
+    indexes.forEach(this::acquireStripe);
+    names.forEach(this::lockRow);
+  }
+
+  private void lockRow(String location) {
+    DbLocationAdmission row =
+        entityManager.find(DbLocationAdmission.class, location, LockModeType.PESSIMISTIC_WRITE);
+    if (row == null) {
+      try {
+        rows.insert(location);
+      } catch (PersistenceException e) {
+        // another replica created the row concurrently; locking it below is all we need
+        LOGGER.debugf("admission row for location=%s created concurrently", location);
+      }
+      row =
+          entityManager.find(DbLocationAdmission.class, location, LockModeType.PESSIMISTIC_WRITE);
+      if (row == null) {
+        throw new PersistenceException("Unable to lock admission row for location " + location);
+      }
+    }
+    LOGGER.debugf("admission acquired for location=%s", location);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void acquireStripe(int index) {
+    Set<Integer> held = (Set<Integer>) transactionRegistry.getResource(HELD_STRIPES_KEY);
+    if (held == null) {
+      held = new HashSet<>();
+      transactionRegistry.putResource(HELD_STRIPES_KEY, held);
+      Set<Integer> toRelease = held;
+      transactionRegistry.registerInterposedSynchronization(
+          new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+              toRelease.forEach(stripes::release);
+            }
+          });
+    }
+    if (!held.contains(index)) {
+      stripes.acquire(index);
+      held.add(index);
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.fulfilment.application.monolith.warehouses.adapters.database;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/** Creates missing admission rows in their own transaction so a lost race cannot poison the caller. */
+@ApplicationScoped
+public class LocationAdmissionRows {
+
+  @Inject EntityManager entityManager;
+
+  /**
+   * Throws a {@link jakarta.persistence.PersistenceException} when the row exists already. The
+   * insert is flushed here, so a duplicate key fails the call itself rather than the commit, where
+   * it would surface as a rollback of the new transaction instead.
+   */
+  @Transactional(Transactional.TxType.REQUIRES_NEW)
+  public void insert(String location) {
+    entityManager.persist(new DbLocationAdmission(location));
+    entityManager.flush();
+  }
+}
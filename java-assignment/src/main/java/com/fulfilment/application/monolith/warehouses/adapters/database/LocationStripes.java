@@ -0,0 +1,37 @@
+package com.fulfilment.application.monolith.warehouses.adapters.database;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Fixed set of binary semaphores indexed by location hash. Semaphores rather than locks, because
+ * a stripe is released when its transaction completes, which is not guaranteed to happen on the
+ * thread that acquired it.
+ */
+final class LocationStripes {
+
+  private final Semaphore[] stripes;
+
+  LocationStripes(int stripeCount) {
+    if (stripeCount <= 0 || Integer.bitCount(stripeCount) != 1) {
+      throw new IllegalArgumentException("Stripe count must be a positive power of two");
+    }
+    stripes = new Semaphore[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new Semaphore(1);
+    }
+  }
+
+  int indexFor(String location) {
+    int h = location.hashCode();
+    h ^= (h >>> 16);
+    return h & (stripes.length - 1);
+  }
+
+  void acquire(int index) {
+    stripes[index].acquireUninterruptibly();
+  }
+
+  void release(int index) {
+    stripes[index].release();
+  }
+}
@@ -1,17 +1,33 @@
 package com.fulfilment.application.monolith.warehouses.adapters.database;
 
+import com.fulfilment.application.monolith.warehouses.domain.models.LocationOccupancy;
 import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
 import com.fulfilment.application.monolith.warehouses.domain.ports.WarehouseStore;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.LockModeType;
 import jakarta.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.jboss.logging.Logger;
 
 @ApplicationScoped
 public class WarehouseRepository implements WarehouseStore, PanacheRepository<DbWarehouse> {
   private static final Logger LOGGER = Logger.getLogger(WarehouseRepository.class.getName());
 
+  // matches quarkus.hibernate-orm.jdbc.statement-batch-size
+  static final int BATCH_SIZE = 50;
+
+  @Inject ActiveWarehouseCache cache;
+
   @Override
   public List<Warehouse> getAll() {
     var warehouses = this.find("archivedAt is null").stream().map(DbWarehouse::toWarehouse).toList();
@@ -19,6 +35,24 @@ public class WarehouseRepository implements WarehouseStore, PanacheRepository<Db
     return warehouses;
   }
 
+  @Override
+  public List<Warehouse> getActivePage(long afterId, int limit) {
+    var entityManager = getEntityManager();
+    // not query-cached: every cursor is a distinct query, so caching pages only evicts the listings
+    // worth caching
+    List<DbWarehouse> entities =
+        this.find("archivedAt is null and id > ?1", Sort.by("id"), afterId).page(0, limit).list();
+    var warehouses = new ArrayList<Warehouse>(entities.size());
+    for (DbWarehouse entity : entities) {
+      warehouses.add(entity.toWarehouse());
+      // pages are read-only; do not let them pile up in the persistence context
+      entityManager.detach(entity);
+    }
+    LOGGER.debugf(
+        "getActivePage afterId=%d limit=%d returned %d", afterId, limit, warehouses.size());
+    return warehouses;
+  }
+
   @Override
   @Transactional
   public void create(Warehouse warehouse) {
@@ -26,9 +60,32 @@ public class WarehouseRepository implements WarehouseStore, PanacheRepository<Db
     var db = DbWarehouse.fromWarehouse(warehouse);
     this.persist(db);
     warehouse.id = db.id;
+    cache.invalidate(warehouse.businessUnitCode);
     LOGGER.debugf("create completed with id=%d", warehouse.id);
   }
 
+  @Override
+  @Transactional
+  public void createAll(List<Warehouse> warehouses) {
+    LOGGER.debugf("createAll requested for %d warehouses", warehouses.size());
+    var entityManager = getEntityManager();
+    for (int i = 0; i < warehouses.size(); i++) {
+      Warehouse warehouse = warehouses.get(i);
+      var db = DbWarehouse.fromWarehouse(warehouse);
+      entityManager.persist(db);
+      warehouse.id = db.id;
+      cache.invalidate(warehouse.businessUnitCode);
+      if ((i + 1) % BATCH_SIZE == 0) {
+        // send the pending inserts as one JDBC batch and keep the persistence context small
+        entityManager.flush();
+        entityManager.clear();
+      }
+    }
+    entityManager.flush();
+    entityManager.clear();
+    LOGGER.debugf("createAll completed for %d warehouses", warehouses.size());
+  }
+
   @Override
   @Transactional
   public void update(Warehouse warehouse) {
@@ -53,6 +110,8 @@ public class WarehouseRepository implements WarehouseStore, PanacheRepository<Db
       return;
     }
 
+    cache.invalidate(entity.businessUnitCode);
+    cache.invalidate(warehouse.businessUnitCode);
     entity.businessUnitCode = warehouse.businessUnitCode;
     entity.location = warehouse.location;
     entity.capacity = warehouse.capacity;
@@ -70,12 +129,17 @@ public class WarehouseRepository implements WarehouseStore, PanacheRepository<Db
       return;
     }
     if (warehouse.id != null) {
+      DbWarehouse entity = this.findById(warehouse.id);
+      if (entity != null) {
+        cache.invalidate(entity.businessUnitCode);
+      }
       this.deleteById(warehouse.id);
       LOGGER.debugf("remove completed by id=%d", warehouse.id);
       return;
     }
 
     if (warehouse.businessUnitCode != null) {
+      cache.invalidate(warehouse.businessUnitCode);
       long deleted = this.delete("businessUnitCode", warehouse.businessUnitCode);
       LOGGER.debugf(
           "remove completed by businessUnitCode=%s deleted=%d",
@@ -87,6 +151,62 @@ public class WarehouseRepository implements WarehouseStore, PanacheRepository<Db
     LOGGER.debug("remove skipped - no id/businessUnitCode provided");
   }
 
+  @Override
+  @Transactional
+  public boolean archive(Warehouse warehouse) {
+    LOGGER.debugf(
+        "archive requested for id=%s businessUnitCode=%s", warehouse.id, warehouse.businessUnitCode);
+    DbWarehouse entity =
+        warehouse.id != null
+            ? this.findById(warehouse.id)
+            : this.find("businessUnitCode = ?1 and archivedAt is null", warehouse.businessUnitCode)
+                .firstResult();
+    if (entity == null) {
+      LOGGER.debugf(
+          "archive skipped - active warehouse not found for businessUnitCode=%s",
+          warehouse.businessUnitCode);
+      return false;
+    }
+
+    if (warehouse.archivedAt == null) {
+      warehouse.archivedAt = LocalDateTime.now();
+    }
+    cache.invalidate(entity.businessUnitCode);
+    // move the row instead of flagging it, so active queries never scan archived units
+    getEntityManager().persist(DbWarehouseHistory.archived(entity, warehouse.archivedAt));
+    this.delete(entity);
+    warehouse.id = entity.id;
+    LOGGER.debugf("archive completed for id=%d", entity.id);
+    return true;
+  }
+
+  @Override
+  public List<Warehouse> findArchivedByBusinessUnitCode(String buCode) {
+    if (buCode == null) {
+      return List.of();
+    }
+
+    var archived =
+        getEntityManager()
+            .createQuery(
+                "from DbWarehouseHistory h where h.businessUnitCode = :code"
+                    + " order by h.archivedAt desc, h.id desc",
+                DbWarehouseHistory.class)
+            .setParameter("code", buCode)
+            .getResultList()
+            .stream()
+            .map(DbWarehouseHistory::toWarehouse)
+            .toList();
+    LOGGER.debugf(
+        "findArchivedByBusinessUnitCode buCode=%s returned %d", buCode, archived.size());
+    return archived;
+  }
+
+  public Warehouse findArchivedById(Long id) {
+    DbWarehouseHistory history = getEntityManager().find(DbWarehouseHistory.class, id);
+    return history == null ? null : history.toWarehouse();
+  }
+
   @Override
   public Warehouse findByBusinessUnitCode(String buCode) {
     if (buCode == null) {
@@ -94,9 +214,172 @@ public class WarehouseRepository implements WarehouseStore, PanacheRepository<Db
       return null;
     }
 
+    Warehouse cached = cache.get(buCode);
+    if (cached != null) {
+      LOGGER.debugf("findByBusinessUnitCode buCode=%s served from cache", buCode);
+      return cached;
+    }
+
+    long generation = cache.generation();
     DbWarehouse entity =
         this.find("businessUnitCode = ?1 and archivedAt is null", buCode).firstResult();
     LOGGER.debugf("findByBusinessUnitCode buCode=%s found=%s", buCode, entity != null);
+    if (entity == null) {
+      return null;
+    }
+    var warehouse = entity.toWarehouse();
+    cache.put(warehouse, generation);
+    return warehouse;
+  }
+
+  @Override
+  @Transactional(Transactional.TxType.MANDATORY)
+  public Warehouse lockByBusinessUnitCode(String buCode) {
+    if (buCode == null) {
+      return null;
+    }
+
+    // past the cache, which may still hold a unit another instance has replaced
+    DbWarehouse entity =
+        getEntityManager()
+            .createQuery(
+                "select w from DbWarehouse w"
+                    + " where w.businessUnitCode = :code and w.archivedAt is null",
+                DbWarehouse.class)
+            .setParameter("code", buCode)
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+            .getResultStream()
+            .findFirst()
+            .orElse(null);
+    LOGGER.debugf("lockByBusinessUnitCode buCode=%s found=%s", buCode, entity != null);
     return entity == null ? null : entity.toWarehouse();
   }
+
+  @Override
+  public Set<String> findActiveBusinessUnitCodes(Collection<String> buCodes) {
+    if (buCodes == null || buCodes.isEmpty()) {
+      return Set.of();
+    }
+
+    List<String> found =
+        getEntityManager()
+            .createQuery(
+                "select w.businessUnitCode from DbWarehouse w"
+                    + " where w.businessUnitCode in :codes and w.archivedAt is null",
+                String.class)
+            .setParameter("codes", buCodes)
+            .getResultList();
+    LOGGER.debugf(
+        "findActiveBusinessUnitCodes requested=%d found=%d", buCodes.size(), found.size());
+    return new HashSet<>(found);
+  }
+
+  @Override
+  @Transactional(Transactional.TxType.MANDATORY)
+  public Set<String> lockActiveBusinessUnitCodes(Collection<String> buCodes) {
+    if (buCodes == null || buCodes.isEmpty()) {
+      return Set.of();
+    }
+
+    // a stable order, so transactions locking overlapping sets cannot deadlock
+    List<DbWarehouse> locked =
+        getEntityManager()
+            .createQuery(
+                "select w from DbWarehouse w"
+                    + " where w.businessUnitCode in :codes and w.archivedAt is null"
+                    + " order by w.businessUnitCode",
+                DbWarehouse.class)
+            .setParameter("codes", buCodes)
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+            .getResultList();
+    var found = new HashSet<String>();
+    for (DbWarehouse warehouse : locked) {
+      found.add(warehouse.businessUnitCode);
+    }
+    LOGGER.debugf(
+        "lockActiveBusinessUnitCodes requested=%d locked=%d", buCodes.size(), found.size());
+    return found;
+  }
+
+  @Override
+  public LocationOccupancy getActiveOccupancyByLocation(String location) {
+    Object[] row =
+        (Object[])
+            getEntityManager()
+                .createQuery(
+                    "select count(w), coalesce(sum(w.capacity), 0) from DbWarehouse w"
+                        + " where w.location = :location and w.archivedAt is null")
+                .setParameter("location", location)
+                .getSingleResult();
+    var occupancy = toOccupancy(row);
+    LOGGER.debugf(
+        "getActiveOccupancyByLocation location=%s warehouses=%d capacity=%d",
+        location,
+        occupancy.activeWarehouses,
+        occupancy.activeCapacity);
+    return occupancy;
+  }
+
+  @Override
+  public LocationOccupancy getActiveOccupancyByLocationExcluding(
+      String location, String excludedBusinessUnitCode) {
+    if (excludedBusinessUnitCode == null) {
+      return getActiveOccupancyByLocation(location);
+    }
+
+    Object[] row =
+        (Object[])
+            getEntityManager()
+                .createQuery(
+                    "select count(w), coalesce(sum(w.capacity), 0) from DbWarehouse w"
+                        + " where w.location = :location and w.archivedAt is null"
+                        + " and w.businessUnitCode <> :excluded")
+                .setParameter("location", location)
+                .setParameter("excluded", excludedBusinessUnitCode)
+                .getSingleResult();
+    var occupancy = toOccupancy(row);
+    LOGGER.debugf(
+        "getActiveOccupancyByLocationExcluding location=%s excluded=%s warehouses=%d capacity=%d",
+        location,
+        excludedBusinessUnitCode,
+        occupancy.activeWarehouses,
+        occupancy.activeCapacity);
+    return occupancy;
+  }
+
+  @Override
+  public Map<String, LocationOccupancy> getActiveOccupancyByLocations(
+      Collection<String> locations) {
+    Map<String, LocationOccupancy> occupancies = new HashMap<>();
+    if (locations == null || locations.isEmpty()) {
+      return occupancies;
+    }
+
+    List<Object[]> rows =
+        getEntityManager()
+            .createQuery(
+                "select w.location, count(w), coalesce(sum(w.capacity), 0) from DbWarehouse w"
+                    + " where w.location in :locations and w.archivedAt is null"
+                    + " group by w.location",
+                Object[].class)
+            .setParameter("locations", locations)
+            .getResultList();
+    for (Object[] row : rows) {
+      occupancies.put((String) row[0], toOccupancy(new Object[] {row[1], row[2]}));
+    }
+    for (String location : locations) {
+      occupancies.putIfAbsent(location, new LocationOccupancy(0, 0));
+    }
+    LOGGER.debugf(
+        "getActiveOccupancyByLocations requested=%d withWarehouses=%d",
+        locations.size(),
+        rows.size());
+    return occupancies;
+  }
+
+  private static LocationOccupancy toOccupancy(Object[] row) {
+    long count = row[0] == null ? 0 : ((Number) row[0]).longValue();
+    long capacity = row[1] == null ? 0 : ((Number) row[1]).longValue();
+    return new LocationOccupancy(count, capacity);
+  }
 }
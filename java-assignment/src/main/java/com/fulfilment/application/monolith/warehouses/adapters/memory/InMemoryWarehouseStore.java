@@ -0,0 +1,394 @@
+package com.fulfilment.application.monolith.warehouses.adapters.memory;
+
+import com.fulfilment.application.monolith.warehouses.domain.models.LocationOccupancy;
+import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import com.fulfilment.application.monolith.warehouses.domain.ports.WarehouseStore;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jboss.logging.Logger;
+
+/**
+ * A {@link WarehouseStore} held entirely in memory, for tests, benchmarks and read replicas that
+ * do not need a database.
+ *
+ * <p>There is no store-wide lock and reads never block. The active warehouse for a business unit
+ * code lives in one slot of a concurrent map, and every write is a single atomic compute on that
+ * slot which also moves the id and per-location indexes along with it. Two writers racing on the
+ * same code are ordered by the slot: a unit is archived at most once and a code is never active
+ * twice. Writers on different codes share nothing but the location totals, which are immutable
+ * snapshots swapped with compare-and-set, so a reader always sees a count and a capacity that
+ * belong together.
+ *
+ * <p>Warehouses are copied on the way in and out; callers never share state with the store.
+ *
+ * <p>Archived units are kept per business unit code, newest first. By default the history is
+ * kept in full, like the archived rows of the database; a store created with a history limit
+ * keeps only the newest units per code, so a long run that keeps archiving the same codes, such
+ * as a benchmark, does not grow without bound.
+ *
+ * <p>This class is not a CDI bean, so it never competes with {@code WarehouseRepository} for
+ * injection; create it where it is needed.
+ */
+public class InMemoryWarehouseStore implements WarehouseStore {
+  private static final Logger LOGGER = Logger.getLogger(InMemoryWarehouseStore.class.getName());
+
+  private final AtomicLong ids = new AtomicLong();
+  private final ConcurrentHashMap<String, Warehouse> activeByBusinessUnitCode =
+      new ConcurrentHashMap<>();
+  private final ConcurrentSkipListMap<Long, Warehouse> activeById = new ConcurrentSkipListMap<>();
+  private final ConcurrentHashMap<String, LocationIndex> locations = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, History> archived = new ConcurrentHashMap<>();
+  private final int historyLimit;
+
+  public InMemoryWarehouseStore() {
+    this(Integer.MAX_VALUE);
+  }
+
+  // keeps at most historyLimit archived units per business unit code
+  public InMemoryWarehouseStore(int historyLimit) {
+    if (historyLimit < 0) {
+      throw new IllegalArgumentException("historyLimit must not be negative");
+    }
+    this.historyLimit = historyLimit;
+  }
+
+  @Override
+  public List<Warehouse> getAll() {
+    var warehouses = new ArrayList<Warehouse>(activeById.size());
+    for (Warehouse warehouse : activeById.values()) {
+      warehouses.add(copy(warehouse));
+    }
+    return warehouses;
+  }
+
+  @Override
+  public List<Warehouse> getActivePage(long afterId, int limit) {
+    var page = new ArrayList<Warehouse>(Math.min(limit, 64));
+    ConcurrentNavigableMap<Long, Warehouse> tail = activeById.tailMap(afterId, false);
+    for (Warehouse warehouse : tail.values()) {
+      if (page.size() >= limit) {
+        break;
+      }
+      page.add(copy(warehouse));
+    }
+    return page;
+  }
+
+  @Override
+  public void create(Warehouse warehouse) {
+    var stored = copy(warehouse);
+    stored.id = ids.incrementAndGet();
+    stored.archivedAt = null;
+    insert(stored);
+    warehouse.id = stored.id;
+    LOGGER.debugf("create completed with id=%d", stored.id);
+  }
+
+  @Override
+  public void createAll(List<Warehouse> warehouses) {
+    var created = new ArrayList<Warehouse>(warehouses.size());
+    try {
+      for (Warehouse warehouse : warehouses) {
+        create(warehouse);
+        created.add(warehouse);
+      }
+    } catch (IllegalArgumentException e) {
+      // all or nothing, like the transactional adapter
+      created.forEach(this::remove);
+      throw e;
+    }
+  }
+
+  @Override
+  public void update(Warehouse warehouse) {
+    if (warehouse.archivedAt != null) {
+      archive(warehouse);
+      return;
+    }
+
+    Warehouse current = findActive(warehouse);
+    if (current == null) {
+      LOGGER.debugf(
+          "update skipped - active warehouse not found for businessUnitCode=%s",
+          warehouse.businessUnitCode);
+      return;
+    }
+    var next = copy(warehouse);
+    next.id = current.id;
+    next.archivedAt = null;
+
+    if (current.businessUnitCode.equals(next.businessUnitCode)) {
+      activeByBusinessUnitCode.computeIfPresent(
+          current.businessUnitCode,
+          (code, present) -> {
+            if (!present.id.equals(next.id)) {
+              return present;
+            }
+            unindex(present);
+            index(next);
+            return next;
+          });
+    } else {
+      // a new code is a move between two slots; put the unit back if the new code is taken
+      Warehouse removed = take(current.businessUnitCode, current.id);
+      if (removed == null) {
+        return;
+      }
+      try {
+        insert(next);
+      } catch (IllegalArgumentException e) {
+        insert(removed);
+        throw e;
+      }
+    }
+    warehouse.id = next.id;
+  }
+
+  @Override
+  public void remove(Warehouse warehouse) {
+    if (warehouse == null) {
+      return;
+    }
+    Warehouse current = findActive(warehouse);
+    if (current != null) {
+      take(current.businessUnitCode, current.id);
+    }
+  }
+
+  @Override
+  public boolean archive(Warehouse warehouse) {
+    Warehouse current = findActive(warehouse);
+    // only the caller that takes the slot archives the unit; a concurrent archive finds nothing
+    Warehouse taken = current == null ? null : take(current.businessUnitCode, current.id);
+    if (taken == null) {
+      LOGGER.debugf(
+          "archive skipped - active warehouse not found for businessUnitCode=%s",
+          warehouse.businessUnitCode);
+      return false;
+    }
+
+    if (warehouse.archivedAt == null) {
+      warehouse.archivedAt = LocalDateTime.now();
+    }
+    var history = copy(taken);
+    history.archivedAt = warehouse.archivedAt;
+    archived
+        .computeIfAbsent(history.businessUnitCode, code -> new History())
+        .add(history, historyLimit);
+    warehouse.id = taken.id;
+    return true;
+  }
+
+  @Override
+  public List<Warehouse> findArchivedByBusinessUnitCode(String buCode) {
+    var history = buCode == null ? null : archived.get(buCode);
+    if (history == null) {
+      return List.of();
+    }
+    var warehouses = new ArrayList<Warehouse>();
+    for (Warehouse warehouse : history.units) {
+      warehouses.add(copy(warehouse));
+    }
+    return warehouses;
+  }
+
+  @Override
+  public Warehouse findByBusinessUnitCode(String buCode) {
+    Warehouse warehouse = buCode == null ? null : activeByBusinessUnitCode.get(buCode);
+    return warehouse == null ? null : copy(warehouse);
+  }
+
+  // nothing caches this store, and archive() itself finds out whether the unit is still active
+  @Override
+  public Warehouse lockByBusinessUnitCode(String buCode) {
+    return findByBusinessUnitCode(buCode);
+  }
+
+  @Override
+  public Set<String> findActiveBusinessUnitCodes(Collection<String> buCodes) {
+    if (buCodes == null || buCodes.isEmpty()) {
+      return Set.of();
+    }
+    var found = new HashSet<String>();
+    for (String buCode : buCodes) {
+      if (buCode != null && activeByBusinessUnitCode.containsKey(buCode)) {
+        found.add(buCode);
+      }
+    }
+    return found;
+  }
+
+  // nothing to lock without transactions; every operation on this store is already atomic
+  @Override
+  public Set<String> lockActiveBusinessUnitCodes(Collection<String> buCodes) {
+    return findActiveBusinessUnitCodes(buCodes);
+  }
+
+  @Override
+  public LocationOccupancy getActiveOccupancyByLocation(String location) {
+    LocationIndex index = location == null ? null : locations.get(location);
+    if (index == null) {
+      return new LocationOccupancy(0, 0);
+    }
+    Totals totals = index.totals.get();
+    return new LocationOccupancy(totals.warehouses(), totals.capacity());
+  }
+
+  @Override
+  public LocationOccupancy getActiveOccupancyByLocationExcluding(
+      String location, String excludedBusinessUnitCode) {
+    LocationOccupancy occupancy = getActiveOccupancyByLocation(location);
+    Warehouse excluded =
+        excludedBusinessUnitCode == null
+            ? null
+            : activeByBusinessUnitCode.get(excludedBusinessUnitCode);
+    if (excluded != null && excluded.location != null && excluded.location.equals(location)) {
+      occupancy.activeWarehouses = Math.max(0, occupancy.activeWarehouses - 1);
+      occupancy.activeCapacity = Math.max(0, occupancy.activeCapacity - capacityOf(excluded));
+    }
+    return occupancy;
+  }
+
+  @Override
+  public Map<String, LocationOccupancy> getActiveOccupancyByLocations(
+      Collection<String> locations) {
+    Map<String, LocationOccupancy> occupancies = new HashMap<>();
+    if (locations == null) {
+      return occupancies;
+    }
+    for (String location : locations) {
+      occupancies.put(location, getActiveOccupancyByLocation(location));
+    }
+    return occupancies;
+  }
+
+  // active warehouses at a location, in no particular order
+  public List<Warehouse> findActiveByLocation(String location) {
+    LocationIndex index = location == null ? null : locations.get(location);
+    if (index == null) {
+      return List.of();
+    }
+    var warehouses = new ArrayList<Warehouse>(index.warehouses.size());
+    for (Warehouse warehouse : index.warehouses.values()) {
+      warehouses.add(copy(warehouse));
+    }
+    return warehouses;
+  }
+
+  public int size() {
+    return activeByBusinessUnitCode.size();
+  }
+
+  private Warehouse findActive(Warehouse warehouse) {
+    if (warehouse.businessUnitCode != null) {
+      Warehouse current = activeByBusinessUnitCode.get(warehouse.businessUnitCode);
+      if (current != null && (warehouse.id == null || warehouse.id.equals(current.id))) {
+        return current;
+      }
+    }
+    return warehouse.id == null ? null : activeById.get(warehouse.id);
+  }
+
+  // the slot holds at most one active unit; its indexes change with it, inside the same compute
+  private void insert(Warehouse warehouse) {
+    var inserted = new boolean[1];
+    activeByBusinessUnitCode.computeIfAbsent(
+        warehouse.businessUnitCode,
+        code -> {
+          index(warehouse);
+          inserted[0] = true;
+          return warehouse;
+        });
+    if (!inserted[0]) {
+      throw new IllegalArgumentException("Business unit code already exists");
+    }
+  }
+
+  private Warehouse take(String businessUnitCode, Long id) {
+    var taken = new Warehouse[1];
+    activeByBusinessUnitCode.computeIfPresent(
+        businessUnitCode,
+        (code, present) -> {
+          if (!present.id.equals(id)) {
+            return present;
+          }
+          unindex(present);
+          taken[0] = present;
+          return null;
+        });
+    return taken[0];
+  }
+
+  private void index(Warehouse warehouse) {
+    activeById.put(warehouse.id, warehouse);
+    if (warehouse.location != null) {
+      LocationIndex index =
+          locations.computeIfAbsent(warehouse.location, key -> new LocationIndex());
+      index.warehouses.put(warehouse.id, warehouse);
+      index.add(1, capacityOf(warehouse));
+    }
+  }
+
+  private void unindex(Warehouse warehouse) {
+    activeById.remove(warehouse.id);
+    LocationIndex index = warehouse.location == null ? null : locations.get(warehouse.location);
+    if (index != null && index.warehouses.remove(warehouse.id) != null) {
+      index.add(-1, -capacityOf(warehouse));
+    }
+  }
+
+  private static long capacityOf(Warehouse warehouse) {
+    return warehouse.capacity == null ? 0 : warehouse.capacity;
+  }
+
+  private static Warehouse copy(Warehouse source) {
+    var warehouse = new Warehouse();
+    warehouse.id = source.id;
+    warehouse.businessUnitCode = source.businessUnitCode;
+    warehouse.location = source.location;
+    warehouse.capacity = source.capacity;
+    warehouse.stock = source.stock;
+    warehouse.createdAt = source.createdAt;
+    warehouse.archivedAt = source.archivedAt;
+    return warehouse;
+  }
+
+  private record Totals(long warehouses, long capacity) {}
+
+  // the deque's own size() walks every node, so the length is counted alongside it
+  private static final class History {
+    final ConcurrentLinkedDeque<Warehouse> units = new ConcurrentLinkedDeque<>();
+    final AtomicInteger size = new AtomicInteger();
+
+    void add(Warehouse warehouse, int limit) {
+      units.addFirst(warehouse);
+      if (size.incrementAndGet() > limit && units.pollLast() != null) {
+        size.decrementAndGet();
+      }
+    }
+  }
+
+  private static final class LocationIndex {
+    final ConcurrentHashMap<Long, Warehouse> warehouses = new ConcurrentHashMap<>();
+    final AtomicReference<Totals> totals = new AtomicReference<>(new Totals(0, 0));
+
+    void add(long warehouses, long capacity) {
+      totals.updateAndGet(
+          current ->
+              new Totals(current.warehouses() + warehouses, current.capacity() + capacity));
+    }
+  }
+}
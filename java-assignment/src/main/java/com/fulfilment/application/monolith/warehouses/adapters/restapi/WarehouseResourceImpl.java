@@ -1,16 +1,21 @@
 package com.fulfilment.application.monolith.warehouses.adapters.restapi;
 
+import com.fulfilment.application.monolith.fulfilment.FulfilmentAssignments;
 import com.fulfilment.application.monolith.warehouses.adapters.database.WarehouseRepository;
 import com.fulfilment.application.monolith.warehouses.domain.usecases.ArchiveWarehouseUseCase;
 import com.fulfilment.application.monolith.warehouses.domain.usecases.CreateWarehouseUseCase;
 import com.fulfilment.application.monolith.warehouses.domain.usecases.ReplaceWarehouseUseCase;
 import com.warehouse.api.WarehouseResource;
+import com.warehouse.api.beans.ArchivedWarehouse;
 import com.warehouse.api.beans.Warehouse;
+import com.warehouse.api.beans.WarehouseBatchRejection;
+import com.warehouse.api.beans.WarehouseBatchResult;
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.validation.constraints.NotNull;
 import jakarta.ws.rs.WebApplicationException;
+import java.util.ArrayList;
 import java.util.List;
 import org.jboss.logging.Logger;
 import org.jboss.resteasy.reactive.ResponseStatus;
@@ -19,15 +24,32 @@ import org.jboss.resteasy.reactive.ResponseStatus;
 public class WarehouseResourceImpl implements WarehouseResource {
   private static final Logger LOGGER = Logger.getLogger(WarehouseResourceImpl.class.getName());
 
+  static final int MAX_BATCH_SIZE = 1000;
+  static final int DEFAULT_PAGE_SIZE = 500;
+  static final int MAX_PAGE_SIZE = 1000;
+
   @Inject private WarehouseRepository warehouseRepository;
   @Inject private CreateWarehouseUseCase createWarehouseUseCase;
   @Inject private ReplaceWarehouseUseCase replaceWarehouseUseCase;
   @Inject private ArchiveWarehouseUseCase archiveWarehouseUseCase;
+  @Inject private FulfilmentAssignments fulfilmentAssignments;
 
   @Override
-  public List<Warehouse> listAllWarehousesUnits() {
-    var warehouses = warehouseRepository.getAll().stream().map(this::toWarehouseResponse).toList();
-    LOGGER.debugf("listAllWarehousesUnits returned %d warehouse units", warehouses.size());
+  public List<Warehouse> listAllWarehousesUnits(Long after, Integer limit) {
+    int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+    if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+      throw new WebApplicationException("limit must be between 1 and " + MAX_PAGE_SIZE, 400);
+    }
+    if (after != null && after < 0) {
+      throw new WebApplicationException("after must not be negative", 400);
+    }
+
+    var warehouses =
+        warehouseRepository.getActivePage(after == null ? 0L : after, pageSize).stream()
+            .map(WarehouseResourceImpl::toWarehouseResponse)
+            .toList();
+    LOGGER.debugf(
+        "listAllWarehousesUnits after=%s returned %d warehouse units", after, warehouses.size());
     return warehouses;
   }
 
@@ -46,6 +68,45 @@ public class WarehouseResourceImpl implements WarehouseResource {
     }
   }
 
+  @Override
+  @Transactional
+  public WarehouseBatchResult createWarehouseUnitsInBatch(
+      Boolean atomic, @NotNull List<Warehouse> data) {
+    boolean allOrNothing = atomic == null || atomic;
+    LOGGER.debugf(
+        "createWarehouseUnitsInBatch requested for %d units atomic=%s",
+        data == null ? 0 : data.size(),
+        allOrNothing);
+    if (data == null || data.isEmpty()) {
+      throw new WebApplicationException("At least one warehouse unit is required", 400);
+    }
+    if (data.size() > MAX_BATCH_SIZE) {
+      throw new WebApplicationException(
+          "A batch can contain at most " + MAX_BATCH_SIZE + " warehouse units", 400);
+    }
+
+    try {
+      List<com.fulfilment.application.monolith.warehouses.domain.models.Warehouse> domain =
+          new ArrayList<>(data.size());
+      for (Warehouse item : data) {
+        domain.add(item == null ? null : toDomainWarehouse(item));
+      }
+      var result = createWarehouseUseCase.createAll(domain, allOrNothing);
+
+      var response = new WarehouseBatchResult();
+      response.setCreated(
+          result.created.stream().map(WarehouseResourceImpl::toWarehouseResponse).toList());
+      response.setRejected(result.rejected.stream().map(this::toRejectionResponse).toList());
+      LOGGER.debugf(
+          "createWarehouseUnitsInBatch completed created=%d rejected=%d",
+          result.created.size(),
+          result.rejected.size());
+      return response;
+    } catch (IllegalArgumentException e) {
+      throw new WebApplicationException(e.getMessage(), 400);
+    }
+  }
+
   @Override
   public Warehouse getAWarehouseUnitByID(String id) {
     LOGGER.debugf("getAWarehouseUnitByID requested for id=%s", id);
@@ -58,12 +119,33 @@ public class WarehouseResourceImpl implements WarehouseResource {
 
     var entity = warehouseRepository.findById(numericId);
     if (entity == null) {
-      throw new WebApplicationException("Warehouse unit not found", 404);
+      // archived units keep their id in the history table
+      var archived = warehouseRepository.findArchivedById(numericId);
+      if (archived == null) {
+        throw new WebApplicationException("Warehouse unit not found", 404);
+      }
+      LOGGER.debugf("getAWarehouseUnitByID found archived id=%s", id);
+      return toWarehouseResponse(archived);
     }
     LOGGER.debugf("getAWarehouseUnitByID found id=%s", id);
     return toWarehouseResponse(entity.toWarehouse());
   }
 
+  @Override
+  public List<ArchivedWarehouse> listTheArchivedWarehousesOfABusinessUnit(
+      String businessUnitCode) {
+    LOGGER.debugf(
+        "listTheArchivedWarehousesOfABusinessUnit requested for businessUnitCode=%s",
+        businessUnitCode);
+    var archived =
+        warehouseRepository.findArchivedByBusinessUnitCode(businessUnitCode).stream()
+            .map(WarehouseResourceImpl::toArchivedWarehouseResponse)
+            .toList();
+    LOGGER.debugf(
+        "listTheArchivedWarehousesOfABusinessUnit returned %d warehouse units", archived.size());
+    return archived;
+  }
+
   @Override
   @Transactional
   public void archiveAWarehouseUnitByID(String id) {
@@ -83,6 +165,8 @@ public class WarehouseResourceImpl implements WarehouseResource {
     try {
       var domain = entity.toWarehouse();
       archiveWarehouseUseCase.archive(domain);
+      // an archived unit fulfils nothing; a replaced one keeps its code and its assignments
+      fulfilmentAssignments.unassignWarehouse(domain.businessUnitCode);
       LOGGER.debugf("archiveAWarehouseUnitByID completed for id=%s", id);
     } catch (IllegalStateException e) {
       throw new WebApplicationException(e.getMessage(), 404);
@@ -111,7 +195,7 @@ public class WarehouseResourceImpl implements WarehouseResource {
     }
   }
 
-  private Warehouse toWarehouseResponse(
+  static Warehouse toWarehouseResponse(
       com.fulfilment.application.monolith.warehouses.domain.models.Warehouse warehouse) {
     var response = new Warehouse();
     if (warehouse.id != null) {
@@ -125,6 +209,33 @@ public class WarehouseResourceImpl implements WarehouseResource {
     return response;
   }
 
+  static ArchivedWarehouse toArchivedWarehouseResponse(
+      com.fulfilment.application.monolith.warehouses.domain.models.Warehouse warehouse) {
+    var response = new ArchivedWarehouse();
+    response.setId(String.valueOf(warehouse.id));
+    response.setBusinessUnitCode(warehouse.businessUnitCode);
+    response.setLocation(warehouse.location);
+    response.setCapacity(warehouse.capacity);
+    response.setStock(warehouse.stock);
+    if (warehouse.createdAt != null) {
+      response.setCreatedAt(warehouse.createdAt.toString());
+    }
+    if (warehouse.archivedAt != null) {
+      response.setArchivedAt(warehouse.archivedAt.toString());
+    }
+    return response;
+  }
+
+  private WarehouseBatchRejection toRejectionResponse(
+      com.fulfilment.application.monolith.warehouses.domain.models.WarehouseBatchResult.Rejection
+          rejection) {
+    var response = new WarehouseBatchRejection();
+    response.setIndex(rejection.index);
+    response.setBusinessUnitCode(rejection.businessUnitCode);
+    response.setError(rejection.reason);
+    return response;
+  }
+
   private com.fulfilment.application.monolith.warehouses.domain.models.Warehouse toDomainWarehouse(
       Warehouse data) {
     var domain = new com.fulfilment.application.monolith.warehouses.domain.models.Warehouse();
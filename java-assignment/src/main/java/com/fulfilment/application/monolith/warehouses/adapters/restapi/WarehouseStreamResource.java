@@ -0,0 +1,51 @@
+package com.fulfilment.application.monolith.warehouses.adapters.restapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fulfilment.application.monolith.warehouses.adapters.database.WarehouseRepository;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.jboss.logging.Logger;
+
+/**
+ * Streams every active warehouse unit as newline-delimited JSON. Rows are read in keyset pages and
+ * written as they arrive, so memory per request does not grow with the fleet.
+ */
+@Path("warehouse/stream")
+@RequestScoped
+public class WarehouseStreamResource {
+  private static final Logger LOGGER = Logger.getLogger(WarehouseStreamResource.class.getName());
+
+  static final String NDJSON = "application/x-ndjson";
+  static final int PAGE_SIZE = 500;
+
+  @Inject WarehouseRepository warehouseRepository;
+  @Inject ObjectMapper objectMapper;
+
+  @GET
+  @Produces(NDJSON)
+  public StreamingOutput streamAllWarehousesUnits() {
+    return output -> {
+      long after = 0L;
+      long written = 0;
+      while (true) {
+        var page = warehouseRepository.getActivePage(after, PAGE_SIZE);
+        for (var warehouse : page) {
+          output.write(
+              objectMapper.writeValueAsBytes(WarehouseResourceImpl.toWarehouseResponse(warehouse)));
+          output.write('\n');
+        }
+        output.flush();
+        written += page.size();
+        if (page.size() < PAGE_SIZE) {
+          break;
+        }
+        after = page.get(page.size() - 1).id;
+      }
+      LOGGER.debugf("streamAllWarehousesUnits wrote %d warehouse units", written);
+    };
+  }
+}
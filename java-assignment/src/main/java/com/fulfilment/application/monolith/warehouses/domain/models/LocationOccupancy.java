@@ -0,0 +1,15 @@
+package com.fulfilment.application.monolith.warehouses.domain.models;
+
+public class LocationOccupancy {
+
+  // number of active (not archived) warehouses at the location
+  public long activeWarehouses;
+
+  // sum of the capacities of the active warehouses at the location
+  public long activeCapacity;
+
+  public LocationOccupancy(long activeWarehouses, long activeCapacity) {
+    this.activeWarehouses = activeWarehouses;
+    this.activeCapacity = activeCapacity;
+  }
+}
@@ -0,0 +1,26 @@
+package com.fulfilment.application.monolith.warehouses.domain.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class WarehouseBatchResult {
+
+  public final List<Warehouse> created = new ArrayList<>();
+
+  public final List<Rejection> rejected = new ArrayList<>();
+
+  public static class Rejection {
+    // position of the warehouse in the submitted batch
+    public final int index;
+
+    public final String businessUnitCode;
+
+    public final String reason;
+
+    public Rejection(int index, String businessUnitCode, String reason) {
+      this.index = index;
+      this.businessUnitCode = businessUnitCode;
+      this.reason = reason;
+    }
+  }
+}
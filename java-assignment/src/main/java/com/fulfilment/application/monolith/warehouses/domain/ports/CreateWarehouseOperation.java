@@ -1,7 +1,12 @@
 package com.fulfilment.application.monolith.warehouses.domain.ports;
 
 import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import com.fulfilment.application.monolith.warehouses.domain.models.WarehouseBatchResult;
+import java.util.List;
 
 public interface CreateWarehouseOperation {
   void create(Warehouse warehouse);
+
+  // atomic: reject the whole batch if any warehouse is invalid, otherwise create the valid ones
+  WarehouseBatchResult createAll(List<Warehouse> warehouses, boolean atomic);
 }
@@ -0,0 +1,16 @@
+package com.fulfilment.application.monolith.warehouses.domain.ports;
+
+import java.util.Collection;
+import java.util.TreeSet;
+
+public interface LocationAdmissionGuard {
+
+  // serializes admission decisions for a location until the surrounding transaction completes
+  void acquire(String location);
+
+  // same as above for several locations at once; implementations acquire them in an order that
+  // keeps transactions with overlapping locations from deadlocking
+  default void acquireAll(Collection<String> locations) {
+    new TreeSet<>(locations).forEach(this::acquire);
+  }
+}
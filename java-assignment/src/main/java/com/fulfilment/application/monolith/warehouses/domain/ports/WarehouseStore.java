@@ -1,17 +1,55 @@
 package com.fulfilment.application.monolith.warehouses.domain.ports;
 
+import com.fulfilment.application.monolith.warehouses.domain.models.LocationOccupancy;
 import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface WarehouseStore {
 
   List<Warehouse> getAll();
 
+  // active warehouses with an id greater than afterId, ordered by id, at most limit of them
+  List<Warehouse> getActivePage(long afterId, int limit);
+
   void create(Warehouse warehouse);
 
+  // inserts all warehouses, assigning their ids
+  void createAll(List<Warehouse> warehouses);
+
   void update(Warehouse warehouse);
 
   void remove(Warehouse warehouse);
 
+  // moves the active warehouse to the archive, stamped with warehouse.archivedAt; false when there
+  // was no active warehouse to move
+  boolean archive(Warehouse warehouse);
+
+  // archived warehouses that held the business unit code, most recently archived first
+  List<Warehouse> findArchivedByBusinessUnitCode(String buCode);
+
   Warehouse findByBusinessUnitCode(String buCode);
+
+  // the active warehouse read from the store itself, never a cache, and write-locked until the
+  // surrounding transaction ends; for callers that change it
+  Warehouse lockByBusinessUnitCode(String buCode);
+
+  // the subset of the given business unit codes that belong to an active warehouse
+  Set<String> findActiveBusinessUnitCodes(Collection<String> buCodes);
+
+  // same as above, also write-locking those warehouses, in business unit code order, until the
+  // surrounding transaction ends
+  Set<String> lockActiveBusinessUnitCodes(Collection<String> buCodes);
+
+  // active warehouse count and summed capacity at a location, computed in a single aggregate
+  LocationOccupancy getActiveOccupancyByLocation(String location);
+
+  // same as above, ignoring the active warehouse with the given business unit code
+  LocationOccupancy getActiveOccupancyByLocationExcluding(
+      String location, String excludedBusinessUnitCode);
+
+  // occupancy for each of the given locations in one grouped aggregate; absent locations are empty
+  Map<String, LocationOccupancy> getActiveOccupancyByLocations(Collection<String> locations);
 }
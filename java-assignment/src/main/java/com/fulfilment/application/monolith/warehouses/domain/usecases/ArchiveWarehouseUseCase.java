@@ -24,13 +24,15 @@ public class ArchiveWarehouseUseCase implements ArchiveWarehouseOperation {
         "archive use case started for businessUnitCode=%s", warehouse.businessUnitCode);
     WarehouseValidation.requireBusinessUnitCode(warehouse);
 
-    Warehouse current = warehouseStore.findByBusinessUnitCode(warehouse.businessUnitCode);
+    Warehouse current = warehouseStore.lockByBusinessUnitCode(warehouse.businessUnitCode);
     if (current == null || current.archivedAt != null) {
       throw new IllegalStateException("Warehouse unit not found");
     }
 
     current.archivedAt = LocalDateTime.now();
-    warehouseStore.update(current);
+    if (!warehouseStore.archive(current)) {
+      throw new IllegalStateException("Warehouse unit not found");
+    }
     LOGGER.debugf(
         "archive use case completed for businessUnitCode=%s", warehouse.businessUnitCode);
   }
@@ -1,12 +1,24 @@
 package com.fulfilment.application.monolith.warehouses.domain.usecases;
 
 import com.fulfilment.application.monolith.warehouses.domain.models.Location;
+import com.fulfilment.application.monolith.warehouses.domain.models.LocationOccupancy;
 import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import com.fulfilment.application.monolith.warehouses.domain.models.WarehouseBatchResult;
 import com.fulfilment.application.monolith.warehouses.domain.ports.CreateWarehouseOperation;
+import com.fulfilment.application.monolith.warehouses.domain.ports.LocationAdmissionGuard;
 import com.fulfilment.application.monolith.warehouses.domain.ports.LocationResolver;
 import com.fulfilment.application.monolith.warehouses.domain.ports.WarehouseStore;
 import jakarta.enterprise.context.ApplicationScoped;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 import org.jboss.logging.Logger;
 
 @ApplicationScoped
@@ -15,10 +27,15 @@ public class CreateWarehouseUseCase implements CreateWarehouseOperation {
 
   private final WarehouseStore warehouseStore;
   private final LocationResolver locationResolver;
+  private final LocationAdmissionGuard locationAdmissionGuard;
 
-  public CreateWarehouseUseCase(WarehouseStore warehouseStore, LocationResolver locationResolver) {
+  public CreateWarehouseUseCase(
+      WarehouseStore warehouseStore,
+      LocationResolver locationResolver,
+      LocationAdmissionGuard locationAdmissionGuard) {
     this.warehouseStore = warehouseStore;
     this.locationResolver = locationResolver;
+    this.locationAdmissionGuard = locationAdmissionGuard;
   }
 
   @Override
@@ -37,20 +54,16 @@ public class CreateWarehouseUseCase implements CreateWarehouseOperation {
       throw new IllegalArgumentException("Invalid location");
     }
 
+    // Serialize with concurrent admissions for the same location until the transaction completes
+    locationAdmissionGuard.acquire(warehouse.location);
+
     // Warehouse Creation Feasibility + Capacity constraints
-    var activeWarehouses = warehouseStore.getAll();
-    long activeCountAtLocation =
-        activeWarehouses.stream().filter(w -> warehouse.location.equals(w.location)).count();
-    if (activeCountAtLocation >= location.maxNumberOfWarehouses) {
+    LocationOccupancy occupancy = warehouseStore.getActiveOccupancyByLocation(warehouse.location);
+    if (occupancy.activeWarehouses >= location.maxNumberOfWarehouses) {
       throw new IllegalArgumentException("Maximum number of warehouses reached for this location");
     }
 
-    int activeCapacityAtLocation =
-        activeWarehouses.stream()
-            .filter(w -> warehouse.location.equals(w.location))
-            .mapToInt(w -> w.capacity == null ? 0 : w.capacity)
-            .sum();
-    if (activeCapacityAtLocation + warehouse.capacity > location.maxCapacity) {
+    if (occupancy.activeCapacity + warehouse.capacity > location.maxCapacity) {
       throw new IllegalArgumentException("Location capacity limit exceeded");
     }
 
@@ -61,4 +74,126 @@ public class CreateWarehouseUseCase implements CreateWarehouseOperation {
     warehouseStore.create(warehouse);
     LOGGER.debugf("create use case completed for businessUnitCode=%s", warehouse.businessUnitCode);
   }
+
+  @Override
+  public WarehouseBatchResult createAll(List<Warehouse> warehouses, boolean atomic) {
+    if (warehouses == null || warehouses.isEmpty()) {
+      throw new IllegalArgumentException("At least one warehouse is required");
+    }
+    LOGGER.debugf(
+        "batch create use case started for %d warehouses atomic=%s", warehouses.size(), atomic);
+
+    var result = new WarehouseBatchResult();
+
+    // Field validation, duplicates inside the batch and location resolution, all in memory
+    List<Candidate> candidates = new ArrayList<>(warehouses.size());
+    Set<String> batchCodes = new HashSet<>();
+    for (int i = 0; i < warehouses.size(); i++) {
+      Warehouse warehouse = warehouses.get(i);
+      try {
+        WarehouseValidation.validateForCreateOrReplace(warehouse);
+        if (!batchCodes.add(warehouse.businessUnitCode)) {
+          throw new IllegalArgumentException("Business unit code is duplicated in the batch");
+        }
+        Location location = locationResolver.resolveByIdentifier(warehouse.location);
+        if (location == null) {
+          throw new IllegalArgumentException("Invalid location");
+        }
+        candidates.add(new Candidate(i, warehouse, location));
+      } catch (IllegalArgumentException e) {
+        reject(result, i, warehouse, e.getMessage());
+      }
+    }
+
+    // Business Unit Code Verification, one lookup for the whole batch
+    if (!candidates.isEmpty()) {
+      Set<String> existing =
+          warehouseStore.findActiveBusinessUnitCodes(
+              candidates.stream().map(c -> c.warehouse.businessUnitCode).toList());
+      candidates.removeIf(
+          c -> {
+            if (existing.contains(c.warehouse.businessUnitCode)) {
+              reject(result, c.index, c.warehouse, "Business unit code already exists");
+              return true;
+            }
+            return false;
+          });
+    }
+
+    // Warehouse Creation Feasibility + Capacity constraints, one aggregate for all locations.
+    // All locations are acquired in one call, which orders them so batches cannot deadlock.
+    List<Warehouse> accepted = new ArrayList<>(candidates.size());
+    if (!candidates.isEmpty()) {
+      Set<String> locations =
+          candidates.stream()
+              .map(c -> c.warehouse.location)
+              .collect(Collectors.toCollection(TreeSet::new));
+      locationAdmissionGuard.acquireAll(locations);
+
+      Map<String, LocationOccupancy> occupancies = new HashMap<>();
+      warehouseStore
+          .getActiveOccupancyByLocations(locations)
+          .forEach(
+              (id, o) ->
+                  occupancies.put(id, new LocationOccupancy(o.activeWarehouses, o.activeCapacity)));
+
+      for (Candidate candidate : candidates) {
+        LocationOccupancy occupancy =
+            occupancies.computeIfAbsent(
+                candidate.warehouse.location, id -> new LocationOccupancy(0, 0));
+        if (occupancy.activeWarehouses >= candidate.location.maxNumberOfWarehouses) {
+          reject(
+              result,
+              candidate.index,
+              candidate.warehouse,
+              "Maximum number of warehouses reached for this location");
+          continue;
+        }
+        if (occupancy.activeCapacity + candidate.warehouse.capacity
+            > candidate.location.maxCapacity) {
+          reject(result, candidate.index, candidate.warehouse, "Location capacity limit exceeded");
+          continue;
+        }
+        occupancy.activeWarehouses++;
+        occupancy.activeCapacity += candidate.warehouse.capacity;
+        accepted.add(candidate.warehouse);
+      }
+    }
+
+    result.rejected.sort(Comparator.comparingInt(r -> r.index));
+    if (atomic && !result.rejected.isEmpty()) {
+      var first = result.rejected.get(0);
+      throw new IllegalArgumentException(
+          "Batch rejected: "
+              + result.rejected.size()
+              + " invalid warehouse(s), first at index "
+              + first.index
+              + ": "
+              + first.reason);
+    }
+
+    LocalDateTime now = LocalDateTime.now();
+    for (Warehouse warehouse : accepted) {
+      warehouse.createdAt = now;
+      warehouse.archivedAt = null;
+    }
+    if (!accepted.isEmpty()) {
+      warehouseStore.createAll(accepted);
+    }
+    result.created.addAll(accepted);
+    LOGGER.debugf(
+        "batch create use case completed created=%d rejected=%d",
+        result.created.size(),
+        result.rejected.size());
+    return result;
+  }
+
+  private static void reject(
+      WarehouseBatchResult result, int index, Warehouse warehouse, String reason) {
+    result.rejected.add(
+        new WarehouseBatchResult.Rejection(
+            index, warehouse == null ? null : warehouse.businessUnitCode, reason));
+  }
+
+  private record Candidate(int index, Warehouse warehouse, Location location) {}
 }
@@ -1,7 +1,9 @@
 package com.fulfilment.application.monolith.warehouses.domain.usecases;
 
 import com.fulfilment.application.monolith.warehouses.domain.models.Location;
+import com.fulfilment.application.monolith.warehouses.domain.models.LocationOccupancy;
 import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import com.fulfilment.application.monolith.warehouses.domain.ports.LocationAdmissionGuard;
 import com.fulfilment.application.monolith.warehouses.domain.ports.LocationResolver;
 import com.fulfilment.application.monolith.warehouses.domain.ports.ReplaceWarehouseOperation;
 import com.fulfilment.application.monolith.warehouses.domain.ports.WarehouseStore;
@@ -15,10 +17,15 @@ public class ReplaceWarehouseUseCase implements ReplaceWarehouseOperation {
 
   private final WarehouseStore warehouseStore;
   private final LocationResolver locationResolver;
+  private final LocationAdmissionGuard locationAdmissionGuard;
 
-  public ReplaceWarehouseUseCase(WarehouseStore warehouseStore, LocationResolver locationResolver) {
+  public ReplaceWarehouseUseCase(
+      WarehouseStore warehouseStore,
+      LocationResolver locationResolver,
+      LocationAdmissionGuard locationAdmissionGuard) {
     this.warehouseStore = warehouseStore;
     this.locationResolver = locationResolver;
+    this.locationAdmissionGuard = locationAdmissionGuard;
   }
 
   @Override
@@ -27,7 +34,8 @@ public class ReplaceWarehouseUseCase implements ReplaceWarehouseOperation {
     LOGGER.debugf(
         "replace use case started for businessUnitCode=%s", newWarehouse.businessUnitCode);
 
-    Warehouse current = warehouseStore.findByBusinessUnitCode(newWarehouse.businessUnitCode);
+    // the unit being replaced is read past any cache and locked, so a concurrent replace waits
+    Warehouse current = warehouseStore.lockByBusinessUnitCode(newWarehouse.businessUnitCode);
     if (current == null || current.archivedAt != null) {
       throw new IllegalStateException("Warehouse unit not found");
     }
@@ -47,29 +55,25 @@ public class ReplaceWarehouseUseCase implements ReplaceWarehouseOperation {
       throw new IllegalArgumentException("Invalid location");
     }
 
-    var activeWarehouses = warehouseStore.getAll();
-    long activeCountAtLocationExcludingCurrent =
-        activeWarehouses.stream()
-            .filter(w -> newWarehouse.location.equals(w.location))
-            .filter(w -> !newWarehouse.businessUnitCode.equals(w.businessUnitCode))
-            .count();
-    if (activeCountAtLocationExcludingCurrent >= location.maxNumberOfWarehouses) {
+    // Serialize with concurrent admissions for the same location until the transaction completes
+    locationAdmissionGuard.acquire(newWarehouse.location);
+
+    LocationOccupancy occupancy =
+        warehouseStore.getActiveOccupancyByLocationExcluding(
+            newWarehouse.location, newWarehouse.businessUnitCode);
+    if (occupancy.activeWarehouses >= location.maxNumberOfWarehouses) {
       throw new IllegalArgumentException("Maximum number of warehouses reached for this location");
     }
 
-    int activeCapacityAtLocationExcludingCurrent =
-        activeWarehouses.stream()
-            .filter(w -> newWarehouse.location.equals(w.location))
-            .filter(w -> !newWarehouse.businessUnitCode.equals(w.businessUnitCode))
-            .mapToInt(w -> w.capacity == null ? 0 : w.capacity)
-            .sum();
-    if (activeCapacityAtLocationExcludingCurrent + newWarehouse.capacity > location.maxCapacity) {
+    if (occupancy.activeCapacity + newWarehouse.capacity > location.maxCapacity) {
       throw new IllegalArgumentException("Location capacity limit exceeded");
     }
 
     // archive current
     current.archivedAt = LocalDateTime.now();
-    warehouseStore.update(current);
+    if (!warehouseStore.archive(current)) {
+      throw new IllegalStateException("Warehouse unit not found");
+    }
 
     // create new
     newWarehouse.id = null;
@@ -0,0 +1,88 @@
+package com.fulfilment.application.monolith.common;
+
+import static io.restassured.RestAssured.given;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.quarkus.test.junit.QuarkusTest;
+import java.io.ByteArrayInputStream;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+class HttpBodyLimitTest {
+
+  // the test profile sets http.body-limit to 64K
+  private static final int OVER_LIMIT = 70 * 1024;
+
+  @Test
+  void post_bodyOverTheLimit_isRejectedWith413() {
+    given()
+        .contentType("application/json")
+        .body("{\"name\":\"" + "x".repeat(OVER_LIMIT) + "\"}")
+        .when()
+        .post("store")
+        .then()
+        .statusCode(413)
+        .body("code", equalTo(413));
+  }
+
+  @Test
+  void productImport_bodyOverTheLimit_isRead() {
+    var csv = new StringBuilder("name,description,price,stock\n");
+    for (int i = 0; csv.length() < OVER_LIMIT; i++) {
+      // a negative price is rejected, so the import leaves the products as they were
+      csv.append("BODY-LIMIT-").append(i).append(",Padding,-1,1\n");
+    }
+
+    given()
+        .contentType("text/csv")
+        .body(csv.toString())
+        .when()
+        .post("product/import")
+        .then()
+        .statusCode(200)
+        .body("imported", equalTo(0));
+  }
+
+  @Test
+  void post_chunkedBodyOverTheLimit_isRejectedWith413() {
+    byte[] body = ("{\"name\":\"" + "x".repeat(OVER_LIMIT) + "\"}").getBytes(UTF_8);
+
+    given()
+        .contentType("application/json")
+        .body(new ByteArrayInputStream(body))
+        .when()
+        .post("store")
+        .then()
+        .statusCode(413)
+        .body("code", equalTo(413));
+  }
+
+  @Test
+  void post_chunkedBodyWithinTheLimit_isRead() {
+    byte[] body = "{\"name\":\"BODY-LIMIT-CHUNKED\"}".getBytes(UTF_8);
+
+    given()
+        .contentType("application/json")
+        .body(new ByteArrayInputStream(body))
+        .when()
+        .post("store")
+        .then()
+        .statusCode(201)
+        .body("name", equalTo("BODY-LIMIT-CHUNKED"));
+  }
+
+  @Test
+  void rejection_byContentLength() {
+    assertEquals(0, HttpBodyLimit.rejection(null, 10));
+    assertEquals(0, HttpBodyLimit.rejection("10", 10));
+    assertEquals(413, HttpBodyLimit.rejection("11", 10));
+    assertEquals(400, HttpBodyLimit.rejection("ten", 10));
+    assertTrue(HttpBodyLimit.unsized(null, "chunked"));
+    assertFalse(HttpBodyLimit.unsized(null, "identity"));
+    assertFalse(HttpBodyLimit.unsized("10", "chunked"));
+  }
+}
@@ -0,0 +1,49 @@
+package com.fulfilment.application.monolith.common;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+class SecondLevelCacheMetricsTest {
+
+  @Test
+  void metrics_exposeRegionCountersAndEntries() {
+    given().when().get("/product").then().statusCode(200);
+    given().when().get("/product/1").then().statusCode(200);
+
+    given()
+        .when()
+        .get("/q/metrics")
+        .then()
+        .statusCode(200)
+        .body(
+            containsString("hibernate_second_level_cache_requests"),
+            containsString(
+                "hibernate_cache_region_entries{region=\""
+                    + "com.fulfilment.application.monolith.products.Product\"}"));
+  }
+
+  @Test
+  void entries_withoutRegionStatistics_isNaN() {
+    Statistics statistics = mock(Statistics.class);
+    CacheRegionStatistics unsupported = mock(CacheRegionStatistics.class);
+    CacheRegionStatistics counted = mock(CacheRegionStatistics.class);
+    when(unsupported.getElementCountInMemory()).thenReturn(-1L);
+    when(counted.getElementCountInMemory()).thenReturn(3L);
+    when(statistics.getCacheRegionStatistics("unsupported")).thenReturn(unsupported);
+    when(statistics.getCacheRegionStatistics("counted")).thenReturn(counted);
+
+    assertTrue(Double.isNaN(SecondLevelCacheMetrics.entries(statistics, "missing")));
+    assertTrue(Double.isNaN(SecondLevelCacheMetrics.entries(statistics, "unsupported")));
+    assertEquals(3.0, SecondLevelCacheMetrics.entries(statistics, "counted"));
+  }
+}
@@ -0,0 +1,105 @@
+package com.fulfilment.application.monolith.fulfilment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class FulfilmentIndexTest {
+
+  @Test
+  void tryAdd_allowsTwoWarehousesPerProductInStore() {
+    FulfilmentIndex index = new FulfilmentIndex();
+
+    assertNull(index.tryAdd(key(1, 1, "MWH.001")));
+    assertNull(index.tryAdd(key(1, 1, "MWH.012")));
+    assertNotNull(index.tryAdd(key(1, 1, "MWH.023")));
+    assertNull(index.tryAdd(key(1, 2, "MWH.023")));
+    assertEquals(3, index.size());
+  }
+
+  @Test
+  void tryAdd_allowsThreeWarehousesPerStore() {
+    FulfilmentIndex index = new FulfilmentIndex();
+    assertNull(index.tryAdd(key(1, 1, "MWH.001")));
+    assertNull(index.tryAdd(key(2, 1, "MWH.012")));
+    assertNull(index.tryAdd(key(3, 1, "MWH.023")));
+
+    assertNotNull(index.tryAdd(key(4, 1, "MWH.034")));
+    // a warehouse already fulfilling the store takes no new slot
+    assertNull(index.tryAdd(key(4, 1, "MWH.001")));
+  }
+
+  @Test
+  void tryAdd_allowsFiveProductsPerWarehouse() {
+    FulfilmentIndex index = new FulfilmentIndex();
+    for (long product = 1; product <= 5; product++) {
+      assertNull(index.tryAdd(key(product, product, "MWH.001")));
+    }
+
+    assertNotNull(index.tryAdd(key(6, 1, "MWH.001")));
+    // a product the warehouse already fulfils takes no new slot
+    assertNull(index.tryAdd(key(5, 6, "MWH.001")));
+  }
+
+  @Test
+  void tryAdd_rejectsADuplicateAssignment() {
+    FulfilmentIndex index = new FulfilmentIndex();
+    assertNull(index.tryAdd(key(1, 1, "MWH.001")));
+
+    assertNotNull(index.tryAdd(key(1, 1, "MWH.001")));
+    assertEquals(1, index.size());
+  }
+
+  @Test
+  void remove_freesTheSlotOnlyWithTheLastAssignmentThroughIt() {
+    FulfilmentIndex index = new FulfilmentIndex();
+    assertNull(index.tryAdd(key(1, 1, "MWH.001")));
+    assertNull(index.tryAdd(key(2, 1, "MWH.001")));
+    assertNull(index.tryAdd(key(3, 1, "MWH.012")));
+    assertNull(index.tryAdd(key(4, 1, "MWH.023")));
+
+    index.remove(key(1, 1, "MWH.001"));
+    assertNotNull(index.tryAdd(key(5, 1, "MWH.034")));
+
+    index.remove(key(2, 1, "MWH.001"));
+    assertNull(index.tryAdd(key(5, 1, "MWH.034")));
+    index.remove(key(9, 9, "MWH.099"));
+    assertEquals(3, index.size());
+  }
+
+  @Test
+  void reload_replacesOnlyTheAssignmentsInScope() {
+    FulfilmentIndex index = new FulfilmentIndex();
+    assertNull(index.tryAdd(key(1, 1, "MWH.001")));
+    assertNull(index.tryAdd(key(1, 2, "MWH.001")));
+
+    // store 1 as another instance left it: one assignment gone, two made there
+    index.reload(Set.of(1L), Set.of(), Set.of(key(2, 1, "MWH.012"), key(3, 1, "MWH.023")));
+
+    assertEquals(3, index.size());
+    assertNull(index.tryAdd(key(1, 1, "MWH.001")));
+    assertNotNull(index.tryAdd(key(4, 1, "MWH.034")));
+    assertNotNull(index.tryAdd(key(1, 2, "MWH.001")));
+  }
+
+  @Test
+  void reload_warehouseInScope_replacesItsAssignmentsInEveryStore() {
+    FulfilmentIndex index = new FulfilmentIndex();
+    assertNull(index.tryAdd(key(1, 1, "MWH.001")));
+    assertNull(index.tryAdd(key(2, 2, "MWH.001")));
+    assertNull(index.tryAdd(key(3, 2, "MWH.012")));
+
+    index.reload(Set.of(), Set.of("MWH.001"), Set.of(key(2, 2, "MWH.001")));
+
+    assertEquals(2, index.size());
+    assertNull(index.tryAdd(key(1, 1, "MWH.001")));
+    assertNotNull(index.tryAdd(key(3, 2, "MWH.012")));
+  }
+
+  private static FulfilmentIndex.Key key(long productId, long storeId, String warehouseCode) {
+    return new FulfilmentIndex.Key(productId, storeId, warehouseCode);
+  }
+}
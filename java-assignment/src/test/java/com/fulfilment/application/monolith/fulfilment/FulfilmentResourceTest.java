@@ -0,0 +1,211 @@
+package com.fulfilment.application.monolith.fulfilment;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+class FulfilmentResourceTest {
+
+  @Inject EntityManager entityManager;
+
+  @Test
+  void assign_nonAtomic_shouldAssignValidRowsAndReportRejected() {
+    int productId = createProduct("FULFIL-HEMNES");
+    int storeId = createStore("FULFIL-STORE-1");
+
+    String body =
+        "["
+            + assignment(productId, storeId, "MWH.001")
+            + ","
+            + assignment(productId, storeId, "MWH.023")
+            + ","
+            + assignment(productId, storeId, "MWH.012")
+            + ","
+            + assignment(productId, 999_999, "MWH.001")
+            + "]";
+
+    int assignedId =
+        given()
+            .contentType("application/json")
+            .body(body)
+            .when()
+            .post("/fulfilment/assignments?atomic=false")
+            .then()
+            .statusCode(200)
+            .body("assigned.size()", equalTo(2))
+            .body("assigned[0].id", notNullValue())
+            .body("rejected.size()", equalTo(2))
+            .body("rejected[0].index", equalTo(2))
+            .body("rejected[1].index", equalTo(3))
+            .extract()
+            .path("assigned[0].id");
+
+    given()
+        .when()
+        .get("/fulfilment/assignments?storeId=" + storeId)
+        .then()
+        .statusCode(200)
+        .body("size()", equalTo(2));
+
+    given().when().delete("/fulfilment/assignments/" + assignedId).then().statusCode(204);
+    given().when().delete("/fulfilment/assignments/" + assignedId).then().statusCode(404);
+
+    given()
+        .contentType("application/json")
+        .body("[" + assignment(productId, storeId, "MWH.012") + "]")
+        .when()
+        .post("/fulfilment/assignments")
+        .then()
+        .statusCode(200)
+        .body("assigned.size()", equalTo(1));
+  }
+
+  @Test
+  void assign_atomic_shouldRejectWholeBatch() {
+    int productId = createProduct("FULFIL-MALM");
+    int storeId = createStore("FULFIL-STORE-2");
+
+    String body =
+        "["
+            + assignment(productId, storeId, "MWH.001")
+            + ","
+            + assignment(productId, storeId, "MWH.001")
+            + "]";
+
+    given()
+        .contentType("application/json")
+        .body(body)
+        .when()
+        .post("/fulfilment/assignments")
+        .then()
+        .statusCode(400);
+
+    given()
+        .when()
+        .get("/fulfilment/assignments?storeId=" + storeId)
+        .then()
+        .statusCode(200)
+        .body("size()", equalTo(0));
+
+    // the rolled back batch left no counts behind
+    given()
+        .contentType("application/json")
+        .body("[" + assignment(productId, storeId, "MWH.001") + "]")
+        .when()
+        .post("/fulfilment/assignments")
+        .then()
+        .statusCode(200)
+        .body("assigned.size()", equalTo(1));
+  }
+
+  @Test
+  void assign_shouldCountAssignmentsTheIndexDoesNotKnow() {
+    int productId = createProduct("FULFIL-BILLY");
+    int storeId = createStore("FULFIL-STORE-3");
+    // as if written by another replica, whose assignments this instance's index never saw
+    long product = productId;
+    long store = storeId;
+    QuarkusTransaction.requiringNew()
+        .run(
+            () -> {
+              entityManager.persist(new FulfilmentAssignment(product, store, "MWH.001"));
+              entityManager.persist(new FulfilmentAssignment(product, store, "MWH.023"));
+            });
+
+    given()
+        .contentType("application/json")
+        .body("[" + assignment(productId, storeId, "MWH.012") + "]")
+        .when()
+        .post("/fulfilment/assignments")
+        .then()
+        .statusCode(400);
+  }
+
+  @Test
+  void deletingAProductOrAStore_shouldRemoveItsAssignments() {
+    int productId = createProduct("FULFIL-POANG");
+    int storeId = createStore("FULFIL-STORE-4");
+    int otherStoreId = createStore("FULFIL-STORE-5");
+    given()
+        .contentType("application/json")
+        .body(
+            "["
+                + assignment(productId, storeId, "MWH.023")
+                + ","
+                + assignment(productId, otherStoreId, "MWH.023")
+                + "]")
+        .when()
+        .post("/fulfilment/assignments")
+        .then()
+        .statusCode(200)
+        .body("assigned.size()", equalTo(2));
+
+    given().when().delete("/store/" + otherStoreId).then().statusCode(204);
+    given()
+        .when()
+        .get("/fulfilment/assignments?productId=" + productId)
+        .then()
+        .statusCode(200)
+        .body("size()", equalTo(1));
+
+    given().when().delete("/product/" + productId).then().statusCode(204);
+    given()
+        .when()
+        .get("/fulfilment/assignments?storeId=" + storeId)
+        .then()
+        .statusCode(200)
+        .body("size()", equalTo(0));
+  }
+
+  @Test
+  void assign_emptyBatch_shouldReturn400() {
+    given()
+        .contentType("application/json")
+        .body("[]")
+        .when()
+        .post("/fulfilment/assignments")
+        .then()
+        .statusCode(400);
+  }
+
+  private static String assignment(long productId, long storeId, String warehouseCode) {
+    return "{\"productId\":"
+        + productId
+        + ",\"storeId\":"
+        + storeId
+        + ",\"warehouseCode\":\""
+        + warehouseCode
+        + "\"}";
+  }
+
+  private static int createProduct(String name) {
+    return given()
+        .contentType("application/json")
+        .body("{\"name\":\"" + name + "\",\"stock\":1}")
+        .when()
+        .post("/product")
+        .then()
+        .statusCode(201)
+        .extract()
+        .path("id");
+  }
+
+  private static int createStore(String name) {
+    return given()
+        .contentType("application/json")
+        .body("{\"name\":\"" + name + "\",\"quantityProductsInStock\":1}")
+        .when()
+        .post("/store")
+        .then()
+        .statusCode(201)
+        .extract()
+        .path("id");
+  }
+}
@@ -1,16 +1,23 @@
 package com.fulfilment.application.monolith.location;
 
 import com.fulfilment.application.monolith.warehouses.domain.models.Location;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class LocationGatewayTest {
 
+  @TempDir Path tempDir;
+
   @Test
   public void testWhenResolveExistingLocationShouldReturn() {
     // given
     LocationGateway locationGateway = new LocationGateway();
+    locationGateway.init();
 
     // when
     Location location = locationGateway.resolveByIdentifier("ZWOLLE-001");
@@ -23,6 +30,7 @@ public class LocationGatewayTest {
   public void testWhenResolveNonExistingLocationShouldReturnNull() {
     // given
     LocationGateway locationGateway = new LocationGateway();
+    locationGateway.init();
 
     // when
     Location location = locationGateway.resolveByIdentifier("NONEXISTENT");
@@ -30,4 +38,54 @@ public class LocationGatewayTest {
     // then
     assertNull(location);
   }
+
+  @Test
+  public void testWhenResolveNullIdentifierShouldReturnNull() {
+    LocationGateway locationGateway = new LocationGateway();
+    locationGateway.init();
+
+    assertNull(locationGateway.resolveByIdentifier(null));
+  }
+
+  @Test
+  public void testWhenReloadFromFileShouldSwapCatalog() throws Exception {
+    // given
+    LocationGateway locationGateway = new LocationGateway();
+    locationGateway.init();
+    Path catalog = tempDir.resolve("locations.csv");
+    Files.writeString(catalog, "# comment\nZWOLLE-001,4,400\nUTRECHT-001,2,80\n");
+
+    // when
+    int size = locationGateway.reload(catalog);
+
+    // then
+    assertEquals(2, size);
+    assertEquals(4, locationGateway.resolveByIdentifier("ZWOLLE-001").maxNumberOfWarehouses);
+    assertEquals(80, locationGateway.resolveByIdentifier("UTRECHT-001").maxCapacity);
+    assertNull(locationGateway.resolveByIdentifier("AMSTERDAM-001"));
+  }
+
+  @Test
+  public void testWhenReloadInvalidFileShouldKeepCurrentCatalog() throws Exception {
+    // given
+    LocationGateway locationGateway = new LocationGateway();
+    locationGateway.init();
+    Path catalog = tempDir.resolve("broken.csv");
+    Files.writeString(catalog, "ZWOLLE-001,not-a-number,40\n");
+
+    // when / then
+    assertThrows(IllegalArgumentException.class, () -> locationGateway.reload(catalog));
+    assertEquals(40, locationGateway.resolveByIdentifier("ZWOLLE-001").maxCapacity);
+    assertEquals(8, locationGateway.size());
+  }
+
+  @Test
+  public void testWhenReloadDuplicateLocationShouldFail() throws Exception {
+    LocationGateway locationGateway = new LocationGateway();
+    locationGateway.init();
+    Path catalog = tempDir.resolve("duplicate.csv");
+    Files.writeString(catalog, "ZWOLLE-001,1,40\nZWOLLE-001,2,50\n");
+
+    assertThrows(IllegalArgumentException.class, () -> locationGateway.reload(catalog));
+  }
 }
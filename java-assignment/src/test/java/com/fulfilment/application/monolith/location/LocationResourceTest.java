@@ -0,0 +1,32 @@
+package com.fulfilment.application.monolith.location;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import jakarta.ws.rs.WebApplicationException;
+import java.nio.file.Path;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LocationResourceTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  public void reload_missingCatalog_answers503AndKeepsThePreviousCatalog() {
+    LocationGateway gateway = new LocationGateway();
+    gateway.init();
+    int loaded = gateway.size();
+    gateway.catalogPath = Optional.of(tempDir.resolve("missing.csv").toString());
+    LocationResource resource = new LocationResource();
+    resource.locationGateway = gateway;
+
+    WebApplicationException e = assertThrows(WebApplicationException.class, resource::reload);
+
+    assertEquals(503, e.getResponse().getStatus());
+    assertFalse(e.getMessage().contains("missing.csv"));
+    assertEquals(loaded, gateway.size());
+  }
+}
@@ -0,0 +1,33 @@
+package com.fulfilment.application.monolith.products;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class ByteRangeTest {
+
+  @Test
+  void parse_resolvesTheThreeForms() {
+    assertEquals(new ByteRange(0, 100), ByteRange.parse("bytes=0-99", 1000));
+    assertEquals(new ByteRange(900, 100), ByteRange.parse("bytes=900-", 1000));
+    assertEquals(new ByteRange(900, 100), ByteRange.parse("bytes=-100", 1000));
+    assertEquals(new ByteRange(990, 10), ByteRange.parse("bytes=990-5000", 1000));
+    assertEquals(new ByteRange(0, 1000), ByteRange.parse("bytes=-5000", 1000));
+  }
+
+  @Test
+  void parse_pastTheEnd_isUnsatisfiable() {
+    assertEquals(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=1000-", 1000));
+    assertEquals(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=-0", 1000));
+  }
+
+  @Test
+  void parse_headersToIgnore_returnNull() {
+    assertNull(ByteRange.parse(null, 1000));
+    assertNull(ByteRange.parse("items=0-1", 1000));
+    assertNull(ByteRange.parse("bytes=0-1,5-6", 1000));
+    assertNull(ByteRange.parse("bytes=5-1", 1000));
+    assertNull(ByteRange.parse("bytes=a-b", 1000));
+  }
+}
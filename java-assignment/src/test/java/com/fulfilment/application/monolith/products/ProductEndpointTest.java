@@ -2,14 +2,23 @@ package com.fulfilment.application.monolith.products;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.core.IsNot.not;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import org.junit.jupiter.api.Test;
 
 @QuarkusTest
 public class ProductEndpointTest {
 
+  @Inject ProductSnapshots productSnapshots;
+
   @Test
   public void testCrudProduct() {
     final String path = "product";
@@ -33,4 +42,143 @@ public class ProductEndpointTest {
         .statusCode(200)
         .body(not(containsString("TONSTAD")), containsString("KALLAX"), containsString("BESTÅ"));
   }
+
+  @Test
+  public void testSearchFollowsProductWrites() {
+    int id =
+        given()
+            .contentType("application/json")
+            .body("{\"name\":\"SEARCH-LACK\",\"description\":\"White side table\",\"stock\":1}")
+            .when()
+            .post("product")
+            .then()
+            .statusCode(201)
+            .extract()
+            .path("id");
+
+    given()
+        .when()
+        .get("product/search?q=whi tab")
+        .then()
+        .statusCode(200)
+        .body("size()", equalTo(1))
+        .body("[0].id", equalTo(id));
+
+    given()
+        .contentType("application/json")
+        .body("{\"name\":\"SEARCH-LACK\",\"description\":\"Black side table\",\"stock\":1}")
+        .when()
+        .put("product/" + id)
+        .then()
+        .statusCode(200);
+    given().when().get("product/search?q=white").then().statusCode(200).body("size()", equalTo(0));
+    given().when().get("product/search?q=black").then().statusCode(200).body("size()", equalTo(1));
+
+    given().when().delete("product/" + id).then().statusCode(204);
+    given().when().get("product/search?q=black").then().statusCode(200).body("size()", equalTo(0));
+  }
+
+  @Test
+  public void testSearchWithoutQuery() {
+    given().when().get("product/search?q=").then().statusCode(400);
+    given().when().get("product/search?q=lack&limit=0").then().statusCode(400);
+  }
+
+  @Test
+  public void testImportCsvAndNdjson() {
+    given()
+        .contentType("text/csv")
+        .body(
+            "name,description,price,stock\n"
+                + "IMPORT-EKET,Cabinet,25.00,4\n"
+                + "IMPORT-EKET,Duplicate,25.00,4\n"
+                + "IMPORT-IVAR,Shelf,-1,2\n")
+        .when()
+        .post("product/import")
+        .then()
+        .statusCode(200)
+        .body("imported", equalTo(1))
+        .body("rejected", equalTo(2))
+        .body("rejections[0].line", equalTo(3))
+        .body("rejections[0].reason", equalTo("Product Name is already taken."));
+
+    given()
+        .contentType("application/x-ndjson")
+        .body("{\"name\":\"IMPORT-SKADIS\",\"stock\":3}\n{\"name\":\"IMPORT-EKET\"}\n")
+        .when()
+        .post("product/import")
+        .then()
+        .statusCode(200)
+        .body("imported", equalTo(1))
+        .body("rejected", equalTo(1));
+
+    given()
+        .when()
+        .get("product/search?q=import")
+        .then()
+        .statusCode(200)
+        .body(containsString("IMPORT-EKET"), containsString("IMPORT-SKADIS"));
+  }
+
+  @Test
+  public void testImportCsvWithoutNameColumn() {
+    given()
+        .contentType("text/csv")
+        .body("description,stock\nCabinet,4\n")
+        .when()
+        .post("product/import")
+        .then()
+        .statusCode(400);
+  }
+
+  @Test
+  public void testValuation() {
+    given()
+        .when()
+        .get("product/valuation?top=2")
+        .then()
+        .statusCode(200)
+        .body("bands.size()", equalTo(6))
+        .body("top.size()", lessThanOrEqualTo(2));
+    given().when().get("product/valuation?top=101").then().statusCode(400);
+  }
+
+  @Test
+  public void testSnapshotServesWholeFileAndRanges() {
+    ProductSnapshot snapshot = productSnapshots.write();
+
+    byte[] whole =
+        given()
+            .when()
+            .get("product/snapshot")
+            .then()
+            .statusCode(200)
+            .header("Accept-Ranges", equalTo("bytes"))
+            .extract()
+            .asByteArray();
+    assertEquals(snapshot.size(), whole.length);
+    assertEquals("PSNP", new String(whole, 0, 4, StandardCharsets.US_ASCII));
+
+    String etag = "\"" + snapshot.tag() + "\"";
+    byte[] tail =
+        given()
+            .header("Range", "bytes=4-")
+            .header("If-Range", etag)
+            .when()
+            .get("product/snapshot")
+            .then()
+            .statusCode(206)
+            .header("Content-Range", equalTo("bytes 4-" + (whole.length - 1) + "/" + whole.length))
+            .extract()
+            .asByteArray();
+    assertArrayEquals(Arrays.copyOfRange(whole, 4, whole.length), tail);
+
+    given()
+        .header("Range", "bytes=" + whole.length + "-")
+        .when()
+        .get("product/snapshot")
+        .then()
+        .statusCode(416);
+    given().header("If-None-Match", etag).when().get("product/snapshot").then().statusCode(304);
+  }
 }
@@ -0,0 +1,106 @@
+package com.fulfilment.application.monolith.products;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ProductImportReaderTest {
+
+  @Test
+  void csv_readsColumnsByHeaderAndQuotedFields() throws Exception {
+    ProductImportReader reader =
+        reader(
+            ProductImportReader.Format.CSV,
+            "stock,name,price,description\n"
+                + "\n"
+                + "5,LACK,9.99,\"Side table, \"\"white\"\"\"\n"
+                + ",BILLY,,\n");
+
+    ProductImportReader.Row lack = reader.next();
+    assertEquals(3, lack.line());
+    assertEquals("LACK", lack.product().name);
+    assertEquals("Side table, \"white\"", lack.product().description);
+    assertEquals(new BigDecimal("9.99"), lack.product().price);
+    assertEquals(5, lack.product().stock);
+
+    ProductImportReader.Row billy = reader.next();
+    assertEquals("BILLY", billy.product().name);
+    assertNull(billy.product().price);
+    assertNull(billy.product().description);
+    assertNull(reader.next());
+  }
+
+  @Test
+  void csv_badLines_areRowsWithAnError() throws Exception {
+    ProductImportReader reader =
+        reader(ProductImportReader.Format.CSV, "name,stock\nLACK\nBILLY,many\n\"OPEN,1\n");
+
+    assertEquals("Line has 1 fields, the header 2.", reader.next().error());
+    assertEquals("Stock is not a whole number.", reader.next().error());
+    assertEquals("Line has an unterminated quoted field.", reader.next().error());
+  }
+
+  @Test
+  void csv_unknownHeaderColumn_throws() {
+    ProductImportReader reader = reader(ProductImportReader.Format.CSV, "name,colour\nLACK,red\n");
+
+    assertThrows(IllegalArgumentException.class, reader::next);
+  }
+
+  @Test
+  void ndjson_readsOneProductPerLine() throws Exception {
+    ProductImportReader reader =
+        reader(
+            ProductImportReader.Format.NDJSON,
+            "{\"name\":\"LACK\",\"price\":9.99,\"stock\":5}\n"
+                + "not json\n"
+                + "{\"id\":7,\"name\":\"BILLY\"}\n");
+
+    ProductImportReader.Row lack = reader.next();
+    assertEquals("LACK", lack.product().name);
+    assertEquals(0, new BigDecimal("9.99").compareTo(lack.product().price));
+    assertEquals(5, lack.product().stock);
+    assertEquals("Line is not a JSON object.", reader.next().error());
+    assertEquals("Id was invalidly set on product.", reader.next().error());
+    assertNull(reader.next());
+  }
+
+  @Test
+  void next_skipsALineLongerThanTheLimitAndGoesOn() throws Exception {
+    ProductImportReader reader =
+        reader(
+            ProductImportReader.Format.CSV,
+            "name,stock\r\n"
+                + "x".repeat(ProductImportReader.MAX_LINE + 1)
+                + "\r\n"
+                + "LACK,5\r\n"
+                + "BILLY,2");
+
+    assertEquals(
+        "Line is longer than " + ProductImportReader.MAX_LINE + " characters.",
+        reader.next().error());
+    assertEquals("LACK", reader.next().product().name);
+    ProductImportReader.Row billy = reader.next();
+    assertEquals("BILLY", billy.product().name);
+    assertEquals(4, billy.line());
+    assertNull(reader.next());
+  }
+
+  @Test
+  void split_handlesEmptyAndQuotedFields() {
+    assertEquals(List.of("a", "", "b,c"), ProductImportReader.split("a,,\"b,c\""));
+    assertNull(ProductImportReader.split("\"a"));
+  }
+
+  private static ProductImportReader reader(ProductImportReader.Format format, String body) {
+    return new ProductImportReader(
+        new BufferedReader(new StringReader(body)), format, new ObjectMapper());
+  }
+}
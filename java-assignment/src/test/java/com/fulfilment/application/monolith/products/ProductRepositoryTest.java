@@ -3,6 +3,8 @@ package com.fulfilment.application.monolith.products;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import java.math.BigDecimal;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,4 +29,38 @@ class ProductRepositoryTest {
         Product found = productRepository.findById(p.id);
         assertEquals("TestRepo", found.name);
     }
+
+    @Test
+    @Transactional
+    void valuationAggregatesTotalsBandsAndTop() {
+        Product expensive = new Product("ValuationExpensive");
+        expensive.price = new BigDecimal("2000000.00");
+        expensive.stock = 3;
+        Product cheap = new Product("ValuationCheap");
+        cheap.price = new BigDecimal("5.00");
+        cheap.stock = 2;
+        productRepository.persist(expensive);
+        productRepository.persist(cheap);
+        productRepository.flush();
+
+        List<BigDecimal> bounds = List.of(new BigDecimal("10"), new BigDecimal("1000000"));
+        ProductValuation valuation = productRepository.valuation(bounds, 1);
+
+        assertEquals(3, valuation.bands().size());
+        assertNull(valuation.bands().get(0).from());
+        assertNull(valuation.bands().get(2).to());
+        assertTrue(valuation.bands().get(0).products() >= 1);
+        assertEquals(1, valuation.bands().get(2).products());
+        assertEquals(0, new BigDecimal("6000000").compareTo(valuation.bands().get(2).value()));
+        assertEquals(1, valuation.top().size());
+        assertEquals(expensive.id, valuation.top().get(0).id());
+
+        long banded = valuation.bands().stream().mapToLong(ProductValuation.Band::products).sum();
+        assertEquals(valuation.products(), banded + valuation.unpriced());
+        BigDecimal bandValue =
+            valuation.bands().stream()
+                .map(ProductValuation.Band::value)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, valuation.totalValue().compareTo(bandValue));
+    }
 }
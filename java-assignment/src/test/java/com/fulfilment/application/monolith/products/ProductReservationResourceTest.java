@@ -0,0 +1,222 @@
+package com.fulfilment.application.monolith.products;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+class ProductReservationResourceTest {
+
+  @Inject ProductReservations productReservations;
+  @Inject EntityManager entityManager;
+
+  @Test
+  void reserveCommitAndRelease_shouldTrackStockAndFlushCommittedUnits() {
+    int productId =
+        given()
+            .contentType("application/json")
+            .body("{\"name\":\"RESERVE-POANG\",\"stock\":5}")
+            .when()
+            .post("/product")
+            .then()
+            .statusCode(201)
+            .extract()
+            .path("id");
+
+    String reservationId =
+        given()
+            .contentType("application/json")
+            .body("{\"productId\":" + productId + ",\"quantity\":3}")
+            .when()
+            .post("/product/reservations")
+            .then()
+            .statusCode(201)
+            .body("expiresAt", notNullValue())
+            .extract()
+            .path("id");
+    given()
+        .contentType("application/json")
+        .body("{\"productId\":" + productId + ",\"quantity\":3}")
+        .when()
+        .post("/product/reservations")
+        .then()
+        .statusCode(409);
+
+    given()
+        .contentType("application/json")
+        .when()
+        .post("/product/reservations/" + reservationId + "/commit")
+        .then()
+        .statusCode(200)
+        .body("quantity", equalTo(3));
+    productReservations.flush();
+    given().when().get("/product/" + productId).then().statusCode(200).body("stock", equalTo(2));
+
+    String released =
+        given()
+            .contentType("application/json")
+            .body("{\"productId\":" + productId + ",\"quantity\":2}")
+            .when()
+            .post("/product/reservations")
+            .then()
+            .statusCode(201)
+            .extract()
+            .path("id");
+    given().when().delete("/product/reservations/" + released).then().statusCode(204);
+    given().when().delete("/product/reservations/" + released).then().statusCode(404);
+    given()
+        .when()
+        .get("/product/reservations/availability/" + productId)
+        .then()
+        .statusCode(200)
+        .body("available", equalTo(2));
+  }
+
+  @Test
+  void reserve_stockClaimedByAnotherInstance_shouldBeRejected() {
+    int productId =
+        given()
+            .contentType("application/json")
+            .body("{\"name\":\"RESERVE-EKTORP\",\"stock\":4}")
+            .when()
+            .post("/product")
+            .then()
+            .statusCode(201)
+            .extract()
+            .path("id");
+    // as another pod does when it claims a block
+    QuarkusTransaction.requiringNew()
+        .run(
+            () ->
+                entityManager
+                    .createQuery("update Product p set p.claimed = 3 where p.id = ?1")
+                    .setParameter(1, (long) productId)
+                    .executeUpdate());
+
+    given()
+        .contentType("application/json")
+        .body("{\"productId\":" + productId + ",\"quantity\":2}")
+        .when()
+        .post("/product/reservations")
+        .then()
+        .statusCode(409);
+    given()
+        .contentType("application/json")
+        .body("{\"productId\":" + productId + ",\"quantity\":1}")
+        .when()
+        .post("/product/reservations")
+        .then()
+        .statusCode(201);
+    given()
+        .when()
+        .get("/product/reservations/availability/" + productId)
+        .then()
+        .statusCode(200)
+        .body("available", equalTo(0));
+  }
+
+  @Test
+  void productUpdate_shouldNotUndoAnotherInstancesClaim() {
+    int productId =
+        given()
+            .contentType("application/json")
+            .body("{\"name\":\"RESERVE-BILLY\",\"stock\":4}")
+            .when()
+            .post("/product")
+            .then()
+            .statusCode(201)
+            .extract()
+            .path("id");
+    // the cached product still has nothing claimed
+    given().when().get("/product/" + productId).then().statusCode(200);
+    QuarkusTransaction.requiringNew()
+        .run(
+            () ->
+                entityManager
+                    .createQuery("update Product p set p.claimed = 3 where p.id = ?1")
+                    .setParameter(1, (long) productId)
+                    .executeUpdate());
+
+    given()
+        .contentType("application/json")
+        .body("{\"name\":\"RESERVE-BILLY\",\"stock\":6}")
+        .when()
+        .put("/product/" + productId)
+        .then()
+        .statusCode(200);
+
+    assertEquals(3, claimed(productId));
+  }
+
+  @Test
+  void reclaim_expiredLease_shouldGiveTheClaimedUnitsBack() {
+    int productId =
+        given()
+            .contentType("application/json")
+            .body("{\"name\":\"RESERVE-HEMNES\",\"stock\":5}")
+            .when()
+            .post("/product")
+            .then()
+            .statusCode(201)
+            .extract()
+            .path("id");
+    // as a pod that claimed a block and died
+    QuarkusTransaction.requiringNew()
+        .run(
+            () -> {
+              entityManager
+                  .createQuery("update Product p set p.claimed = 4 where p.id = ?1")
+                  .setParameter(1, (long) productId)
+                  .executeUpdate();
+              entityManager.persist(
+                  new ProductClaimLease("dead-instance", Instant.now().minusSeconds(60)));
+              entityManager.persist(new ProductClaim("dead-instance", (long) productId, 4));
+            });
+
+    productReservations.reclaim();
+
+    assertEquals(0, claimed(productId));
+    given()
+        .when()
+        .get("/product/reservations/availability/" + productId)
+        .then()
+        .statusCode(200)
+        .body("available", equalTo(5));
+  }
+
+  @Test
+  void reserve_unknownProductOrBadQuantity_shouldBeRejected() {
+    given()
+        .contentType("application/json")
+        .body("{\"productId\":99999,\"quantity\":1}")
+        .when()
+        .post("/product/reservations")
+        .then()
+        .statusCode(404);
+    given()
+        .contentType("application/json")
+        .body("{\"productId\":2,\"quantity\":0}")
+        .when()
+        .post("/product/reservations")
+        .then()
+        .statusCode(422);
+  }
+
+  private int claimed(int productId) {
+    return QuarkusTransaction.requiringNew()
+        .call(
+            () ->
+                entityManager
+                    .createQuery("select p.claimed from Product p where p.id = ?1", Integer.class)
+                    .setParameter(1, (long) productId)
+                    .getSingleResult());
+  }
+}
@@ -0,0 +1,161 @@
+package com.fulfilment.application.monolith.products;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ProductReservationsTest {
+
+  private static final Instant NOW = Instant.parse("2024-07-01T10:00:00Z");
+
+  @Test
+  void reserve_takesFromAvailableStockUntilItRunsOut() {
+    ProductReservations reservations = reservations(NOW);
+
+    assertNotNull(reservations.reserve(1L, 6));
+    assertThrows(IllegalStateException.class, () -> reservations.reserve(1L, 5));
+    assertEquals(4, reservations.available(1L));
+    assertNull(reservations.reserve(99L, 1));
+  }
+
+  @Test
+  void release_givesTheStockBackOnce() {
+    ProductReservations reservations = reservations(NOW);
+    Reservation reservation = reservations.reserve(1L, 6);
+
+    assertNotNull(reservations.release(reservation.id()));
+    assertNull(reservations.release(reservation.id()));
+    assertNull(reservations.commit(reservation.id()));
+    assertEquals(10, reservations.available(1L));
+  }
+
+  @Test
+  void expire_releasesReservationsPastTheirTtl() {
+    ProductReservations reservations = reservations(NOW);
+    Reservation reservation = reservations.reserve(1L, 6);
+
+    reservations.clock = Clock.fixed(NOW.plus(Duration.ofMinutes(11)), ZoneOffset.UTC);
+    reservations.expire();
+
+    assertEquals(0, reservations.held());
+    assertEquals(10, reservations.available(1L));
+    assertNull(reservations.commit(reservation.id()));
+  }
+
+  @Test
+  void reserve_onTwoInstances_neverHandsOutTheSameUnits() {
+    Product row = row(10);
+    ProductReservations first = reservations(NOW, row);
+    ProductReservations second = reservations(NOW, row);
+
+    // the first claims a block of 8
+    assertNotNull(first.reserve(1L, 6));
+    assertThrows(IllegalStateException.class, () -> second.reserve(1L, 3));
+    assertNotNull(second.reserve(1L, 2));
+    assertNotNull(first.reserve(1L, 2));
+    assertThrows(IllegalStateException.class, () -> first.reserve(1L, 1));
+    assertThrows(IllegalStateException.class, () -> second.reserve(1L, 1));
+    assertEquals(10, row.claimed);
+  }
+
+  @Test
+  void reserve_claimsABlockAndServesTheNextReservationsFromIt() {
+    Product row = row(100);
+    ProductReservations reservations = reservations(NOW, row);
+
+    reservations.reserve(1L, 2);
+    reservations.reserve(1L, 3);
+
+    assertEquals(8, row.claimed);
+    assertEquals(95, reservations.available(1L));
+  }
+
+  @Test
+  void flush_writesCommittedUnitsAndGivesTheFreeOnesBack() {
+    Product row = row(10);
+    ProductReservations first = reservations(NOW, row);
+    ProductReservations second = reservations(NOW, row);
+    first.commit(first.reserve(1L, 5).id());
+    first.reserve(1L, 1);
+
+    first.flush();
+
+    assertEquals(5, row.stock);
+    assertEquals(1, row.claimed);
+    assertNotNull(second.reserve(1L, 4));
+    assertThrows(IllegalStateException.class, () -> second.reserve(1L, 1));
+  }
+
+  @Test
+  void productUpdate_newStockIsClaimable() {
+    Product row = row(10);
+    ProductReservations reservations = reservations(NOW, row);
+    reservations.reserve(1L, 10);
+
+    row.stock = 15;
+
+    assertNotNull(reservations.reserve(1L, 5));
+    assertThrows(IllegalStateException.class, () -> reservations.reserve(1L, 1));
+  }
+
+  private static ProductReservations reservations(Instant now) {
+    return reservations(now, row(10));
+  }
+
+  // instances sharing a row behave like pods sharing the product table
+  private static ProductReservations reservations(Instant now, Product row) {
+    ProductReservations reservations =
+        new ProductReservations() {
+          @Override
+          int claim(Long productId, int minimum, int wanted) {
+            synchronized (row) {
+              return productId.equals(row.id) ? claimFrom(row, minimum, wanted) : 0;
+            }
+          }
+
+          @Override
+          void settle(Map<Long, Settlement> settlements) {
+            synchronized (row) {
+              Settlement settlement = settlements.get(row.id);
+              if (settlement != null) {
+                settlement.applyTo(row, row.claimed);
+              }
+            }
+          }
+
+          @Override
+          Long unclaimed(Long productId) {
+            synchronized (row) {
+              return productId.equals(row.id) ? (long) (row.stock - row.claimed) : null;
+            }
+          }
+        };
+    reservations.productRepository =
+        new ProductRepository() {
+          @Override
+          public Product findById(Long id) {
+            return id.equals(row.id) ? row : null;
+          }
+        };
+    reservations.ttl = Duration.ofMinutes(10);
+    reservations.stripes = 4;
+    reservations.claimSize = 8;
+    reservations.clock = Clock.fixed(now, ZoneOffset.UTC);
+    return reservations;
+  }
+
+  private static Product row(int stock) {
+    Product product = new Product("LACK");
+    product.id = 1L;
+    product.stock = stock;
+    return product;
+  }
+}
@@ -0,0 +1,125 @@
+package com.fulfilment.application.monolith.products;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+class ProductSearchIndexTest {
+
+  @Test
+  void search_matchesWordPrefixesOfNameAndDescription() {
+    ProductSearchIndex index = new ProductSearchIndex();
+    index.index(1L, "KALLAX", "Shelving unit, white");
+    index.index(2L, "BILLY", "Bookcase, white");
+    index.index(3L, "KALLAX insert", "Door for shelving unit");
+
+    assertEquals(List.of(1L, 3L), index.search("kal", 10));
+    assertEquals(List.of(1L, 2L), index.search("WHITE", 10));
+    assertEquals(List.of(1L), index.search("shelv whi", 10));
+    assertTrue(index.search("kallax bookcase", 10).isEmpty());
+    assertTrue(index.search("sofa", 10).isEmpty());
+  }
+
+  @Test
+  void search_stopsAtTheLimitInIdOrder() {
+    ProductSearchIndex index = new ProductSearchIndex();
+    for (long id = 50; id >= 1; id--) {
+      index.index(id, "LACK " + id, "table");
+    }
+
+    assertEquals(List.of(1L, 2L, 3L), index.search("lack ta", 3));
+  }
+
+  @Test
+  void index_replacesTheWordsOfAnUpdatedProduct() {
+    ProductSearchIndex index = new ProductSearchIndex();
+    index.index(1L, "LACK", "White table");
+
+    index.index(1L, "LACK", "Black table");
+
+    assertTrue(index.search("white", 10).isEmpty());
+    assertEquals(List.of(1L), index.search("black", 10));
+    assertEquals(1, index.size());
+  }
+
+  @Test
+  void poll_picksUpTheWritesOfOtherReplicasOnce() {
+    // change id -> product id, as in the product_change table
+    Map<Long, Long> changes = new TreeMap<>();
+    Map<Long, String> names = new HashMap<>();
+    List<Long> refreshed = new ArrayList<>();
+    ProductSearchIndex index =
+        new ProductSearchIndex() {
+          @Override
+          List<Object[]> changedAfter(long after, List<Long> missing) {
+            List<Object[]> rows = new ArrayList<>();
+            changes.forEach(
+                (id, productId) -> {
+                  if (id > after || missing.contains(id)) {
+                    rows.add(new Object[] {id, productId});
+                  }
+                });
+            return rows;
+          }
+
+          @Override
+          void refresh(Collection<Long> productIds) {
+            for (Long productId : productIds) {
+              refreshed.add(productId);
+              String name = names.get(productId);
+              if (name == null) {
+                remove(productId);
+              } else {
+                index(productId, name, null);
+              }
+            }
+          }
+        };
+    index.commitWindow = Duration.ofSeconds(10);
+    index.index(1L, "LACK", null);
+
+    names.put(2L, "BILLY");
+    changes.put(1L, 2L);
+    changes.put(3L, 1L);
+    names.remove(1L);
+    index.poll();
+    // committed late, with an id below one already applied
+    names.put(4L, "KALLAX");
+    changes.put(2L, 4L);
+    index.poll();
+    index.poll();
+
+    assertEquals(List.of(2L), index.search("billy", 10));
+    assertEquals(List.of(4L), index.search("kallax", 10));
+    assertTrue(index.search("lack", 10).isEmpty());
+    assertEquals(List.of(2L, 1L, 4L), refreshed);
+  }
+
+  @Test
+  void remove_takesTheProductOutOfEveryWord() {
+    ProductSearchIndex index = new ProductSearchIndex();
+    index.index(1L, "LACK", "table");
+    index.index(2L, "LACK", "shelf");
+
+    index.remove(1L);
+
+    assertEquals(List.of(2L), index.search("lack", 10));
+    assertTrue(index.search("table", 10).isEmpty());
+    assertEquals(1, index.size());
+  }
+
+  @Test
+  void tokenize_lowerCasesAndStripsAccents() {
+    assertEquals(List.of("besta", "tv", "bench"), ProductSearchIndex.tokenize("BESTÅ TV-bench"));
+    assertTrue(ProductSearchIndex.tokenize("  ,. ").isEmpty());
+    assertTrue(ProductSearchIndex.tokenize(null).isEmpty());
+  }
+}
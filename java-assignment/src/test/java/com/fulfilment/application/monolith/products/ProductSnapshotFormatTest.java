@@ -0,0 +1,96 @@
+package com.fulfilment.application.monolith.products;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProductSnapshotFormatTest {
+
+  private static final long WRITTEN_AT = 1_720_000_000_000L;
+
+  @TempDir Path directory;
+
+  @Test
+  void read_returnsTheRowsWrittenAndTheirSummary() throws IOException {
+    List<ProductSnapshotRow> rows =
+        List.of(
+            new ProductSnapshotRow(1L, "TONSTAD", null, new BigDecimal("129.90"), 10),
+            new ProductSnapshotRow(2L, "BESTÅ", "TV bench, \"white\"", null, 0),
+            new ProductSnapshotRow(3L, "KALLAX", "", new BigDecimal("5"), 3));
+    Path file = directory.resolve("catalog.snapshot");
+
+    ProductSnapshot written = write(file, rows);
+    List<ProductSnapshotRow> read = new ArrayList<>();
+    ProductSnapshot verified = ProductSnapshotFormat.read(file, WRITTEN_AT, read::add);
+
+    assertEquals(3, written.products());
+    assertEquals(Files.size(file), written.size());
+    assertEquals(written, verified);
+    assertEquals(rows.get(0), read.get(0));
+    assertEquals(rows.get(1), read.get(1));
+    assertEquals(0, new BigDecimal("5").compareTo(read.get(2).price()));
+  }
+
+  @Test
+  void write_sameRowsAtAnotherTime_givesTheSameBytesAndTag() throws IOException {
+    List<ProductSnapshotRow> rows =
+        List.of(new ProductSnapshotRow(1L, "TONSTAD", null, new BigDecimal("129.90"), 10));
+    Path first = directory.resolve("first.snapshot");
+    Path second = directory.resolve("second.snapshot");
+
+    ProductSnapshot written = write(first, WRITTEN_AT, rows);
+    ProductSnapshot rewritten = write(second, WRITTEN_AT + 60_000, rows);
+
+    assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+    assertEquals(written.tag(), rewritten.tag());
+  }
+
+  @Test
+  void read_corruptedFile_throws() throws IOException {
+    Path file = directory.resolve("catalog.snapshot");
+    write(file, List.of(new ProductSnapshotRow(1L, "TONSTAD", null, null, 10)));
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {'X'}), 30);
+    }
+
+    assertThrows(IOException.class, () -> ProductSnapshotFormat.read(file, WRITTEN_AT, row -> {}));
+  }
+
+  @Test
+  void read_truncatedFile_throws() throws IOException {
+    Path file = directory.resolve("catalog.snapshot");
+    write(file, List.of(new ProductSnapshotRow(1L, "TONSTAD", null, null, 10)));
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 6);
+    }
+
+    assertThrows(IOException.class, () -> ProductSnapshotFormat.read(file, WRITTEN_AT, row -> {}));
+  }
+
+  private static ProductSnapshot write(Path file, List<ProductSnapshotRow> rows)
+      throws IOException {
+    return write(file, WRITTEN_AT, rows);
+  }
+
+  private static ProductSnapshot write(Path file, long writtenAt, List<ProductSnapshotRow> rows)
+      throws IOException {
+    try (var writer = new ProductSnapshotFormat.Writer(file, writtenAt)) {
+      for (ProductSnapshotRow row : rows) {
+        writer.write(row);
+      }
+      return writer.finish();
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.fulfilment.application.monolith.products;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class StripedStockTest {
+
+  @Test
+  void take_gathersStripesWhenNoneCoversTheQuantityAlone() {
+    StripedStock stock = new StripedStock(4, 10);
+
+    assertTrue(stock.take(9));
+    assertEquals(1, stock.available());
+    assertFalse(stock.take(2));
+    assertEquals(1, stock.available());
+  }
+
+  @Test
+  void add_negativeQuantity_canTakeTheStockBelowZero() {
+    StripedStock stock = new StripedStock(4, 3);
+
+    stock.add(-5);
+
+    assertEquals(-2, stock.available());
+    assertFalse(stock.take(1));
+    stock.add(3);
+    assertTrue(stock.take(1));
+    assertEquals(0, stock.available());
+  }
+
+  @Test
+  void take_concurrently_neverOversells() throws Exception {
+    StripedStock stock = new StripedStock(8, 10_000);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Integer>> takers = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        takers.add(
+            executor.submit(
+                () -> {
+                  int taken = 0;
+                  for (int i = 0; i < 2_000; i++) {
+                    if (stock.take(1)) {
+                      taken++;
+                    }
+                  }
+                  return taken;
+                }));
+      }
+      int taken = 0;
+      for (Future<Integer> taker : takers) {
+        taken += taker.get();
+      }
+
+      assertEquals(10_000, taken);
+      assertEquals(0, stock.available());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package com.fulfilment.application.monolith.stores;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimitTest {
+
+  private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long SLOW = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  void acquire_beyondTheLimitWithoutWaiting_rejects() {
+    var limit = new AdaptiveConcurrencyLimit(2, 1, 10, TARGET, 0.5, 0, 0);
+
+    limit.acquire();
+    limit.acquire();
+
+    assertThrows(RejectedExecutionException.class, limit::acquire);
+    assertEquals(1, limit.rejected());
+    assertEquals(2, limit.inFlight());
+  }
+
+  @Test
+  void release_slowCalls_shrinkTheLimitDownToTheMinimum() {
+    var limit = new AdaptiveConcurrencyLimit(8, 2, 10, TARGET, 0.5, 0, 0);
+
+    for (int i = 0; i < 5; i++) {
+      limit.acquire();
+      limit.release(SLOW, true);
+    }
+
+    assertEquals(2, limit.limit());
+  }
+
+  @Test
+  void release_failedCalls_shrinkTheLimit() {
+    var limit = new AdaptiveConcurrencyLimit(8, 1, 10, TARGET, 0.5, 0, 0);
+
+    limit.acquire();
+    limit.release(FAST, false);
+
+    assertEquals(4, limit.limit());
+  }
+
+  @Test
+  void release_fastCallsAtTheLimit_growItUpToTheBulkhead() {
+    var limit = new AdaptiveConcurrencyLimit(2, 1, 4, TARGET, 0.5, 0, 0);
+
+    for (int round = 0; round < 50; round++) {
+      int admitted = limit.limit();
+      for (int i = 0; i < admitted; i++) {
+        limit.acquire();
+      }
+      for (int i = 0; i < admitted; i++) {
+        limit.release(FAST, true);
+      }
+    }
+
+    assertEquals(4, limit.limit());
+  }
+
+  @Test
+  void release_fastCallsWellBelowTheLimit_doNotGrowIt() {
+    var limit = new AdaptiveConcurrencyLimit(8, 1, 32, TARGET, 0.5, 0, 0);
+
+    for (int i = 0; i < 100; i++) {
+      limit.acquire();
+      limit.release(FAST, true);
+    }
+
+    assertEquals(8, limit.limit());
+  }
+
+  @Test
+  void acquire_waitsForARelease() throws Exception {
+    var limit = new AdaptiveConcurrencyLimit(1, 1, 1, TARGET, 0.5, 1, TimeUnit.SECONDS.toNanos(5));
+    limit.acquire();
+    CountDownLatch admitted = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> waiter =
+          executor.submit(
+              () -> {
+                limit.acquire();
+                admitted.countDown();
+              });
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+      while (limit.waiting() == 0 && System.nanoTime() < deadline) {
+        Thread.sleep(5);
+      }
+      assertEquals(1, limit.waiting());
+      // only one caller may wait, the next is turned away at once
+      assertThrows(RejectedExecutionException.class, limit::acquire);
+
+      limit.release(FAST, true);
+
+      assertTrue(admitted.await(2, TimeUnit.SECONDS));
+      waiter.get(2, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void acquire_waitingPastMaxWait_rejects() {
+    var limit = new AdaptiveConcurrencyLimit(1, 1, 1, TARGET, 0.5, 1, FAST);
+    limit.acquire();
+
+    assertThrows(RejectedExecutionException.class, limit::acquire);
+    assertEquals(0, limit.waiting());
+  }
+}
@@ -0,0 +1,139 @@
+package com.fulfilment.application.monolith.stores;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+  private static final long OPEN_NANOS = 1_000;
+
+  private final AtomicLong clock = new AtomicLong();
+  private final CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.5, OPEN_NANOS, clock::get);
+
+  @Test
+  void record_failuresBelowTheRatio_keepItClosed() {
+    call(true);
+    call(true);
+    call(true);
+    call(false);
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+  }
+
+  @Test
+  void record_failuresReachingTheRatio_openIt() {
+    call(true);
+    call(false);
+    call(true);
+    call(false);
+
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    assertEquals(1, breaker.opened());
+    assertThrows(RejectedExecutionException.class, breaker::acquire);
+  }
+
+  @Test
+  void record_beforeMinCalls_neverOpens() {
+    call(false);
+    call(false);
+    call(false);
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+  }
+
+  @Test
+  void record_oldOutcomesLeaveTheWindow() {
+    call(false);
+    call(true);
+    call(true);
+    call(true);
+    call(false);
+
+    // the first failure has slid out, leaving one in four
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+  }
+
+  @Test
+  void acquire_afterOpenDuration_letsOneTrialThrough() {
+    open();
+    clock.addAndGet(OPEN_NANOS);
+
+    long trial = breaker.acquire();
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    assertThrows(RejectedExecutionException.class, breaker::acquire);
+
+    breaker.record(trial, true);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    call(false);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+  }
+
+  @Test
+  void record_failedTrial_opensAgain() {
+    open();
+    clock.addAndGet(OPEN_NANOS);
+
+    breaker.record(breaker.acquire(), false);
+
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    assertEquals(2, breaker.opened());
+  }
+
+  @Test
+  void record_whileHalfOpen_countsOnlyTheTrial() {
+    long straggler = breaker.acquire();
+    open();
+    clock.addAndGet(OPEN_NANOS);
+    long trial = breaker.acquire();
+
+    // a call from before the circuit opened completes during the trial
+    breaker.record(straggler, true);
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    breaker.cancel(straggler);
+    assertThrows(RejectedExecutionException.class, breaker::acquire);
+
+    breaker.record(trial, false);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+  }
+
+  @Test
+  void record_callsFromBeforeTheCircuitClosed_doNotCount() {
+    long straggler = breaker.acquire();
+    open();
+    clock.addAndGet(OPEN_NANOS);
+    breaker.record(breaker.acquire(), true);
+
+    for (int i = 0; i < 4; i++) {
+      breaker.record(straggler, false);
+    }
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+  }
+
+  @Test
+  void cancel_freesTheTrialSlot() {
+    open();
+    clock.addAndGet(OPEN_NANOS);
+    long trial = breaker.acquire();
+
+    breaker.cancel(trial);
+
+    assertDoesNotThrow(breaker::acquire);
+  }
+
+  private void open() {
+    for (int i = 0; i < 4; i++) {
+      call(false);
+    }
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+  }
+
+  private void call(boolean succeeded) {
+    breaker.record(breaker.acquire(), succeeded);
+  }
+}
@@ -0,0 +1,209 @@
+package com.fulfilment.application.monolith.stores;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LegacyStoreJournalTest {
+
+  @TempDir Path directory;
+
+  @Test
+  void append_recordsAreReadBackInOrder() throws Exception {
+    try (var journal = new LegacyStoreJournal(directory, 1024)) {
+      assertEquals(1, journal.append(bytes("first")));
+      assertEquals(2, journal.append(bytes("second")));
+    }
+
+    List<byte[]> records = LegacyStoreJournal.readAll(directory);
+    assertEquals(2, records.size());
+    assertArrayEquals(bytes("first"), records.get(0));
+    assertArrayEquals(bytes("second"), records.get(1));
+  }
+
+  @Test
+  void append_rotatesSegmentsAtTheSegmentSize() throws Exception {
+    try (var journal = new LegacyStoreJournal(directory, 64)) {
+      for (int i = 0; i < 10; i++) {
+        journal.append(bytes("record-" + i + "-padding"));
+      }
+    }
+
+    assertTrue(segmentCount() > 1);
+    List<byte[]> records = LegacyStoreJournal.readAll(directory);
+    assertEquals(10, records.size());
+    assertArrayEquals(bytes("record-9-padding"), records.get(9));
+  }
+
+  @Test
+  void append_recordLargerThanSegment_isRejected() throws Exception {
+    try (var journal = new LegacyStoreJournal(directory, 16)) {
+      assertThrows(IllegalArgumentException.class, () -> journal.append(new byte[32]));
+    }
+  }
+
+  @Test
+  void reopen_startsANewSegmentAndSkipsATornTail() throws Exception {
+    try (var journal = new LegacyStoreJournal(directory, 1024)) {
+      journal.append(bytes("before-crash"));
+    }
+    Path firstSegment;
+    try (Stream<Path> files = Files.list(directory)) {
+      firstSegment = files.sorted().findFirst().orElseThrow();
+    }
+    // a header promising more bytes than were written
+    Files.write(firstSegment, new byte[] {0, 0, 0, 50, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+    try (var journal = new LegacyStoreJournal(directory, 1024)) {
+      journal.append(bytes("after-restart"));
+    }
+
+    assertEquals(2, segmentCount());
+    List<byte[]> records = LegacyStoreJournal.readAll(directory);
+    assertEquals(2, records.size());
+    assertArrayEquals(bytes("after-restart"), records.get(1));
+  }
+
+  @Test
+  void concurrentAppends_shareFsyncs() throws Exception {
+    int threads = 8;
+    int perThread = 200;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    try (var journal = new LegacyStoreJournal(directory, 4096)) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  for (int i = 0; i < perThread; i++) {
+                    journal.append(bytes(thread + ":" + i));
+                  }
+                  return null;
+                }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+      assertTrue(journal.syncs() <= threads * perThread);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Set<String> read = new HashSet<>();
+    for (byte[] record : LegacyStoreJournal.readAll(directory)) {
+      read.add(new String(record, StandardCharsets.UTF_8));
+    }
+    assertEquals(threads * perThread, read.size());
+  }
+
+  @Test
+  void replay_fromTheSegmentStartedForACheckpoint_readsOnlyTheTail() throws Exception {
+    long tail;
+    try (var journal = new LegacyStoreJournal(directory, 1024)) {
+      journal.append(bytes("before-checkpoint"));
+      tail = journal.startSegment();
+      // nothing appended since, so no further segment
+      assertEquals(tail, journal.startSegment());
+      journal.append(bytes("after-checkpoint"));
+    }
+
+    List<byte[]> records = new ArrayList<>();
+    assertEquals(1, LegacyStoreJournal.replay(directory, tail, records::add));
+    assertArrayEquals(bytes("after-checkpoint"), records.get(0));
+    assertEquals(2, LegacyStoreJournal.readAll(directory).size());
+  }
+
+  @Test
+  void snapshot_readLatestSkipsADamagedNewerSnapshot() throws Exception {
+    LegacyStoreSnapshot.write(directory, 3, Map.of(1L, 11L, 2L, 22L));
+    Path newer = LegacyStoreSnapshot.write(directory, 5, Map.of(1L, 12L));
+    byte[] content = Files.readAllBytes(newer);
+    content[content.length - 1] ^= 1;
+    Files.write(newer, content);
+
+    LegacyStoreSnapshot.Loaded loaded = LegacyStoreSnapshot.readLatest(directory);
+
+    assertEquals(3, loaded.segment());
+    assertEquals(Map.of(1L, 11L, 2L, 22L), loaded.hashes());
+  }
+
+  @Test
+  void deleteSegmentsBefore_dropsOnlyTheSegmentsASnapshotCovers() throws Exception {
+    try (var journal = new LegacyStoreJournal(directory, 1024)) {
+      journal.append(bytes("first"));
+      journal.startSegment();
+      journal.append(bytes("second"));
+      long third = journal.startSegment();
+      journal.append(bytes("third"));
+
+      assertEquals(2, journal.deleteSegmentsBefore(third));
+      // the segment appended to stays, whatever index is asked for
+      assertEquals(0, journal.deleteSegmentsBefore(third + 10));
+    }
+
+    List<byte[]> records = LegacyStoreJournal.readAll(directory);
+    assertEquals(1, records.size());
+    assertArrayEquals(bytes("third"), records.get(0));
+  }
+
+  @Test
+  void snapshot_pruneKeepsTheNewestAndReturnsTheSegmentTheyStartFrom() throws Exception {
+    LegacyStoreSnapshot.write(directory, 2, Map.of(1L, 1L));
+    LegacyStoreSnapshot.write(directory, 4, Map.of(1L, 2L));
+    LegacyStoreSnapshot.write(directory, 7, Map.of(1L, 3L));
+
+    assertEquals(4, LegacyStoreSnapshot.prune(directory));
+    assertEquals(LegacyStoreSnapshot.KEPT, LegacyStoreSnapshot.snapshots(directory).size());
+    assertEquals(7, LegacyStoreSnapshot.readLatest(directory).segment());
+  }
+
+  @Test
+  void snapshot_noneWritten_readsAsNull() throws Exception {
+    assertNull(LegacyStoreSnapshot.readLatest(directory));
+  }
+
+  @Test
+  void legacyStoreRecord_roundTrips() {
+    var record = new LegacyStoreRecord(StoreTransactionEvent.Type.UPDATED, 7L, "Zwolle \u00fc", 12);
+    assertEquals(record, LegacyStoreRecord.decode(record.encode()));
+
+    var unnamed = new LegacyStoreRecord(StoreTransactionEvent.Type.CREATED, null, null, 0);
+    LegacyStoreRecord decoded = LegacyStoreRecord.decode(unnamed.encode());
+    assertNull(decoded.storeId());
+    assertNull(decoded.name());
+  }
+
+  private long segmentCount() throws Exception {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -2,6 +2,8 @@ package com.fulfilment.application.monolith.stores;
 
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
+import java.nio.file.Path;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,4 +32,20 @@ class LegacyStoreManagerGatewayTest {
         s.quantityProductsInStock = 7;
         assertDoesNotThrow(() -> gateway.updateStoreOnLegacySystem(s));
     }
+
+    @Test
+    void changesAreJournaled() throws Exception {
+        Store s = new Store("LegacyJournaled");
+        s.id = 4242L;
+        s.quantityProductsInStock = 9;
+        gateway.updateStoreOnLegacySystem(s);
+
+        Path journal = Path.of("target/legacy-store-journal");
+        List<LegacyStoreRecord> records = LegacyStoreJournal.readAll(journal)
+                .stream()
+                .map(LegacyStoreRecord::decode)
+                .toList();
+        assertTrue(records.contains(
+                new LegacyStoreRecord(StoreTransactionEvent.Type.UPDATED, 4242L, "LegacyJournaled", 9)));
+    }
 }
@@ -0,0 +1,241 @@
+package com.fulfilment.application.monolith.stores;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class LegacySyncExecutorTest {
+
+  private final RecordingGateway gateway = new RecordingGateway();
+  private LegacySyncExecutor executor;
+
+  @AfterEach
+  void tearDown() {
+    gateway.release.countDown();
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void submit_deliversChangesOfAStoreInOrder() throws Exception {
+    executor = executor(10, 2, LegacySyncExecutor.Backpressure.REJECT);
+    gateway.release.countDown();
+
+    for (int i = 0; i < 5; i++) {
+      StoreTransactionEvent event = event(1L, "S-" + i, StoreTransactionEvent.Type.UPDATED);
+      executor.reserve(event);
+      executor.submit(event);
+    }
+
+    gateway.awaitLastDelivered("S-4");
+    // updates still queued when the next one arrives are merged, so some may be skipped
+    assertEquals(5, gateway.delivered.size() + executor.coalesced());
+    assertEquals(gateway.delivered.stream().sorted().toList(), gateway.delivered);
+  }
+
+  @Test
+  void submit_mergesUpdatesQueuedForTheSameStore() throws Exception {
+    executor = executor(10, 1, LegacySyncExecutor.Backpressure.REJECT);
+    StoreTransactionEvent first = event(1L, "FIRST", StoreTransactionEvent.Type.CREATED);
+    executor.reserve(first);
+    executor.submit(first);
+    gateway.started.await(2, TimeUnit.SECONDS);
+
+    for (int i = 1; i <= 3; i++) {
+      StoreTransactionEvent update = event(1L, "U" + i, StoreTransactionEvent.Type.UPDATED);
+      executor.reserve(update);
+      executor.submit(update);
+    }
+    assertEquals(1, executor.queued());
+    gateway.release.countDown();
+
+    gateway.awaitDelivered(2);
+    assertEquals(List.of("FIRST", "U3"), gateway.delivered);
+    assertEquals(2, executor.coalesced());
+  }
+
+  @Test
+  void reserve_reject_failsWhenTheStripeIsFull() throws Exception {
+    executor = executor(1, 1, LegacySyncExecutor.Backpressure.REJECT);
+    StoreTransactionEvent first = event(1L, "FIRST", StoreTransactionEvent.Type.CREATED);
+    executor.reserve(first);
+    executor.submit(first);
+    gateway.started.await(2, TimeUnit.SECONDS);
+
+    StoreTransactionEvent queued = event(1L, "QUEUED", StoreTransactionEvent.Type.UPDATED);
+    executor.reserve(queued);
+    executor.submit(queued);
+
+    assertThrows(
+        RejectedExecutionException.class,
+        () -> executor.reserve(event(1L, "REJECTED", StoreTransactionEvent.Type.UPDATED)));
+  }
+
+  @Test
+  void cancel_returnsTheReservedSlot() {
+    executor = executor(1, 1, LegacySyncExecutor.Backpressure.REJECT);
+    StoreTransactionEvent rolledBack = event(1L, "ROLLED-BACK", StoreTransactionEvent.Type.CREATED);
+    executor.reserve(rolledBack);
+
+    executor.cancel(rolledBack);
+
+    assertDoesNotThrow(
+        () -> executor.reserve(event(1L, "NEXT", StoreTransactionEvent.Type.CREATED)));
+  }
+
+  @Test
+  void acquire_block_rejectsAfterTheTimeout() throws Exception {
+    executor = executor(1, 1, LegacySyncExecutor.Backpressure.BLOCK);
+    executor.blockTimeout = Duration.ofMillis(50);
+    assertNotNull(executor.acquire(1L));
+
+    long started = System.nanoTime();
+    assertThrows(RejectedExecutionException.class, () -> executor.acquire(1L));
+    assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(40));
+  }
+
+  @Test
+  void reserve_block_takesOverTheAcquiredSlotAndNeverWaits() throws Exception {
+    executor = executor(1, 1, LegacySyncExecutor.Backpressure.BLOCK);
+    LegacySyncExecutor.Slot slot = executor.acquire(1L);
+    StoreTransactionEvent held = event(1L, "HELD", StoreTransactionEvent.Type.UPDATED);
+    executor.reserve(held, slot);
+    // taken over, so releasing it after the transaction gives nothing back
+    slot.release();
+
+    long started = System.nanoTime();
+    assertThrows(
+        RejectedExecutionException.class,
+        () -> executor.reserve(event(1L, "WAITING", StoreTransactionEvent.Type.UPDATED)));
+    assertTrue(System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(500));
+
+    executor.cancel(held);
+    assertNotNull(executor.acquire(1L));
+  }
+
+  @Test
+  void submit_dropOldest_discardsTheOldestQueuedChange() throws Exception {
+    executor = executor(1, 1, LegacySyncExecutor.Backpressure.DROP_OLDEST);
+    executor.submit(event(1L, "IN-FLIGHT", StoreTransactionEvent.Type.CREATED));
+    gateway.started.await(2, TimeUnit.SECONDS);
+
+    executor.submit(event(2L, "STALE", StoreTransactionEvent.Type.UPDATED));
+    executor.submit(event(3L, "LATEST", StoreTransactionEvent.Type.UPDATED));
+    gateway.release.countDown();
+
+    gateway.awaitDelivered(2);
+    assertEquals(List.of("IN-FLIGHT", "LATEST"), gateway.delivered);
+    assertEquals(1, executor.dropped());
+  }
+
+  @Test
+  void submit_dropOldest_neverDropsACreate() throws Exception {
+    executor = executor(1, 1, LegacySyncExecutor.Backpressure.DROP_OLDEST);
+    executor.submit(event(1L, "IN-FLIGHT", StoreTransactionEvent.Type.CREATED));
+    gateway.started.await(2, TimeUnit.SECONDS);
+
+    executor.submit(event(2L, "CREATED", StoreTransactionEvent.Type.CREATED));
+    executor.submit(event(3L, "ALSO-CREATED", StoreTransactionEvent.Type.CREATED));
+    // folded into the queued create of its store
+    executor.submit(event(2L, "CREATED-THEN-UPDATED", StoreTransactionEvent.Type.UPDATED));
+    assertEquals(2, executor.queued());
+    gateway.release.countDown();
+
+    gateway.awaitDelivered(3);
+    assertEquals(
+        List.of("IN-FLIGHT", "CREATED-THEN-UPDATED", "ALSO-CREATED"), gateway.delivered);
+    assertEquals(0, executor.dropped());
+  }
+
+  @Test
+  void submit_snapshotsTheStore() throws Exception {
+    executor = executor(10, 1, LegacySyncExecutor.Backpressure.REJECT);
+    gateway.release.countDown();
+    StoreTransactionEvent event = event(1L, "ORIGINAL", StoreTransactionEvent.Type.CREATED);
+    executor.reserve(event);
+
+    executor.submit(event);
+    event.store.name = "CHANGED-LATER";
+
+    gateway.awaitDelivered(1);
+    assertEquals(List.of("ORIGINAL"), gateway.delivered);
+  }
+
+  @Test
+  void workerThreadFactory_createsThreads() {
+    Thread thread = LegacySyncExecutor.workerThreadFactory().newThread(() -> {});
+    assertNotNull(thread);
+    assertTrue(thread.getName().startsWith("legacy-sync-"));
+  }
+
+  private LegacySyncExecutor executor(
+      int capacity, int workers, LegacySyncExecutor.Backpressure backpressure) {
+    var created = new LegacySyncExecutor();
+    created.legacyStoreManagerGateway = gateway;
+    created.capacity = capacity;
+    created.workers = workers;
+    created.backpressure = backpressure;
+    created.blockTimeout = Duration.ofSeconds(2);
+    return created;
+  }
+
+  private static StoreTransactionEvent event(
+      Long storeId, String name, StoreTransactionEvent.Type type) {
+    Store store = new Store(name);
+    store.id = storeId;
+    return new StoreTransactionEvent(store, type);
+  }
+
+  private static final class RecordingGateway extends LegacyStoreManagerGateway {
+    final List<String> delivered = new CopyOnWriteArrayList<>();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public void createStoreOnLegacySystem(Store store) {
+      record(store);
+    }
+
+    @Override
+    public void updateStoreOnLegacySystem(Store store) {
+      record(store);
+    }
+
+    private void record(Store store) {
+      started.countDown();
+      try {
+        release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      delivered.add(store.name);
+    }
+
+    void awaitLastDelivered(String name) throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while ((delivered.isEmpty() || !name.equals(delivered.get(delivered.size() - 1)))
+          && System.nanoTime() < deadline) {
+        Thread.sleep(5);
+      }
+    }
+
+    void awaitDelivered(int count) throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (delivered.size() < count && System.nanoTime() < deadline) {
+        Thread.sleep(5);
+      }
+    }
+  }
+}
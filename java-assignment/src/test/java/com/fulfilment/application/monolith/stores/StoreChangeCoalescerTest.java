@@ -0,0 +1,86 @@
+package com.fulfilment.application.monolith.stores;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class StoreChangeCoalescerTest {
+
+  private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+  private static final Duration DEBOUNCE = Duration.ofMillis(100);
+  private static final Duration MAX_DELAY = Duration.ofSeconds(1);
+
+  @Test
+  void plan_collapsesARunOfUpdatesIntoTheLatest() {
+    StoreOutboxEvent u1 = event(StoreTransactionEvent.Type.UPDATED, 0);
+    StoreOutboxEvent u2 = event(StoreTransactionEvent.Type.UPDATED, 10);
+    StoreOutboxEvent u3 = event(StoreTransactionEvent.Type.UPDATED, 20);
+
+    var plan = StoreChangeCoalescer.plan(List.of(u1, u2, u3), at(1000), DEBOUNCE, MAX_DELAY);
+
+    assertNull(plan.heldUntil());
+    assertEquals(1, plan.steps().size());
+    assertSame(u3, plan.steps().get(0).deliver());
+    assertEquals(List.of(u1, u2), plan.steps().get(0).superseded());
+  }
+
+  @Test
+  void plan_neverMergesAcrossACreate() {
+    StoreOutboxEvent created = event(StoreTransactionEvent.Type.CREATED, 0);
+    StoreOutboxEvent u1 = event(StoreTransactionEvent.Type.UPDATED, 10);
+    StoreOutboxEvent u2 = event(StoreTransactionEvent.Type.UPDATED, 20);
+
+    var plan = StoreChangeCoalescer.plan(List.of(created, u1, u2), at(1000), DEBOUNCE, MAX_DELAY);
+
+    assertEquals(2, plan.steps().size());
+    assertSame(created, plan.steps().get(0).deliver());
+    assertTrue(plan.steps().get(0).superseded().isEmpty());
+    assertSame(u2, plan.steps().get(1).deliver());
+    assertEquals(List.of(u1), plan.steps().get(1).superseded());
+  }
+
+  @Test
+  void plan_holdsATrailingRunUntilTheDebounceHasPassed() {
+    StoreOutboxEvent created = event(StoreTransactionEvent.Type.CREATED, 0);
+    StoreOutboxEvent u1 = event(StoreTransactionEvent.Type.UPDATED, 10);
+    StoreOutboxEvent u2 = event(StoreTransactionEvent.Type.UPDATED, 50);
+
+    var plan = StoreChangeCoalescer.plan(List.of(created, u1, u2), at(60), DEBOUNCE, MAX_DELAY);
+
+    assertEquals(1, plan.steps().size());
+    assertSame(created, plan.steps().get(0).deliver());
+    assertEquals(at(150), plan.heldUntil());
+  }
+
+  @Test
+  void plan_releasesAStillGrowingRunAfterTheMaximumDelay() {
+    StoreOutboxEvent first = event(StoreTransactionEvent.Type.UPDATED, 0);
+    StoreOutboxEvent latest = event(StoreTransactionEvent.Type.UPDATED, 990);
+
+    var held = StoreChangeCoalescer.plan(List.of(first, latest), at(995), DEBOUNCE, MAX_DELAY);
+    var released = StoreChangeCoalescer.plan(List.of(first, latest), at(1000), DEBOUNCE, MAX_DELAY);
+
+    assertEquals(at(1000), held.heldUntil());
+    assertTrue(held.steps().isEmpty());
+    assertNull(released.heldUntil());
+    assertSame(latest, released.steps().get(0).deliver());
+  }
+
+  private static StoreOutboxEvent event(StoreTransactionEvent.Type type, long atMillis) {
+    StoreOutboxEvent event = new StoreOutboxEvent();
+    event.storeId = 1L;
+    event.type = type;
+    event.createdAt = at(atMillis);
+    return event;
+  }
+
+  private static LocalDateTime at(long millis) {
+    return T0.plus(Duration.ofMillis(millis));
+  }
+}
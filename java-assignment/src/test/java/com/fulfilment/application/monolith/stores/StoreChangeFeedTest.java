@@ -0,0 +1,226 @@
+package com.fulfilment.application.monolith.stores;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class StoreChangeFeedTest {
+
+  @Test
+  void record_assignsIncreasingSequencesAndDeliversLiveChanges() {
+    StoreChangeFeed feed = feed(10);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    feed.subscribe(null, subscriber);
+
+    feed.publish(row(1L, "A", StoreTransactionEvent.Type.CREATED));
+    feed.publish(row(1L, "A", StoreTransactionEvent.Type.DELETED));
+
+    assertEquals(2, subscriber.changes.size());
+    assertEquals(1, subscriber.changes.get(0).sequence());
+    assertEquals(2, subscriber.changes.get(1).sequence());
+    assertEquals(StoreTransactionEvent.Type.DELETED, subscriber.changes.get(1).type());
+    assertTrue(subscriber.resets.isEmpty());
+  }
+
+  @Test
+  void subscribe_withToken_replaysTheChangesAfterIt() {
+    StoreChangeFeed feed = feed(10);
+    RecordingSubscriber earlier = new RecordingSubscriber();
+    feed.subscribe(null, earlier);
+    feed.publish(row(1L, "A", StoreTransactionEvent.Type.CREATED));
+    String token = earlier.changes.get(0).token();
+    feed.publish(row(1L, "A-2", StoreTransactionEvent.Type.UPDATED));
+    feed.publish(row(2L, "B", StoreTransactionEvent.Type.CREATED));
+
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    feed.subscribe(token, subscriber);
+    feed.publish(row(2L, "B-2", StoreTransactionEvent.Type.UPDATED));
+
+    assertEquals(
+        List.of("A-2", "B", "B-2"), subscriber.changes.stream().map(StoreChange::name).toList());
+    assertTrue(subscriber.resets.isEmpty());
+  }
+
+  @Test
+  void subscribe_withTokenOlderThanTheHistory_resets() {
+    StoreChangeFeed feed = feed(2);
+    RecordingSubscriber earlier = new RecordingSubscriber();
+    feed.subscribe(null, earlier);
+    feed.publish(row(1L, "A", StoreTransactionEvent.Type.CREATED));
+    String token = earlier.changes.get(0).token();
+    for (int i = 0; i < 3; i++) {
+      feed.publish(row(1L, "A-" + i, StoreTransactionEvent.Type.UPDATED));
+    }
+
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    feed.subscribe(token, subscriber);
+    feed.publish(row(1L, "LIVE", StoreTransactionEvent.Type.UPDATED));
+
+    assertEquals(1, subscriber.resets.size());
+    assertEquals(List.of("LIVE"), subscriber.changes.stream().map(StoreChange::name).toList());
+  }
+
+  @Test
+  void subscribe_withMalformedToken_resets() {
+    StoreChangeFeed feed = feed(10);
+    feed.publish(row(1L, "A", StoreTransactionEvent.Type.CREATED));
+
+    RecordingSubscriber epoch = new RecordingSubscriber();
+    feed.subscribe("otherepoch-1", epoch);
+    RecordingSubscriber malformed = new RecordingSubscriber();
+    feed.subscribe("not a token", malformed);
+
+    assertEquals(1, epoch.resets.size());
+    assertEquals(1, malformed.resets.size());
+    assertTrue(epoch.changes.isEmpty());
+  }
+
+  @Test
+  void subscribe_withTokenOfAnotherReplica_replaysFromTheLoadedHistory() {
+    StoreChangeFeed other = feed(10);
+    RecordingSubscriber earlier = new RecordingSubscriber();
+    other.subscribe(null, earlier);
+    List<StoreChangeRecord> rows =
+        List.of(
+            row(1L, "A", StoreTransactionEvent.Type.CREATED),
+            row(2L, "B", StoreTransactionEvent.Type.CREATED));
+    rows.forEach(other::publish);
+    String token = earlier.changes.get(0).token();
+
+    StoreChangeFeed feed = feed(10);
+    feed.load(rows);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    feed.subscribe(token, subscriber);
+
+    assertEquals(List.of("B"), subscriber.changes.stream().map(StoreChange::name).toList());
+    assertTrue(subscriber.resets.isEmpty());
+  }
+
+  @Test
+  void unsubscribe_stopsDelivery() {
+    StoreChangeFeed feed = feed(10);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    feed.subscribe(null, subscriber);
+
+    feed.unsubscribe(subscriber);
+    feed.publish(row(1L, "A", StoreTransactionEvent.Type.CREATED));
+
+    assertTrue(subscriber.changes.isEmpty());
+    assertEquals(0, feed.subscribers());
+  }
+
+  @Test
+  void publish_subscriberThatFallsTooFarBehind_isDroppedWithoutHoldingUpTheOthers() {
+    StoreChangeFeed feed = feed(10);
+    List<Runnable> held = new ArrayList<>();
+    RecordingSubscriber slow = new RecordingSubscriber();
+    RecordingSubscriber fast = new RecordingSubscriber();
+    // the slow subscriber's deliveries never run; the fast one's run right away
+    feed.delivery = task -> held.add(task);
+    feed.subscribe(null, slow);
+    feed.delivery = Runnable::run;
+    feed.subscribe(null, fast);
+
+    for (int i = 0; i < 4; i++) {
+      feed.publish(row(1L, "A-" + i, StoreTransactionEvent.Type.UPDATED));
+    }
+    held.forEach(Runnable::run);
+
+    assertEquals(4, fast.changes.size());
+    assertEquals(1, feed.subscribers());
+    assertEquals(1, slow.dropped.size());
+    assertTrue(slow.changes.size() <= 3);
+  }
+
+  @Test
+  void poll_passesOnTheRowsOfEveryReplicaOnce() {
+    List<StoreChangeRecord> rows = new ArrayList<>();
+    List<Long> polledAfter = new ArrayList<>();
+    StoreChangeFeed feed =
+        new StoreChangeFeed() {
+          @Override
+          List<StoreChangeRecord> recordedAfter(long after, List<Long> missing) {
+            polledAfter.add(after);
+            return rows.stream()
+                .filter(row -> row.id > after || missing.contains(row.id))
+                .sorted(Comparator.comparing(row -> row.id))
+                .toList();
+          }
+
+          @Override
+          List<StoreChangeRecord> latest(int rows) {
+            return List.of();
+          }
+        };
+    feed.historySize = 10;
+    feed.subscriberBuffer = 10;
+    feed.commitWindow = Duration.ofSeconds(10);
+    feed.delivery = Runnable::run;
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    feed.subscribe(null, subscriber);
+
+    rows.add(row(10L, 1L, "A"));
+    rows.add(row(12L, 2L, "B"));
+    feed.poll();
+    // committed late by another replica, with an id below one already passed on
+    rows.add(row(11L, 3L, "C"));
+    feed.poll();
+    feed.poll();
+
+    assertEquals(
+        List.of("A", "B", "C"), subscriber.changes.stream().map(StoreChange::name).toList());
+    // only the rows past the last id seen are read again
+    assertEquals(List.of(0L, 12L, 12L), polledAfter);
+  }
+
+  private static StoreChangeFeed feed(int historySize) {
+    StoreChangeFeed feed = new StoreChangeFeed();
+    feed.historySize = historySize;
+    feed.subscriberBuffer = 3;
+    feed.delivery = Runnable::run;
+    return feed;
+  }
+
+  // the next id of the store_change table
+  private long nextId = 1;
+
+  private StoreChangeRecord row(Long storeId, String name, StoreTransactionEvent.Type type) {
+    Store store = new Store(name);
+    store.id = storeId;
+    StoreChangeRecord row = StoreChangeRecord.of(new StoreTransactionEvent(store, type));
+    row.id = nextId++;
+    return row;
+  }
+
+  private StoreChangeRecord row(Long id, Long storeId, String name) {
+    StoreChangeRecord row = row(storeId, name, StoreTransactionEvent.Type.CREATED);
+    row.id = id;
+    return row;
+  }
+
+  private static final class RecordingSubscriber implements StoreChangeFeed.Subscriber {
+    final List<StoreChange> changes = new ArrayList<>();
+    final List<String> resets = new ArrayList<>();
+    final List<String> dropped = new ArrayList<>();
+
+    @Override
+    public void onChange(StoreChange change) {
+      changes.add(change);
+    }
+
+    @Override
+    public void onReset(String reason) {
+      resets.add(reason);
+    }
+
+    @Override
+    public void onDropped(String reason) {
+      dropped.add(reason);
+    }
+  }
+}
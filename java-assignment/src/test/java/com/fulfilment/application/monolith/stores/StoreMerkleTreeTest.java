@@ -0,0 +1,86 @@
+package com.fulfilment.application.monolith.stores;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class StoreMerkleTreeTest {
+
+  @Test
+  void diff_identicalTrees_findsNothing() {
+    StoreMerkleTree ours = tree(10_000);
+    StoreMerkleTree theirs = tree(10_000);
+
+    StoreMerkleTree.Divergence divergence = StoreMerkleTree.diff(ours, theirs);
+
+    assertTrue(divergence.buckets().isEmpty());
+    assertEquals(1, divergence.nodesCompared());
+  }
+
+  @Test
+  void diff_oneChangedStore_narrowsToItsBucketComparingFewNodes() {
+    StoreMerkleTree ours = tree(10_000);
+    StoreMerkleTree theirs = tree(10_000);
+    theirs.put(4_321L, StoreMerkleTree.contentHash(4_321L, "store-4321", 7));
+
+    StoreMerkleTree.Divergence divergence = StoreMerkleTree.diff(ours, theirs);
+
+    assertEquals(List.of(ours.bucketOf(4_321L)), divergence.buckets());
+    assertTrue(divergence.nodesCompared() < 16 * 16, "compared " + divergence.nodesCompared());
+  }
+
+  @Test
+  void diff_storeMissingOnOneSide_isFound() {
+    StoreMerkleTree ours = tree(100);
+    StoreMerkleTree theirs = tree(100);
+    theirs.remove(42L);
+
+    assertEquals(List.of(ours.bucketOf(42L)), StoreMerkleTree.diff(ours, theirs).buckets());
+    assertEquals(99, theirs.size());
+  }
+
+  @Test
+  void replaceBucket_makesTheBucketMatchAgain() {
+    StoreMerkleTree ours = tree(100);
+    StoreMerkleTree theirs = tree(100);
+    ours.put(5L, 1L);
+    ours.put(200L, 2L);
+
+    Map<Long, Long> bucket = theirs.bucket(ours.bucketOf(5L));
+    ours.replaceBucket(ours.bucketOf(5L), bucket);
+    ours.replaceBucket(ours.bucketOf(200L), Map.of());
+
+    assertTrue(StoreMerkleTree.diff(ours, theirs).buckets().isEmpty());
+  }
+
+  @Test
+  void contentHash_changesWithEveryField() {
+    long hash = StoreMerkleTree.contentHash(1L, "A", 1);
+
+    assertEquals(hash, StoreMerkleTree.contentHash(1L, "A", 1));
+    assertNotEquals(hash, StoreMerkleTree.contentHash(2L, "A", 1));
+    assertNotEquals(hash, StoreMerkleTree.contentHash(1L, "B", 1));
+    assertNotEquals(hash, StoreMerkleTree.contentHash(1L, "A", 2));
+    assertNotEquals(hash, StoreMerkleTree.contentHash(1L, null, 1));
+  }
+
+  @Test
+  void diff_differentBucketWidths_throws() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> StoreMerkleTree.diff(new StoreMerkleTree(16), new StoreMerkleTree(32)));
+  }
+
+  private static StoreMerkleTree tree(int stores) {
+    StoreMerkleTree tree = new StoreMerkleTree(16);
+    for (long id = 1; id <= stores; id++) {
+      tree.put(id, StoreMerkleTree.contentHash(id, "store-" + id, (int) id));
+    }
+    return tree;
+  }
+}
@@ -0,0 +1,99 @@
+package com.fulfilment.application.monolith.stores;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StoreOutboxDispatcherTest {
+
+  private StoreOutbox storeOutbox;
+  private StoreOutboxDispatcher dispatcher;
+
+  @BeforeEach
+  void setUp() {
+    storeOutbox = mock(StoreOutbox.class);
+    dispatcher = new StoreOutboxDispatcher();
+    dispatcher.storeOutbox = storeOutbox;
+  }
+
+  @AfterEach
+  void tearDown() {
+    dispatcher.shutdown();
+  }
+
+  @Test
+  void drain_continuesWhileBatchesAreFull() {
+    when(storeOutbox.dispatchBatch(anyLong()))
+        .thenReturn(
+            new StoreOutbox.Dispatch(true, 1L, null),
+            new StoreOutbox.Dispatch(true, 1L, null),
+            new StoreOutbox.Dispatch(false, 1L, null));
+
+    dispatcher.drain();
+
+    verify(storeOutbox, times(3)).dispatchBatch(anyLong());
+  }
+
+  @Test
+  void drain_passesEachBatchCursorToTheNext() {
+    when(storeOutbox.dispatchBatch(0L)).thenReturn(new StoreOutbox.Dispatch(true, 40L, null));
+    when(storeOutbox.dispatchBatch(40L)).thenReturn(new StoreOutbox.Dispatch(false, 90L, null));
+
+    dispatcher.drain();
+
+    verify(storeOutbox).dispatchBatch(eq(0L));
+    verify(storeOutbox).dispatchBatch(eq(40L));
+  }
+
+  @Test
+  void drain_stopsOnFailure() {
+    when(storeOutbox.dispatchBatch(anyLong()))
+        .thenThrow(new IllegalStateException("database down"));
+
+    dispatcher.drain();
+
+    verify(storeOutbox, times(1)).dispatchBatch(anyLong());
+  }
+
+  @Test
+  void wakeUp_drainsInTheBackground() {
+    when(storeOutbox.dispatchBatch(anyLong()))
+        .thenReturn(new StoreOutbox.Dispatch(false, 1L, null));
+
+    dispatcher.wakeUp();
+
+    verify(storeOutbox, timeout(2_000)).dispatchBatch(anyLong());
+  }
+
+  @Test
+  void drain_withHeldUpdates_comesBackWhenTheyAreDue() {
+    when(storeOutbox.dispatchBatch(anyLong()))
+        .thenReturn(
+            new StoreOutbox.Dispatch(false, 1L, LocalDateTime.now().plusNanos(200_000_000)),
+            new StoreOutbox.Dispatch(false, 1L, null));
+
+    dispatcher.drain();
+
+    verify(storeOutbox, times(1)).dispatchBatch(anyLong());
+    verify(storeOutbox, timeout(2_000).times(2)).dispatchBatch(anyLong());
+  }
+
+  @Test
+  void poll_inDirectMode_doesNothing() {
+    when(storeOutbox.enabled()).thenReturn(false);
+
+    dispatcher.poll();
+
+    verify(storeOutbox, after(200).never()).dispatchBatch(anyLong());
+  }
+}
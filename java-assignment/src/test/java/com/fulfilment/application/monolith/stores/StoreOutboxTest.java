@@ -0,0 +1,284 @@
+package com.fulfilment.application.monolith.stores;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectMock;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+@QuarkusTest
+class StoreOutboxTest {
+
+  @Inject StoreOutbox storeOutbox;
+  @Inject EntityManager entityManager;
+  @InjectMock LegacyStoreManagerGateway legacyStoreManagerGateway;
+
+  @Test
+  void append_requiresTransaction() {
+    assertThrows(
+        Exception.class,
+        () -> storeOutbox.append(event(9001L, "OUTBOX-NO-TX", StoreTransactionEvent.Type.CREATED)));
+  }
+
+  @Test
+  void dispatchBatch_deliversSnapshotsInOrderAndRemovesThem() {
+    QuarkusTransaction.requiringNew()
+        .run(
+            () -> {
+              storeOutbox.append(event(9101L, "OUTBOX-A", StoreTransactionEvent.Type.CREATED));
+              storeOutbox.append(event(9101L, "OUTBOX-A-2", StoreTransactionEvent.Type.UPDATED));
+            });
+
+    drain();
+
+    InOrder inOrder = Mockito.inOrder(legacyStoreManagerGateway);
+    inOrder
+        .verify(legacyStoreManagerGateway)
+        .createStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-A".equals(s.name)));
+    inOrder
+        .verify(legacyStoreManagerGateway)
+        .updateStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-A-2".equals(s.name)));
+    assertEquals(0, pendingFor(9101L));
+  }
+
+  @Test
+  void dispatchBatch_coalescesARunOfUpdatesIntoTheLatest() {
+    QuarkusTransaction.requiringNew()
+        .run(
+            () -> {
+              storeOutbox.append(event(9151L, "OUTBOX-C", StoreTransactionEvent.Type.CREATED));
+              storeOutbox.append(event(9151L, "OUTBOX-C-2", StoreTransactionEvent.Type.UPDATED));
+              storeOutbox.append(event(9151L, "OUTBOX-C-3", StoreTransactionEvent.Type.UPDATED));
+              storeOutbox.append(event(9151L, "OUTBOX-C-4", StoreTransactionEvent.Type.UPDATED));
+            });
+
+    drain();
+
+    Mockito.verify(legacyStoreManagerGateway)
+        .createStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-C".equals(s.name)));
+    Mockito.verify(legacyStoreManagerGateway)
+        .updateStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-C-4".equals(s.name)));
+    Mockito.verify(legacyStoreManagerGateway, Mockito.never())
+        .updateStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-C-2".equals(s.name)));
+    assertEquals(0, pendingFor(9151L));
+  }
+
+  @Test
+  void dispatchBatch_failedDelivery_holdsBackThatStoreOnly() {
+    Mockito.doThrow(new IllegalStateException("legacy down"))
+        .when(legacyStoreManagerGateway)
+        .createStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-FAIL".equals(s.name)));
+    QuarkusTransaction.requiringNew()
+        .run(
+            () -> {
+              storeOutbox.append(event(9201L, "OUTBOX-FAIL", StoreTransactionEvent.Type.CREATED));
+              storeOutbox.append(event(9201L, "OUTBOX-FAIL-2", StoreTransactionEvent.Type.UPDATED));
+              storeOutbox.append(event(9202L, "OUTBOX-OK", StoreTransactionEvent.Type.CREATED));
+            });
+
+    drain();
+
+    Mockito.verify(legacyStoreManagerGateway)
+        .createStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-OK".equals(s.name)));
+    Mockito.verify(legacyStoreManagerGateway, Mockito.never())
+        .updateStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-FAIL-2".equals(s.name)));
+    assertEquals(2, pendingFor(9201L));
+    assertEquals(0, pendingFor(9202L));
+
+    Mockito.reset(legacyStoreManagerGateway);
+    drain();
+    // still backing off
+    assertEquals(2, pendingFor(9201L));
+
+    retryNow(9201L);
+    drain();
+
+    assertEquals(0, pendingFor(9201L));
+  }
+
+  @Test
+  void dispatchBatch_aFailingStoreWithAFullBatchOfEvents_doesNotHoldBackTheStoresBehindIt() {
+    Mockito.doThrow(new IllegalStateException("legacy down"))
+        .when(legacyStoreManagerGateway)
+        .createStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-POISON".equals(s.name)));
+    QuarkusTransaction.requiringNew()
+        .run(
+            () -> {
+              storeOutbox.append(event(9301L, "OUTBOX-POISON", StoreTransactionEvent.Type.CREATED));
+              for (int i = 0; i < 150; i++) {
+                storeOutbox.append(
+                    event(9301L, "OUTBOX-POISON-" + i, StoreTransactionEvent.Type.UPDATED));
+              }
+              storeOutbox.append(
+                  event(9302L, "OUTBOX-HEALTHY", StoreTransactionEvent.Type.CREATED));
+            });
+
+    drain();
+
+    Mockito.verify(legacyStoreManagerGateway)
+        .createStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-HEALTHY".equals(s.name)));
+    assertEquals(0, pendingFor(9302L));
+    assertEquals(151, pendingFor(9301L));
+  }
+
+  @Test
+  void dispatchBatch_afterMaxAttempts_parksTheEventAndMovesOn() {
+    Mockito.doThrow(new IllegalStateException("legacy down"))
+        .when(legacyStoreManagerGateway)
+        .createStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-PARK".equals(s.name)));
+    QuarkusTransaction.requiringNew()
+        .run(
+            () -> {
+              storeOutbox.append(event(9401L, "OUTBOX-PARK", StoreTransactionEvent.Type.CREATED));
+              storeOutbox.append(event(9401L, "OUTBOX-PARK-2", StoreTransactionEvent.Type.UPDATED));
+            });
+
+    for (int attempt = 0; attempt < 10; attempt++) {
+      retryNow(9401L);
+      drain();
+    }
+    // the update behind the parked event is now at the head
+    drain();
+
+    Mockito.verify(legacyStoreManagerGateway, Mockito.times(10))
+        .createStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-PARK".equals(s.name)));
+    Mockito.verify(legacyStoreManagerGateway, Mockito.timeout(2_000))
+        .updateStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-PARK-2".equals(s.name)));
+    assertEquals(1, pendingFor(9401L));
+    assertEquals(
+        1L,
+        (long)
+            QuarkusTransaction.requiringNew()
+                .call(
+                    () ->
+                        entityManager
+                            .createQuery(
+                                "select count(e) from StoreOutboxEvent e"
+                                    + " where e.storeId = 9401 and e.parkedAt is not null",
+                                Long.class)
+                            .getSingleResult()));
+  }
+
+  @Test
+  void dispatchBatch_failedCoalescedRun_backsOffAndIsParkedTogether() {
+    Mockito.doThrow(new IllegalStateException("legacy down"))
+        .when(legacyStoreManagerGateway)
+        .updateStoreOnLegacySystem(
+            ArgumentMatchers.argThat(s -> s.name.startsWith("OUTBOX-RUN")));
+    QuarkusTransaction.requiringNew()
+        .run(
+            () -> {
+              storeOutbox.append(event(9501L, "OUTBOX-RUN-1", StoreTransactionEvent.Type.UPDATED));
+              storeOutbox.append(event(9501L, "OUTBOX-RUN-2", StoreTransactionEvent.Type.UPDATED));
+              storeOutbox.append(event(9501L, "OUTBOX-RUN-3", StoreTransactionEvent.Type.UPDATED));
+            });
+
+    drain();
+    // the backoff is read from the run's oldest event
+    drain();
+
+    Mockito.verify(legacyStoreManagerGateway, Mockito.times(1))
+        .updateStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-RUN-3".equals(s.name)));
+    assertEquals(3, countFor(9501L, "e.attempts = 1"));
+
+    for (int attempt = 1; attempt < 10; attempt++) {
+      retryNow(9501L);
+      drain();
+    }
+    // nothing of the parked run is sent again
+    drain();
+
+    Mockito.verify(legacyStoreManagerGateway, Mockito.times(10))
+        .updateStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-RUN-3".equals(s.name)));
+    Mockito.verify(legacyStoreManagerGateway, Mockito.never())
+        .updateStoreOnLegacySystem(
+            ArgumentMatchers.argThat(
+                s -> "OUTBOX-RUN-1".equals(s.name) || "OUTBOX-RUN-2".equals(s.name)));
+    assertEquals(3, countFor(9501L, "e.parkedAt is not null"));
+  }
+
+  @Test
+  void dispatchBatch_rejectedByTheGateway_holdsTheStoreWithoutCountingAnAttempt() {
+    Mockito.doThrow(new RejectedExecutionException("circuit open"))
+        .when(legacyStoreManagerGateway)
+        .createStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-REJECT".equals(s.name)));
+    QuarkusTransaction.requiringNew()
+        .run(
+            () ->
+                storeOutbox.append(
+                    event(9601L, "OUTBOX-REJECT", StoreTransactionEvent.Type.CREATED)));
+
+    drain();
+
+    assertEquals(1, countFor(9601L, "e.attempts = 0 and e.notBefore is not null"));
+
+    Mockito.reset(legacyStoreManagerGateway);
+    retryNow(9601L);
+    drain();
+
+    Mockito.verify(legacyStoreManagerGateway)
+        .createStoreOnLegacySystem(ArgumentMatchers.argThat(s -> "OUTBOX-REJECT".equals(s.name)));
+    assertEquals(0, pendingFor(9601L));
+  }
+
+  // as if the retry backoff had passed
+  private void retryNow(Long storeId) {
+    QuarkusTransaction.requiringNew()
+        .run(
+            () ->
+                entityManager
+                    .createQuery(
+                        "update StoreOutboxEvent e set e.notBefore = null"
+                            + " where e.storeId = :storeId")
+                    .setParameter("storeId", storeId)
+                    .executeUpdate());
+  }
+
+  private void drain() {
+    StoreOutbox.Dispatch dispatch = storeOutbox.dispatchBatch(0L);
+    while (dispatch.more()) {
+      dispatch = storeOutbox.dispatchBatch(dispatch.next());
+    }
+  }
+
+  private long pendingFor(Long storeId) {
+    return QuarkusTransaction.requiringNew()
+        .call(
+            () ->
+                entityManager
+                    .createQuery(
+                        "select count(e) from StoreOutboxEvent e where e.storeId = :storeId",
+                        Long.class)
+                    .setParameter("storeId", storeId)
+                    .getSingleResult());
+  }
+
+  private long countFor(Long storeId, String condition) {
+    return QuarkusTransaction.requiringNew()
+        .call(
+            () ->
+                entityManager
+                    .createQuery(
+                        "select count(e) from StoreOutboxEvent e where e.storeId = :storeId and "
+                            + condition,
+                        Long.class)
+                    .setParameter("storeId", storeId)
+                    .getSingleResult());
+  }
+
+  private static StoreTransactionEvent event(
+      Long storeId, String name, StoreTransactionEvent.Type type) {
+    Store store = new Store(name);
+    store.id = storeId;
+    store.quantityProductsInStock = 4;
+    return new StoreTransactionEvent(store, type);
+  }
+}
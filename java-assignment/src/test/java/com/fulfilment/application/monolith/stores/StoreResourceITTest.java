@@ -1,10 +1,23 @@
 package com.fulfilment.application.monolith.stores;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
@@ -12,6 +25,7 @@ import org.mockito.Mockito;
 public class StoreResourceITTest {
 
   @InjectMock LegacyStoreManagerGateway legacyStoreManagerGateway;
+  @Inject StoreChangeFeed storeChangeFeed;
 
   @Test
   public void create_shouldInvokeLegacyOnlyAfterTransactionCommit() {
@@ -126,4 +140,269 @@ public class StoreResourceITTest {
 
     Mockito.verifyNoInteractions(legacyStoreManagerGateway);
   }
+
+  @Test
+  public void list_withLimitAndCursor_shouldPageByName() {
+    List<String> firstPage =
+        given()
+            .when()
+            .get("/store?limit=1")
+            .then()
+            .statusCode(200)
+            .body("size()", equalTo(1))
+            .extract()
+            .jsonPath()
+            .getList("name", String.class);
+
+    given()
+        .when()
+        .get("/store?limit=1&after=" + firstPage.get(0))
+        .then()
+        .statusCode(200)
+        .body("size()", equalTo(1))
+        .body("[0].name", not(equalTo(firstPage.get(0))));
+  }
+
+  @Test
+  public void list_invalidLimit_shouldReturn400() {
+    given().when().get("/store?limit=0").then().statusCode(400);
+  }
+
+  @Test
+  public void list_withCurrentETag_shouldReturn304UntilAStoreChanges() {
+    String etag = given().when().get("/store").then().statusCode(200).extract().header("ETag");
+    assertNotNull(etag);
+
+    given().header("If-None-Match", etag).when().get("/store").then().statusCode(304);
+
+    Store store = new Store();
+    store.name = "IT-STORE-ETAG";
+    given()
+        .contentType("application/json")
+        .body(store)
+        .when()
+        .post("/store")
+        .then()
+        .statusCode(201);
+
+    given()
+        .header("If-None-Match", etag)
+        .when()
+        .get("/store")
+        .then()
+        .statusCode(200)
+        .header("ETag", not(equalTo(etag)));
+  }
+
+  @Test
+  public void list_etag_shouldChangeWhenAStoreIsUpdatedOrDeleted() {
+    Long id = createStore("IT-STORE-ETAG-2", 1);
+    String created = given().when().get("/store").then().statusCode(200).extract().header("ETag");
+
+    given()
+        .contentType("application/json")
+        .body("{\"delta\": 1}")
+        .when()
+        .post("/store/" + id + "/stock")
+        .then()
+        .statusCode(200);
+    String updated =
+        given()
+            .header("If-None-Match", created)
+            .when()
+            .get("/store")
+            .then()
+            .statusCode(200)
+            .extract()
+            .header("ETag");
+
+    given().when().delete("/store/" + id).then().statusCode(204);
+    given()
+        .header("If-None-Match", updated)
+        .when()
+        .get("/store")
+        .then()
+        .statusCode(200)
+        .header("ETag", not(equalTo(updated)));
+  }
+
+  @Test
+  public void adjustStock_shouldApplyDeltaAndRejectNegativeStock() {
+    Long id = createStore("IT-STORE-STOCK", 5);
+
+    given()
+        .contentType("application/json")
+        .body("{\"delta\": -3}")
+        .when()
+        .post("/store/" + id + "/stock")
+        .then()
+        .statusCode(200)
+        .body("quantityProductsInStock", equalTo(2));
+
+    given()
+        .contentType("application/json")
+        .body("{\"delta\": -3}")
+        .when()
+        .post("/store/" + id + "/stock")
+        .then()
+        .statusCode(409);
+
+    given()
+        .when()
+        .get("/store/" + id)
+        .then()
+        .statusCode(200)
+        .body("quantityProductsInStock", equalTo(2));
+    Mockito.verify(legacyStoreManagerGateway, Mockito.timeout(2_000))
+        .updateStoreOnLegacySystem(
+            Mockito.argThat(s -> s != null && s.quantityProductsInStock == 2));
+  }
+
+  @Test
+  public void adjustStock_missingZeroOrOutOfRangeDelta_shouldReturn422AndChangeNothing() {
+    Long id = createStore("IT-STORE-STOCK-NOOP", 5);
+
+    given()
+        .contentType("application/json")
+        .body("{}")
+        .when()
+        .post("/store/" + id + "/stock")
+        .then()
+        .statusCode(422)
+        .body("error", equalTo("Stock delta was not set on request."));
+    given()
+        .contentType("application/json")
+        .body("{\"delta\": 0}")
+        .when()
+        .post("/store/" + id + "/stock")
+        .then()
+        .statusCode(422)
+        .body("error", equalTo("Stock delta of 0 would not change the stock."));
+    given()
+        .contentType("application/json")
+        .body("{\"delta\": " + Integer.MIN_VALUE + "}")
+        .when()
+        .post("/store/" + id + "/stock")
+        .then()
+        .statusCode(422)
+        .body("error", equalTo("Stock delta " + Integer.MIN_VALUE + " is out of range."));
+
+    given()
+        .when()
+        .get("/store/" + id)
+        .then()
+        .statusCode(200)
+        .body("quantityProductsInStock", equalTo(5));
+    Mockito.verify(legacyStoreManagerGateway, Mockito.after(500).never())
+        .updateStoreOnLegacySystem(
+            Mockito.argThat(s -> s != null && "IT-STORE-STOCK-NOOP".equals(s.name)));
+  }
+
+  @Test
+  public void adjustStock_unknownStore_shouldReturn404() {
+    given()
+        .contentType("application/json")
+        .body("{\"delta\": 1}")
+        .when()
+        .post("/store/999999/stock")
+        .then()
+        .statusCode(404);
+  }
+
+  @Test
+  public void adjustStock_concurrentDeltas_shouldAllApply() throws Exception {
+    Long id = createStore("IT-STORE-STOCK-HOT", 0);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> statuses = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        statuses.add(
+            executor.submit(
+                () ->
+                    given()
+                        .contentType("application/json")
+                        .body("{\"delta\": 1}")
+                        .when()
+                        .post("/store/" + id + "/stock")
+                        .statusCode()));
+      }
+      for (Future<Integer> status : statuses) {
+        assertEquals(200, status.get(10, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    given()
+        .when()
+        .get("/store/" + id)
+        .then()
+        .statusCode(200)
+        .body("quantityProductsInStock", equalTo(20));
+  }
+
+  @Test
+  public void delete_shouldPublishDeletedChange() throws Exception {
+    Long id = createStore("IT-STORE-DELETED", 1);
+    BlockingQueue<StoreChange> changes = new LinkedBlockingQueue<>();
+    StoreChangeFeed.Subscriber subscriber =
+        new StoreChangeFeed.Subscriber() {
+          @Override
+          public void onChange(StoreChange change) {
+            changes.add(change);
+          }
+
+          @Override
+          public void onReset(String reason) {}
+        };
+    storeChangeFeed.subscribe(null, subscriber);
+    try {
+      given().when().delete("/store/" + id).then().statusCode(204);
+
+      // delivered once the feed has picked the change up from the database
+      StoreChange change;
+      do {
+        change = changes.poll(5, TimeUnit.SECONDS);
+      } while (change != null
+          && !(change.type() == StoreTransactionEvent.Type.DELETED && id.equals(change.storeId())));
+      assertNotNull(change);
+    } finally {
+      storeChangeFeed.unsubscribe(subscriber);
+    }
+  }
+
+  @Test
+  public void reconcile_shouldResendStoresTheLegacySystemLacks() {
+    createStore("IT-STORE-RECONCILED", 4);
+    Mockito.when(legacyStoreManagerGateway.journaled()).thenReturn(new StoreMerkleTree(1024));
+
+    given()
+        .when()
+        .post("/store/reconciliation")
+        .then()
+        .statusCode(200)
+        .body("divergentBuckets", not(equalTo(0)))
+        .body("storesOnlyOnLegacy", equalTo(0));
+
+    // once when it was created, once more by the reconciliation
+    Mockito.verify(legacyStoreManagerGateway, Mockito.timeout(2_000).times(2))
+        .createStoreOnLegacySystem(
+            Mockito.argThat(s -> s != null && "IT-STORE-RECONCILED".equals(s.name)));
+  }
+
+  private Long createStore(String name, int stock) {
+    Store store = new Store();
+    store.name = name;
+    store.quantityProductsInStock = stock;
+    return given()
+        .contentType("application/json")
+        .body(store)
+        .when()
+        .post("/store")
+        .then()
+        .statusCode(201)
+        .extract()
+        .jsonPath()
+        .getLong("id");
+  }
 }
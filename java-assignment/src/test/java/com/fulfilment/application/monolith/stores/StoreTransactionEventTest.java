@@ -18,8 +18,9 @@ class StoreTransactionEventTest {
 
     @Test
     void typeEnumValues() {
-        assertEquals(2, StoreTransactionEvent.Type.values().length);
+        assertEquals(3, StoreTransactionEvent.Type.values().length);
         assertNotNull(StoreTransactionEvent.Type.valueOf("CREATED"));
         assertNotNull(StoreTransactionEvent.Type.valueOf("UPDATED"));
+        assertNotNull(StoreTransactionEvent.Type.valueOf("DELETED"));
     }
 }
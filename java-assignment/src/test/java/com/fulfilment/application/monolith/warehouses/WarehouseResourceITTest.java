@@ -2,16 +2,26 @@ package com.fulfilment.application.monolith.warehouses;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.fulfilment.application.monolith.warehouses.adapters.database.WarehouseRepository;
+import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
 import java.util.List;
 import org.junit.jupiter.api.Test;
 
 @QuarkusTest
 public class WarehouseResourceITTest {
 
+  @Inject WarehouseRepository warehouseRepository;
+
   @Test
   public void list_shouldReturnInitialWarehouses() {
     given()
@@ -22,6 +32,53 @@ public class WarehouseResourceITTest {
         .body(containsString("MWH.001"), containsString("MWH.012"), containsString("MWH.023"));
   }
 
+  @Test
+  public void list_withLimitAndCursor_shouldPageById() {
+    List<String> firstPage =
+        given()
+            .when()
+            .get("/warehouse?limit=1")
+            .then()
+            .statusCode(200)
+            .body("size()", equalTo(1))
+            .extract()
+            .jsonPath()
+            .getList("id", String.class);
+
+    given()
+        .when()
+        .get("/warehouse?limit=1&after=" + firstPage.get(0))
+        .then()
+        .statusCode(200)
+        .body("size()", equalTo(1))
+        .body("[0].id", not(equalTo(firstPage.get(0))));
+  }
+
+  @Test
+  public void list_invalidLimit_shouldReturn400() {
+    given().when().get("/warehouse?limit=0").then().statusCode(400);
+  }
+
+  @Test
+  public void stream_shouldWriteOneJsonObjectPerLine() {
+    String body =
+        given()
+            .when()
+            .get("/warehouse/stream")
+            .then()
+            .statusCode(200)
+            .contentType(containsString("application/x-ndjson"))
+            .extract()
+            .asString();
+
+    String[] lines = body.strip().split("\n");
+    assertTrue(lines.length >= 1);
+    for (String line : lines) {
+      assertTrue(line.startsWith("{") && line.endsWith("}"));
+    }
+    assertTrue(body.contains("MWH.001"));
+  }
+
   @Test
   public void create_shouldReturn201AndPersist() {
     String buCode = "MWH.IT.100";
@@ -115,6 +172,87 @@ public class WarehouseResourceITTest {
     assertNotNull(id);
 
     given().when().delete("/warehouse/" + id).then().statusCode(204);
+
+    given()
+        .when()
+        .get("/warehouse/" + buCode + "/history")
+        .then()
+        .statusCode(200)
+        .body("id", hasItem(id))
+        .body("archivedAt[0]", notNullValue());
+    given().when().get("/warehouse/" + id).then().statusCode(200);
+  }
+
+  @Test
+  public void createBatch_nonAtomic_shouldCreateValidUnitsAndReportRejected() {
+    // EINDHOVEN-001 allows 2 warehouses with a total capacity of 70
+    String body =
+        "["
+            + "{\"businessUnitCode\": \"MWH.IT.BATCH.1\", \"location\": \"EINDHOVEN-001\","
+            + " \"capacity\": 30, \"stock\": 1},"
+            + "{\"businessUnitCode\": \"MWH.IT.BATCH.2\", \"location\": \"EINDHOVEN-001\","
+            + " \"capacity\": 30, \"stock\": 1},"
+            + "{\"businessUnitCode\": \"MWH.IT.BATCH.3\", \"location\": \"EINDHOVEN-001\","
+            + " \"capacity\": 5, \"stock\": 1}"
+            + "]";
+
+    try {
+      given()
+          .contentType("application/json")
+          .body(body)
+          .when()
+          .post("/warehouse/batch?atomic=false")
+          .then()
+          .statusCode(200)
+          .body("created.size()", equalTo(2))
+          .body("created[0].id", notNullValue())
+          .body("rejected.size()", equalTo(1))
+          .body("rejected[0].index", equalTo(2))
+          .body("rejected[0].businessUnitCode", equalTo("MWH.IT.BATCH.3"));
+    } finally {
+      // give EINDHOVEN-001 back to the other tests
+      removeWarehouses("MWH.IT.BATCH.1", "MWH.IT.BATCH.2", "MWH.IT.BATCH.3");
+    }
+  }
+
+  @Test
+  public void createBatch_atomic_shouldRejectWholeBatch() {
+    // VETSBY-001 allows a single warehouse
+    String body =
+        "["
+            + "{\"businessUnitCode\": \"MWH.IT.ATOMIC.1\", \"location\": \"VETSBY-001\","
+            + " \"capacity\": 10, \"stock\": 1},"
+            + "{\"businessUnitCode\": \"MWH.IT.ATOMIC.2\", \"location\": \"VETSBY-001\","
+            + " \"capacity\": 10, \"stock\": 1}"
+            + "]";
+
+    given()
+        .contentType("application/json")
+        .body(body)
+        .when()
+        .post("/warehouse/batch")
+        .then()
+        .statusCode(400);
+
+    given()
+        .when()
+        .get("/warehouse")
+        .then()
+        .statusCode(200)
+        .body(not(containsString("MWH.IT.ATOMIC.1")));
+  }
+
+  private void removeWarehouses(String... buCodes) {
+    QuarkusTransaction.requiringNew()
+        .run(
+            () -> {
+              for (String buCode : buCodes) {
+                Warehouse warehouse = warehouseRepository.findByBusinessUnitCode(buCode);
+                if (warehouse != null) {
+                  warehouseRepository.remove(warehouse);
+                }
+              }
+            });
   }
 
   private String findWarehouseIdByBusinessUnitCode(String buCode) {
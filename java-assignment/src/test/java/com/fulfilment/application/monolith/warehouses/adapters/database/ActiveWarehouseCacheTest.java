@@ -0,0 +1,119 @@
+package com.fulfilment.application.monolith.warehouses.adapters.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ActiveWarehouseCacheTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  @Test
+  void get_afterPut_returnsCopyAndCountsHit() {
+    ActiveWarehouseCache cache = cache(10, Duration.ofSeconds(10));
+    Warehouse warehouse = warehouse("BU-1");
+    cache.put(warehouse, cache.generation());
+
+    Warehouse first = cache.get("BU-1");
+    first.archivedAt = LocalDateTime.now();
+    Warehouse second = cache.get("BU-1");
+
+    assertNotNull(second);
+    assertNotSame(warehouse, second);
+    assertNull(second.archivedAt);
+    assertEquals(2, cache.hits());
+    assertEquals(0, cache.misses());
+  }
+
+  @Test
+  void get_unknownCode_countsMiss() {
+    ActiveWarehouseCache cache = cache(10, Duration.ofSeconds(10));
+
+    assertNull(cache.get("BU-UNKNOWN"));
+    assertEquals(1, cache.misses());
+  }
+
+  @Test
+  void get_expiredEntry_isEvicted() {
+    ActiveWarehouseCache cache = cache(10, Duration.ofSeconds(10));
+    cache.put(warehouse("BU-1"), cache.generation());
+
+    now.addAndGet(Duration.ofSeconds(11).toNanos());
+
+    assertNull(cache.get("BU-1"));
+    assertEquals(1, cache.evictions());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void put_beyondMaxSize_evictsLeastRecentlyUsed() {
+    ActiveWarehouseCache cache = cache(2, Duration.ofSeconds(10));
+    cache.put(warehouse("BU-1"), cache.generation());
+    cache.put(warehouse("BU-2"), cache.generation());
+    cache.get("BU-1");
+
+    cache.put(warehouse("BU-3"), cache.generation());
+
+    assertNotNull(cache.get("BU-1"));
+    assertNull(cache.get("BU-2"));
+    assertNotNull(cache.get("BU-3"));
+    assertEquals(1, cache.evictions());
+  }
+
+  @Test
+  void put_afterInvalidationSinceLoad_isIgnored() {
+    ActiveWarehouseCache cache = cache(10, Duration.ofSeconds(10));
+    long generation = cache.generation();
+
+    cache.invalidate("BU-OTHER");
+    cache.put(warehouse("BU-1"), generation);
+
+    assertNull(cache.get("BU-1"));
+  }
+
+  @Test
+  void put_archivedWarehouse_isIgnored() {
+    ActiveWarehouseCache cache = cache(10, Duration.ofSeconds(10));
+    Warehouse archived = warehouse("BU-1");
+    archived.archivedAt = LocalDateTime.now();
+
+    cache.put(archived, cache.generation());
+
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void invalidate_removesEntry() {
+    ActiveWarehouseCache cache = cache(10, Duration.ofSeconds(10));
+    cache.put(warehouse("BU-1"), cache.generation());
+    cache.put(warehouse("BU-2"), cache.generation());
+
+    cache.invalidate("BU-1");
+    assertNull(cache.get("BU-1"));
+    assertNotNull(cache.get("BU-2"));
+
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+  }
+
+  private ActiveWarehouseCache cache(int maxSize, Duration ttl) {
+    return new ActiveWarehouseCache(maxSize, ttl, now::get, null);
+  }
+
+  private static Warehouse warehouse(String buCode) {
+    Warehouse warehouse = new Warehouse();
+    warehouse.id = 1L;
+    warehouse.businessUnitCode = buCode;
+    warehouse.location = "AMSTERDAM-001";
+    warehouse.capacity = 10;
+    warehouse.stock = 1;
+    return warehouse;
+  }
+}
@@ -0,0 +1,176 @@
+package com.fulfilment.application.monolith.warehouses.adapters.database;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.transaction.Transactional;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+class LocationAdmissionRepositoryTest {
+
+  @Inject LocationAdmissionRepository admission;
+  @Inject LocationAdmissionRows rows;
+  @Inject EntityManager entityManager;
+
+  @Test
+  @Transactional
+  void acquire_createsAndLocksAdmissionRow() {
+    String location = "ADMISSION-" + System.nanoTime();
+
+    assertDoesNotThrow(() -> admission.acquire(location));
+    assertDoesNotThrow(() -> admission.acquire(location));
+    assertNotNull(entityManager.find(DbLocationAdmission.class, location));
+  }
+
+  @Test
+  void insert_racingForTheSameLocation_loserThrowsPersistenceException() throws Exception {
+    String location = "ADMISSION-RACE-" + System.nanoTime();
+    CyclicBarrier start = new CyclicBarrier(2);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<Boolean>> inserts =
+          List.of(
+              executor.submit(() -> insertAfter(start, location)),
+              executor.submit(() -> insertAfter(start, location)));
+      int created = 0;
+      for (Future<Boolean> insert : inserts) {
+        created += insert.get(5, TimeUnit.SECONDS) ? 1 : 0;
+      }
+      assertEquals(1, created);
+    } finally {
+      executor.shutdownNow();
+    }
+    QuarkusTransaction.requiringNew().run(() -> admission.acquire(location));
+  }
+
+  @Test
+  void acquire_withoutTransaction_throws() {
+    assertThrows(Exception.class, () -> admission.acquire("ADMISSION-NO-TX"));
+  }
+
+  @Test
+  void acquire_sameLocation_waitsForHolderToComplete() throws Exception {
+    String location = "ADMISSION-CONTENDED-" + System.nanoTime();
+    CountDownLatch held = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch secondAcquired = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<?> first =
+          executor.submit(
+              () ->
+                  QuarkusTransaction.requiringNew()
+                      .run(
+                          () -> {
+                            admission.acquire(location);
+                            held.countDown();
+                            await(release);
+                          }));
+      assertTrue(held.await(5, TimeUnit.SECONDS));
+
+      Future<?> second =
+          executor.submit(
+              () ->
+                  QuarkusTransaction.requiringNew()
+                      .run(
+                          () -> {
+                            admission.acquire(location);
+                            secondAcquired.countDown();
+                          }));
+
+      assertFalse(secondAcquired.await(300, TimeUnit.MILLISECONDS));
+      release.countDown();
+      assertTrue(secondAcquired.await(5, TimeUnit.SECONDS));
+      first.get(5, TimeUnit.SECONDS);
+      second.get(5, TimeUnit.SECONDS);
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void acquireAll_batchesWhoseStripesCrossInNameOrder_bothComplete() throws Exception {
+    // X = {a -> stripe s, b -> stripe t} and Y = {c -> stripe t, d -> stripe s}, with a < b and
+    // c < d: taken in name order, X would hold s waiting for t while Y holds t waiting for s
+    LocationStripes stripes = new LocationStripes(LocationAdmissionRepository.STRIPES);
+    String prefix = "ADMISSION-CROSSED-" + System.nanoTime() + "-";
+    String a = prefix + "A";
+    int s = stripes.indexFor(a);
+    String b = prefix + "B";
+    for (int i = 0; stripes.indexFor(b) == s; i++) {
+      b = prefix + "B" + i;
+    }
+    int t = stripes.indexFor(b);
+    List<String> x = List.of(a, b);
+    String c = firstWithStripe(stripes, prefix + "C", t);
+    String d = firstWithStripe(stripes, prefix + "D", s);
+    List<String> y = List.of(c, d);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      for (int round = 0; round < 50; round++) {
+        CyclicBarrier start = new CyclicBarrier(2);
+        Future<?> first = executor.submit(() -> acquireAllAfter(start, x));
+        Future<?> second = executor.submit(() -> acquireAllAfter(start, y));
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  // true when this insert created the row; the loser of the race sees what lockRow catches
+  private boolean insertAfter(CyclicBarrier start, String location) throws Exception {
+    start.await(5, TimeUnit.SECONDS);
+    try {
+      rows.insert(location);
+      return true;
+    } catch (PersistenceException e) {
+      return false;
+    }
+  }
+
+  private void acquireAllAfter(CyclicBarrier start, List<String> locations) {
+    try {
+      start.await(5, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+    QuarkusTransaction.requiringNew().run(() -> admission.acquireAll(locations));
+  }
+
+  private static String firstWithStripe(LocationStripes stripes, String prefix, int stripe) {
+    for (int i = 0; ; i++) {
+      if (stripes.indexFor(prefix + i) == stripe) {
+        return prefix + i;
+      }
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -2,15 +2,22 @@ package com.fulfilment.application.monolith.warehouses.adapters.database;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.fulfilment.application.monolith.warehouses.domain.models.LocationOccupancy;
 import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 
 @QuarkusTest
@@ -138,6 +145,120 @@ class WarehouseRepositoryTest {
     assertDoesNotThrow(() -> repository.remove(warehouse));
   }
 
+  @Test
+  @Transactional
+  void getActiveOccupancyByLocation_countsAndSumsOnlyActiveWarehouses() {
+    String location = "OCCUPANCY-" + System.nanoTime();
+    Warehouse first = warehouse("MWH.REPO.OCC.1." + System.nanoTime(), location, 10, 1);
+    Warehouse second = warehouse("MWH.REPO.OCC.2." + System.nanoTime(), location, 25, 1);
+    Warehouse archived = warehouse("MWH.REPO.OCC.3." + System.nanoTime(), location, 40, 1);
+    archived.archivedAt = LocalDateTime.now();
+    repository.create(first);
+    repository.create(second);
+    repository.create(archived);
+
+    LocationOccupancy occupancy = repository.getActiveOccupancyByLocation(location);
+    assertEquals(2, occupancy.activeWarehouses);
+    assertEquals(35, occupancy.activeCapacity);
+
+    LocationOccupancy excluding =
+        repository.getActiveOccupancyByLocationExcluding(location, first.businessUnitCode);
+    assertEquals(1, excluding.activeWarehouses);
+    assertEquals(25, excluding.activeCapacity);
+
+    repository.remove(first);
+    repository.remove(second);
+    repository.remove(archived);
+  }
+
+  @Test
+  @Transactional
+  void getActiveOccupancyByLocation_emptyLocation_returnsZero() {
+    LocationOccupancy occupancy =
+        repository.getActiveOccupancyByLocation("OCCUPANCY-EMPTY-" + System.nanoTime());
+
+    assertEquals(0, occupancy.activeWarehouses);
+    assertEquals(0, occupancy.activeCapacity);
+  }
+
+  @Test
+  @Transactional
+  void createAll_assignsIdsAndPersistsEveryWarehouse() {
+    String location = "BATCH-" + System.nanoTime();
+    List<Warehouse> batch = new ArrayList<>();
+    for (int i = 0; i < WarehouseRepository.BATCH_SIZE + 5; i++) {
+      batch.add(warehouse("MWH.REPO.BATCH." + i + "." + System.nanoTime(), location, 2, 1));
+    }
+
+    repository.createAll(batch);
+
+    assertTrue(batch.stream().allMatch(w -> w.id != null));
+    Map<String, LocationOccupancy> occupancies =
+        repository.getActiveOccupancyByLocations(List.of(location, location + "-EMPTY"));
+    assertEquals(batch.size(), occupancies.get(location).activeWarehouses);
+    assertEquals(2L * batch.size(), occupancies.get(location).activeCapacity);
+    assertEquals(0, occupancies.get(location + "-EMPTY").activeWarehouses);
+
+    Set<String> codes =
+        repository.findActiveBusinessUnitCodes(
+            List.of(batch.get(0).businessUnitCode, "MWH.REPO.BATCH.MISSING"));
+    assertEquals(Set.of(batch.get(0).businessUnitCode), codes);
+
+    batch.forEach(repository::remove);
+  }
+
+  @Test
+  @Transactional
+  void archive_movesWarehouseToHistory() {
+    String buCode = "MWH.REPO.ARCHIVE." + System.nanoTime();
+    Warehouse warehouse = warehouse(buCode, "ARCHIVE-" + System.nanoTime(), 15, 2);
+    repository.create(warehouse);
+    Long id = warehouse.id;
+    assertNotNull(repository.findByBusinessUnitCode(buCode));
+
+    warehouse.archivedAt = LocalDateTime.now();
+    assertTrue(repository.archive(warehouse));
+
+    assertNull(repository.findById(id));
+    assertNull(repository.findByBusinessUnitCode(buCode));
+    assertEquals(0, repository.getActiveOccupancyByLocation(warehouse.location).activeWarehouses);
+    List<Warehouse> history = repository.findArchivedByBusinessUnitCode(buCode);
+    assertEquals(1, history.size());
+    assertEquals(id, history.get(0).id);
+    assertEquals(15, history.get(0).capacity);
+    assertNotNull(history.get(0).archivedAt);
+    assertEquals(id, repository.findArchivedById(id).id);
+  }
+
+  @Test
+  @Transactional
+  void archive_unknownWarehouse_doesNothing() {
+    Warehouse warehouse = warehouse("MWH.REPO.ARCHIVE.MISSING", "AMSTERDAM-001", 10, 1);
+
+    assertFalse(repository.archive(warehouse));
+    assertTrue(repository.findArchivedByBusinessUnitCode("MWH.REPO.ARCHIVE.MISSING").isEmpty());
+  }
+
+  @Test
+  void lockByBusinessUnitCode_readsPastTheCache() {
+    String buCode = "MWH.REPO.LOCK." + System.nanoTime();
+    QuarkusTransaction.requiringNew()
+        .run(() -> repository.create(warehouse(buCode, "AMSTERDAM-001", 15, 2)));
+    assertEquals(15, repository.findByBusinessUnitCode(buCode).capacity);
+    // a write this instance's cache does not hear of, as made by another replica
+    QuarkusTransaction.requiringNew()
+        .run(() -> repository.update("capacity = 25 where businessUnitCode = ?1", buCode));
+
+    assertEquals(15, repository.findByBusinessUnitCode(buCode).capacity);
+    Warehouse locked =
+        QuarkusTransaction.requiringNew().call(() -> repository.lockByBusinessUnitCode(buCode));
+    assertEquals(25, locked.capacity);
+    assertNull(
+        QuarkusTransaction.requiringNew().call(() -> repository.lockByBusinessUnitCode("MISSING")));
+
+    QuarkusTransaction.requiringNew().run(() -> repository.remove(locked));
+  }
+
   @Test
   void findByBusinessUnitCode_null_returnsNull() {
     assertNull(repository.findByBusinessUnitCode(null));
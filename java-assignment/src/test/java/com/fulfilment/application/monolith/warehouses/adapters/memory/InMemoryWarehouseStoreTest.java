@@ -0,0 +1,265 @@
+package com.fulfilment.application.monolith.warehouses.adapters.memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fulfilment.application.monolith.warehouses.domain.models.LocationOccupancy;
+import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class InMemoryWarehouseStoreTest {
+
+  private final InMemoryWarehouseStore store = new InMemoryWarehouseStore();
+
+  @Test
+  void create_assignsIdAndIndexesByCodeAndLocation() {
+    Warehouse warehouse = warehouse("BU-1", "AMSTERDAM-001", 20, 5);
+
+    store.create(warehouse);
+
+    assertNotNull(warehouse.id);
+    Warehouse found = store.findByBusinessUnitCode("BU-1");
+    assertEquals(warehouse.id, found.id);
+    List<Warehouse> atLocation = store.findActiveByLocation("AMSTERDAM-001");
+    assertEquals(1, atLocation.size());
+    assertEquals(warehouse.id, atLocation.get(0).id);
+    LocationOccupancy occupancy = store.getActiveOccupancyByLocation("AMSTERDAM-001");
+    assertEquals(1, occupancy.activeWarehouses);
+    assertEquals(20, occupancy.activeCapacity);
+  }
+
+  @Test
+  void create_duplicateActiveCode_isRejected() {
+    store.create(warehouse("BU-1", "AMSTERDAM-001", 20, 5));
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> store.create(warehouse("BU-1", "ZWOLLE-001", 10, 1)));
+    assertEquals(0, store.getActiveOccupancyByLocation("ZWOLLE-001").activeWarehouses);
+  }
+
+  @Test
+  void findByBusinessUnitCode_returnsCopy() {
+    store.create(warehouse("BU-1", "AMSTERDAM-001", 20, 5));
+
+    store.findByBusinessUnitCode("BU-1").capacity = 999;
+
+    assertEquals(20, store.findByBusinessUnitCode("BU-1").capacity);
+    assertNull(store.findByBusinessUnitCode(null));
+  }
+
+  @Test
+  void archive_movesUnitToHistoryAndFreesTheCode() {
+    Warehouse warehouse = warehouse("BU-1", "AMSTERDAM-001", 20, 5);
+    store.create(warehouse);
+    Warehouse current = store.findByBusinessUnitCode("BU-1");
+    current.archivedAt = LocalDateTime.now();
+
+    store.archive(current);
+
+    assertNull(store.findByBusinessUnitCode("BU-1"));
+    assertEquals(0, store.getActiveOccupancyByLocation("AMSTERDAM-001").activeWarehouses);
+    List<Warehouse> history = store.findArchivedByBusinessUnitCode("BU-1");
+    assertEquals(1, history.size());
+    assertEquals(warehouse.id, history.get(0).id);
+    assertEquals(current.archivedAt, history.get(0).archivedAt);
+
+    store.create(warehouse("BU-1", "AMSTERDAM-001", 30, 5));
+    assertNotEquals(warehouse.id, store.findByBusinessUnitCode("BU-1").id);
+  }
+
+  @Test
+  void archive_twice_archivesOnce() {
+    store.create(warehouse("BU-1", "AMSTERDAM-001", 20, 5));
+    Warehouse current = store.findByBusinessUnitCode("BU-1");
+
+    assertTrue(store.archive(current));
+    assertFalse(store.archive(current));
+
+    assertEquals(1, store.findArchivedByBusinessUnitCode("BU-1").size());
+  }
+
+  @Test
+  void archive_withHistoryLimit_keepsOnlyTheNewestUnits() {
+    InMemoryWarehouseStore bounded = new InMemoryWarehouseStore(2);
+    List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      Warehouse warehouse = warehouse("BU-1", "AMSTERDAM-001", 20, 5);
+      bounded.create(warehouse);
+      ids.add(warehouse.id);
+      bounded.archive(bounded.findByBusinessUnitCode("BU-1"));
+    }
+
+    List<Warehouse> history = bounded.findArchivedByBusinessUnitCode("BU-1");
+    assertEquals(2, history.size());
+    assertEquals(ids.get(4), history.get(0).id);
+    assertEquals(ids.get(3), history.get(1).id);
+  }
+
+  @Test
+  void update_movesUnitBetweenLocations() {
+    store.create(warehouse("BU-1", "AMSTERDAM-001", 20, 5));
+    Warehouse current = store.findByBusinessUnitCode("BU-1");
+    current.location = "ZWOLLE-001";
+    current.capacity = 30;
+
+    store.update(current);
+
+    assertEquals(0, store.getActiveOccupancyByLocation("AMSTERDAM-001").activeWarehouses);
+    LocationOccupancy occupancy = store.getActiveOccupancyByLocation("ZWOLLE-001");
+    assertEquals(1, occupancy.activeWarehouses);
+    assertEquals(30, occupancy.activeCapacity);
+  }
+
+  @Test
+  void update_newCodeAlreadyTaken_keepsTheUnit() {
+    store.create(warehouse("BU-1", "AMSTERDAM-001", 20, 5));
+    store.create(warehouse("BU-2", "AMSTERDAM-001", 10, 5));
+    Warehouse current = store.findByBusinessUnitCode("BU-1");
+    current.businessUnitCode = "BU-2";
+
+    assertThrows(IllegalArgumentException.class, () -> store.update(current));
+
+    assertNotNull(store.findByBusinessUnitCode("BU-1"));
+    assertEquals(30, store.getActiveOccupancyByLocation("AMSTERDAM-001").activeCapacity);
+  }
+
+  @Test
+  void occupancyExcluding_subtractsOnlyAnActiveUnitAtThatLocation() {
+    store.create(warehouse("BU-1", "AMSTERDAM-001", 20, 5));
+    store.create(warehouse("BU-2", "AMSTERDAM-001", 10, 5));
+    store.create(warehouse("BU-3", "ZWOLLE-001", 40, 5));
+
+    LocationOccupancy excluding =
+        store.getActiveOccupancyByLocationExcluding("AMSTERDAM-001", "BU-1");
+    assertEquals(1, excluding.activeWarehouses);
+    assertEquals(10, excluding.activeCapacity);
+    assertEquals(
+        2, store.getActiveOccupancyByLocationExcluding("AMSTERDAM-001", "BU-3").activeWarehouses);
+
+    Map<String, LocationOccupancy> all =
+        store.getActiveOccupancyByLocations(List.of("AMSTERDAM-001", "TILBURG-001"));
+    assertEquals(30, all.get("AMSTERDAM-001").activeCapacity);
+    assertEquals(0, all.get("TILBURG-001").activeWarehouses);
+  }
+
+  @Test
+  void getActivePage_ordersByIdFromTheCursor() {
+    for (int i = 0; i < 5; i++) {
+      store.create(warehouse("BU-" + i, "AMSTERDAM-001", 1, 0));
+    }
+
+    List<Warehouse> first = store.getActivePage(0, 2);
+    List<Warehouse> second = store.getActivePage(first.get(1).id, 10);
+
+    assertEquals(2, first.size());
+    assertEquals(3, second.size());
+    assertTrue(second.get(0).id > first.get(1).id);
+    assertEquals(5, store.getAll().size());
+  }
+
+  @Test
+  void createAll_rollsBackWhenACodeIsTaken() {
+    store.create(warehouse("BU-2", "AMSTERDAM-001", 10, 5));
+    List<Warehouse> batch =
+        List.of(
+            warehouse("BU-1", "AMSTERDAM-001", 10, 5), warehouse("BU-2", "AMSTERDAM-001", 10, 5));
+
+    assertThrows(IllegalArgumentException.class, () -> store.createAll(batch));
+
+    assertEquals(Set.of("BU-2"), store.findActiveBusinessUnitCodes(List.of("BU-1", "BU-2")));
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  void remove_dropsTheUnitWithoutHistory() {
+    store.create(warehouse("BU-1", "AMSTERDAM-001", 10, 5));
+
+    Warehouse byCode = new Warehouse();
+    byCode.businessUnitCode = "BU-1";
+    store.remove(byCode);
+    store.remove(null);
+
+    assertEquals(0, store.size());
+    assertTrue(store.findArchivedByBusinessUnitCode("BU-1").isEmpty());
+  }
+
+  @Test
+  void concurrentArchiveAndCreate_keepIndexesConsistent() throws Exception {
+    int codes = 50;
+    for (int i = 0; i < codes; i++) {
+      store.create(warehouse("BU-" + i, "AMSTERDAM-001", 10, 1));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger archivedCount = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      for (int thread = 0; thread < 8; thread++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  for (int round = 0; round < 200; round++) {
+                    String code = "BU-" + (round % codes);
+                    Warehouse current = store.findByBusinessUnitCode(code);
+                    if (current != null) {
+                      int before = store.findArchivedByBusinessUnitCode(code).size();
+                      store.archive(current);
+                      if (store.findArchivedByBusinessUnitCode(code).size() > before) {
+                        archivedCount.incrementAndGet();
+                      }
+                    }
+                    try {
+                      store.create(warehouse(code, "AMSTERDAM-001", 10, 1));
+                    } catch (IllegalArgumentException e) {
+                      // another thread re-created it first
+                    }
+                  }
+                  return null;
+                }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(codes, store.size());
+    LocationOccupancy occupancy = store.getActiveOccupancyByLocation("AMSTERDAM-001");
+    assertEquals(codes, occupancy.activeWarehouses);
+    assertEquals(codes * 10L, occupancy.activeCapacity);
+    assertEquals(codes, store.findActiveByLocation("AMSTERDAM-001").size());
+    assertEquals(codes, store.getAll().size());
+    assertTrue(archivedCount.get() > 0);
+  }
+
+  private static Warehouse warehouse(String buCode, String location, int capacity, int stock) {
+    Warehouse warehouse = new Warehouse();
+    warehouse.businessUnitCode = buCode;
+    warehouse.location = location;
+    warehouse.capacity = capacity;
+    warehouse.stock = stock;
+    warehouse.createdAt = LocalDateTime.now();
+    return warehouse;
+  }
+}
@@ -4,19 +4,25 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.fulfilment.application.monolith.fulfilment.FulfilmentAssignments;
 import com.fulfilment.application.monolith.warehouses.adapters.database.DbWarehouse;
 import com.fulfilment.application.monolith.warehouses.adapters.database.WarehouseRepository;
+import com.fulfilment.application.monolith.warehouses.domain.models.WarehouseBatchResult;
 import com.fulfilment.application.monolith.warehouses.domain.usecases.ArchiveWarehouseUseCase;
 import com.fulfilment.application.monolith.warehouses.domain.usecases.CreateWarehouseUseCase;
 import com.fulfilment.application.monolith.warehouses.domain.usecases.ReplaceWarehouseUseCase;
+import com.warehouse.api.beans.ArchivedWarehouse;
 import jakarta.ws.rs.WebApplicationException;
 import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -27,6 +33,7 @@ public class WarehouseResourceImplTest {
   private CreateWarehouseUseCase createWarehouseUseCase;
   private ReplaceWarehouseUseCase replaceWarehouseUseCase;
   private ArchiveWarehouseUseCase archiveWarehouseUseCase;
+  private FulfilmentAssignments fulfilmentAssignments;
   private WarehouseResourceImpl resource;
 
   @BeforeEach
@@ -35,12 +42,14 @@ public class WarehouseResourceImplTest {
     createWarehouseUseCase = mock(CreateWarehouseUseCase.class);
     replaceWarehouseUseCase = mock(ReplaceWarehouseUseCase.class);
     archiveWarehouseUseCase = mock(ArchiveWarehouseUseCase.class);
+    fulfilmentAssignments = mock(FulfilmentAssignments.class);
     resource = new WarehouseResourceImpl();
 
     setField(resource, "warehouseRepository", warehouseRepository);
     setField(resource, "createWarehouseUseCase", createWarehouseUseCase);
     setField(resource, "replaceWarehouseUseCase", replaceWarehouseUseCase);
     setField(resource, "archiveWarehouseUseCase", archiveWarehouseUseCase);
+    setField(resource, "fulfilmentAssignments", fulfilmentAssignments);
   }
 
   @Test
@@ -51,15 +60,46 @@ public class WarehouseResourceImplTest {
     domain.location = "AMSTERDAM-001";
     domain.capacity = 20;
     domain.stock = 5;
-    when(warehouseRepository.getAll()).thenReturn(List.of(domain));
+    when(warehouseRepository.getActivePage(0L, WarehouseResourceImpl.DEFAULT_PAGE_SIZE))
+        .thenReturn(List.of(domain));
 
-    List<com.warehouse.api.beans.Warehouse> response = resource.listAllWarehousesUnits();
+    List<com.warehouse.api.beans.Warehouse> response = resource.listAllWarehousesUnits(null, null);
 
     assertEquals(1, response.size());
     assertEquals("1", response.get(0).getId());
     assertEquals("BU-1", response.get(0).getBusinessUnitCode());
   }
 
+  @Test
+  void listAllWarehousesUnits_passesCursorAndLimit() {
+    when(warehouseRepository.getActivePage(42L, 10)).thenReturn(List.of());
+
+    List<com.warehouse.api.beans.Warehouse> response = resource.listAllWarehousesUnits(42L, 10);
+
+    assertEquals(0, response.size());
+    verify(warehouseRepository).getActivePage(42L, 10);
+  }
+
+  @Test
+  void listAllWarehousesUnits_invalidLimit_throws400() {
+    WebApplicationException tooSmall =
+        assertThrows(WebApplicationException.class, () -> resource.listAllWarehousesUnits(null, 0));
+    assertEquals(400, tooSmall.getResponse().getStatus());
+
+    WebApplicationException tooLarge =
+        assertThrows(
+            WebApplicationException.class,
+            () -> resource.listAllWarehousesUnits(null, WarehouseResourceImpl.MAX_PAGE_SIZE + 1));
+    assertEquals(400, tooLarge.getResponse().getStatus());
+  }
+
+  @Test
+  void listAllWarehousesUnits_negativeCursor_throws400() {
+    WebApplicationException ex =
+        assertThrows(WebApplicationException.class, () -> resource.listAllWarehousesUnits(-1L, 10));
+    assertEquals(400, ex.getResponse().getStatus());
+  }
+
   @Test
   void createANewWarehouseUnit_success() {
     com.warehouse.api.beans.Warehouse request = new com.warehouse.api.beans.Warehouse();
@@ -104,6 +144,77 @@ public class WarehouseResourceImplTest {
     assertEquals(400, ex.getResponse().getStatus());
   }
 
+  @Test
+  void createWarehouseUnitsInBatch_mapsCreatedAndRejected() {
+    com.warehouse.api.beans.Warehouse request = new com.warehouse.api.beans.Warehouse();
+    request.setBusinessUnitCode("BU-1");
+    request.setLocation("AMSTERDAM-001");
+    request.setCapacity(20);
+    request.setStock(5);
+    var created = new com.fulfilment.application.monolith.warehouses.domain.models.Warehouse();
+    created.id = 7L;
+    created.businessUnitCode = "BU-1";
+    var result = new WarehouseBatchResult();
+    result.created.add(created);
+    result.rejected.add(new WarehouseBatchResult.Rejection(1, "BU-2", "Invalid location"));
+    when(createWarehouseUseCase.createAll(any(), eq(false))).thenReturn(result);
+
+    var response = resource.createWarehouseUnitsInBatch(false, List.of(request, request));
+
+    assertEquals(1, response.getCreated().size());
+    assertEquals("7", response.getCreated().get(0).getId());
+    assertEquals(1, response.getRejected().size());
+    assertEquals(1, response.getRejected().get(0).getIndex());
+    assertEquals("Invalid location", response.getRejected().get(0).getError());
+  }
+
+  @Test
+  void createWarehouseUnitsInBatch_defaultsToAtomic() {
+    com.warehouse.api.beans.Warehouse request = new com.warehouse.api.beans.Warehouse();
+    request.setBusinessUnitCode("BU-1");
+    when(createWarehouseUseCase.createAll(any(), eq(true))).thenReturn(new WarehouseBatchResult());
+
+    resource.createWarehouseUnitsInBatch(null, List.of(request));
+
+    verify(createWarehouseUseCase).createAll(any(), eq(true));
+  }
+
+  @Test
+  void createWarehouseUnitsInBatch_emptyBatch_throws400() {
+    WebApplicationException ex =
+        assertThrows(
+            WebApplicationException.class,
+            () -> resource.createWarehouseUnitsInBatch(true, List.of()));
+    assertEquals(400, ex.getResponse().getStatus());
+  }
+
+  @Test
+  void createWarehouseUnitsInBatch_tooLarge_throws400() {
+    var batch =
+        Collections.nCopies(
+            WarehouseResourceImpl.MAX_BATCH_SIZE + 1, new com.warehouse.api.beans.Warehouse());
+
+    WebApplicationException ex =
+        assertThrows(
+            WebApplicationException.class, () -> resource.createWarehouseUnitsInBatch(true, batch));
+    assertEquals(400, ex.getResponse().getStatus());
+  }
+
+  @Test
+  void createWarehouseUnitsInBatch_useCaseIllegalArgument_throws400() {
+    com.warehouse.api.beans.Warehouse request = new com.warehouse.api.beans.Warehouse();
+    request.setBusinessUnitCode("BU-1");
+    doThrow(new IllegalArgumentException("Batch rejected"))
+        .when(createWarehouseUseCase)
+        .createAll(any(), eq(true));
+
+    WebApplicationException ex =
+        assertThrows(
+            WebApplicationException.class,
+            () -> resource.createWarehouseUnitsInBatch(true, List.of(request)));
+    assertEquals(400, ex.getResponse().getStatus());
+  }
+
   @Test
   void getAWarehouseUnitByID_invalidId_throws400() {
     WebApplicationException ex =
@@ -137,6 +248,41 @@ public class WarehouseResourceImplTest {
     assertNotNull(response.getCapacity());
   }
 
+  @Test
+  void getAWarehouseUnitByID_archived_readsHistory() {
+    var archived = new com.fulfilment.application.monolith.warehouses.domain.models.Warehouse();
+    archived.id = 11L;
+    archived.businessUnitCode = "BU-11";
+    archived.archivedAt = LocalDateTime.now();
+    when(warehouseRepository.findById(11L)).thenReturn(null);
+    when(warehouseRepository.findArchivedById(11L)).thenReturn(archived);
+
+    com.warehouse.api.beans.Warehouse response = resource.getAWarehouseUnitByID("11");
+
+    assertEquals("11", response.getId());
+    assertEquals("BU-11", response.getBusinessUnitCode());
+  }
+
+  @Test
+  void listTheArchivedWarehousesOfABusinessUnit_mapsHistory() {
+    var archived = new com.fulfilment.application.monolith.warehouses.domain.models.Warehouse();
+    archived.id = 12L;
+    archived.businessUnitCode = "BU-12";
+    archived.location = "AMSTERDAM-001";
+    archived.capacity = 20;
+    archived.stock = 4;
+    archived.createdAt = LocalDateTime.of(2024, 7, 1, 0, 0);
+    archived.archivedAt = LocalDateTime.of(2025, 1, 15, 9, 30);
+    when(warehouseRepository.findArchivedByBusinessUnitCode("BU-12")).thenReturn(List.of(archived));
+
+    List<ArchivedWarehouse> response = resource.listTheArchivedWarehousesOfABusinessUnit("BU-12");
+
+    assertEquals(1, response.size());
+    assertEquals("12", response.get(0).getId());
+    assertEquals("2024-07-01T00:00", response.get(0).getCreatedAt());
+    assertEquals("2025-01-15T09:30", response.get(0).getArchivedAt());
+  }
+
   @Test
   void archiveAWarehouseUnitByID_invalidId_throws400() {
     WebApplicationException ex =
@@ -153,6 +299,19 @@ public class WarehouseResourceImplTest {
     assertEquals(404, ex.getResponse().getStatus());
   }
 
+  @Test
+  void archiveAWarehouseUnitByID_removesTheFulfilmentAssignments() {
+    DbWarehouse entity = new DbWarehouse();
+    entity.id = 1L;
+    entity.businessUnitCode = "BU-1";
+    when(warehouseRepository.findById(1L)).thenReturn(entity);
+
+    resource.archiveAWarehouseUnitByID("1");
+
+    verify(archiveWarehouseUseCase).archive(any());
+    verify(fulfilmentAssignments).unassignWarehouse("BU-1");
+  }
+
   @Test
   void archiveAWarehouseUnitByID_illegalState_throws404() {
     DbWarehouse entity = new DbWarehouse();
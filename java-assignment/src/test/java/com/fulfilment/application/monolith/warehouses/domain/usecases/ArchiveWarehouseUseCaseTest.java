@@ -20,7 +20,7 @@ public class ArchiveWarehouseUseCaseTest {
     ArchiveWarehouseUseCase useCase = new ArchiveWarehouseUseCase(store);
 
     assertThrows(IllegalArgumentException.class, () -> useCase.archive(null));
-    verify(store, never()).update(any());
+    verify(store, never()).archive(any());
   }
 
   @Test
@@ -31,7 +31,7 @@ public class ArchiveWarehouseUseCaseTest {
     warehouse.businessUnitCode = " ";
 
     assertThrows(IllegalArgumentException.class, () -> useCase.archive(warehouse));
-    verify(store, never()).update(any());
+    verify(store, never()).archive(any());
   }
 
   @Test
@@ -40,10 +40,10 @@ public class ArchiveWarehouseUseCaseTest {
     ArchiveWarehouseUseCase useCase = new ArchiveWarehouseUseCase(store);
     Warehouse warehouse = new Warehouse();
     warehouse.businessUnitCode = "BU-001";
-    when(store.findByBusinessUnitCode("BU-001")).thenReturn(null);
+    when(store.lockByBusinessUnitCode("BU-001")).thenReturn(null);
 
     assertThrows(IllegalStateException.class, () -> useCase.archive(warehouse));
-    verify(store, never()).update(any());
+    verify(store, never()).archive(any());
   }
 
   @Test
@@ -55,10 +55,10 @@ public class ArchiveWarehouseUseCaseTest {
     Warehouse current = new Warehouse();
     current.businessUnitCode = "BU-001";
     current.archivedAt = java.time.LocalDateTime.now();
-    when(store.findByBusinessUnitCode("BU-001")).thenReturn(current);
+    when(store.lockByBusinessUnitCode("BU-001")).thenReturn(current);
 
     assertThrows(IllegalStateException.class, () -> useCase.archive(request));
-    verify(store, never()).update(any());
+    verify(store, never()).archive(any());
   }
 
   @Test
@@ -70,11 +70,28 @@ public class ArchiveWarehouseUseCaseTest {
     Warehouse current = new Warehouse();
     current.businessUnitCode = "BU-001";
     current.archivedAt = null;
-    when(store.findByBusinessUnitCode("BU-001")).thenReturn(current);
+    when(store.lockByBusinessUnitCode("BU-001")).thenReturn(current);
+    when(store.archive(current)).thenReturn(true);
 
     useCase.archive(request);
 
     assertNotNull(current.archivedAt);
-    verify(store).update(current);
+    verify(store).archive(current);
+    // a cached hit may be a unit that was replaced meanwhile
+    verify(store, never()).findByBusinessUnitCode(any());
+  }
+
+  @Test
+  void archive_noRowArchived_throws() {
+    WarehouseStore store = mock(WarehouseStore.class);
+    ArchiveWarehouseUseCase useCase = new ArchiveWarehouseUseCase(store);
+    Warehouse request = new Warehouse();
+    request.businessUnitCode = "BU-001";
+    Warehouse current = new Warehouse();
+    current.businessUnitCode = "BU-001";
+    when(store.lockByBusinessUnitCode("BU-001")).thenReturn(current);
+    when(store.archive(current)).thenReturn(false);
+
+    assertThrows(IllegalStateException.class, () -> useCase.archive(request));
   }
 }
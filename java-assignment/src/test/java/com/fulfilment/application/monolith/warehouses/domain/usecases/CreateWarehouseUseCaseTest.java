@@ -1,20 +1,29 @@
 package com.fulfilment.application.monolith.warehouses.domain.usecases;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.fulfilment.application.monolith.warehouses.domain.models.Location;
+import com.fulfilment.application.monolith.warehouses.domain.models.LocationOccupancy;
 import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import com.fulfilment.application.monolith.warehouses.domain.models.WarehouseBatchResult;
+import com.fulfilment.application.monolith.warehouses.domain.ports.LocationAdmissionGuard;
 import com.fulfilment.application.monolith.warehouses.domain.ports.LocationResolver;
 import com.fulfilment.application.monolith.warehouses.domain.ports.WarehouseStore;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 
 public class CreateWarehouseUseCaseTest {
 
@@ -22,7 +31,8 @@ public class CreateWarehouseUseCaseTest {
   void create_nullWarehouse_throws() {
     WarehouseStore store = mock(WarehouseStore.class);
     LocationResolver resolver = mock(LocationResolver.class);
-    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver, guard);
 
     assertThrows(IllegalArgumentException.class, () -> useCase.create(null));
     verify(store, never()).create(any());
@@ -32,7 +42,8 @@ public class CreateWarehouseUseCaseTest {
   void create_stockGreaterThanCapacity_throws() {
     WarehouseStore store = mock(WarehouseStore.class);
     LocationResolver resolver = mock(LocationResolver.class);
-    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver, guard);
     Warehouse warehouse = validWarehouse();
     warehouse.stock = 11;
     warehouse.capacity = 10;
@@ -45,7 +56,8 @@ public class CreateWarehouseUseCaseTest {
   void create_duplicateBusinessUnitCode_throws() {
     WarehouseStore store = mock(WarehouseStore.class);
     LocationResolver resolver = mock(LocationResolver.class);
-    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver, guard);
     Warehouse warehouse = validWarehouse();
     when(store.findByBusinessUnitCode("BU-001")).thenReturn(new Warehouse());
 
@@ -57,7 +69,8 @@ public class CreateWarehouseUseCaseTest {
   void create_invalidLocation_throws() {
     WarehouseStore store = mock(WarehouseStore.class);
     LocationResolver resolver = mock(LocationResolver.class);
-    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver, guard);
     Warehouse warehouse = validWarehouse();
     when(store.findByBusinessUnitCode("BU-001")).thenReturn(null);
     when(resolver.resolveByIdentifier("AMSTERDAM-001")).thenReturn(null);
@@ -70,12 +83,14 @@ public class CreateWarehouseUseCaseTest {
   void create_maxWarehousesAtLocationExceeded_throws() {
     WarehouseStore store = mock(WarehouseStore.class);
     LocationResolver resolver = mock(LocationResolver.class);
-    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver, guard);
     Warehouse warehouse = validWarehouse();
     when(store.findByBusinessUnitCode("BU-001")).thenReturn(null);
     when(resolver.resolveByIdentifier("AMSTERDAM-001"))
         .thenReturn(new Location("AMSTERDAM-001", 1, 100));
-    when(store.getAll()).thenReturn(List.of(existingWarehouse("OTHER-1", "AMSTERDAM-001", 40, 5)));
+    when(store.getActiveOccupancyByLocation("AMSTERDAM-001"))
+        .thenReturn(new LocationOccupancy(1, 40));
 
     assertThrows(IllegalArgumentException.class, () -> useCase.create(warehouse));
     verify(store, never()).create(any());
@@ -85,13 +100,15 @@ public class CreateWarehouseUseCaseTest {
   void create_capacityLimitExceeded_throws() {
     WarehouseStore store = mock(WarehouseStore.class);
     LocationResolver resolver = mock(LocationResolver.class);
-    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver, guard);
     Warehouse warehouse = validWarehouse();
     warehouse.capacity = 30;
     when(store.findByBusinessUnitCode("BU-001")).thenReturn(null);
     when(resolver.resolveByIdentifier("AMSTERDAM-001"))
         .thenReturn(new Location("AMSTERDAM-001", 5, 50));
-    when(store.getAll()).thenReturn(List.of(existingWarehouse("OTHER-1", "AMSTERDAM-001", 25, 5)));
+    when(store.getActiveOccupancyByLocation("AMSTERDAM-001"))
+        .thenReturn(new LocationOccupancy(1, 25));
 
     assertThrows(IllegalArgumentException.class, () -> useCase.create(warehouse));
     verify(store, never()).create(any());
@@ -101,36 +118,162 @@ public class CreateWarehouseUseCaseTest {
   void create_success_setsAuditFieldsAndCallsStore() {
     WarehouseStore store = mock(WarehouseStore.class);
     LocationResolver resolver = mock(LocationResolver.class);
-    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver, guard);
     Warehouse warehouse = validWarehouse();
     when(store.findByBusinessUnitCode("BU-001")).thenReturn(null);
     when(resolver.resolveByIdentifier("AMSTERDAM-001"))
         .thenReturn(new Location("AMSTERDAM-001", 5, 100));
-    when(store.getAll()).thenReturn(List.of(existingWarehouse("OTHER-1", "AMSTERDAM-001", 20, 3)));
+    when(store.getActiveOccupancyByLocation("AMSTERDAM-001"))
+        .thenReturn(new LocationOccupancy(1, 20));
 
     useCase.create(warehouse);
 
     verify(store).create(warehouse);
+    verify(store, never()).getAll();
     assertNotNull(warehouse.createdAt);
     assertNull(warehouse.archivedAt);
   }
 
-  private static Warehouse validWarehouse() {
-    Warehouse warehouse = new Warehouse();
-    warehouse.businessUnitCode = "BU-001";
-    warehouse.location = "AMSTERDAM-001";
-    warehouse.capacity = 40;
-    warehouse.stock = 10;
-    return warehouse;
+  @Test
+  void create_acquiresLocationAdmissionBeforeCheckingOccupancy() {
+    WarehouseStore store = mock(WarehouseStore.class);
+    LocationResolver resolver = mock(LocationResolver.class);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver, guard);
+    Warehouse warehouse = validWarehouse();
+    when(resolver.resolveByIdentifier("AMSTERDAM-001"))
+        .thenReturn(new Location("AMSTERDAM-001", 5, 100));
+    when(store.getActiveOccupancyByLocation("AMSTERDAM-001"))
+        .thenReturn(new LocationOccupancy(0, 0));
+
+    useCase.create(warehouse);
+
+    InOrder inOrder = inOrder(guard, store);
+    inOrder.verify(guard).acquire("AMSTERDAM-001");
+    inOrder.verify(store).getActiveOccupancyByLocation("AMSTERDAM-001");
+    inOrder.verify(store).create(warehouse);
+  }
+
+  @Test
+  void create_invalidLocation_doesNotAcquireAdmission() {
+    WarehouseStore store = mock(WarehouseStore.class);
+    LocationResolver resolver = mock(LocationResolver.class);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver, guard);
+
+    assertThrows(IllegalArgumentException.class, () -> useCase.create(validWarehouse()));
+    verify(guard, never()).acquire(any());
+  }
+
+  @Test
+  void createAll_emptyBatch_throws() {
+    WarehouseStore store = mock(WarehouseStore.class);
+    LocationResolver resolver = mock(LocationResolver.class);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver, guard);
+
+    assertThrows(IllegalArgumentException.class, () -> useCase.createAll(List.of(), true));
+    verify(store, never()).createAll(any());
+  }
+
+  @Test
+  void createAll_nonAtomic_rejectsInvalidItemsAndCreatesTheRest() {
+    WarehouseStore store = mock(WarehouseStore.class);
+    LocationResolver resolver = mock(LocationResolver.class);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver, guard);
+    when(resolver.resolveByIdentifier("AMSTERDAM-001"))
+        .thenReturn(new Location("AMSTERDAM-001", 2, 100));
+    when(store.findActiveBusinessUnitCodes(any())).thenReturn(Set.of("BU-EXISTING"));
+    when(store.getActiveOccupancyByLocations(any()))
+        .thenReturn(Map.of("AMSTERDAM-001", new LocationOccupancy(0, 50)));
+
+    Warehouse first = batchWarehouse("BU-1", "AMSTERDAM-001", 30);
+    Warehouse duplicate = batchWarehouse("BU-1", "AMSTERDAM-001", 10);
+    Warehouse existing = batchWarehouse("BU-EXISTING", "AMSTERDAM-001", 10);
+    Warehouse unknownLocation = batchWarehouse("BU-2", "NOWHERE-001", 10);
+    Warehouse overCapacity = batchWarehouse("BU-3", "AMSTERDAM-001", 30);
+    Warehouse second = batchWarehouse("BU-4", "AMSTERDAM-001", 10);
+    Warehouse overCount = batchWarehouse("BU-5", "AMSTERDAM-001", 1);
+
+    WarehouseBatchResult result =
+        useCase.createAll(
+            Arrays.asList(
+                first, duplicate, existing, unknownLocation, overCapacity, second, overCount, null),
+            false);
+
+    assertEquals(List.of(first, second), result.created);
+    assertEquals(
+        List.of(1, 2, 3, 4, 6, 7), result.rejected.stream().map(r -> r.index).toList());
+    assertEquals("Location capacity limit exceeded", result.rejected.get(3).reason);
+    assertEquals(
+        "Maximum number of warehouses reached for this location", result.rejected.get(4).reason);
+    assertNotNull(first.createdAt);
+    verify(store).createAll(List.of(first, second));
+    verify(guard).acquireAll(Set.of("AMSTERDAM-001"));
+    verify(store, never()).getAll();
+  }
+
+  @Test
+  void createAll_atomic_rejectsWholeBatchWhenAnyItemIsInvalid() {
+    WarehouseStore store = mock(WarehouseStore.class);
+    LocationResolver resolver = mock(LocationResolver.class);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver, guard);
+    when(resolver.resolveByIdentifier("AMSTERDAM-001"))
+        .thenReturn(new Location("AMSTERDAM-001", 5, 100));
+    when(store.findActiveBusinessUnitCodes(any())).thenReturn(Set.of());
+    when(store.getActiveOccupancyByLocations(any()))
+        .thenReturn(Map.of("AMSTERDAM-001", new LocationOccupancy(0, 0)));
+
+    List<Warehouse> batch =
+        List.of(
+            batchWarehouse("BU-1", "AMSTERDAM-001", 30),
+            batchWarehouse("BU-2", "NOWHERE-001", 10));
+
+    assertThrows(IllegalArgumentException.class, () -> useCase.createAll(batch, true));
+    verify(store, never()).createAll(any());
+  }
+
+  @Test
+  void createAll_acquiresAllLocationsBeforeCheckingOccupancy() {
+    WarehouseStore store = mock(WarehouseStore.class);
+    LocationResolver resolver = mock(LocationResolver.class);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    CreateWarehouseUseCase useCase = new CreateWarehouseUseCase(store, resolver, guard);
+    when(resolver.resolveByIdentifier("ZWOLLE-002")).thenReturn(new Location("ZWOLLE-002", 2, 50));
+    when(resolver.resolveByIdentifier("AMSTERDAM-001"))
+        .thenReturn(new Location("AMSTERDAM-001", 5, 100));
+    when(store.findActiveBusinessUnitCodes(any())).thenReturn(Set.of());
+    when(store.getActiveOccupancyByLocations(any())).thenReturn(Map.of());
+
+    useCase.createAll(
+        List.of(
+            batchWarehouse("BU-1", "ZWOLLE-002", 10),
+            batchWarehouse("BU-2", "AMSTERDAM-001", 10)),
+        true);
+
+    InOrder inOrder = inOrder(guard, store);
+    inOrder.verify(guard).acquireAll(Set.of("AMSTERDAM-001", "ZWOLLE-002"));
+    inOrder.verify(store).getActiveOccupancyByLocations(any());
   }
 
-  private static Warehouse existingWarehouse(
-      String businessUnitCode, String location, int capacity, int stock) {
+  private static Warehouse batchWarehouse(String businessUnitCode, String location, int capacity) {
     Warehouse warehouse = new Warehouse();
     warehouse.businessUnitCode = businessUnitCode;
     warehouse.location = location;
     warehouse.capacity = capacity;
-    warehouse.stock = stock;
+    warehouse.stock = 0;
+    return warehouse;
+  }
+
+  private static Warehouse validWarehouse() {
+    Warehouse warehouse = new Warehouse();
+    warehouse.businessUnitCode = "BU-001";
+    warehouse.location = "AMSTERDAM-001";
+    warehouse.capacity = 40;
+    warehouse.stock = 10;
     return warehouse;
   }
 }
@@ -4,17 +4,20 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.fulfilment.application.monolith.warehouses.domain.models.Location;
+import com.fulfilment.application.monolith.warehouses.domain.models.LocationOccupancy;
 import com.fulfilment.application.monolith.warehouses.domain.models.Warehouse;
+import com.fulfilment.application.monolith.warehouses.domain.ports.LocationAdmissionGuard;
 import com.fulfilment.application.monolith.warehouses.domain.ports.LocationResolver;
 import com.fulfilment.application.monolith.warehouses.domain.ports.WarehouseStore;
-import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 
 public class ReplaceWarehouseUseCaseTest {
 
@@ -22,10 +25,11 @@ public class ReplaceWarehouseUseCaseTest {
   void replace_nullWarehouse_throws() {
     WarehouseStore store = mock(WarehouseStore.class);
     LocationResolver resolver = mock(LocationResolver.class);
-    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver, guard);
 
     assertThrows(IllegalArgumentException.class, () -> useCase.replace(null));
-    verify(store, never()).update(any());
+    verify(store, never()).archive(any());
     verify(store, never()).create(any());
   }
 
@@ -33,12 +37,13 @@ public class ReplaceWarehouseUseCaseTest {
   void replace_currentWarehouseNotFound_throws() {
     WarehouseStore store = mock(WarehouseStore.class);
     LocationResolver resolver = mock(LocationResolver.class);
-    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver, guard);
     Warehouse replacement = replacementWarehouse();
-    when(store.findByBusinessUnitCode("BU-001")).thenReturn(null);
+    when(store.lockByBusinessUnitCode("BU-001")).thenReturn(null);
 
     assertThrows(IllegalStateException.class, () -> useCase.replace(replacement));
-    verify(store, never()).update(any());
+    verify(store, never()).archive(any());
     verify(store, never()).create(any());
   }
 
@@ -46,15 +51,16 @@ public class ReplaceWarehouseUseCaseTest {
   void replace_capacityLessThanCurrentStock_throws() {
     WarehouseStore store = mock(WarehouseStore.class);
     LocationResolver resolver = mock(LocationResolver.class);
-    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver, guard);
     Warehouse replacement = replacementWarehouse();
     replacement.capacity = 3;
     Warehouse current = activeCurrentWarehouse();
     current.stock = 5;
-    when(store.findByBusinessUnitCode("BU-001")).thenReturn(current);
+    when(store.lockByBusinessUnitCode("BU-001")).thenReturn(current);
 
     assertThrows(IllegalArgumentException.class, () -> useCase.replace(replacement));
-    verify(store, never()).update(any());
+    verify(store, never()).archive(any());
     verify(store, never()).create(any());
   }
 
@@ -62,15 +68,16 @@ public class ReplaceWarehouseUseCaseTest {
   void replace_stockMismatch_throws() {
     WarehouseStore store = mock(WarehouseStore.class);
     LocationResolver resolver = mock(LocationResolver.class);
-    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver, guard);
     Warehouse replacement = replacementWarehouse();
     replacement.stock = 6;
     Warehouse current = activeCurrentWarehouse();
     current.stock = 5;
-    when(store.findByBusinessUnitCode("BU-001")).thenReturn(current);
+    when(store.lockByBusinessUnitCode("BU-001")).thenReturn(current);
 
     assertThrows(IllegalArgumentException.class, () -> useCase.replace(replacement));
-    verify(store, never()).update(any());
+    verify(store, never()).archive(any());
     verify(store, never()).create(any());
   }
 
@@ -78,14 +85,15 @@ public class ReplaceWarehouseUseCaseTest {
   void replace_invalidLocation_throws() {
     WarehouseStore store = mock(WarehouseStore.class);
     LocationResolver resolver = mock(LocationResolver.class);
-    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver, guard);
     Warehouse replacement = replacementWarehouse();
     Warehouse current = activeCurrentWarehouse();
-    when(store.findByBusinessUnitCode("BU-001")).thenReturn(current);
+    when(store.lockByBusinessUnitCode("BU-001")).thenReturn(current);
     when(resolver.resolveByIdentifier("AMSTERDAM-002")).thenReturn(null);
 
     assertThrows(IllegalArgumentException.class, () -> useCase.replace(replacement));
-    verify(store, never()).update(any());
+    verify(store, never()).archive(any());
     verify(store, never()).create(any());
   }
 
@@ -93,16 +101,18 @@ public class ReplaceWarehouseUseCaseTest {
   void replace_maxWarehousesAtLocationExceeded_throws() {
     WarehouseStore store = mock(WarehouseStore.class);
     LocationResolver resolver = mock(LocationResolver.class);
-    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver, guard);
     Warehouse replacement = replacementWarehouse();
     Warehouse current = activeCurrentWarehouse();
-    when(store.findByBusinessUnitCode("BU-001")).thenReturn(current);
+    when(store.lockByBusinessUnitCode("BU-001")).thenReturn(current);
     when(resolver.resolveByIdentifier("AMSTERDAM-002"))
         .thenReturn(new Location("AMSTERDAM-002", 1, 200));
-    when(store.getAll()).thenReturn(List.of(existingWarehouse("OTHER-1", "AMSTERDAM-002", 30, 2)));
+    when(store.getActiveOccupancyByLocationExcluding("AMSTERDAM-002", "BU-001"))
+        .thenReturn(new LocationOccupancy(1, 30));
 
     assertThrows(IllegalArgumentException.class, () -> useCase.replace(replacement));
-    verify(store, never()).update(any());
+    verify(store, never()).archive(any());
     verify(store, never()).create(any());
   }
 
@@ -110,17 +120,19 @@ public class ReplaceWarehouseUseCaseTest {
   void replace_capacityLimitExceeded_throws() {
     WarehouseStore store = mock(WarehouseStore.class);
     LocationResolver resolver = mock(LocationResolver.class);
-    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver, guard);
     Warehouse replacement = replacementWarehouse();
     replacement.capacity = 40;
     Warehouse current = activeCurrentWarehouse();
-    when(store.findByBusinessUnitCode("BU-001")).thenReturn(current);
+    when(store.lockByBusinessUnitCode("BU-001")).thenReturn(current);
     when(resolver.resolveByIdentifier("AMSTERDAM-002"))
         .thenReturn(new Location("AMSTERDAM-002", 5, 50));
-    when(store.getAll()).thenReturn(List.of(existingWarehouse("OTHER-1", "AMSTERDAM-002", 20, 2)));
+    when(store.getActiveOccupancyByLocationExcluding("AMSTERDAM-002", "BU-001"))
+        .thenReturn(new LocationOccupancy(1, 20));
 
     assertThrows(IllegalArgumentException.class, () -> useCase.replace(replacement));
-    verify(store, never()).update(any());
+    verify(store, never()).archive(any());
     verify(store, never()).create(any());
   }
 
@@ -128,24 +140,72 @@ public class ReplaceWarehouseUseCaseTest {
   void replace_success_archivesCurrentAndCreatesReplacement() {
     WarehouseStore store = mock(WarehouseStore.class);
     LocationResolver resolver = mock(LocationResolver.class);
-    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver, guard);
     Warehouse replacement = replacementWarehouse();
     Warehouse current = activeCurrentWarehouse();
-    when(store.findByBusinessUnitCode("BU-001")).thenReturn(current);
+    when(store.lockByBusinessUnitCode("BU-001")).thenReturn(current);
     when(resolver.resolveByIdentifier("AMSTERDAM-002"))
         .thenReturn(new Location("AMSTERDAM-002", 5, 100));
-    when(store.getAll()).thenReturn(List.of(existingWarehouse("OTHER-1", "AMSTERDAM-002", 20, 2)));
+    when(store.getActiveOccupancyByLocationExcluding("AMSTERDAM-002", "BU-001"))
+        .thenReturn(new LocationOccupancy(1, 20));
+    when(store.archive(current)).thenReturn(true);
 
     useCase.replace(replacement);
 
-    verify(store).update(current);
+    verify(store).archive(current);
+    verify(store, never()).findByBusinessUnitCode(any());
     verify(store).create(replacement);
+    verify(store, never()).getAll();
     assertNotNull(current.archivedAt);
     assertNull(replacement.id);
     assertNotNull(replacement.createdAt);
     assertNull(replacement.archivedAt);
   }
 
+  @Test
+  void replace_acquiresAdmissionForNewLocationBeforeCheckingOccupancy() {
+    WarehouseStore store = mock(WarehouseStore.class);
+    LocationResolver resolver = mock(LocationResolver.class);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver, guard);
+    Warehouse replacement = replacementWarehouse();
+    Warehouse current = activeCurrentWarehouse();
+    when(store.lockByBusinessUnitCode("BU-001")).thenReturn(current);
+    when(resolver.resolveByIdentifier("AMSTERDAM-002"))
+        .thenReturn(new Location("AMSTERDAM-002", 5, 100));
+    when(store.getActiveOccupancyByLocationExcluding("AMSTERDAM-002", "BU-001"))
+        .thenReturn(new LocationOccupancy(0, 0));
+    when(store.archive(current)).thenReturn(true);
+
+    useCase.replace(replacement);
+
+    InOrder inOrder = inOrder(guard, store);
+    inOrder.verify(guard).acquire("AMSTERDAM-002");
+    inOrder.verify(store).getActiveOccupancyByLocationExcluding("AMSTERDAM-002", "BU-001");
+    inOrder.verify(store).archive(current);
+    inOrder.verify(store).create(replacement);
+  }
+
+  @Test
+  void replace_currentArchivedMeanwhile_throwsAndCreatesNothing() {
+    WarehouseStore store = mock(WarehouseStore.class);
+    LocationResolver resolver = mock(LocationResolver.class);
+    LocationAdmissionGuard guard = mock(LocationAdmissionGuard.class);
+    ReplaceWarehouseUseCase useCase = new ReplaceWarehouseUseCase(store, resolver, guard);
+    Warehouse replacement = replacementWarehouse();
+    Warehouse current = activeCurrentWarehouse();
+    when(store.lockByBusinessUnitCode("BU-001")).thenReturn(current);
+    when(resolver.resolveByIdentifier("AMSTERDAM-002"))
+        .thenReturn(new Location("AMSTERDAM-002", 5, 100));
+    when(store.getActiveOccupancyByLocationExcluding("AMSTERDAM-002", "BU-001"))
+        .thenReturn(new LocationOccupancy(0, 0));
+    when(store.archive(current)).thenReturn(false);
+
+    assertThrows(IllegalStateException.class, () -> useCase.replace(replacement));
+    verify(store, never()).create(any());
+  }
+
   private static Warehouse replacementWarehouse() {
     Warehouse warehouse = new Warehouse();
     warehouse.businessUnitCode = "BU-001";
@@ -165,14 +225,4 @@ public class ReplaceWarehouseUseCaseTest {
     warehouse.archivedAt = null;
     return warehouse;
   }
-
-  private static Warehouse existingWarehouse(
-      String businessUnitCode, String location, int capacity, int stock) {
-    Warehouse warehouse = new Warehouse();
-    warehouse.businessUnitCode = businessUnitCode;
-    warehouse.location = location;
-    warehouse.capacity = capacity;
-    warehouse.stock = stock;
-    return warehouse;
-  }
 }